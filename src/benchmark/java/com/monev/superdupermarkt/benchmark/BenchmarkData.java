@@ -0,0 +1,111 @@
+package com.monev.superdupermarkt.benchmark;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.Wine;
+import com.monev.superdupermarkt.util.MeatTypeEnum;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+/**
+ * Creates the products, files and tables the benchmarks work on. All data is
+ * valid for the product rules on the day it is created, with the four product
+ * types in equal parts.
+ */
+final class BenchmarkData {
+
+   private BenchmarkData() {
+   }
+
+   /**
+    * Creates a product of the given type.
+    *
+    * @param type The name of the product type, e.g. "Cheese".
+    * @param id   The ID of the product.
+    * @return A new product.
+    */
+   static Product createProduct(String type, String id) {
+      LocalDate today = LocalDate.now();
+      switch (type) {
+      case "Cheese":
+         return new Cheese(id, "Gouda", 80, today.plusDays(70), 5.5);
+      case "Wine":
+         return new Wine(id, "Red Wine", 20, today.minusDays(30), 12.0);
+      case "Meat":
+         return new Meat(id, "Steak", 90, today.plusDays(3), 15.0, MeatTypeEnum.BEEF, false);
+      case "CommonProduct":
+         return new CommonProduct(id, "Bread", 40, today.plusDays(20), 2.5);
+      default:
+         throw new IllegalArgumentException("Unknown product type: " + type);
+      }
+   }
+
+   /**
+    * Writes a CSV file in the format of {@code csv/products.csv}.
+    *
+    * @param file The file to write.
+    * @param rows The number of products.
+    * @throws IOException If the file cannot be written.
+    */
+   static void writeCsv(Path file, int rows) throws IOException {
+      LocalDate today = LocalDate.now();
+      String cheeseExpiry = today.plusDays(70).toString();
+      String wineExpiry = today.minusDays(30).toString();
+      String meatExpiry = today.plusDays(3).toString();
+      String commonExpiry = today.plusDays(20).toString();
+      try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+         writer.write("Type,ID,Name,Quality,Expiry Date,Default Price,Meat Type,Vacuum Packed\n");
+         for (int i = 0; i < rows; i++) {
+            switch (i % 4) {
+            case 0:
+               writer.write("Cheese,C" + i + ",Gouda,80," + cheeseExpiry + ",5.50,,\n");
+               break;
+            case 1:
+               writer.write("Wine,W" + i + ",Red Wine,20," + wineExpiry + ",12.00,,\n");
+               break;
+            case 2:
+               writer.write("Meat,M" + i + ",Steak,90," + meatExpiry + ",15.00,BEEF,false\n");
+               break;
+            default:
+               writer.write("CommonProduct,P" + i + ",Bread,40," + commonExpiry + ",2.50,,\n");
+               break;
+            }
+         }
+      }
+   }
+
+   /**
+    * Creates a table in the format read by the SQL importer and fills it.
+    *
+    * @param connection The connection to an H2 database.
+    * @param table      The name of the table.
+    * @param rows       The number of products.
+    * @throws SQLException If the table cannot be created.
+    */
+   static void createTable(Connection connection, String table, int rows) throws SQLException {
+      LocalDate today = LocalDate.now();
+      try (Statement statement = connection.createStatement()) {
+         statement.execute("DROP TABLE IF EXISTS " + table);
+         statement.execute("CREATE TABLE " + table + " (type VARCHAR(50), id VARCHAR(50), name VARCHAR(50), "
+               + "quality INT, expiry_date DATE, base_price DOUBLE, meat_type VARCHAR(20), vacuum_packed BOOLEAN)");
+         statement.execute("INSERT INTO " + table + " SELECT "
+               + "CASEWHEN(MOD(X, 4) = 0, 'Cheese', CASEWHEN(MOD(X, 4) = 1, 'Wine', "
+               + "CASEWHEN(MOD(X, 4) = 2, 'Meat', 'CommonProduct'))), 'P' || X, 'Product ' || X, "
+               + "CASEWHEN(MOD(X, 4) = 2, 90, 40), "
+               + "CASEWHEN(MOD(X, 4) = 0, DATE '" + today.plusDays(70) + "', "
+               + "CASEWHEN(MOD(X, 4) = 2, DATE '" + today.plusDays(3) + "', DATE '" + today.plusDays(20) + "')), "
+               + "X / 100.0, CASEWHEN(MOD(X, 4) = 2, 'BEEF', NULL), FALSE "
+               + "FROM SYSTEM_RANGE(0, " + (rows - 1) + ")");
+      }
+   }
+}
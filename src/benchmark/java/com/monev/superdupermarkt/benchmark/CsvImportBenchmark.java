@@ -0,0 +1,64 @@
+package com.monev.superdupermarkt.benchmark;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.util.ProductImporter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link ProductImporter#importFromCSV(String)} and the parallel
+ * {@link ProductImporter#importFromCSV(String, int)} on generated files. Every
+ * invocation imports the whole file, so the time of a single import is
+ * reported.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class CsvImportBenchmark {
+
+   @Param({ "10000", "1000000", "10000000" })
+   public int rows;
+
+   private Path file;
+
+   @Setup
+   public void writeFile() throws IOException {
+      file = Files.createTempFile("products-" + rows + "-", ".csv");
+      BenchmarkData.writeCsv(file, rows);
+   }
+
+   @TearDown
+   public void deleteFile() throws IOException {
+      Files.deleteIfExists(file);
+   }
+
+   @Benchmark
+   public List<Product> importFromCSV() {
+      return ProductImporter.importFromCSV(file.toString());
+   }
+
+   @Benchmark
+   public List<Product> importFromCSVParallel() {
+      return ProductImporter.importFromCSV(file.toString(), Runtime.getRuntime().availableProcessors());
+   }
+}
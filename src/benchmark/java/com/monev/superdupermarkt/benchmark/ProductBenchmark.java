@@ -0,0 +1,83 @@
+package com.monev.superdupermarkt.benchmark;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductState;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the per-product operations of every product type: a single day of
+ * {@link Product#updateQuality()} and of {@link Product#nextState(ProductState)},
+ * {@link Product#calculateDailyPrice()} and {@link Product#toString()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ProductBenchmark {
+
+   // Products updated per invocation, so resetting them is not measured per
+   // product
+   private static final int BATCH = 1024;
+
+   @Param({ "Cheese", "Wine", "Meat", "CommonProduct" })
+   public String type;
+
+   private Product template;
+   private final Product[] products = new Product[BATCH];
+
+   @Setup(Level.Trial)
+   public void createTemplate() {
+      template = BenchmarkData.createProduct(type, "B001");
+   }
+
+   // updateQuality changes the products, so every invocation starts from fresh
+   // copies of the template
+   @Setup(Level.Invocation)
+   public void resetProducts() {
+      for (int i = 0; i < BATCH; i++) {
+         products[i] = template.clone();
+      }
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BATCH)
+   public void updateQuality(Blackhole blackhole) {
+      for (Product product : products) {
+         product.updateQuality();
+         blackhole.consume(product.getQuality());
+      }
+   }
+
+   @Benchmark
+   public ProductState nextState() {
+      return template.nextState(template.getState());
+   }
+
+   @Benchmark
+   public double calculateDailyPrice() {
+      return template.calculateDailyPrice();
+   }
+
+   @Benchmark
+   public String toStringProduct() {
+      return template.toString();
+   }
+}
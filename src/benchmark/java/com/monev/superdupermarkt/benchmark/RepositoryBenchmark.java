@@ -0,0 +1,65 @@
+package com.monev.superdupermarkt.benchmark;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures single changes of a {@link ProductRepository} of different sizes:
+ * adding a product and removing it again, and replacing a product. The cost of
+ * a change should not grow with the number of products.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class RepositoryBenchmark {
+
+   @Param({ "1000", "1000000", "4000000" })
+   public int products;
+
+   private ProductRepository repository;
+   private Product added;
+   private Product replacement;
+
+   @Setup
+   public void fillRepository() {
+      String[] types = { "Cheese", "Wine", "Meat", "CommonProduct" };
+      List<Product> inventory = new ArrayList<>(products);
+      for (int i = 0; i < products; i++) {
+         inventory.add(BenchmarkData.createProduct(types[i % 4], "P" + i));
+      }
+      repository = new ProductRepository();
+      repository.addAll(inventory);
+      added = BenchmarkData.createProduct("Cheese", "NEW");
+      replacement = BenchmarkData.createProduct("Cheese", "P" + products / 2);
+   }
+
+   @Benchmark
+   public Product addAndRemove() {
+      repository.add(added);
+      return repository.remove(added.getId());
+   }
+
+   @Benchmark
+   public Product put() {
+      return repository.put(replacement);
+   }
+}
@@ -0,0 +1,59 @@
+package com.monev.superdupermarkt.benchmark;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductState;
+import com.monev.superdupermarkt.simulation.SimulationSink;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link Product#simulate(long, SimulationSink)} of a
+ * single product over different horizons. The sink only consumes the values,
+ * so the simulation itself is measured and not the output.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SimulationBenchmark {
+
+   @Param({ "Cheese", "Wine", "Meat", "CommonProduct" })
+   public String type;
+
+   @Param({ "10", "100", "1000" })
+   public long days;
+
+   private Product product;
+
+   // The simulation does not change the product, so all invocations share it
+   @Setup
+   public void createProduct() {
+      product = BenchmarkData.createProduct(type, "B001");
+   }
+
+   @Benchmark
+   public void simulate(Blackhole blackhole) {
+      product.simulate(days, new SimulationSink() {
+         @Override
+         public void accept(Product product, ProductState state) {
+            blackhole.consume(state.quality());
+            blackhole.consume(state.date());
+         }
+      });
+   }
+}
@@ -0,0 +1,102 @@
+package com.monev.superdupermarkt.benchmark;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.simulation.JdbcSimulationSink;
+import com.monev.superdupermarkt.simulation.SimulationEngine;
+import com.monev.superdupermarkt.util.ProductExporter;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link ProductExporter#exportToSQL(List, String, List, int)} and the
+ * export of a 30 day simulation through a {@link JdbcSimulationSink} into an
+ * in-memory H2 database, over one or several connections. The tables are
+ * created empty before every invocation, so the time of a single export is
+ * reported.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class SqlExportBenchmark {
+
+   private static final int SIMULATED_DAYS = 30;
+   private static final int BATCH_SIZE = 1000;
+
+   @Param({ "10000", "1000000" })
+   public int products;
+
+   @Param({ "1", "4" })
+   public int connections;
+
+   private List<Product> inventory;
+   private List<Connection> openConnections;
+
+   @Setup
+   public void openConnections() throws SQLException {
+      inventory = new ArrayList<>(products);
+      String[] types = { "Cheese", "Wine", "Meat", "CommonProduct" };
+      for (int i = 0; i < products; i++) {
+         inventory.add(BenchmarkData.createProduct(types[i % 4], "P" + i));
+      }
+      openConnections = new ArrayList<>();
+      for (int i = 0; i < connections; i++) {
+         openConnections.add(DriverManager.getConnection("jdbc:h2:mem:export;DB_CLOSE_DELAY=-1"));
+      }
+   }
+
+   @Setup(Level.Invocation)
+   public void createTables() throws SQLException {
+      try (Statement statement = openConnections.get(0).createStatement()) {
+         statement.execute("DROP ALL OBJECTS");
+         statement.execute("CREATE TABLE products (type VARCHAR(50), id VARCHAR(50), name VARCHAR(50), "
+               + "quality INT, expiry_date DATE, base_price DOUBLE, meat_type VARCHAR(20), vacuum_packed BOOLEAN)");
+      }
+      JdbcSimulationSink.createTable(openConnections.get(0), "simulation");
+   }
+
+   @TearDown
+   public void closeConnections() throws SQLException {
+      try (Statement statement = openConnections.get(0).createStatement()) {
+         statement.execute("DROP ALL OBJECTS");
+      }
+      for (Connection connection : openConnections) {
+         connection.close();
+      }
+   }
+
+   @Benchmark
+   public long exportToSQL() {
+      return ProductExporter.exportToSQL(openConnections, "products", inventory, BATCH_SIZE);
+   }
+
+   @Benchmark
+   public long exportSimulation() throws SQLException {
+      try (JdbcSimulationSink sink = new JdbcSimulationSink(openConnections, "simulation", BATCH_SIZE)) {
+         new SimulationEngine().simulate(inventory, SIMULATED_DAYS, sink);
+         return sink.getRowCount();
+      }
+   }
+}
@@ -0,0 +1,59 @@
+package com.monev.superdupermarkt.benchmark;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.util.ProductImporter;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link ProductImporter#importFromSQL(Connection, String)} against a
+ * table in an in-memory H2 database.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class SqlImportBenchmark {
+
+   @Param({ "10000", "1000000" })
+   public int rows;
+
+   private Connection connection;
+
+   @Setup
+   public void createTable() throws SQLException {
+      connection = DriverManager.getConnection("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+      BenchmarkData.createTable(connection, "products", rows);
+   }
+
+   @TearDown
+   public void closeConnection() throws SQLException {
+      try (Connection closing = connection) {
+         closing.createStatement().execute("DROP ALL OBJECTS");
+      }
+   }
+
+   @Benchmark
+   public List<Product> importFromSQL() {
+      return ProductImporter.importFromSQL(connection, "products");
+   }
+}
@@ -1,21 +1,42 @@
 package com.monev.superdupermarkt;
 
-import com.monev.superdupermarkt.types.Cheese;
-import com.monev.superdupermarkt.types.CommonProduct;
-import com.monev.superdupermarkt.types.Meat;
-import com.monev.superdupermarkt.types.Wine;
+import com.monev.superdupermarkt.report.ProductReport;
+import com.monev.superdupermarkt.report.ReportLayout;
+import com.monev.superdupermarkt.simulation.SimulationEngine;
+import com.monev.superdupermarkt.simulation.TextSimulationSink;
+import com.monev.superdupermarkt.simulation.TrajectoryCache;
 import com.monev.superdupermarkt.util.MeatTypeEnum;
-import com.monev.superdupermarkt.util.PackageClassNameFinder;
+import com.monev.superdupermarkt.util.ProductField;
+import com.monev.superdupermarkt.util.ProductFields;
 import com.monev.superdupermarkt.util.ProductImporter;
-
+import com.monev.superdupermarkt.util.ProductSnapshot;
+import com.monev.superdupermarkt.util.ProductType;
+import com.monev.superdupermarkt.util.ProductTypeRegistry;
+import com.monev.superdupermarkt.util.SqlDeltaSync;
+import com.monev.superdupermarkt.util.SqlDeltaSyncStore;
+import com.monev.superdupermarkt.util.WriteAheadLog;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This is the main application class that starts the SuperDuperMarkt
@@ -23,11 +44,33 @@ import java.util.Scanner;
  */
 public class Application {
 
-   private static final List<Product> products = new ArrayList<>();
+   private static final ProductRepository products = new ProductRepository();
    private static final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+   private static final SimulationEngine simulationEngine = createSimulationEngine();
+   private static final ProductTypeRegistry productTypes = ProductTypeRegistry.getDefault();
+   // Inventory snapshot and the log of the changes after it, replayed on startup
+   private static final Path dataDirectory = Path.of(System.getProperty("superdupermarkt.data", "data"));
+   private static final Path snapshotFile = dataDirectory.resolve("inventory.snapshot");
+   private static final Path logFile = dataDirectory.resolve("inventory.log");
+   // Watermarks of the SQL syncs, which are only valid together with the restored inventory
+   private static final Path syncFile = dataDirectory.resolve("sql-syncs.state");
+   // The log is compacted into the snapshot once it grows beyond this size
+   private static final long MAX_LOG_SIZE = 64L << 20;
+   private static final int REPORT_PAGE_SIZE = 50;
+   private static WriteAheadLog log;
+   // Syncs by connection string and table name, so the next sync continues from their watermark. They are
+   // stored in the sync file, so this also works after a restart.
+   private static final Map<String, SqlDeltaSync> deltaSyncs = new HashMap<>();
+   // Runs the imports one after another in the background, so the menu can be used while importing
+   private static final ExecutorService importer = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "import");
+      thread.setDaemon(true);
+      return thread;
+   });
 
    public static void main(String[] args) {
       Scanner scanner = new Scanner(System.in);
+      restoreInventory();
 
       while (true) {
          System.out.println("Welcome to SuperDuperMarket! Do you wish to:");
@@ -36,20 +79,21 @@ public class Application {
          System.out.println("3. Simulate item quality for days.");
          System.out.println("4. Import products from CSV.");
          System.out.println("5. Import products from SQL.");
-         System.out.println("6. Exit");
+         System.out.println("6. Sync changed products from SQL.");
+         System.out.println("7. Exit");
          System.out.println();
          System.out.println("--------------------------------------------------------------------------");
          System.out.println();
 
          String input = scanner.nextLine();
-         int choice = validateIntegerInput(input, 1, 6);
+         int choice = validateIntegerInput(input, 1, 7);
 
          switch (choice) {
          case 1:
             addItem(scanner);
             break;
          case 2:
-            showAddedItems();
+            showAddedItems(scanner);
             break;
          case 3:
             simulateItemQuality(scanner);
@@ -61,12 +105,18 @@ public class Application {
             importFromSQL(scanner);
             break;
          case 6:
+            syncFromSQL(scanner);
+            break;
+         case 7:
+            awaitImports();
+            closeLog();
             System.out.println("Exiting SuperDuperMarket. Goodbye!");
             scanner.close();
             return;
          default:
             System.err.println("Invalid option. Please try again.");
          }
+         compactLogIfNeeded();
 
          // Sleep for a second so that all outputs are printed out before the next menu
          // prompt.
@@ -81,6 +131,115 @@ public class Application {
       }
    }
 
+   /**
+    * Restores the products of the last run from the inventory snapshot and the
+    * log of the changes after it, and records all further changes in the log.
+    */
+   private static void restoreInventory() {
+      try {
+         Files.createDirectories(dataDirectory);
+         if (Files.exists(snapshotFile)) {
+            products.addAll(ProductSnapshot.read(snapshotFile));
+         }
+         log = WriteAheadLog.open(logFile, products, getSyncPolicy(),
+               Long.getLong("superdupermarkt.fsync.interval", 1000));
+         products.setListener(log);
+         if (!products.isEmpty()) {
+            System.out.println("Restored " + products.size() + " products from " + dataDirectory + ".");
+         }
+      } catch (IOException | RuntimeException e) {
+         System.err.println("Failed to restore the products from " + dataDirectory + ": " + e.getMessage());
+         return;
+      }
+      try {
+         if (Files.exists(syncFile)) {
+            deltaSyncs.putAll(SqlDeltaSyncStore.read(syncFile));
+         }
+      } catch (IOException e) {
+         System.err.println("Failed to restore the SQL syncs from " + syncFile + ", the next syncs read the whole "
+               + "tables: " + e.getMessage());
+      }
+   }
+
+   /**
+    * Stores the watermarks of the SQL syncs. The log is synced first, so a stored
+    * watermark never gets ahead of the inventory that is restored on the next
+    * start.
+    */
+   private static void saveDeltaSyncs() {
+      if (log == null) {
+         return;
+      }
+      try {
+         log.sync();
+         SqlDeltaSyncStore.write(syncFile, deltaSyncs);
+      } catch (IOException e) {
+         System.err.println("Failed to store the SQL syncs in " + syncFile + ": " + e.getMessage());
+      }
+   }
+
+   private static WriteAheadLog.SyncPolicy getSyncPolicy() {
+      String policy = System.getProperty("superdupermarkt.fsync", WriteAheadLog.SyncPolicy.ALWAYS.name());
+      try {
+         return WriteAheadLog.SyncPolicy.valueOf(policy.toUpperCase());
+      } catch (IllegalArgumentException e) {
+         System.err.println("Unknown fsync policy " + policy + ", syncing every change.");
+         return WriteAheadLog.SyncPolicy.ALWAYS;
+      }
+   }
+
+   /**
+    * Writes the products to the inventory snapshot and starts an empty log once
+    * the log has grown too large.
+    */
+   private static void compactLogIfNeeded() {
+      if (log == null) {
+         return;
+      }
+      try {
+         if (log.size() > MAX_LOG_SIZE) {
+            products.lockWrites(snapshot -> log.compact(snapshotFile, snapshot));
+         }
+      } catch (IOException e) {
+         System.err.println("Failed to compact the log " + logFile + ": " + e.getMessage());
+      }
+   }
+
+   /**
+    * Waits until the imports that are still running in the background are done.
+    */
+   private static void awaitImports() {
+      importer.shutdown();
+      try {
+         if (!importer.awaitTermination(1, TimeUnit.MINUTES)) {
+            System.out.println("Waiting for the running imports to finish...");
+            importer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * Compacts the log into the inventory snapshot, so the next start only has to
+    * read the snapshot, and closes the log.
+    */
+   private static void closeLog() {
+      if (log == null) {
+         return;
+      }
+      try {
+         products.lockWrites(snapshot -> log.compact(snapshotFile, snapshot));
+      } catch (IOException e) {
+         System.err.println("Failed to write the products to " + snapshotFile + ": " + e.getMessage());
+      }
+      try {
+         log.close();
+      } catch (IOException e) {
+         System.err.println("Failed to close the log " + logFile + ": " + e.getMessage());
+      }
+   }
+
    /**
     * Prompts the user to add a new product to the system. The user is guided
     * through selecting a product type and providing the necessary details.
@@ -90,91 +249,115 @@ public class Application {
 
    private static void addItem(Scanner scanner) {
       System.out.println("Choose the type of item:");
-      List<String> classNames = null;
-      try {
-         // Dynamically retrieve and display product types available in the system
-         classNames = PackageClassNameFinder.getClassNamesInPackage("com.monev.superdupermarkt.types");
-         int i = 1;
-         for (String name : classNames) {
-            System.out.println(i + ". " + name);
-            i++;
+      // The product types available in the system. While the changes are logged,
+      // only the types the log can write are offered.
+      List<ProductType> types = new ArrayList<>();
+      for (ProductType type : productTypes.getTypes()) {
+         if (log == null || ProductSnapshot.canWrite(type.productClass())) {
+            types.add(type);
          }
-      } catch (Exception e) {
-         System.err.println(
-               "There was an error trying to find the product types in the project. The program will now close.");
-         System.exit(1);
+      }
+      int i = 1;
+      for (ProductType type : types) {
+         System.out.println(i + ". " + type.displayName());
+         i++;
       }
 
       Product product = null;
 
       try {
-         product = getProduct(scanner, classNames);
+         product = getProduct(scanner, types);
       } catch (IllegalArgumentException e) {
          System.err.println(e.getMessage() + " Returning to main menu.");
          return;
       }
 
-      products.add(product);
+      try {
+         products.add(product);
+      } catch (UncheckedIOException | IllegalArgumentException | IllegalStateException e) {
+         System.err.println("Failed to record the product in the log: " + e.getMessage());
+         return;
+      }
       System.out.println("Product added successfully.");
    }
 
    /**
-    * Retrieves a product from the users input.
+    * Retrieves a product from the users input. The user enters the fields of the
+    * schema of the chosen product type.
     * 
-    * @param scanner    Scanner object to read user input.
-    * @param classNames List of class names that contain the different product
-    *                   types.
+    * @param scanner Scanner object to read user input.
+    * @param types   The product types to choose from.
     * @return The product the user wants to add to the inventory.
     * @throws IllegalArgumentException
     */
-   private static Product getProduct(Scanner scanner, List<String> classNames) throws IllegalArgumentException {
-      Product product = null;
+   private static Product getProduct(Scanner scanner, List<ProductType> types) throws IllegalArgumentException {
       String typeInput = scanner.nextLine();
-      int typeChoice = validateIntegerInput(typeInput, 1, classNames.size());
+      int typeChoice = validateIntegerInput(typeInput, 1, types.size());
 
       if (typeChoice == -1) {
          throw new IllegalArgumentException("Invalid item type. Returning to main menu.");
       }
 
-      System.out.println("Enter Product ID:");
-      String id = scanner.nextLine();
-
-      if (containsID(products, id)) {
-         throw new IllegalArgumentException("Product with the same ID has already been added. Returning to main menu.");
+      ProductType type = types.get(typeChoice - 1);
+      ProductFields fields = new ProductFields();
+      fields.setType(type.name());
+      for (ProductField field : type.schema()) {
+         readField(scanner, field, fields);
       }
+      return type.create(fields);
+   }
 
-      System.out.println("Enter Product Name:");
-      String name = scanner.nextLine();
-
-      System.out.println("Enter Product Quality (0-100):");
-      int quality = validateIntegerInput(scanner.nextLine(), 0, 100);
-
-      if (quality == -1) {
-         throw new IllegalArgumentException("Invalid quality value. Must be between 0 and 50. Returning to main menu.");
-      }
-
-      System.out.println(
-            "Enter Product Expiry Date ('dd-mm-yyyy' or 'none' if there is no expiration date or is unknown, Cheese CANNOT be none!):");
-      LocalDate expiryDate = validateDateInput(scanner.nextLine());
-
-      System.out.println("Enter Base Price (e.g., 1.00):");
-      double basePrice = validateDoubleInput(scanner.nextLine());
+   /**
+    * Reads the value of a field from the user input.
+    *
+    * @param scanner Scanner object to read user input.
+    * @param field   The field to read.
+    * @param fields  The fields the value is set in.
+    * @throws IllegalArgumentException If the input is not a valid value.
+    */
+   private static void readField(Scanner scanner, ProductField field, ProductFields fields)
+         throws IllegalArgumentException {
+      switch (field) {
+      case ID:
+         System.out.println("Enter Product ID:");
+         String id = scanner.nextLine();
+
+         if (products.contains(id)) {
+            throw new IllegalArgumentException(
+                  "Product with the same ID has already been added. Returning to main menu.");
+         }
+         fields.setId(id);
+         break;
+      case NAME:
+         System.out.println("Enter Product Name:");
+         fields.setName(scanner.nextLine());
+         break;
+      case QUALITY:
+         System.out.println("Enter Product Quality (0-100):");
+         int quality = validateIntegerInput(scanner.nextLine(), 0, 100);
 
-      if (basePrice == -1) {
-         throw new IllegalArgumentException(
-               "Invalid price format. Must be a valid number (e.g., 1.00). Returning to main menu.");
-      }
-      switch (classNames.get(typeChoice - 1)) {
-      case "Common Product":
-         product = new CommonProduct(id, name, quality, expiryDate, basePrice);
+         if (quality == -1) {
+            throw new IllegalArgumentException(
+                  "Invalid quality value. Must be between 0 and 50. Returning to main menu.");
+         }
+         fields.setQuality(quality);
          break;
-      case "Cheese":
-         product = new Cheese(id, name, quality, expiryDate, basePrice);
+      case EXPIRY_DATE:
+         System.out.println(
+               "Enter Product Expiry Date ('dd-mm-yyyy' or 'none' if there is no expiration date or is unknown, Cheese CANNOT be none!):");
+         fields.setExpiryDate(validateDateInput(scanner.nextLine()));
          break;
-      case "Wine":
-         product = new Wine(id, name, quality, expiryDate, basePrice);
+      case DEFAULT_PRICE:
+         System.out.println("Enter Base Price (e.g., 1.00):");
+         double basePrice = validateDoubleInput(scanner.nextLine());
+
+         if (basePrice == -1) {
+            throw new IllegalArgumentException(
+                  "Invalid price format. Must be a valid number (e.g., 1.00). Returning to main menu.");
+         }
+         fields.setDefaultPrice(basePrice);
          break;
-      case "Meat":
+      case MEAT_TYPE:
          System.out.println("Enter Meat Type:");
          int i = 1;
          for (MeatTypeEnum type : MeatTypeEnum.values()) {
@@ -185,21 +368,19 @@ public class Application {
          if (meatType == null) {
             throw new IllegalArgumentException("Invalid input.");
          }
-
+         fields.setMeatType(meatType);
+         break;
+      case VACUUM_PACKED:
          System.out.println("Is the meat vacuum packed?  1.Yes  2.No ");
          int choice = validateIntegerInput(scanner.nextLine(), 1, 2);
          if (choice == -1) {
             throw new IllegalArgumentException("Invalid input.");
          }
-         boolean isVacuumPacked = choice == 1 ? true : false;
-
-         product = new Meat(id, name, quality, expiryDate, basePrice, meatType, isVacuumPacked);
+         fields.setIsVacuumPacked(choice == 1);
          break;
       default:
-         throw new IllegalArgumentException("Invalid type selected. Returning to main menu.");
+         throw new IllegalArgumentException("Unsupported field " + field + ". Returning to main menu.");
       }
-
-      return product;
    }
 
    /**
@@ -216,23 +397,62 @@ public class Application {
    }
 
    /**
-    * Displays all the products currently added to the system. If no products have
-    * been added, it displays a relevant message.
+    * Displays the products currently added to the system page by page, in the
+    * layout chosen by the user and optionally only the products that should be
+    * removed from the shelves. If no products have been added, it displays a
+    * relevant message.
+    *
+    * @param scanner Scanner object to read user input
     */
-   private static void showAddedItems() {
+   private static void showAddedItems(Scanner scanner) {
       if (products.isEmpty()) {
          System.err.println("No products added yet.");
-      } else {
-         for (Product product : products) {
-            System.out.println(product);
+         return;
+      }
+
+      System.out.println("Choose the layout:  1.Details  2.Table  3.CSV");
+      int layoutChoice = validateIntegerInput(scanner.nextLine(), 1, 3);
+      if (layoutChoice == -1) {
+         System.err.println("Invalid layout. Returning to main menu.");
+         return;
+      }
+      // The report shows the products at this point in time, imports in the background do not change it
+      ProductRepository.Snapshot snapshot = products.snapshot();
+      ProductReport report = new ProductReport(ReportLayout.values()[layoutChoice - 1]);
+      report.setPageSize(REPORT_PAGE_SIZE);
+
+      System.out.println("Show only the products that should be removed from the shelves?  1.Yes  2.No");
+      if (validateIntegerInput(scanner.nextLine(), 1, 2) == 1) {
+         report.setFilter(ProductReport.toBeRemoved());
+      }
+
+      // Written through a large buffer and flushed once per page
+      Writer out = new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), 1 << 16);
+      try {
+         ProductReport.Pages pages = report.pages(snapshot);
+         if (!pages.hasNext()) {
+            System.out.println("No products match.");
+            return;
+         }
+         while (pages.hasNext()) {
+            pages.renderNext(out);
+            out.flush();
+            if (pages.hasNext()) {
+               System.out.println("Press Enter for the next page or enter 'q' to return to the main menu.");
+               if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                  return;
+               }
+            }
          }
+      } catch (IOException e) {
+         System.err.println("Failed to show the products: " + e.getMessage());
       }
    }
 
    /**
     * Simulates quality changes over a user-specified number of days for all added
-    * products. This method clones each product to avoid altering the original
-    * product's state.
+    * products. The products are simulated in parallel from their current state
+    * without altering them.
     *
     * @param scanner Scanner object to read user input
     */
@@ -251,37 +471,59 @@ public class Application {
          return;
       }
 
-      // Clone each product and simulate the quality change for the specified number
-      // of days
-      for (Product product : products) {
-         Product productClone = product.clone();
-         System.out.println("Simulating quality changes for Product ID: " + productClone.getId());
-         productClone.simulateQualityChange(days);
+      try (TextSimulationSink sink = TextSimulationSink.console()) {
+         // Simulates the products at this point in time, imports in the background do not change them
+         simulationEngine.simulate(new ArrayList<>(products.snapshot().getAll()), days, sink);
       }
+      TrajectoryCache cache = simulationEngine.getCache();
+      if (cache != null) {
+         System.out.println("Trajectory cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses, "
+               + cache.getEvictions() + " evictions, " + cache.size() + "/" + cache.getMaxEntries() + " entries.");
+      }
+   }
+
+   /**
+    * Creates the simulation engine. Products with the same parameters share their
+    * simulated states through a cache, whose size is set with the property
+    * {@code superdupermarkt.trajectory.cache}, 0 disables it.
+    *
+    * @return The simulation engine.
+    */
+   private static SimulationEngine createSimulationEngine() {
+      int cacheSize = Integer.getInteger("superdupermarkt.trajectory.cache", 1024);
+      return new SimulationEngine(ForkJoinPool.commonPool(), cacheSize > 0 ? new TrajectoryCache(cacheSize) : null);
    }
 
    /**
     * Imports products from a CSV file. The file path is provided by the user. The
-    * imported products are added to the existing list of products.
+    * imported products are added to the existing products, except for products
+    * with an ID that has already been added. The file is imported in the
+    * background and all its products are added at once.
     *
     * @param scanner Scanner object to read user input
     */
    private static void importFromCSV(Scanner scanner) {
-      try {
-         System.out.println("Enter CSV file path:");
-         String filePath = scanner.nextLine();
-         List<Product> importedProducts = ProductImporter.importFromCSV(filePath);
-         products.addAll(importedProducts);
-         System.out.println("Imported " + importedProducts.size() + " products from CSV.");
-      } catch (Exception e) {
-         System.err.println("There was a error, while importing the data: " + e);
-         System.err.println("Returning to main menu.");
-      }
+      System.out.println("Enter CSV file path:");
+      String filePath = scanner.nextLine();
+      importer.execute(() -> {
+         try {
+            List<Product> importedProducts = ProductImporter.importFromCSV(filePath,
+                  Runtime.getRuntime().availableProcessors());
+            int addedProducts = products.addAll(importedProducts);
+            System.out.println("Imported " + addedProducts + " products from CSV.");
+            printSkippedProducts(importedProducts.size() - addedProducts);
+         } catch (Exception e) {
+            System.err.println("There was a error, while importing the data: " + e);
+         }
+      });
+      System.out.println("Importing products from " + filePath + " in the background.");
    }
 
    /**
     * Imports products from an SQL database. The connection details are provided by
-    * the user. The imported products are added to the existing list of products.
+    * the user. The imported products are added to the existing products, except
+    * for products with an ID that has already been added. The table is imported in
+    * the background and all its products are added at once.
     *
     * @param scanner Scanner object to read user input
     */
@@ -295,12 +537,56 @@ public class Application {
       System.out.println("Enter table name:");
       String tableName = scanner.nextLine();
 
+      importer.execute(() -> {
+         try (Connection connection = DriverManager.getConnection(connectionString, username, password)) {
+            List<Product> importedProducts = ProductImporter.importFromSQL(connection, tableName);
+            int addedProducts = products.addAll(importedProducts);
+            System.out.println("Imported " + addedProducts + " products from SQL database.");
+            printSkippedProducts(importedProducts.size() - addedProducts);
+         } catch (Exception e) {
+            System.err.println("Failed to import products from SQL: " + e.getMessage());
+         }
+      });
+      System.out.println("Importing products from table " + tableName + " in the background.");
+   }
+
+   /**
+    * Syncs the products with an SQL table, reading only the rows that changed
+    * since the last sync of the same table, also from before a restart. The
+    * connection details are provided by the user, and on the first sync of a
+    * table also the version column and the optional tombstone column. Changed
+    * products replace the existing products with the same ID, and products marked
+    * as deleted are removed.
+    *
+    * @param scanner Scanner object to read user input
+    */
+   private static void syncFromSQL(Scanner scanner) {
+      System.out.println("Enter SQL database connection string:");
+      String connectionString = scanner.nextLine();
+      System.out.println("Enter SQL username:");
+      String username = scanner.nextLine();
+      System.out.println("Enter SQL password:");
+      String password = scanner.nextLine();
+      System.out.println("Enter table name:");
+      String tableName = scanner.nextLine();
+
+      SqlDeltaSync sync = deltaSyncs.get(connectionString + "|" + tableName);
+      if (sync == null) {
+         System.out.println("Enter the version column (e.g. updated_at):");
+         String versionColumn = scanner.nextLine();
+         System.out.println("Enter the column that marks deleted products (leave empty if there is none):");
+         String deletedColumn = scanner.nextLine();
+         sync = new SqlDeltaSync(tableName, versionColumn, deletedColumn.isBlank() ? null : deletedColumn);
+      }
+
       try (Connection connection = DriverManager.getConnection(connectionString, username, password)) {
-         List<Product> importedProducts = ProductImporter.importFromSQL(connection, tableName);
-         products.addAll(importedProducts);
-         System.out.println("Imported " + importedProducts.size() + " products from SQL database.");
+         SqlDeltaSync.Result result = sync.sync(connection, products);
+         deltaSyncs.put(connectionString + "|" + tableName, sync);
+         saveDeltaSyncs();
+         System.out.println("Synced " + result.upserted() + " changed and " + result.removed()
+               + " removed products from SQL database.");
       } catch (Exception e) {
-         System.err.println("Failed to import products from SQL: " + e.getMessage());
+         System.err.println("Failed to sync products from SQL: " + e.getMessage());
          System.err.println("Returning to main menu.");
       }
    }
@@ -367,13 +653,14 @@ public class Application {
    }
 
    /**
-    * Checks if product with the same ID already exists in the list.
+    * Informs the user about imported products that were skipped, because a
+    * product with the same ID had already been added.
     * 
-    * @param list The list that contains the items
-    * @param id   The id of the item to be checked
-    * @return True if the item is already in the list, otherwise False
+    * @param skippedProducts The number of skipped products
     */
-   private static boolean containsID(final List<Product> list, final String id) {
-      return list.stream().filter(o -> o.getId().equals(id)).findFirst().isPresent();
+   private static void printSkippedProducts(int skippedProducts) {
+      if (skippedProducts > 0) {
+         System.err.println("Skipped " + skippedProducts + " products with an ID that has already been added.");
+      }
    }
 }
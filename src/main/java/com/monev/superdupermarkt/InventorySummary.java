@@ -0,0 +1,51 @@
+package com.monev.superdupermarkt;
+
+/**
+ * Totals of an inventory or a part of it. Summaries of parts, for example of
+ * the stores of a {@link ShardedInventory}, are combined with
+ * {@link #merge(InventorySummary)}.
+ *
+ * @param products   The number of products.
+ * @param stockValue The sum of the daily prices of all products.
+ * @param toRemove   The number of products that should be removed from the
+ *                   shelves.
+ * @param expired    The number of expired products.
+ */
+public record InventorySummary(long products, double stockValue, long toRemove, long expired) {
+
+   public static final InventorySummary EMPTY = new InventorySummary(0, 0, 0, 0);
+
+   /**
+    * Summarizes all products of a table at its current date.
+    *
+    * @param table The table to summarize.
+    * @return The summary.
+    */
+   public static InventorySummary of(ProductTable table) {
+      double[] prices = table.getDailyPrices();
+      double stockValue = 0;
+      long toRemove = 0;
+      long expired = 0;
+      for (int row = 0, n = table.size(); row < n; row++) {
+         stockValue += prices[row];
+         if (table.shouldBeRemoved(row)) {
+            toRemove++;
+         }
+         if (table.isExpired(row)) {
+            expired++;
+         }
+      }
+      return new InventorySummary(table.size(), stockValue, toRemove, expired);
+   }
+
+   /**
+    * Combines this summary with the summary of another part of the inventory.
+    *
+    * @param other The other summary.
+    * @return The summary of both parts.
+    */
+   public InventorySummary merge(InventorySummary other) {
+      return new InventorySummary(products + other.products, stockValue + other.stockValue,
+            toRemove + other.toRemove, expired + other.expired);
+   }
+}
@@ -1,28 +1,36 @@
 package com.monev.superdupermarkt;
 
+import com.monev.superdupermarkt.report.ReportRow;
+import com.monev.superdupermarkt.simulation.SimulationSink;
+
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 
 /**
  * This is the base class for all products. It initializes a product with all
  * necessary variables and provides with set, get methods. It is also a
  * cloneable object and can simulate the product changes in given days in the
  * future.
+ * <p>
+ * The values that change from day to day are kept in an immutable
+ * {@link ProductState}. The quality rules calculate the next state from a given
+ * state with {@link #nextState(ProductState)}, so a product can be simulated
+ * without changing or cloning it.
  */
 public abstract class Product implements Cloneable {
 
    private String id;
    private String name;
-   private double quality;
    private LocalDate expiryDate;
    private final double defaultPrice;
-   private boolean isExpired = false;
-   private LocalDate today = LocalDate.now();
+   // Quality, expiry flag and date of the product, replaced as a whole
+   private ProductState state;
+   // Sink of the simulation running on the current thread, null when not simulating
+   private static final ThreadLocal<SimulationSink> simulationSink = new ThreadLocal<>();
 
    public Product(String id, String name, double quality, LocalDate expiryDate, double defaultPrice) {
       this.id = id;
       this.name = name;
-      this.quality = quality;
+      this.state = new ProductState(LocalDate.now(), quality, false);
       this.expiryDate = expiryDate;
       this.defaultPrice = defaultPrice;
    }
@@ -36,7 +44,7 @@ public abstract class Product implements Cloneable {
    }
 
    public double getQuality() {
-      return quality;
+      return state.quality();
    }
 
    public LocalDate getExpiryDate() {
@@ -52,7 +60,14 @@ public abstract class Product implements Cloneable {
    }
 
    public void setQuality(double quality) {
-      this.quality = quality;
+      this.state = state.withQuality(quality);
+   }
+
+   /**
+    * @return The current state of the product.
+    */
+   public ProductState getState() {
+      return state;
    }
 
    public void setExpiryDate(LocalDate expiryDate) {
@@ -65,19 +80,132 @@ public abstract class Product implements Cloneable {
     * @return The difference as a long value.
     */
    public long getDifferenceToExpiryDate() {
-      return ChronoUnit.DAYS.between(today, expiryDate);
+      return state.daysUntil(expiryDate);
    }
 
    public double calculateDailyPrice() {
+      return calculateDailyPrice(state.quality());
+   }
+
+   /**
+    * Calculates the daily price the product has in the given state.
+    * 
+    * @param state The state of the product.
+    * @return The daily price rounded to cents.
+    */
+   public double calculateDailyPrice(ProductState state) {
+      return calculateDailyPrice(state.quality());
+   }
+
+   /**
+    * Calculates the daily price the product would have with the given quality.
+    * 
+    * @param quality The quality of the product.
+    * @return The daily price rounded to cents.
+    */
+   protected double calculateDailyPrice(double quality) {
+      return dailyPrice(defaultPrice, quality);
+   }
+
+   /**
+    * Calculates the daily price of a product with the given default price and
+    * quality. The rule of all product types whose price depends on the quality.
+    * 
+    * @param defaultPrice The default price of the product.
+    * @param quality      The quality of the product.
+    * @return The daily price rounded to cents.
+    */
+   public static double dailyPrice(double defaultPrice, double quality) {
       return (double) Math.round((defaultPrice + 0.10 * quality) * 100) / 100;
    }
 
    public boolean isExpired() {
-      return this.isExpired;
+      return isExpired(state);
+   }
+
+   /**
+    * Checks if the product is expired in the given state.
+    * 
+    * @param state The state of the product.
+    * @return True if the product is expired, otherwise false.
+    */
+   public boolean isExpired(ProductState state) {
+      return state.expired();
    }
 
    public void setIsExpired(boolean expired) {
-      this.isExpired = expired;
+      this.state = new ProductState(state.date(), state.quality(), expired);
+   }
+
+   /**
+    * Calculates the quality the product will have on the given date, without
+    * changing the product. The result is the same as the quality shown for that
+    * date by {@link #simulateQualityChange(long)}.
+    * 
+    * @param date The date to calculate the quality for. Must not be before the
+    *             current date of the product.
+    * @return The quality of the product on the given date.
+    */
+   public double qualityAt(LocalDate date) {
+      long days = state.daysUntil(date);
+      if (days < 0) {
+         throw new IllegalArgumentException("The date must not be before the current date of the product.");
+      }
+      return projectQuality(days);
+   }
+
+   /**
+    * Calculates the daily price the product will have on the given date, without
+    * changing the product.
+    * 
+    * @param date The date to calculate the price for. Must not be before the
+    *             current date of the product.
+    * @return The daily price of the product on the given date.
+    */
+   public double priceAt(LocalDate date) {
+      return calculateDailyPrice(qualityAt(date));
+   }
+
+   /**
+    * Checks if a product with the given quality should be removed from the
+    * shelves. Products without a minimum quality are never removed.
+    * 
+    * @param quality The quality to check.
+    * @return True if the product should be removed, otherwise false.
+    */
+   public boolean shouldBeRemoved(double quality) {
+      return false;
+   }
+
+   /**
+    * Finds the next date after the given date on which the quality of the product
+    * changes in a single step, for products whose quality does not change every
+    * day.
+    * 
+    * @param after The date after which to look for the next step. Must not be
+    *              before the current date of the product.
+    * @return The first date showing the changed quality, or null if the quality
+    *         does not change in steps or will not change again.
+    */
+   public LocalDate nextQualityStep(LocalDate after) {
+      return null;
+   }
+
+   /**
+    * Calculates the quality of the product after the given number of daily
+    * updates. Product types with a known quality rule override this method with
+    * a direct calculation, the default implementation moves from state to state
+    * day by day.
+    * 
+    * @param days The number of daily updates.
+    * @return The quality after the updates.
+    */
+   protected double projectQuality(long days) {
+      ProductState projected = state;
+      for (long i = 0; i < days; i++) {
+         projected = nextState(projected);
+      }
+      return projected.quality();
    }
 
    /**
@@ -88,19 +216,103 @@ public abstract class Product implements Cloneable {
     *             changes.
     */
    public void simulateQualityChange(long days) {
-      // LocalDate currentDate = LocalDate.now();
-      LocalDate endDate = today.plusDays(days);
+      simulateQualityChange(days, (product, day) -> {
+         System.out.println("Date: " + day.date());
+         System.out.println(product.toString(day));
+      });
+   }
+
+   /**
+    * Simulates the product change for the given days in the future. The state of
+    * the product on each day is passed to the given sink. Afterwards the product
+    * is in the state of the day after the last simulated day.
+    * 
+    * @param days For how many days the function should simulate the product
+    *             changes.
+    * @param sink The sink that receives the state of each day.
+    */
+   public void simulateQualityChange(long days, SimulationSink sink) {
+      state = simulate(state, days, sink);
+   }
+
+   /**
+    * Simulates the product change for the given days in the future, starting
+    * from its current state, without changing the product. The state of the
+    * product on each day is passed to the given sink. The same product can be
+    * simulated by several threads at once.
+    * 
+    * @param days For how many days the product changes should be simulated.
+    * @param sink The sink that receives the state of each day.
+    */
+   public void simulate(long days, SimulationSink sink) {
+      simulate(state, days, sink);
+   }
 
-      while (!today.isAfter(endDate)) {
-         System.out.println("Date: " + today);
-         System.out.println(this);
+   private ProductState simulate(ProductState state, long days, SimulationSink sink) {
+      LocalDate endDate = state.date().plusDays(days);
+      SimulationSink previousSink = simulationSink.get();
+      simulationSink.set(sink);
+
+      try {
+         while (!state.date().isAfter(endDate)) {
+            sink.accept(this, state);
+
+            state = nextState(state);
+         }
+         return state;
+      } finally {
+         simulationSink.set(previousSink);
+      }
+   }
+
+   /**
+    * Calculates the state of the product on the day after the given state: the
+    * quality after the daily update and whether the product is past its expiry
+    * date on the next day. The product itself is not changed.
+    * 
+    * @param state The state to start from.
+    * @return The state of the next day.
+    */
+   public ProductState nextState(ProductState state) {
+      LocalDate nextDay = state.date().plusDays(1);
+      ProductState next = new ProductState(nextDay, nextQuality(state), nextDay.isAfter(expiryDate));
+      if (QualityTrace.ENABLED) {
+         QualityTrace.qualityUpdated(this, state, next);
+      }
+      return next;
+   }
+
+   /**
+    * Updates the product's quality for the current day and moves it to the next
+    * day.
+    */
+   void advanceDay() {
+      state = nextState(state);
+   }
 
-         // Update product's quality for the day
-         this.updateQuality();
+   /**
+    * Sets the date the product is currently at. Used when a product is rebuilt
+    * from a state that was kept outside of the object.
+    * 
+    * @param today The date the product should be at.
+    */
+   void setToday(LocalDate today) {
+      this.state = new ProductState(today, state.quality(), state.expired());
+   }
 
-         // Move to the next day
-         today = today.plusDays(1);
-         this.setIsExpired(today.isAfter(expiryDate));
+   /**
+    * Reports diagnostic information of the quality rules. While the product is
+    * simulated the message is passed to the simulation's sink, so that it stays
+    * next to the day it belongs to, otherwise it is printed to the console.
+    * 
+    * @param message The message to report.
+    */
+   void printDiagnostic(String message) {
+      SimulationSink sink = simulationSink.get();
+      if (sink != null) {
+         sink.diagnostic(this, message);
+      } else {
+         System.out.println(message);
       }
    }
 
@@ -115,20 +327,60 @@ public abstract class Product implements Cloneable {
 
    @Override
    public String toString() {
+      return toString(state);
+   }
+
+   /**
+    * Describes the product in the given state.
+    * 
+    * @param state The state of the product.
+    * @return The description.
+    */
+   public String toString(ProductState state) {
       StringBuilder sb = new StringBuilder();
       sb.append("Product ID: " + this.getId());
       sb.append(System.getProperty("line.separator"));
       sb.append("Product Name: " + this.getName());
       sb.append(System.getProperty("line.separator"));
-      sb.append("Current Quality: " + this.getQuality());
+      sb.append("Current Quality: " + state.quality());
       sb.append(System.getProperty("line.separator"));
       sb.append("Expiry Date: " + this.getExpiryDate());
       sb.append(System.getProperty("line.separator"));
-      sb.append("Daily Price: " + this.calculateDailyPrice() + "€");
+      sb.append("Daily Price: " + this.calculateDailyPrice(state) + "€");
       sb.append(System.getProperty("line.separator"));
       return sb.toString();
    }
 
-   public abstract void updateQuality();
+   /**
+    * Writes the fields of the product to a report row: ID, name, quality, expiry
+    * date and daily price. Product types with further fields override this
+    * method, call it first and then add their own fields.
+    * 
+    * @param row The row of the report.
+    */
+   public void appendTo(ReportRow row) {
+      row.text("Product ID", id);
+      row.text("Product Name", name);
+      row.number("Current Quality", state.quality());
+      row.date("Expiry Date", expiryDate);
+      row.price("Daily Price", calculateDailyPrice());
+   }
+
+   /**
+    * Updates the product's quality for the current day, without moving it to the
+    * next day.
+    */
+   public void updateQuality() {
+      setQuality(nextQuality(state));
+   }
+
+   /**
+    * Calculates the quality the product has after the daily update of the given
+    * state. This is the quality rule of the product type.
+    * 
+    * @param state The state before the update.
+    * @return The quality after the update.
+    */
+   protected abstract double nextQuality(ProductState state);
 
 }
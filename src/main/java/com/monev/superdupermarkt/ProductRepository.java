@@ -0,0 +1,838 @@
+package com.monev.superdupermarkt;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the products of the inventory by their ID. Adding, finding and removing
+ * a product by its ID takes constant time, and every product ID can only be
+ * added once, no matter if the product is added manually or imported. The
+ * products are also indexed by their type, so listing all products of a type
+ * does not go through the whole inventory. Products are kept in the order they
+ * were added.
+ * <p>
+ * The repository can be used from several threads. Its state is an immutable
+ * {@link Snapshot}: every change copies only the parts of the state it touches,
+ * so its cost does not depend on the number of products, and then publishes the
+ * new snapshot at once. Changes are made one after another, but readers never
+ * wait: they read the snapshot that was current when they started, so a
+ * simulation or report that runs during an import sees either none or all of
+ * the imported products. Imports and syncs that change many products are
+ * applied with {@link #addAll(Collection)}, {@link #putAll(Collection)} or
+ * {@link #applyChanges(Collection, Collection)}, which publish a single
+ * snapshot for all of their changes.
+ */
+public class ProductRepository implements Iterable<Product> {
+
+   private final ReentrantLock writeLock = new ReentrantLock();
+   private volatile Snapshot snapshot = Snapshot.EMPTY;
+   private ProductRepositoryListener listener;
+
+   /**
+    * Action that is run on a snapshot while the repository cannot be changed.
+    *
+    * @param <E> The exception the action can throw.
+    */
+   @FunctionalInterface
+   public interface SnapshotAction<E extends Exception> {
+      void run(Snapshot snapshot) throws E;
+   }
+
+   /**
+    * Sets the listener that is called before every change of the repository.
+    * The listener is called by the thread making the change, while no other
+    * change can be made, so it sees the changes in the order they are applied.
+    *
+    * @param listener The listener or null to remove the listener.
+    */
+   public void setListener(ProductRepositoryListener listener) {
+      writeLock.lock();
+      try {
+         this.listener = listener;
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   /**
+    * Adds the product if no product with the same ID has been added yet.
+    *
+    * @param product The product to add.
+    * @return True if the product was added, false if its ID already exists.
+    */
+   public boolean add(Product product) {
+      writeLock.lock();
+      try {
+         Snapshot current = snapshot;
+         if (current.contains(product.getId())) {
+            return false;
+         }
+         if (listener != null) {
+            listener.beforeAdd(product);
+         }
+         Editor editor = new Editor(current);
+         editor.append(product);
+         snapshot = editor.build();
+         return true;
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   /**
+    * Adds all products whose ID has not been added yet. Products with an ID that
+    * already exists, also earlier in the given products, are skipped. The
+    * products become visible to readers all at once.
+    *
+    * @param products The products to add.
+    * @return The number of products that were added.
+    */
+   public int addAll(Collection<? extends Product> products) {
+      writeLock.lock();
+      try {
+         Snapshot current = snapshot;
+         // Collect the products that are added first, so the listener gets them as
+         // one batch
+         Map<String, Product> added = new LinkedHashMap<>();
+         for (Product product : products) {
+            if (!current.contains(product.getId())) {
+               added.putIfAbsent(product.getId(), product);
+            }
+         }
+         if (added.isEmpty()) {
+            return 0;
+         }
+         if (listener != null) {
+            listener.beforeImport(List.copyOf(added.values()));
+         }
+         Editor editor = new Editor(current);
+         for (Product product : added.values()) {
+            editor.append(product);
+         }
+         snapshot = editor.build();
+         return added.size();
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   /**
+    * Adds the product or replaces the product with the same ID. A replaced
+    * product keeps its position in the order the products were added.
+    *
+    * @param product The product to add or to replace the existing product with.
+    * @return The replaced product or null if the ID did not exist yet.
+    */
+   public Product put(Product product) {
+      writeLock.lock();
+      try {
+         if (listener != null) {
+            listener.beforeAdd(product);
+         }
+         Editor editor = new Editor(snapshot);
+         Product previous = editor.put(product);
+         snapshot = editor.build();
+         return previous;
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   /**
+    * Adds or replaces all given products like {@link #put(Product)}, as a single
+    * change. The listener is called once and readers see either none or all of
+    * the products.
+    *
+    * @param products The products to add or to replace the existing products
+    *                 with, in the order they are put.
+    */
+   public void putAll(Collection<? extends Product> products) {
+      applyChanges(products, List.of());
+   }
+
+   /**
+    * Adds or replaces the given products and removes the products with the given
+    * IDs as a single change. The products are put first, in their order, and the
+    * IDs are removed afterwards; IDs that do not exist are skipped. The listener
+    * is called once with all changes, and readers see either none or all of
+    * them.
+    *
+    * @param products   The products to add or to replace the existing products
+    *                   with.
+    * @param removedIds The IDs of the products to remove.
+    * @return The number of products that were removed.
+    */
+   public int applyChanges(Collection<? extends Product> products, Collection<String> removedIds) {
+      writeLock.lock();
+      try {
+         // The editor does not change the current snapshot, so it is only
+         // published if the listener accepts the changes
+         List<Product> put = List.copyOf(products);
+         Editor editor = new Editor(snapshot);
+         for (Product product : put) {
+            editor.put(product);
+         }
+         List<String> removed = new ArrayList<>();
+         for (String id : removedIds) {
+            if (editor.remove(id) != null) {
+               removed.add(id);
+            }
+         }
+         if (put.isEmpty() && removed.isEmpty()) {
+            return 0;
+         }
+         if (listener != null) {
+            listener.beforeChanges(put, removed);
+         }
+         snapshot = editor.build();
+         return removed.size();
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   /**
+    * Removes the product with the given ID.
+    *
+    * @param id The ID of the product to remove.
+    * @return The removed product or null if there was no product with the ID.
+    */
+   public Product remove(String id) {
+      writeLock.lock();
+      try {
+         Snapshot current = snapshot;
+         if (!current.contains(id)) {
+            return null;
+         }
+         if (listener != null) {
+            listener.beforeRemove(id);
+         }
+         Editor editor = new Editor(current);
+         Product product = editor.remove(id);
+         snapshot = editor.build();
+         return product;
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   /**
+    * Runs the action on the current snapshot while no change can be made, for
+    * example to write the snapshot to a file that must match a log of the
+    * changes. Readers are not blocked.
+    *
+    * @param <E>    The exception the action can throw.
+    * @param action The action to run.
+    * @throws E If the action fails.
+    */
+   public <E extends Exception> void lockWrites(SnapshotAction<E> action) throws E {
+      writeLock.lock();
+      try {
+         action.run(snapshot);
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   /**
+    * Returns the current state of the repository. The snapshot does not change,
+    * no matter which changes are made to the repository afterwards.
+    *
+    * @return The current snapshot.
+    */
+   public Snapshot snapshot() {
+      return snapshot;
+   }
+
+   /**
+    * Finds the product with the given ID.
+    *
+    * @param id The ID of the product.
+    * @return The product or null if there is no product with the ID.
+    */
+   public Product get(String id) {
+      return snapshot.get(id);
+   }
+
+   /**
+    * Checks if a product with the given ID has been added.
+    *
+    * @param id The ID to check.
+    * @return True if a product with the ID exists, otherwise false.
+    */
+   public boolean contains(String id) {
+      return snapshot.contains(id);
+   }
+
+   /**
+    * Lists all products of the given type, not including subclasses of the type.
+    *
+    * @param type The type of the products.
+    * @return An unmodifiable view of the products of the type in the current
+    *         snapshot.
+    */
+   public Collection<Product> getByType(Class<? extends Product> type) {
+      return snapshot.getByType(type);
+   }
+
+   /**
+    * Lists all products in the order they were added.
+    *
+    * @return An unmodifiable view of all products in the current snapshot.
+    */
+   public Collection<Product> getAll() {
+      return snapshot.getAll();
+   }
+
+   public int size() {
+      return snapshot.size();
+   }
+
+   public boolean isEmpty() {
+      return snapshot.isEmpty();
+   }
+
+   /**
+    * Iterates over the products of the current snapshot.
+    */
+   @Override
+   public Iterator<Product> iterator() {
+      return snapshot.iterator();
+   }
+
+   /**
+    * Immutable state of a {@link ProductRepository} at one point in time.
+    * <p>
+    * The products are kept in chunks in the order they were added, removed
+    * products leave an empty slot until the chunks are compacted. Every type has
+    * chunks of its own, and the IDs are indexed in a hash trie. A change copies
+    * only the chunks, pages of chunks and trie nodes on the path to the products
+    * it touches and shares all others with the snapshot before, so its cost does
+    * not grow with the number of products.
+    */
+   public static final class Snapshot implements Iterable<Product> {
+
+      private static final Snapshot EMPTY = new Snapshot(Chunks.EMPTY, Collections.emptyMap(), IndexNode.EMPTY);
+
+      private final Chunks all;
+      private final Map<Class<? extends Product>, Chunks> byType;
+      // Position of every product in the chunks of all products and of its type
+      private final IndexNode index;
+
+      private Snapshot(Chunks all, Map<Class<? extends Product>, Chunks> byType, IndexNode index) {
+         this.all = all;
+         this.byType = byType;
+         this.index = index;
+      }
+
+      /**
+       * Finds the product with the given ID.
+       *
+       * @param id The ID of the product.
+       * @return The product or null if there is no product with the ID.
+       */
+      public Product get(String id) {
+         Slot slot = index.find(IndexNode.hashOf(id), id);
+         return slot == null ? null : all.get(slot.position);
+      }
+
+      public boolean contains(String id) {
+         return index.find(IndexNode.hashOf(id), id) != null;
+      }
+
+      /**
+       * Lists all products of the given type, not including subclasses of the
+       * type.
+       *
+       * @param type The type of the products.
+       * @return An unmodifiable view of the products of the type.
+       */
+      public Collection<Product> getByType(Class<? extends Product> type) {
+         Chunks chunks = byType.get(type);
+         return chunks == null ? Collections.emptyList() : chunks.view();
+      }
+
+      /**
+       * Lists all products in the order they were added.
+       *
+       * @return An unmodifiable view of all products.
+       */
+      public Collection<Product> getAll() {
+         return all.view();
+      }
+
+      public int size() {
+         return all.live;
+      }
+
+      public boolean isEmpty() {
+         return all.live == 0;
+      }
+
+      @Override
+      public Iterator<Product> iterator() {
+         return all.view().iterator();
+      }
+   }
+
+   /**
+    * Positions of a product in the chunks of all products and of its type.
+    */
+   private record Slot(int position, int typePosition) {
+   }
+
+   /**
+    * Node of the hash trie that maps the product IDs to their slots. Every level
+    * uses 5 bits of the hash of an ID to choose one of up to 32 entries, which is
+    * either an ID with its slot or a child node. Below the seventh level all bits
+    * are used, so the nodes there list IDs with equal hashes one after another.
+    * <p>
+    * A change copies the nodes on the path to its ID. Nodes that an editor has
+    * created belong to it and are changed in place by its further changes, so an
+    * import copies every node at most once. The editor is not used anymore once
+    * its snapshot is published, so published nodes do not change.
+    */
+   private static final class IndexNode {
+
+      static final int BITS = 5;
+      static final int MASK = (1 << BITS) - 1;
+      // Nodes at this shift or below hold IDs with equal hashes
+      static final int COLLISION_SHIFT = 32;
+      static final IndexNode EMPTY = new IndexNode(null, 0, new Object[0]);
+
+      // The editor that may change the node in place
+      final Object owner;
+      // Bit i is set if the node has an entry for the hash bits with the value i
+      int bitmap;
+      // Two elements per entry: the ID and its slot, or null and the child node
+      Object[] entries;
+
+      IndexNode(Object owner, int bitmap, Object[] entries) {
+         this.owner = owner;
+         this.bitmap = bitmap;
+         this.entries = entries;
+      }
+
+      static int hashOf(String id) {
+         int hash = id.hashCode();
+         return hash ^ (hash >>> 16);
+      }
+
+      Slot find(int hash, String id) {
+         IndexNode node = this;
+         for (int shift = 0; shift < COLLISION_SHIFT; shift += BITS) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+               return null;
+            }
+            int i = node.indexOf(bit);
+            Object key = node.entries[i];
+            if (key != null) {
+               return id.equals(key) ? (Slot) node.entries[i + 1] : null;
+            }
+            node = (IndexNode) node.entries[i + 1];
+         }
+         for (int i = 0; i < node.entries.length; i += 2) {
+            if (id.equals(node.entries[i])) {
+               return (Slot) node.entries[i + 1];
+            }
+         }
+         return null;
+      }
+
+      /**
+       * Sets the slot of the ID.
+       *
+       * @return This node if it was changed in place, otherwise the changed copy.
+       */
+      IndexNode put(Object editor, int shift, int hash, String id, Slot slot) {
+         if (shift >= COLLISION_SHIFT) {
+            for (int i = 0; i < entries.length; i += 2) {
+               if (id.equals(entries[i])) {
+                  return with(editor, i, id, slot);
+               }
+            }
+            return withInserted(editor, entries.length, bitmap, id, slot);
+         }
+         int bit = 1 << ((hash >>> shift) & MASK);
+         int i = indexOf(bit);
+         if ((bitmap & bit) == 0) {
+            return withInserted(editor, i, bitmap | bit, id, slot);
+         }
+         Object key = entries[i];
+         if (key == null) {
+            IndexNode child = (IndexNode) entries[i + 1];
+            IndexNode changed = child.put(editor, shift + BITS, hash, id, slot);
+            return changed == child ? this : with(editor, i, null, changed);
+         }
+         if (id.equals(key)) {
+            return with(editor, i, id, slot);
+         }
+         // Both IDs have the same hash bits so far, so they move to a child node
+         String otherId = (String) key;
+         IndexNode child = new IndexNode(editor, 0, new Object[0])
+               .put(editor, shift + BITS, hashOf(otherId), otherId, (Slot) entries[i + 1])
+               .put(editor, shift + BITS, hash, id, slot);
+         return with(editor, i, null, child);
+      }
+
+      /**
+       * Removes the ID.
+       *
+       * @return This node if it was not changed or changed in place, otherwise
+       *         the changed copy.
+       */
+      IndexNode remove(Object editor, int shift, int hash, String id) {
+         if (shift >= COLLISION_SHIFT) {
+            for (int i = 0; i < entries.length; i += 2) {
+               if (id.equals(entries[i])) {
+                  return without(editor, i, bitmap);
+               }
+            }
+            return this;
+         }
+         int bit = 1 << ((hash >>> shift) & MASK);
+         if ((bitmap & bit) == 0) {
+            return this;
+         }
+         int i = indexOf(bit);
+         Object key = entries[i];
+         if (key == null) {
+            IndexNode child = (IndexNode) entries[i + 1];
+            IndexNode changed = child.remove(editor, shift + BITS, hash, id);
+            if (changed.entries.length == 0) {
+               return without(editor, i, bitmap & ~bit);
+            }
+            return changed == child ? this : with(editor, i, null, changed);
+         }
+         return id.equals(key) ? without(editor, i, bitmap & ~bit) : this;
+      }
+
+      private int indexOf(int bit) {
+         return 2 * Integer.bitCount(bitmap & (bit - 1));
+      }
+
+      private IndexNode editable(Object editor) {
+         return owner == editor ? this : new IndexNode(editor, bitmap, entries.clone());
+      }
+
+      private IndexNode with(Object editor, int i, Object key, Object value) {
+         IndexNode node = editable(editor);
+         node.entries[i] = key;
+         node.entries[i + 1] = value;
+         return node;
+      }
+
+      private IndexNode withInserted(Object editor, int i, int newBitmap, Object key, Object value) {
+         Object[] newEntries = new Object[entries.length + 2];
+         System.arraycopy(entries, 0, newEntries, 0, i);
+         newEntries[i] = key;
+         newEntries[i + 1] = value;
+         System.arraycopy(entries, i, newEntries, i + 2, entries.length - i);
+         return withEntries(editor, newBitmap, newEntries);
+      }
+
+      private IndexNode without(Object editor, int i, int newBitmap) {
+         Object[] newEntries = new Object[entries.length - 2];
+         System.arraycopy(entries, 0, newEntries, 0, i);
+         System.arraycopy(entries, i + 2, newEntries, i, entries.length - i - 2);
+         return withEntries(editor, newBitmap, newEntries);
+      }
+
+      private IndexNode withEntries(Object editor, int newBitmap, Object[] newEntries) {
+         if (owner != editor) {
+            return new IndexNode(editor, newBitmap, newEntries);
+         }
+         bitmap = newBitmap;
+         entries = newEntries;
+         return this;
+      }
+   }
+
+   /**
+    * Immutable array of products split into chunks, which are grouped into
+    * pages. Empty slots are left by removed products.
+    */
+   private static final class Chunks {
+
+      static final int CHUNK_BITS = 10;
+      static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+      // Chunks per page
+      static final int PAGE_BITS = 10;
+      static final int PAGE_SIZE = 1 << PAGE_BITS;
+      static final Chunks EMPTY = new Chunks(new Product[0][][], 0, 0);
+
+      final Product[][][] pages;
+      // Number of used slots, including empty ones
+      final int size;
+      // Number of products
+      final int live;
+
+      Chunks(Product[][][] pages, int size, int live) {
+         this.pages = pages;
+         this.size = size;
+         this.live = live;
+      }
+
+      Product get(int position) {
+         return pages[position >>> (CHUNK_BITS + PAGE_BITS)][(position >>> CHUNK_BITS) & (PAGE_SIZE - 1)]
+               [position & (CHUNK_SIZE - 1)];
+      }
+
+      /**
+       * @return True if more than half of the slots are empty, so the positions
+       *         should be assigned anew.
+       */
+      boolean isSparse() {
+         return size > CHUNK_SIZE && live < size / 2;
+      }
+
+      Collection<Product> view() {
+         return new AbstractCollection<>() {
+            @Override
+            public Iterator<Product> iterator() {
+               return new ChunkIterator(Chunks.this);
+            }
+
+            @Override
+            public int size() {
+               return live;
+            }
+         };
+      }
+   }
+
+   private static final class ChunkIterator implements Iterator<Product> {
+
+      private final Chunks chunks;
+      private int position;
+      private Product next;
+
+      ChunkIterator(Chunks chunks) {
+         this.chunks = chunks;
+      }
+
+      @Override
+      public boolean hasNext() {
+         while (next == null && position < chunks.size) {
+            next = chunks.get(position++);
+         }
+         return next != null;
+      }
+
+      @Override
+      public Product next() {
+         if (!hasNext()) {
+            throw new NoSuchElementException();
+         }
+         Product product = next;
+         next = null;
+         return product;
+      }
+   }
+
+   /**
+    * Copy-on-write editor for {@link Chunks}. The directory of the pages, every
+    * page and every chunk are copied at most once, on the first change that
+    * touches them.
+    */
+   private static final class ChunksEditor {
+
+      private Product[][][] pages;
+      private int size;
+      private int live;
+      private boolean directoryCopied;
+      // The pages and chunks created by this editor, which it changes in place
+      private final Set<Object> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+
+      ChunksEditor(Chunks base) {
+         pages = base.pages;
+         size = base.size;
+         live = base.live;
+      }
+
+      Product get(int position) {
+         return pages[position >>> (Chunks.CHUNK_BITS + Chunks.PAGE_BITS)]
+               [(position >>> Chunks.CHUNK_BITS) & (Chunks.PAGE_SIZE - 1)][position & (Chunks.CHUNK_SIZE - 1)];
+      }
+
+      int append(Product product) {
+         int position = size;
+         set(position, product);
+         size++;
+         live++;
+         return position;
+      }
+
+      void replace(int position, Product product) {
+         set(position, product);
+      }
+
+      void remove(int position) {
+         set(position, null);
+         live--;
+      }
+
+      private void set(int position, Product product) {
+         Product[][] page = page(position >>> (Chunks.CHUNK_BITS + Chunks.PAGE_BITS));
+         int chunk = (position >>> Chunks.CHUNK_BITS) & (Chunks.PAGE_SIZE - 1);
+         if (page[chunk] == null) {
+            page[chunk] = new Product[Chunks.CHUNK_SIZE];
+            owned.add(page[chunk]);
+         } else if (!owned.contains(page[chunk])) {
+            page[chunk] = page[chunk].clone();
+            owned.add(page[chunk]);
+         }
+         page[chunk][position & (Chunks.CHUNK_SIZE - 1)] = product;
+      }
+
+      private Product[][] page(int page) {
+         if (page == pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(1, pages.length * 2));
+            directoryCopied = true;
+         }
+         if (pages[page] == null) {
+            copyDirectory();
+            pages[page] = new Product[Chunks.PAGE_SIZE][];
+            owned.add(pages[page]);
+         } else if (!owned.contains(pages[page])) {
+            copyDirectory();
+            pages[page] = pages[page].clone();
+            owned.add(pages[page]);
+         }
+         return pages[page];
+      }
+
+      private void copyDirectory() {
+         if (!directoryCopied) {
+            pages = pages.clone();
+            directoryCopied = true;
+         }
+      }
+
+      Chunks build() {
+         return new Chunks(pages, size, live);
+      }
+   }
+
+   /**
+    * Builds the next snapshot from the current one. Only the chunks, pages and
+    * index nodes that are changed are copied.
+    */
+   private static final class Editor {
+
+      // Owner of the index nodes created by this editor
+      private final Object owner = new Object();
+      private final ChunksEditor all;
+      private final Map<Class<? extends Product>, Chunks> baseByType;
+      private final Map<Class<? extends Product>, ChunksEditor> byType = new HashMap<>();
+      private IndexNode index;
+
+      Editor(Snapshot base) {
+         all = new ChunksEditor(base.all);
+         baseByType = base.byType;
+         index = base.index;
+      }
+
+      void append(Product product) {
+         int position = all.append(product);
+         int typePosition = typeEditor(product.getClass()).append(product);
+         setSlot(product.getId(), new Slot(position, typePosition));
+      }
+
+      Product put(Product product) {
+         Slot slot = index.find(IndexNode.hashOf(product.getId()), product.getId());
+         if (slot == null) {
+            append(product);
+            return null;
+         }
+         Product previous = all.get(slot.position);
+         all.replace(slot.position, product);
+         if (previous.getClass() == product.getClass()) {
+            typeEditor(product.getClass()).replace(slot.typePosition, product);
+            return previous;
+         }
+         typeEditor(previous.getClass()).remove(slot.typePosition);
+         int typePosition = typeEditor(product.getClass()).append(product);
+         setSlot(product.getId(), new Slot(slot.position, typePosition));
+         return previous;
+      }
+
+      Product remove(String id) {
+         int hash = IndexNode.hashOf(id);
+         Slot slot = index.find(hash, id);
+         if (slot == null) {
+            return null;
+         }
+         index = index.remove(owner, 0, hash, id);
+         Product product = all.get(slot.position);
+         all.remove(slot.position);
+         typeEditor(product.getClass()).remove(slot.typePosition);
+         return product;
+      }
+
+      private void setSlot(String id, Slot slot) {
+         index = index.put(owner, 0, IndexNode.hashOf(id), id, slot);
+      }
+
+      private ChunksEditor typeEditor(Class<? extends Product> type) {
+         return byType.computeIfAbsent(type, t -> new ChunksEditor(baseByType.getOrDefault(t, Chunks.EMPTY)));
+      }
+
+      Snapshot build() {
+         Chunks allChunks = all.build();
+         if (allChunks.isSparse()) {
+            return compact(allChunks);
+         }
+         Map<Class<? extends Product>, Chunks> types = new HashMap<>(baseByType);
+         for (Map.Entry<Class<? extends Product>, ChunksEditor> entry : byType.entrySet()) {
+            Chunks chunks = entry.getValue().build();
+            if (chunks.isSparse()) {
+               chunks = compactType(chunks);
+            }
+            if (chunks.live == 0) {
+               types.remove(entry.getKey());
+            } else {
+               types.put(entry.getKey(), chunks);
+            }
+         }
+         return new Snapshot(allChunks, types, index);
+      }
+
+      private static Snapshot compact(Chunks allChunks) {
+         Editor editor = new Editor(Snapshot.EMPTY);
+         Iterator<Product> products = new ChunkIterator(allChunks);
+         while (products.hasNext()) {
+            editor.append(products.next());
+         }
+         return editor.build();
+      }
+
+      /**
+       * Assigns the products of a type new positions in the chunks of the type.
+       * The positions of all products are kept.
+       */
+      private Chunks compactType(Chunks chunks) {
+         ChunksEditor compacted = new ChunksEditor(Chunks.EMPTY);
+         Iterator<Product> products = new ChunkIterator(chunks);
+         while (products.hasNext()) {
+            Product product = products.next();
+            Slot slot = index.find(IndexNode.hashOf(product.getId()), product.getId());
+            setSlot(product.getId(), new Slot(slot.position, compacted.append(product)));
+         }
+         return compacted.build();
+      }
+   }
+}
@@ -0,0 +1,55 @@
+package com.monev.superdupermarkt;
+
+import java.util.List;
+
+/**
+ * Listener for changes of a {@link ProductRepository}, registered with
+ * {@link ProductRepository#setListener(ProductRepositoryListener)}. The
+ * listener is called before a change is applied, so if it throws an exception,
+ * the change is not applied. This allows a listener to record every change
+ * before it becomes visible, for example in a write-ahead log.
+ */
+public interface ProductRepositoryListener {
+
+   /**
+    * Called before a single product is added or replaces the product with the
+    * same ID.
+    *
+    * @param product The product that is added.
+    */
+   void beforeAdd(Product product);
+
+   /**
+    * Called before several products are added at once, for example by an
+    * import. Only the products that are actually added are passed.
+    *
+    * @param products The products that are added.
+    */
+   void beforeImport(List<Product> products);
+
+   /**
+    * Called before an existing product is removed.
+    *
+    * @param id The ID of the product that is removed.
+    */
+   void beforeRemove(String id);
+
+   /**
+    * Called before several products are added or replaced and several products
+    * are removed as a single change, for example by a sync. The products are put
+    * before the IDs are removed. Only IDs that are actually removed are passed.
+    * By default the changes are passed one by one to {@link #beforeAdd(Product)}
+    * and {@link #beforeRemove(String)}.
+    *
+    * @param products   The products that are added or replace existing ones.
+    * @param removedIds The IDs of the products that are removed.
+    */
+   default void beforeChanges(List<Product> products, List<String> removedIds) {
+      for (Product product : products) {
+         beforeAdd(product);
+      }
+      for (String id : removedIds) {
+         beforeRemove(id);
+      }
+   }
+}
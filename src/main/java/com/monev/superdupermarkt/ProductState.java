@@ -0,0 +1,38 @@
+package com.monev.superdupermarkt;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * The state of a product on a single day: the values that change from day to
+ * day, as opposed to the values that define the product. States are
+ * immutable, so the simulation moves from one state to the next with
+ * {@link Product#nextState(ProductState)} without changing or copying the
+ * product, and many simulations can run on the same product at once.
+ *
+ * @param date    The day of the state
+ * @param quality The quality of the product on that day
+ * @param expired Whether the product was past its expiry date after the last
+ *                daily update
+ */
+public record ProductState(LocalDate date, double quality, boolean expired) {
+
+   /**
+    * @param quality The new quality.
+    * @return The state with the given quality on the same day.
+    */
+   public ProductState withQuality(double quality) {
+      return new ProductState(date, quality, expired);
+   }
+
+   /**
+    * Counts the days from the day of the state to the given date.
+    *
+    * @param other The date to count to.
+    * @return The number of days, negative if the date is before the day of the
+    *         state.
+    */
+   public long daysUntil(LocalDate other) {
+      return ChronoUnit.DAYS.between(date, other);
+   }
+}
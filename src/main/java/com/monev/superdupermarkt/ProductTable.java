@@ -0,0 +1,388 @@
+package com.monev.superdupermarkt;
+
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.Wine;
+import com.monev.superdupermarkt.util.MeatTypeEnum;
+import com.monev.superdupermarkt.util.ProductKernels;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Column oriented store for large inventories. Instead of keeping one object
+ * per product, every attribute is kept in its own primitive array (quality,
+ * expiry date as epoch day, price, type code, meat type and vacuum flag), so
+ * that the simulation can run one tight loop per product type over the columns
+ * instead of calling {@link Product#nextState(ProductState)} on every object.
+ * <p>
+ * The daily updates of cheese and common products and the daily prices are
+ * calculated by {@link ProductKernels}, which use SIMD instructions where the
+ * Vector API is available.
+ * <p>
+ * {@link Product} objects are only built when a row is viewed through
+ * {@link #get(int)}. Product types that are not known to the table are kept as
+ * objects and simulated through their own {@link Product#nextState(ProductState)}.
+ */
+public class ProductTable {
+
+   public static final byte COMMON_PRODUCT = 0;
+   public static final byte CHEESE = 1;
+   public static final byte WINE = 2;
+   public static final byte MEAT = 3;
+   public static final byte OTHER = 4;
+
+   // Stored in the expiry column for products without an expiry date
+   private static final int NO_EXPIRY_DATE = Integer.MAX_VALUE;
+   private static final int TYPE_COUNT = 5;
+   private static final int DEFAULT_CAPACITY = 16;
+   private static final ProductKernels kernels = ProductKernels.getDefault();
+
+   private String[] ids;
+   private String[] names;
+   private double[] quality;
+   private int[] expiryDate;
+   private double[] price;
+   private byte[] type;
+   private byte[] meatType;
+   private boolean[] vacuumPacked;
+   private double[] startingQuality;
+   private boolean[] expired;
+   private int size;
+
+   // Row numbers of each product type, so every type can be simulated in its own
+   // loop
+   private final int[][] rowsByType = new int[TYPE_COUNT][];
+   private final int[] rowCountByType = new int[TYPE_COUNT];
+
+   // Products of types the table has no columns for
+   private final Map<Integer, Product> otherProducts = new HashMap<>();
+
+   private int today;
+
+   /**
+    * Creates an empty table that starts at the current date.
+    */
+   public ProductTable() {
+      this(DEFAULT_CAPACITY);
+   }
+
+   /**
+    * Creates an empty table that starts at the current date.
+    *
+    * @param capacity The number of products the table can hold before it has to
+    *                 grow.
+    */
+   public ProductTable(int capacity) {
+      if (capacity < 1) {
+         throw new IllegalArgumentException("The capacity of the product table must be at least 1.");
+      }
+      ids = new String[capacity];
+      names = new String[capacity];
+      quality = new double[capacity];
+      expiryDate = new int[capacity];
+      price = new double[capacity];
+      type = new byte[capacity];
+      meatType = new byte[capacity];
+      vacuumPacked = new boolean[capacity];
+      startingQuality = new double[capacity];
+      expired = new boolean[capacity];
+      for (int i = 0; i < TYPE_COUNT; i++) {
+         rowsByType[i] = new int[DEFAULT_CAPACITY];
+      }
+      today = (int) LocalDate.now().toEpochDay();
+   }
+
+   /**
+    * Adds the product to the table. The product itself is not kept, only its
+    * values are copied into the columns.
+    *
+    * @param product The product to add.
+    * @return The row of the added product.
+    */
+   public int add(Product product) {
+      if (size == ids.length) {
+         grow();
+      }
+
+      int row = size++;
+      byte typeCode = getTypeCode(product);
+      ids[row] = product.getId();
+      names[row] = product.getName();
+      quality[row] = product.getQuality();
+      expiryDate[row] = product.getExpiryDate() == null ? NO_EXPIRY_DATE : (int) product.getExpiryDate().toEpochDay();
+      price[row] = product.getDefaultPrice();
+      type[row] = typeCode;
+      expired[row] = product.isExpired();
+
+      if (typeCode == MEAT) {
+         Meat meat = (Meat) product;
+         meatType[row] = (byte) meat.getMeatType().ordinal();
+         vacuumPacked[row] = meat.isVacuumPacked();
+         startingQuality[row] = meat.getStartingQuality();
+      } else if (typeCode == OTHER) {
+         Product copy = product.clone();
+         copy.setToday(getToday());
+         otherProducts.put(row, copy);
+      }
+
+      int[] rows = rowsByType[typeCode];
+      if (rowCountByType[typeCode] == rows.length) {
+         rowsByType[typeCode] = rows = Arrays.copyOf(rows, rows.length * 2);
+      }
+      rows[rowCountByType[typeCode]++] = row;
+      return row;
+   }
+
+   public int size() {
+      return size;
+   }
+
+   public LocalDate getToday() {
+      return LocalDate.ofEpochDay(today);
+   }
+
+   public String getId(int row) {
+      checkRow(row);
+      return ids[row];
+   }
+
+   public byte getType(int row) {
+      checkRow(row);
+      return type[row];
+   }
+
+   public double getQuality(int row) {
+      checkRow(row);
+      return type[row] == OTHER ? otherProducts.get(row).getQuality() : quality[row];
+   }
+
+   public LocalDate getExpiryDate(int row) {
+      checkRow(row);
+      return expiryDate[row] == NO_EXPIRY_DATE ? null : LocalDate.ofEpochDay(expiryDate[row]);
+   }
+
+   public boolean isExpired(int row) {
+      checkRow(row);
+      switch (type[row]) {
+      case COMMON_PRODUCT:
+         // Common products are checked against the real date, see CommonProduct#isExpired()
+         return isAfterExpiry(LocalDate.now().toEpochDay(), expiryDate[row]);
+      case OTHER:
+         return otherProducts.get(row).isExpired();
+      default:
+         return expired[row];
+      }
+   }
+
+   /**
+    * Calculates the daily price of the product in the given row.
+    *
+    * @param row The row of the product.
+    * @return The daily price.
+    */
+   public double getDailyPrice(int row) {
+      checkRow(row);
+      switch (type[row]) {
+      case WINE:
+         return price[row]; // Price does not change after being put on the stands
+      case OTHER:
+         return otherProducts.get(row).calculateDailyPrice();
+      default:
+         return Product.dailyPrice(price[row], quality[row]);
+      }
+   }
+
+   /**
+    * Calculates the daily prices of all products. The prices of each known
+    * product type are calculated in one pass over the columns.
+    *
+    * @return The daily prices by row.
+    */
+   public double[] getDailyPrices() {
+      double[] prices = new double[size];
+      kernels.dailyPrices(price, quality, rowsByType[CHEESE], rowCountByType[CHEESE], prices);
+      kernels.dailyPrices(price, quality, rowsByType[MEAT], rowCountByType[MEAT], prices);
+      kernels.dailyPrices(price, quality, rowsByType[COMMON_PRODUCT], rowCountByType[COMMON_PRODUCT], prices);
+      int[] rows = rowsByType[WINE];
+      for (int i = 0, n = rowCountByType[WINE]; i < n; i++) {
+         prices[rows[i]] = price[rows[i]]; // Price does not change after being put on the stands
+      }
+      rows = rowsByType[OTHER];
+      for (int i = 0, n = rowCountByType[OTHER]; i < n; i++) {
+         prices[rows[i]] = otherProducts.get(rows[i]).calculateDailyPrice();
+      }
+      return prices;
+   }
+
+   /**
+    * Checks if the product in the given row should be removed from the shelves
+    * at its current quality.
+    *
+    * @param row The row of the product.
+    * @return True if the product should be removed, otherwise false.
+    */
+   public boolean shouldBeRemoved(int row) {
+      checkRow(row);
+      switch (type[row]) {
+      case CHEESE:
+         return quality[row] <= 30; // See Cheese#shouldBeRemoved(double)
+      case MEAT:
+         return quality[row] <= 50; // See Meat#shouldBeRemoved(double)
+      case OTHER:
+         Product product = otherProducts.get(row);
+         return product.shouldBeRemoved(product.getQuality());
+      default:
+         return false;
+      }
+   }
+
+   /**
+    * Builds a product object for the given row. The product reflects the state of
+    * the row at the current date of the table. Changes to the returned product are
+    * not written back to the table.
+    *
+    * @param row The row to view.
+    * @return A product with the values of the row.
+    */
+   public Product get(int row) {
+      checkRow(row);
+      Product product;
+      LocalDate expiry = getExpiryDate(row);
+      switch (type[row]) {
+      case COMMON_PRODUCT:
+         product = CommonProduct.restore(ids[row], names[row], quality[row], expiry, price[row]);
+         break;
+      case CHEESE:
+         product = Cheese.restore(ids[row], names[row], quality[row], expiry, price[row]);
+         break;
+      case WINE:
+         product = Wine.restore(ids[row], names[row], quality[row], expiry, price[row]);
+         break;
+      case MEAT:
+         product = Meat.restore(ids[row], names[row], quality[row], expiry, price[row],
+               MeatTypeEnum.values()[meatType[row]], vacuumPacked[row], startingQuality[row]);
+         break;
+      default:
+         return otherProducts.get(row).clone();
+      }
+      product.setToday(getToday());
+      product.setIsExpired(expired[row]);
+      return product;
+   }
+
+   /**
+    * Moves all products the given number of days into the future. The quality of
+    * the known product types is calculated directly, so advancing many days costs
+    * the same as advancing one.
+    *
+    * @param days The number of days to advance.
+    */
+   public void advance(int days) {
+      if (days < 0) {
+         throw new IllegalArgumentException("The number of days to advance must not be negative.");
+      }
+      if (days == 0) {
+         return;
+      }
+
+      advanceCheese(days);
+      advanceWine(days);
+      advanceMeat(days);
+      advanceCommonProducts(days);
+      advanceOtherProducts(days);
+
+      today += days;
+   }
+
+   private void advanceCheese(int days) {
+      int[] rows = rowsByType[CHEESE];
+      kernels.decayCheese(quality, rows, rowCountByType[CHEESE], days);
+      for (int i = 0, n = rowCountByType[CHEESE]; i < n; i++) {
+         int row = rows[i];
+         expired[row] = isAfterExpiry(today + days, expiryDate[row]);
+      }
+   }
+
+   private void advanceWine(int days) {
+      int[] rows = rowsByType[WINE];
+      for (int i = 0, n = rowCountByType[WINE]; i < n; i++) {
+         int row = rows[i];
+         quality[row] = Wine.projectQuality(quality[row], (long) expiryDate[row] - today, days);
+         expired[row] = isAfterExpiry(today + days, expiryDate[row]);
+      }
+   }
+
+   private void advanceMeat(int days) {
+      int[] rows = rowsByType[MEAT];
+      MeatTypeEnum[] meatTypes = MeatTypeEnum.values();
+      for (int i = 0, n = rowCountByType[MEAT]; i < n; i++) {
+         int row = rows[i];
+         int modifier = Meat.calculateQualityModifier(startingQuality[row], meatTypes[meatType[row]],
+               vacuumPacked[row]);
+         quality[row] = Meat.projectQuality(quality[row], modifier, expired[row], (long) expiryDate[row] - today,
+               days);
+         expired[row] = isAfterExpiry(today + days, expiryDate[row]);
+      }
+   }
+
+   private void advanceCommonProducts(int days) {
+      int[] rows = rowsByType[COMMON_PRODUCT];
+      kernels.decayCommonProducts(quality, rows, rowCountByType[COMMON_PRODUCT], days);
+      for (int i = 0, n = rowCountByType[COMMON_PRODUCT]; i < n; i++) {
+         int row = rows[i];
+         expired[row] = isAfterExpiry(today + days, expiryDate[row]);
+      }
+   }
+
+   private void advanceOtherProducts(int days) {
+      int[] rows = rowsByType[OTHER];
+      for (int i = 0, n = rowCountByType[OTHER]; i < n; i++) {
+         Product product = otherProducts.get(rows[i]);
+         for (int d = 0; d < days; d++) {
+            product.advanceDay();
+         }
+      }
+   }
+
+   private static boolean isAfterExpiry(long day, int expiry) {
+      return expiry != NO_EXPIRY_DATE && day > expiry;
+   }
+
+   private static byte getTypeCode(Product product) {
+      Class<?> productClass = product.getClass();
+      if (productClass == CommonProduct.class) {
+         return COMMON_PRODUCT;
+      } else if (productClass == Cheese.class) {
+         return CHEESE;
+      } else if (productClass == Wine.class) {
+         return WINE;
+      } else if (productClass == Meat.class) {
+         return MEAT;
+      }
+      return OTHER;
+   }
+
+   private void checkRow(int row) {
+      if (row < 0 || row >= size) {
+         throw new IndexOutOfBoundsException("Row " + row + " is out of bounds for product table of size " + size);
+      }
+   }
+
+   private void grow() {
+      int capacity = ids.length * 2;
+      ids = Arrays.copyOf(ids, capacity);
+      names = Arrays.copyOf(names, capacity);
+      quality = Arrays.copyOf(quality, capacity);
+      expiryDate = Arrays.copyOf(expiryDate, capacity);
+      price = Arrays.copyOf(price, capacity);
+      type = Arrays.copyOf(type, capacity);
+      meatType = Arrays.copyOf(meatType, capacity);
+      vacuumPacked = Arrays.copyOf(vacuumPacked, capacity);
+      startingQuality = Arrays.copyOf(startingQuality, capacity);
+      expired = Arrays.copyOf(expired, capacity);
+   }
+}
@@ -0,0 +1,89 @@
+package com.monev.superdupermarkt;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Trace events of the product quality rules. Tracing is enabled by starting the
+ * application with {@code -Dsuperdupermarkt.trace=true}. The quality rules only
+ * report events inside an {@code if (QualityTrace.ENABLED)} check, and since
+ * {@link #ENABLED} is a constant, the checks cost nothing when tracing is
+ * disabled.
+ * <p>
+ * When tracing is enabled, {@link #DIAGNOSTICS} is registered by default and
+ * prints the diagnostic output of the quality rules to the console or to the
+ * sink of the running simulation.
+ */
+public final class QualityTrace {
+
+   public static final boolean ENABLED = Boolean.getBoolean("superdupermarkt.trace");
+
+   /**
+    * Listener that prints the diagnostic output of the quality rules.
+    */
+   public static final QualityTraceListener DIAGNOSTICS = new QualityTraceListener() {
+      @Override
+      public void qualityModifier(Product product, int daysInFridge, int modifier, boolean isExpired) {
+         product.printDiagnostic("Days in fridge: " + daysInFridge);
+         product.printDiagnostic((isExpired ? "IsExpired QualityModifier: " : "QualityModifier: ") + modifier);
+      }
+   };
+
+   private static final List<QualityTraceListener> listeners = new CopyOnWriteArrayList<>();
+
+   static {
+      if (ENABLED) {
+         listeners.add(DIAGNOSTICS);
+      }
+   }
+
+   private QualityTrace() {
+   }
+
+   /**
+    * Registers a listener. It is only called while tracing is enabled.
+    *
+    * @param listener The listener to add.
+    */
+   public static void addListener(QualityTraceListener listener) {
+      listeners.add(listener);
+   }
+
+   /**
+    * Removes a previously registered listener.
+    *
+    * @param listener The listener to remove.
+    */
+   public static void removeListener(QualityTraceListener listener) {
+      listeners.remove(listener);
+   }
+
+   /**
+    * Reports the daily quality update of a product to all listeners.
+    *
+    * @param product  The updated product.
+    * @param previous The state before the update, its date is the day the update
+    *                 belongs to.
+    * @param next     The state after the update.
+    */
+   public static void qualityUpdated(Product product, ProductState previous, ProductState next) {
+      for (QualityTraceListener listener : listeners) {
+         listener.qualityUpdated(product, previous, next);
+      }
+   }
+
+   /**
+    * Reports a quality loss that depends on the days in the fridge to all
+    * listeners.
+    *
+    * @param product      The product the loss is applied to.
+    * @param daysInFridge The days the product can be kept in the fridge.
+    * @param modifier     The quality loss applied for the day.
+    * @param isExpired    Whether the product is expired.
+    */
+   public static void qualityModifier(Product product, int daysInFridge, int modifier, boolean isExpired) {
+      for (QualityTraceListener listener : listeners) {
+         listener.qualityModifier(product, daysInFridge, modifier, isExpired);
+      }
+   }
+}
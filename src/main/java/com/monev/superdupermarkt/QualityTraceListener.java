@@ -0,0 +1,32 @@
+package com.monev.superdupermarkt;
+
+/**
+ * Listener for trace events of the product quality rules. Listeners are
+ * registered with {@link QualityTrace#addListener(QualityTraceListener)} and
+ * are only called while tracing is enabled.
+ */
+public interface QualityTraceListener {
+
+   /**
+    * Called after the daily quality update of a simulated product.
+    *
+    * @param product  The updated product.
+    * @param previous The state before the update, its date is the day the update
+    *                 belongs to.
+    * @param next     The state after the update.
+    */
+   default void qualityUpdated(Product product, ProductState previous, ProductState next) {
+   }
+
+   /**
+    * Called when a product applies a daily quality loss that depends on how long
+    * it can be kept in the fridge, for example meat.
+    *
+    * @param product      The product the loss is applied to.
+    * @param daysInFridge The days the product can be kept in the fridge.
+    * @param modifier     The quality loss applied for the day.
+    * @param isExpired    Whether the product is expired.
+    */
+   default void qualityModifier(Product product, int daysInFridge, int modifier, boolean isExpired) {
+   }
+}
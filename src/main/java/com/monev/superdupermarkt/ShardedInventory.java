@@ -0,0 +1,212 @@
+package com.monev.superdupermarkt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Inventory of many stores, partitioned by a store key. Every store is a shard
+ * that owns its own {@link ProductTable} and its own worker thread, and the
+ * table is only ever touched by that thread. Adding products, advancing the
+ * days and computing results are queued to the worker of each store, so the
+ * stores work in parallel without sharing mutable state or taking locks, and
+ * the changes of a store are applied in the order they were made.
+ * <p>
+ * Results across stores, such as the {@link InventorySummary}, are computed
+ * by every worker for its own store and merged afterwards, in the order of the
+ * store keys.
+ */
+public class ShardedInventory implements AutoCloseable {
+
+   private final ConcurrentSkipListMap<String, Shard> shards = new ConcurrentSkipListMap<>();
+   private volatile boolean closed;
+
+   /**
+    * Adds a product to a store. The store is created if it does not exist yet.
+    * The values of the product are copied by the worker of the store, so the
+    * product must not be changed until the returned future is done.
+    *
+    * @param store   The key of the store.
+    * @param product The product to add.
+    * @return A future that is completed once the product is added.
+    */
+   public CompletableFuture<Void> add(String store, Product product) {
+      return getOrCreateShard(store).submit(table -> {
+         table.add(product);
+         return null;
+      });
+   }
+
+   /**
+    * Adds products to a store. The store is created if it does not exist yet.
+    * The products must not be changed until the returned future is done.
+    *
+    * @param store    The key of the store.
+    * @param products The products to add.
+    * @return A future that is completed once all products are added.
+    */
+   public CompletableFuture<Void> addAll(String store, Collection<? extends Product> products) {
+      List<Product> copy = List.copyOf(products);
+      return getOrCreateShard(store).submit(table -> {
+         for (Product product : copy) {
+            table.add(product);
+         }
+         return null;
+      });
+   }
+
+   /**
+    * Moves the products of all stores the given number of days into the
+    * future. The stores are advanced in parallel, each by its own worker.
+    *
+    * @param days The number of days to advance.
+    */
+   public void advance(int days) {
+      if (days < 0) {
+         throw new IllegalArgumentException("The number of days to advance must not be negative.");
+      }
+      aggregate(table -> {
+         table.advance(days);
+         return null;
+      }, (a, b) -> null, null);
+   }
+
+   /**
+    * Computes a result for a single store on its worker.
+    *
+    * @param <R>   The type of the result.
+    * @param store The key of the store.
+    * @param query Computes the result from the table of the store. It must not
+    *              keep the table.
+    * @return The result.
+    * @throws IllegalArgumentException If there is no such store.
+    */
+   public <R> R query(String store, Function<ProductTable, R> query) {
+      Shard shard = shards.get(store);
+      if (shard == null) {
+         throw new IllegalArgumentException("Unknown store: " + store);
+      }
+      return await(shard.submit(query));
+   }
+
+   /**
+    * Computes a result across all stores: every worker computes the partial
+    * result of its store in parallel, and the partial results are merged in the
+    * order of the store keys.
+    *
+    * @param <R>      The type of the result.
+    * @param partial  Computes the partial result of a table. It must not keep the
+    *                 table.
+    * @param merge    Merges two partial results.
+    * @param identity The result if there are no stores.
+    * @return The merged result.
+    */
+   public <R> R aggregate(Function<ProductTable, R> partial, BinaryOperator<R> merge, R identity) {
+      List<CompletableFuture<R>> futures = new ArrayList<>();
+      for (Shard shard : shards.values()) {
+         futures.add(shard.submit(partial));
+      }
+      R result = identity;
+      for (CompletableFuture<R> future : futures) {
+         result = merge.apply(result, await(future));
+      }
+      return result;
+   }
+
+   /**
+    * Summarizes the products of all stores.
+    *
+    * @return The merged summary of all stores.
+    */
+   public InventorySummary summarize() {
+      return aggregate(InventorySummary::of, InventorySummary::merge, InventorySummary.EMPTY);
+   }
+
+   /**
+    * Summarizes the products of every store.
+    *
+    * @return The summaries by the store keys, in the order of the keys.
+    */
+   public Map<String, InventorySummary> summarizeByStore() {
+      Map<String, CompletableFuture<InventorySummary>> futures = new LinkedHashMap<>();
+      for (Map.Entry<String, Shard> entry : shards.entrySet()) {
+         futures.put(entry.getKey(), entry.getValue().submit(InventorySummary::of));
+      }
+      Map<String, InventorySummary> summaries = new LinkedHashMap<>();
+      for (Map.Entry<String, CompletableFuture<InventorySummary>> entry : futures.entrySet()) {
+         summaries.put(entry.getKey(), await(entry.getValue()));
+      }
+      return summaries;
+   }
+
+   /**
+    * @return The keys of all stores in their order.
+    */
+   public NavigableSet<String> getStores() {
+      return Collections.unmodifiableNavigableSet(shards.keySet());
+   }
+
+   /**
+    * Stops the workers of all stores after the queued work is done.
+    */
+   @Override
+   public void close() {
+      closed = true;
+      for (Shard shard : shards.values()) {
+         shard.worker.shutdown();
+      }
+   }
+
+   private Shard getOrCreateShard(String store) {
+      if (closed) {
+         throw new IllegalStateException("The inventory is closed.");
+      }
+      return shards.computeIfAbsent(store, Shard::new);
+   }
+
+   /**
+    * Waits for a result of a worker and rethrows its failure.
+    */
+   private static <R> R await(CompletableFuture<R> future) {
+      try {
+         return future.join();
+      } catch (CompletionException e) {
+         if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+         }
+         throw e;
+      }
+   }
+
+   /**
+    * A store with its table and the worker that owns the table.
+    */
+   private static class Shard {
+
+      private final ProductTable table = new ProductTable();
+      private final ExecutorService worker;
+
+      Shard(String store) {
+         worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-" + store);
+            thread.setDaemon(true);
+            return thread;
+         });
+      }
+
+      <R> CompletableFuture<R> submit(Function<ProductTable, R> work) {
+         return CompletableFuture.supplyAsync(() -> work.apply(table), worker);
+      }
+   }
+}
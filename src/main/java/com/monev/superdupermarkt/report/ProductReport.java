@@ -0,0 +1,423 @@
+package com.monev.superdupermarkt.report;
+
+import com.monev.superdupermarkt.Product;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * Renders products as a report into an {@link Appendable}, for example a
+ * buffered {@link java.io.Writer}. Every product writes its fields with
+ * {@link Product#appendTo(ReportRow)} into a line buffer that is reused for all
+ * products, so the values are formatted without building Strings, and the
+ * daily price is only calculated once per product.
+ * <p>
+ * Only the products accepted by the filter are rendered. With a page size, the
+ * products are rendered page by page with {@link #pages(Iterable)}, continuing
+ * where the last page stopped, or a single page with
+ * {@link #renderPage(Iterable, int, Appendable)}.
+ */
+public class ProductReport {
+
+   public static final String CSV_HEADER = "type,id,name,quality,expiry_date,daily_price,details";
+
+   private static final String LINE_SEPARATOR = System.lineSeparator();
+   // Fields every product has, the following fields are details of the type
+   private static final int COMMON_FIELDS = 5;
+   // Widths of the type, ID, name, quality, expiry date and daily price columns
+   private static final int[] COLUMN_WIDTHS = { 14, 12, 24, 8, 10, 9 };
+   private static final boolean[] RIGHT_ALIGNED = { false, false, false, true, false, true };
+   private static final String[] COLUMN_NAMES = { "Type", "ID", "Name", "Quality", "Expiry", "Price", "Details" };
+   private static final char[] SPACES = " ".repeat(32).toCharArray();
+
+   private final ReportLayout layout;
+   private Predicate<? super Product> filter = product -> true;
+   private int pageSize;
+
+   /**
+    * Creates a report without a filter and without pages.
+    *
+    * @param layout How the products are laid out.
+    */
+   public ProductReport(ReportLayout layout) {
+      this.layout = layout;
+   }
+
+   /**
+    * Filter for the products that should be removed from the shelves at their
+    * current quality.
+    *
+    * @return The filter.
+    */
+   public static Predicate<Product> toBeRemoved() {
+      return product -> product.shouldBeRemoved(product.getQuality());
+   }
+
+   /**
+    * Filter for the products of the given type, not including subclasses of the
+    * type.
+    *
+    * @param type The type of the products.
+    * @return The filter.
+    */
+   public static Predicate<Product> ofType(Class<? extends Product> type) {
+      return product -> product.getClass() == type;
+   }
+
+   /**
+    * Sets which products are rendered.
+    *
+    * @param filter Accepts the products to render.
+    */
+   public void setFilter(Predicate<? super Product> filter) {
+      this.filter = filter;
+   }
+
+   /**
+    * Sets the number of products per page.
+    *
+    * @param pageSize The number of products or 0 to render all products on one
+    *                 page.
+    */
+   public void setPageSize(int pageSize) {
+      if (pageSize < 0) {
+         throw new IllegalArgumentException("The page size must not be negative.");
+      }
+      this.pageSize = pageSize;
+   }
+
+   /**
+    * Renders all products accepted by the filter, page by page.
+    *
+    * @param products The products to render.
+    * @param out      Where the report is written to.
+    * @return The number of rendered products.
+    * @throws IOException If the report cannot be written.
+    */
+   public long render(Iterable<? extends Product> products, Appendable out) throws IOException {
+      long rendered = 0;
+      Pages pages = pages(products);
+      while (pages.hasNext()) {
+         rendered += pages.renderNext(out);
+      }
+      return rendered;
+   }
+
+   /**
+    * Renders a single page of the products accepted by the filter. The products
+    * of the pages before are skipped, so rendering many pages one after another
+    * is faster with {@link #pages(Iterable)}.
+    *
+    * @param products The products to render.
+    * @param page     The number of the page, starting at 0.
+    * @param out      Where the report is written to.
+    * @return The number of rendered products, 0 if there is no such page.
+    * @throws IOException If the report cannot be written.
+    */
+   public int renderPage(Iterable<? extends Product> products, int page, Appendable out) throws IOException {
+      Pages pages = pages(products);
+      if (page > 0) {
+         if (pageSize == 0) {
+            return 0;
+         }
+         for (long skipped = (long) page * pageSize; skipped > 0 && pages.hasNext(); skipped--) {
+            pages.nextProduct();
+         }
+         pages.pageNumber = page;
+      }
+      return pages.hasNext() ? pages.renderNext(out) : 0;
+   }
+
+   /**
+    * Starts rendering the products page by page. The products must not change
+    * until all pages are rendered.
+    *
+    * @param products The products to render.
+    * @return The pages.
+    */
+   public Pages pages(Iterable<? extends Product> products) {
+      return new Pages(products.iterator());
+   }
+
+   /**
+    * The pages of a report. Every page continues after the last product of the
+    * page before.
+    */
+   public class Pages {
+
+      private final Iterator<? extends Product> products;
+      private final LineRow row = new LineRow();
+      // The next product accepted by the filter, found in advance for hasNext
+      private Product next;
+      private int pageNumber;
+
+      private Pages(Iterator<? extends Product> products) {
+         this.products = products;
+      }
+
+      /**
+       * @return True if there is another page with at least one product.
+       */
+      public boolean hasNext() {
+         while (next == null && products.hasNext()) {
+            Product product = products.next();
+            if (filter.test(product)) {
+               next = product;
+            }
+         }
+         return next != null;
+      }
+
+      /**
+       * @return The number of the next page, starting at 0.
+       */
+      public int getPageNumber() {
+         return pageNumber;
+      }
+
+      /**
+       * Renders the next page.
+       *
+       * @param out Where the page is written to.
+       * @return The number of rendered products.
+       * @throws IOException            If the page cannot be written.
+       * @throws NoSuchElementException If there is no further page.
+       */
+      public int renderNext(Appendable out) throws IOException {
+         if (!hasNext()) {
+            throw new NoSuchElementException("There is no further page.");
+         }
+         row.writeHeader(out, pageNumber);
+         int rendered = 0;
+         while ((pageSize == 0 || rendered < pageSize) && hasNext()) {
+            row.write(nextProduct(), out);
+            rendered++;
+         }
+         pageNumber++;
+         return rendered;
+      }
+
+      private Product nextProduct() {
+         Product product = next;
+         next = null;
+         return product;
+      }
+   }
+
+   /**
+    * Collects the fields of one product into a reused line buffer.
+    */
+   private class LineRow implements ReportRow {
+
+      private final StringBuilder line = new StringBuilder(256);
+      private int field;
+      private int cellStart;
+
+      void writeHeader(Appendable out, int pageNumber) throws IOException {
+         line.setLength(0);
+         switch (layout) {
+         case TABLE:
+            for (int i = 0; i < COLUMN_WIDTHS.length; i++) {
+               beginCell();
+               line.append(COLUMN_NAMES[i]);
+               endCell(i);
+            }
+            line.append(COLUMN_NAMES[COLUMN_WIDTHS.length]).append(LINE_SEPARATOR);
+            break;
+         case CSV:
+            if (pageNumber == 0) {
+               line.append(CSV_HEADER).append('\n');
+            }
+            break;
+         default:
+            break;
+         }
+         out.append(line);
+      }
+
+      void write(Product product, Appendable out) throws IOException {
+         line.setLength(0);
+         field = 0;
+         if (layout != ReportLayout.DETAILS) {
+            beginCell();
+            appendText(product.getClass().getSimpleName());
+            endCell(0);
+         }
+         product.appendTo(this);
+         switch (layout) {
+         case DETAILS:
+            line.append(LINE_SEPARATOR);
+            break;
+         case TABLE:
+            trimTrailingSpaces();
+            line.append(LINE_SEPARATOR);
+            break;
+         case CSV:
+            if (field > COMMON_FIELDS) {
+               quote(cellStart);
+            }
+            line.append('\n');
+            break;
+         default:
+            break;
+         }
+         out.append(line);
+      }
+
+      @Override
+      public void text(String label, String value) {
+         begin(label);
+         appendText(value);
+         end();
+      }
+
+      @Override
+      public void number(String label, double value) {
+         begin(label);
+         line.append(value);
+         end();
+      }
+
+      @Override
+      public void price(String label, double value) {
+         begin(label);
+         line.append(value);
+         if (layout == ReportLayout.DETAILS) {
+            line.append('€');
+         }
+         end();
+      }
+
+      @Override
+      public void date(String label, LocalDate value) {
+         begin(label);
+         if (value != null) {
+            appendDate(value);
+         } else if (layout != ReportLayout.CSV) {
+            line.append("none");
+         }
+         end();
+      }
+
+      @Override
+      public void flag(String label, boolean value) {
+         begin(label);
+         line.append(value ? "Yes" : "No");
+         end();
+      }
+
+      /**
+       * Starts a field. In the table and CSV layouts, the common fields are
+       * columns and the details of the type are collected in the last column.
+       */
+      private void begin(String label) {
+         if (layout == ReportLayout.DETAILS) {
+            line.append(label).append(": ");
+         } else if (field < COMMON_FIELDS) {
+            beginCell();
+         } else {
+            // The cell before already ends with its separator
+            if (field == COMMON_FIELDS) {
+               beginCell();
+            } else {
+               line.append("; ");
+            }
+            line.append(label).append(": ");
+         }
+      }
+
+      private void end() {
+         if (layout == ReportLayout.DETAILS) {
+            line.append(LINE_SEPARATOR);
+         } else if (field < COMMON_FIELDS) {
+            endCell(field + 1);
+         }
+         field++;
+      }
+
+      private void beginCell() {
+         cellStart = line.length();
+      }
+
+      /**
+       * Ends the cell of the given column: pads or cuts it in the table layout and
+       * adds the separator.
+       */
+      private void endCell(int column) {
+         if (layout == ReportLayout.CSV) {
+            quote(cellStart);
+            line.append(',');
+            return;
+         }
+         int width = COLUMN_WIDTHS[column];
+         int length = line.length() - cellStart;
+         if (length > width) {
+            line.setLength(cellStart + width - 1);
+            line.append('~');
+         } else if (RIGHT_ALIGNED[column]) {
+            line.insert(cellStart, SPACES, 0, width - length);
+         } else {
+            line.append(SPACES, 0, width - length);
+         }
+         line.append(' ');
+      }
+
+      private void appendText(String value) {
+         if (value == null) {
+            if (layout != ReportLayout.CSV) {
+               line.append("none");
+            }
+         } else {
+            line.append(value);
+         }
+      }
+
+      private void appendDate(LocalDate date) {
+         int year = date.getYear();
+         if (year >= 1000 && year <= 9999) {
+            line.append(year).append('-');
+            appendTwoDigits(date.getMonthValue());
+            line.append('-');
+            appendTwoDigits(date.getDayOfMonth());
+         } else {
+            line.append(date);
+         }
+      }
+
+      private void appendTwoDigits(int value) {
+         line.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+      }
+
+      /**
+       * Quotes the CSV cell that starts at the given position if it contains
+       * characters that have a meaning in CSV.
+       */
+      private void quote(int start) {
+         boolean quote = false;
+         for (int i = start; i < line.length() && !quote; i++) {
+            char c = line.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+         }
+         if (!quote) {
+            return;
+         }
+         for (int i = line.length() - 1; i >= start; i--) {
+            if (line.charAt(i) == '"') {
+               line.insert(i, '"');
+            }
+         }
+         line.insert(start, '"').append('"');
+      }
+
+      private void trimTrailingSpaces() {
+         int length = line.length();
+         while (length > 0 && line.charAt(length - 1) == ' ') {
+            length--;
+         }
+         line.setLength(length);
+      }
+   }
+}
@@ -0,0 +1,19 @@
+package com.monev.superdupermarkt.report;
+
+/**
+ * How a {@link ProductReport} lays out the products.
+ */
+public enum ReportLayout {
+   /**
+    * One line per field, like {@link com.monev.superdupermarkt.Product#toString()}.
+    */
+   DETAILS,
+   /**
+    * One line per product with fixed-width columns and a header on every page.
+    */
+   TABLE,
+   /**
+    * One CSV line per product with a header line before the first page.
+    */
+   CSV
+}
@@ -0,0 +1,41 @@
+package com.monev.superdupermarkt.report;
+
+import java.time.LocalDate;
+
+/**
+ * Receives the fields of a product for a {@link ProductReport}, see
+ * {@link com.monev.superdupermarkt.Product#appendTo(ReportRow)}. The values are
+ * written straight into the report, so no String has to be built for them. The
+ * first fields are the ones every product has, fields added by a product type
+ * follow them.
+ */
+public interface ReportRow {
+
+   void text(String label, String value);
+
+   void number(String label, double value);
+
+   /**
+    * Adds a price, shown with the currency in the detailed layout.
+    *
+    * @param label The label of the field.
+    * @param value The price.
+    */
+   void price(String label, double value);
+
+   /**
+    * Adds a date.
+    *
+    * @param label The label of the field.
+    * @param value The date or null if there is none.
+    */
+   void date(String label, LocalDate value);
+
+   /**
+    * Adds a yes/no field.
+    *
+    * @param label The label of the field.
+    * @param value The value.
+    */
+   void flag(String label, boolean value);
+}
@@ -0,0 +1,162 @@
+package com.monev.superdupermarkt.simulation;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductState;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+/**
+ * Writes the simulation as compact binary records. The stream starts with the
+ * magic number {@link #MAGIC} and the format {@link #VERSION}, followed by one
+ * record per product and simulated day:
+ * <ul>
+ * <li>a tag byte, {@link #NEW_PRODUCT} if the record starts a new product or
+ * {@link #SAME_PRODUCT} if it belongs to the product of the previous
+ * record,</li>
+ * <li>the product ID in modified UTF-8, only after {@link #NEW_PRODUCT},</li>
+ * <li>the date as int epoch day,</li>
+ * <li>the quality and the daily price as doubles,</li>
+ * <li>the expired flag as a byte.</li>
+ * </ul>
+ * The records can be read back with {@link #read(InputStream, Consumer)}.
+ */
+public class BinarySimulationSink implements SimulationSink {
+
+   public static final int MAGIC = 0x53444d52; // "SDMR"
+   public static final int VERSION = 1;
+   public static final byte NEW_PRODUCT = 1;
+   public static final byte SAME_PRODUCT = 0;
+
+   private static final int BUFFER_SIZE = 1 << 16;
+
+   private final DataOutputStream out;
+   private final ByteArrayOutputStream buffer;
+   private Product previousProduct;
+
+   /**
+    * Creates a sink that writes the header and all records to the given stream.
+    * The stream is closed when the sink is closed.
+    *
+    * @param out The stream to write the records to.
+    */
+   public BinarySimulationSink(OutputStream out) {
+      this.out = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+      this.buffer = null;
+      try {
+         this.out.writeInt(MAGIC);
+         this.out.writeInt(VERSION);
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   private BinarySimulationSink(ByteArrayOutputStream buffer) {
+      this.out = new DataOutputStream(buffer);
+      this.buffer = buffer;
+   }
+
+   @Override
+   public void accept(Product product, ProductState state) {
+      try {
+         if (product == previousProduct) {
+            out.writeByte(SAME_PRODUCT);
+         } else {
+            out.writeByte(NEW_PRODUCT);
+            out.writeUTF(product.getId());
+            previousProduct = product;
+         }
+         out.writeInt((int) state.date().toEpochDay());
+         out.writeDouble(state.quality());
+         out.writeDouble(product.calculateDailyPrice(state));
+         out.writeByte(product.isExpired(state) ? 1 : 0);
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   @Override
+   public SimulationSink fork() {
+      return new BinarySimulationSink(new ByteArrayOutputStream());
+   }
+
+   @Override
+   public void join(SimulationSink fork) {
+      try {
+         ((BinarySimulationSink) fork).buffer.writeTo(out);
+         // The joined records end with a different product
+         previousProduct = null;
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   @Override
+   public void flush() {
+      try {
+         out.flush();
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   @Override
+   public void close() {
+      try {
+         out.close();
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   /**
+    * Reads all records written by a binary sink from the given stream.
+    *
+    * @param in       The stream to read the records from.
+    * @param consumer Receives every record in the order it was written.
+    * @throws IOException If the stream cannot be read or is not in the binary
+    *                     simulation format.
+    */
+   public static void read(InputStream in, Consumer<SimulationRecord> consumer) throws IOException {
+      DataInputStream data = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+      if (data.readInt() != MAGIC) {
+         throw new IOException("The stream does not contain binary simulation records.");
+      }
+      int version = data.readInt();
+      if (version != VERSION) {
+         throw new IOException("Unsupported binary simulation format version: " + version);
+      }
+
+      String productId = null;
+      while (true) {
+         int tag = data.read();
+         if (tag == -1) {
+            return;
+         }
+         if (tag == NEW_PRODUCT) {
+            productId = data.readUTF();
+         } else if (tag != SAME_PRODUCT || productId == null) {
+            throw new IOException("Invalid binary simulation record tag: " + tag);
+         }
+         try {
+            LocalDate date = LocalDate.ofEpochDay(data.readInt());
+            double quality = data.readDouble();
+            double dailyPrice = data.readDouble();
+            boolean expired = data.readByte() != 0;
+            consumer.accept(new SimulationRecord(productId, date, quality, dailyPrice, expired));
+         } catch (EOFException e) {
+            throw new IOException("The binary simulation records end in the middle of a record.", e);
+         }
+      }
+   }
+}
@@ -0,0 +1,110 @@
+package com.monev.superdupermarkt.simulation;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductState;
+
+import java.io.BufferedWriter;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes one CSV line per product and simulated day with the columns id, date,
+ * quality, daily_price and expired.
+ */
+public class CsvSimulationSink implements SimulationSink {
+
+   public static final String HEADER = "id,date,quality,daily_price,expired";
+
+   private static final int BUFFER_SIZE = 1 << 16;
+
+   private final Writer writer;
+
+   /**
+    * Creates a sink that writes the header line and all records to the given
+    * writer. The writer is closed when the sink is closed.
+    *
+    * @param writer The writer to write the CSV to.
+    */
+   public CsvSimulationSink(Writer writer) {
+      this.writer = new BufferedWriter(writer, BUFFER_SIZE);
+      writeLine(HEADER);
+   }
+
+   private CsvSimulationSink(CharArrayWriter buffer) {
+      this.writer = buffer;
+   }
+
+   @Override
+   public void accept(Product product, ProductState state) {
+      try {
+         writeId(product.getId());
+         writer.write(',');
+         writer.write(state.date().toString());
+         writer.write(',');
+         writer.write(Double.toString(state.quality()));
+         writer.write(',');
+         writer.write(Double.toString(product.calculateDailyPrice(state)));
+         writer.write(',');
+         writer.write(product.isExpired(state) ? "true" : "false");
+         writer.write('\n');
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   @Override
+   public SimulationSink fork() {
+      return new CsvSimulationSink(new CharArrayWriter());
+   }
+
+   @Override
+   public void join(SimulationSink fork) {
+      try {
+         ((CharArrayWriter) ((CsvSimulationSink) fork).writer).writeTo(writer);
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   @Override
+   public void flush() {
+      try {
+         writer.flush();
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   @Override
+   public void close() {
+      try {
+         writer.close();
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   /**
+    * Writes the ID, quoted if it contains characters that have a meaning in CSV.
+    */
+   private void writeId(String id) throws IOException {
+      if (id.indexOf(',') < 0 && id.indexOf('"') < 0 && id.indexOf('\n') < 0 && id.indexOf('\r') < 0) {
+         writer.write(id);
+         return;
+      }
+      writer.write('"');
+      writer.write(id.replace("\"", "\"\""));
+      writer.write('"');
+   }
+
+   private void writeLine(String line) {
+      try {
+         writer.write(line);
+         writer.write('\n');
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+}
@@ -0,0 +1,210 @@
+package com.monev.superdupermarkt.simulation;
+
+import com.monev.superdupermarkt.Product;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Simulates products by the days on which their state changes instead of
+ * updating every product every day. For every product the next day on which it
+ * expires, has to be removed from the shelves or changes its quality in a step
+ * is scheduled in a timing wheel, so advancing a day only touches the products
+ * that change on that day. The quality of any product on the current day is
+ * calculated on demand with {@link Product#qualityAt(LocalDate)}.
+ * <p>
+ * The wheel has a slot for each of the next {@link #WHEEL_SIZE} days. Changes
+ * further in the future wait in a priority queue until they come within reach
+ * of the wheel. The products themselves are never changed.
+ */
+public class EventDrivenSimulator {
+
+   public static final int WHEEL_SIZE = 1024;
+
+   // Days searched for the day a product has to be removed from the shelves
+   private static final long MAX_REMOVAL_SEARCH_DAYS = 100 * 366;
+
+   private final List<ScheduledEvent>[] wheel;
+   private final PriorityQueue<ScheduledEvent> overflow = new PriorityQueue<>();
+   private long today;
+   private int size;
+
+   /**
+    * Creates a simulator that starts at the current date.
+    */
+   public EventDrivenSimulator() {
+      this(LocalDate.now());
+   }
+
+   /**
+    * Creates a simulator that starts at the given date.
+    *
+    * @param start The first day of the simulation. Must not be before the current
+    *              date of the added products.
+    */
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   public EventDrivenSimulator(LocalDate start) {
+      wheel = new List[WHEEL_SIZE];
+      for (int i = 0; i < WHEEL_SIZE; i++) {
+         wheel[i] = new ArrayList<>();
+      }
+      today = start.toEpochDay();
+   }
+
+   /**
+    * Adds a product and schedules its next state changes.
+    *
+    * @param product The product to add.
+    */
+   public void add(Product product) {
+      LocalDate date = getToday();
+      scheduleExpiry(product, date);
+      scheduleRemoval(product, date);
+      scheduleQualityStep(product, date);
+      size++;
+   }
+
+   public int size() {
+      return size;
+   }
+
+   public LocalDate getToday() {
+      return LocalDate.ofEpochDay(today);
+   }
+
+   /**
+    * Calculates the quality of the product on the current day of the simulation.
+    *
+    * @param product The product, which must have been added to the simulator.
+    * @return The quality of the product.
+    */
+   public double qualityOf(Product product) {
+      return product.qualityAt(getToday());
+   }
+
+   /**
+    * Advances the simulation by one day.
+    *
+    * @return The state changes of the new day.
+    */
+   public List<SimulationEvent> advance() {
+      List<SimulationEvent> events = new ArrayList<>();
+      advance(1, events::add);
+      return events;
+   }
+
+   /**
+    * Advances the simulation by the given number of days and passes the state
+    * changes of every day, in the order of the days, to the consumer.
+    *
+    * @param days     The number of days to advance.
+    * @param consumer Receives the state changes.
+    */
+   public void advance(long days, Consumer<SimulationEvent> consumer) {
+      for (long d = 0; d < days; d++) {
+         today++;
+         moveOverflowToWheel();
+
+         int slot = slot(today);
+         List<ScheduledEvent> due = wheel[slot];
+         if (due.isEmpty()) {
+            continue;
+         }
+         wheel[slot] = new ArrayList<>();
+
+         LocalDate date = getToday();
+         for (ScheduledEvent event : due) {
+            consumer.accept(new SimulationEvent(event.product, date, event.type));
+            if (event.type == SimulationEvent.Type.QUALITY_STEP) {
+               scheduleQualityStep(event.product, date);
+            }
+         }
+      }
+   }
+
+   private void scheduleExpiry(Product product, LocalDate date) {
+      if (product.getExpiryDate() == null) {
+         return;
+      }
+      // The product is expired from the day after its expiry date on
+      long expiredDay = product.getExpiryDate().toEpochDay() + 1;
+      if (expiredDay > date.toEpochDay()) {
+         schedule(new ScheduledEvent(product, expiredDay, SimulationEvent.Type.EXPIRED));
+      }
+   }
+
+   /**
+    * Schedules the first day the product should be removed from the shelves. The
+    * day is found with a binary search, as the quality of products that can be
+    * removed only goes down.
+    */
+   private void scheduleRemoval(Product product, LocalDate date) {
+      if (product.shouldBeRemoved(product.qualityAt(date))) {
+         return;
+      }
+      long low = 0;
+      long high = MAX_REMOVAL_SEARCH_DAYS;
+      if (!product.shouldBeRemoved(product.qualityAt(date.plusDays(high)))) {
+         return;
+      }
+      while (high - low > 1) {
+         long middle = (low + high) >>> 1;
+         if (product.shouldBeRemoved(product.qualityAt(date.plusDays(middle)))) {
+            high = middle;
+         } else {
+            low = middle;
+         }
+      }
+      schedule(new ScheduledEvent(product, date.toEpochDay() + high, SimulationEvent.Type.REMOVE_FROM_SHELVES));
+   }
+
+   private void scheduleQualityStep(Product product, LocalDate date) {
+      LocalDate step = product.nextQualityStep(date);
+      if (step != null) {
+         schedule(new ScheduledEvent(product, step.toEpochDay(), SimulationEvent.Type.QUALITY_STEP));
+      }
+   }
+
+   private void schedule(ScheduledEvent event) {
+      if (event.day - today < WHEEL_SIZE) {
+         wheel[slot(event.day)].add(event);
+      } else {
+         overflow.add(event);
+      }
+   }
+
+   private void moveOverflowToWheel() {
+      while (!overflow.isEmpty() && overflow.peek().day - today < WHEEL_SIZE) {
+         ScheduledEvent event = overflow.poll();
+         wheel[slot(event.day)].add(event);
+      }
+   }
+
+   private static int slot(long day) {
+      return (int) Math.floorMod(day, (long) WHEEL_SIZE);
+   }
+
+   /**
+    * A state change of a product waiting for its day.
+    */
+   private static class ScheduledEvent implements Comparable<ScheduledEvent> {
+
+      private final Product product;
+      private final long day;
+      private final SimulationEvent.Type type;
+
+      ScheduledEvent(Product product, long day, SimulationEvent.Type type) {
+         this.product = product;
+         this.day = day;
+         this.type = type;
+      }
+
+      @Override
+      public int compareTo(ScheduledEvent other) {
+         return Long.compare(day, other.day);
+      }
+   }
+}
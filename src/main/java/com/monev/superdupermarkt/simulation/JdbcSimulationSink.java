@@ -0,0 +1,152 @@
+package com.monev.superdupermarkt.simulation;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductState;
+import com.monev.superdupermarkt.util.JdbcBatchWriter;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inserts one row per product and simulated day into an SQL table with the
+ * columns product_id, simulation_date, quality, daily_price and expired. The
+ * rows are inserted in batches with a {@link JdbcBatchWriter}, optionally over
+ * several connections in parallel, and every batch is committed on its own.
+ * <p>
+ * Database errors are thrown as {@link IllegalStateException}s with the
+ * {@link SQLException} as the cause. The connections stay open when the sink
+ * is closed.
+ */
+public class JdbcSimulationSink implements SimulationSink {
+
+   /**
+    * The statement that creates a table for the sink.
+    */
+   public static final String CREATE_TABLE = "CREATE TABLE %s (product_id VARCHAR(255), simulation_date DATE, "
+         + "quality DOUBLE, daily_price DOUBLE, expired BOOLEAN)";
+
+   private static final String INSERT = "INSERT INTO %s (product_id, simulation_date, quality, daily_price, expired) "
+         + "VALUES (?, ?, ?, ?, ?)";
+
+   private final JdbcBatchWriter<SimulationRecord> writer;
+   private final List<SimulationRecord> buffer;
+
+   /**
+    * Creates a sink that inserts the records over a single connection.
+    *
+    * @param connection The SQL database connection.
+    * @param tableName  The name of the table to insert the records into.
+    * @throws SQLException If the insert statement cannot be prepared.
+    */
+   public JdbcSimulationSink(Connection connection, String tableName) throws SQLException {
+      this(List.of(connection), tableName, JdbcBatchWriter.DEFAULT_BATCH_SIZE);
+   }
+
+   /**
+    * Creates a sink that inserts the records over the given connections in
+    * parallel.
+    *
+    * @param connections The SQL database connections, one for each thread.
+    * @param tableName   The name of the table to insert the records into.
+    * @param batchSize   The number of records inserted and committed at once on
+    *                    each connection.
+    * @throws SQLException If the insert statement cannot be prepared.
+    */
+   public JdbcSimulationSink(List<Connection> connections, String tableName, int batchSize) throws SQLException {
+      this.writer = new JdbcBatchWriter<>(connections, String.format(INSERT, tableName), batchSize,
+            JdbcSimulationSink::bind);
+      this.buffer = null;
+   }
+
+   private JdbcSimulationSink(List<SimulationRecord> buffer) {
+      this.writer = null;
+      this.buffer = buffer;
+   }
+
+   /**
+    * Creates the table for the sink.
+    *
+    * @param connection The SQL database connection.
+    * @param tableName  The name of the table to create.
+    * @throws SQLException If the table cannot be created.
+    */
+   public static void createTable(Connection connection, String tableName) throws SQLException {
+      try (Statement statement = connection.createStatement()) {
+         statement.execute(String.format(CREATE_TABLE, tableName));
+      }
+   }
+
+   @Override
+   public void accept(Product product, ProductState state) {
+      SimulationRecord record = SimulationRecord.of(product, state);
+      if (buffer != null) {
+         buffer.add(record);
+         return;
+      }
+      try {
+         writer.write(record);
+      } catch (SQLException e) {
+         throw new IllegalStateException("Could not insert the simulation records.", e);
+      }
+   }
+
+   @Override
+   public SimulationSink fork() {
+      return new JdbcSimulationSink(new ArrayList<>());
+   }
+
+   @Override
+   public void join(SimulationSink fork) {
+      try {
+         writer.writeAll(((JdbcSimulationSink) fork).buffer);
+      } catch (SQLException e) {
+         throw new IllegalStateException("Could not insert the simulation records.", e);
+      }
+   }
+
+   @Override
+   public void flush() {
+      if (writer == null) {
+         return;
+      }
+      try {
+         writer.flush();
+      } catch (SQLException e) {
+         throw new IllegalStateException("Could not insert the simulation records.", e);
+      }
+   }
+
+   @Override
+   public void close() {
+      if (writer == null) {
+         return;
+      }
+      try {
+         writer.close();
+      } catch (SQLException e) {
+         throw new IllegalStateException("Could not insert the simulation records.", e);
+      }
+   }
+
+   /**
+    * Returns the number of records that were inserted and committed.
+    *
+    * @return The number of committed records.
+    */
+   public long getRowCount() {
+      return writer == null ? 0 : writer.getRowCount();
+   }
+
+   private static void bind(PreparedStatement statement, SimulationRecord record) throws SQLException {
+      statement.setString(1, record.productId());
+      statement.setDate(2, Date.valueOf(record.date()));
+      statement.setDouble(3, record.quality());
+      statement.setDouble(4, record.dailyPrice());
+      statement.setBoolean(5, record.expired());
+   }
+}
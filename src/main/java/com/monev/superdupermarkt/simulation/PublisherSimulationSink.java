@@ -0,0 +1,82 @@
+package com.monev.superdupermarkt.simulation;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Publishes the simulation as {@link SimulationRecord}s to
+ * {@link Flow.Subscriber}s. Every subscriber gets a buffer of limited size;
+ * when a subscriber does not request records fast enough and its buffer is
+ * full, the simulation waits until there is room again. Closing the sink
+ * completes all subscribers.
+ */
+public class PublisherSimulationSink implements SimulationSink, Flow.Publisher<SimulationRecord> {
+
+   private final SubmissionPublisher<SimulationRecord> publisher;
+
+   /**
+    * Creates a sink that delivers the records on the common fork/join pool with
+    * the default buffer size.
+    */
+   public PublisherSimulationSink() {
+      this(ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+   }
+
+   /**
+    * Creates a sink that delivers the records on the given executor.
+    *
+    * @param executor   The executor the subscribers are called on.
+    * @param bufferSize The maximum number of records buffered for each
+    *                   subscriber before the simulation waits.
+    */
+   public PublisherSimulationSink(Executor executor, int bufferSize) {
+      this.publisher = new SubmissionPublisher<>(executor, bufferSize);
+   }
+
+   @Override
+   public void subscribe(Flow.Subscriber<? super SimulationRecord> subscriber) {
+      publisher.subscribe(subscriber);
+   }
+
+   @Override
+   public void accept(Product product, ProductState state) {
+      publisher.submit(SimulationRecord.of(product, state));
+   }
+
+   @Override
+   public SimulationSink fork() {
+      return new RecordBuffer();
+   }
+
+   @Override
+   public void join(SimulationSink fork) {
+      for (SimulationRecord record : ((RecordBuffer) fork).records) {
+         publisher.submit(record);
+      }
+   }
+
+   @Override
+   public void close() {
+      publisher.close();
+   }
+
+   /**
+    * Keeps the records of a fork until it is joined.
+    */
+   private static class RecordBuffer implements SimulationSink {
+
+      private final List<SimulationRecord> records = new ArrayList<>();
+
+      @Override
+      public void accept(Product product, ProductState state) {
+         records.add(SimulationRecord.of(product, state));
+      }
+   }
+}
@@ -0,0 +1,57 @@
+package com.monev.superdupermarkt.simulation;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Default fork of a {@link SimulationSink}. Keeps the calls it receives in the
+ * order they were made and replays them into the sink it is joined into.
+ */
+class SimulationBuffer implements SimulationSink {
+
+   private final List<Call> calls = new ArrayList<>();
+
+   /**
+    * A recorded call. The state is set for
+    * {@link SimulationSink#accept(Product, ProductState)}, the message for
+    * {@link SimulationSink#diagnostic(Product, String)} and neither for
+    * {@link SimulationSink#beginProduct(Product)}.
+    */
+   private record Call(Product product, ProductState state, String message) {
+   }
+
+   @Override
+   public void beginProduct(Product product) {
+      calls.add(new Call(product, null, null));
+   }
+
+   @Override
+   public void accept(Product product, ProductState state) {
+      calls.add(new Call(product, state, null));
+   }
+
+   @Override
+   public void diagnostic(Product product, String message) {
+      calls.add(new Call(product, null, message));
+   }
+
+   /**
+    * Passes all recorded calls to the given sink.
+    *
+    * @param sink The sink that receives the calls.
+    */
+   void replay(SimulationSink sink) {
+      for (Call call : calls) {
+         if (call.state() != null) {
+            sink.accept(call.product(), call.state());
+         } else if (call.message() != null) {
+            sink.diagnostic(call.product(), call.message());
+         } else {
+            sink.beginProduct(call.product());
+         }
+      }
+   }
+}
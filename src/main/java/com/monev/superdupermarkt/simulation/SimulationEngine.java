@@ -0,0 +1,175 @@
+package com.monev.superdupermarkt.simulation;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductState;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Simulates the quality changes of many products in parallel. The products are
+ * split across a {@link ForkJoinPool}, every product is simulated from its
+ * current {@link ProductState} into a fork of the target {@link SimulationSink},
+ * and the forks are joined back into the target in the original order of the
+ * products. The result is the same as when the products are simulated one after
+ * another. The products are not copied, so repeated simulations of a large
+ * inventory only allocate the states of the simulated days. With a
+ * {@link TrajectoryCache}, products with the same parameters even share these
+ * states.
+ */
+public class SimulationEngine {
+
+   // Number of products a single task simulates without splitting further
+   private static final int PRODUCTS_PER_TASK = 16;
+
+   // Number of simulated product days kept in memory before they are joined
+   private static final int BUFFERED_DAYS = 1 << 17;
+
+   private final ForkJoinPool pool;
+   private final TrajectoryCache cache;
+
+   /**
+    * Creates an engine that runs on the common fork/join pool.
+    */
+   public SimulationEngine() {
+      this(ForkJoinPool.commonPool());
+   }
+
+   /**
+    * Creates an engine that runs on the given pool.
+    *
+    * @param pool The pool the simulations are run on.
+    */
+   public SimulationEngine(ForkJoinPool pool) {
+      this(pool, null);
+   }
+
+   /**
+    * Creates an engine that runs on the given pool and shares the states of
+    * products with the same parameters through the given cache.
+    *
+    * @param pool  The pool the simulations are run on.
+    * @param cache The cache of the simulated states or null to simulate every
+    *              product on its own.
+    */
+   public SimulationEngine(ForkJoinPool pool, TrajectoryCache cache) {
+      this.pool = pool;
+      this.cache = cache;
+   }
+
+   /**
+    * @return The cache of the simulated states or null if there is none.
+    */
+   public TrajectoryCache getCache() {
+      return cache;
+   }
+
+   /**
+    * Simulates the quality changes of all products for the given number of days
+    * and passes them to the given sink, which is flushed at the end. The products
+    * themselves are not changed.
+    *
+    * @param products The products to simulate.
+    * @param days     For how many days the products should be simulated.
+    * @param sink     The sink that receives the simulation.
+    */
+   public void simulate(List<Product> products, long days, SimulationSink sink) {
+      long daysPerProduct = days + 1;
+
+      if (daysPerProduct > BUFFERED_DAYS) {
+         // The results of a single product would not fit in the buffer, so pass them
+         // to the sink directly
+         for (Product product : products) {
+            simulate(product, days, sink, cache);
+         }
+         sink.flush();
+         return;
+      }
+
+      int batchSize = (int) (BUFFERED_DAYS / daysPerProduct);
+      for (int from = 0; from < products.size(); from += batchSize) {
+         int to = Math.min(products.size(), from + batchSize);
+         SimulationSink[] forks = new SimulationSink[ceilDiv(to - from, PRODUCTS_PER_TASK)];
+         pool.invoke(new SimulationTask(products, from, to, days, sink, cache, forks, from));
+
+         for (SimulationSink fork : forks) {
+            sink.join(fork);
+         }
+      }
+      sink.flush();
+   }
+
+   /**
+    * Simulates the product into the given sink. The simulation moves from state
+    * to state, so the product is neither changed nor copied.
+    *
+    * @param product The product to simulate.
+    * @param days    For how many days the product should be simulated.
+    * @param sink    The sink that receives the simulation.
+    * @param cache   The cache of the simulated states or null.
+    */
+   private static void simulate(Product product, long days, SimulationSink sink, TrajectoryCache cache) {
+      sink.beginProduct(product);
+      if (cache != null) {
+         cache.simulate(product, days, sink);
+      } else {
+         product.simulate(days, sink);
+      }
+   }
+
+   private static int ceilDiv(int x, int y) {
+      return (x + y - 1) / y;
+   }
+
+   /**
+    * Task that simulates a range of products. Ranges larger than
+    * {@link #PRODUCTS_PER_TASK} are split in two halves that are simulated in
+    * parallel. Each group of {@link #PRODUCTS_PER_TASK} products is simulated
+    * into its own fork of the sink, stored at the group's position in the forks
+    * array.
+    */
+   private static class SimulationTask extends RecursiveAction {
+
+      private static final long serialVersionUID = 1L;
+
+      private final transient List<Product> products;
+      private final int from;
+      private final int to;
+      private final long days;
+      private final transient SimulationSink sink;
+      private final transient TrajectoryCache cache;
+      private final transient SimulationSink[] forks;
+      private final int batchStart;
+
+      SimulationTask(List<Product> products, int from, int to, long days, SimulationSink sink, TrajectoryCache cache,
+            SimulationSink[] forks, int batchStart) {
+         this.products = products;
+         this.from = from;
+         this.to = to;
+         this.days = days;
+         this.sink = sink;
+         this.cache = cache;
+         this.forks = forks;
+         this.batchStart = batchStart;
+      }
+
+      @Override
+      protected void compute() {
+         if (to - from <= PRODUCTS_PER_TASK) {
+            SimulationSink fork = sink.fork();
+            for (int i = from; i < to; i++) {
+               simulate(products.get(i), days, fork, cache);
+            }
+            forks[(from - batchStart) / PRODUCTS_PER_TASK] = fork;
+            return;
+         }
+
+         // Split on a group boundary, so every group is simulated by exactly one task
+         int groups = ceilDiv(to - from, PRODUCTS_PER_TASK);
+         int middle = from + groups / 2 * PRODUCTS_PER_TASK;
+         invokeAll(new SimulationTask(products, from, middle, days, sink, cache, forks, batchStart),
+               new SimulationTask(products, middle, to, days, sink, cache, forks, batchStart));
+      }
+   }
+}
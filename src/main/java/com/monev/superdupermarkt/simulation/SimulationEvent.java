@@ -0,0 +1,27 @@
+package com.monev.superdupermarkt.simulation;
+
+import com.monev.superdupermarkt.Product;
+
+import java.time.LocalDate;
+
+/**
+ * A change of the observable state of a product on a simulated day.
+ *
+ * @param product The product whose state changed
+ * @param date    The first day showing the changed state
+ * @param type    The kind of change
+ */
+public record SimulationEvent(Product product, LocalDate date, Type type) {
+
+   /**
+    * The kinds of state changes.
+    */
+   public enum Type {
+      /** The product is expired from this day on. */
+      EXPIRED,
+      /** The product should be removed from the shelves from this day on. */
+      REMOVE_FROM_SHELVES,
+      /** The quality of the product changed in a single step, for example wine. */
+      QUALITY_STEP
+   }
+}
@@ -0,0 +1,31 @@
+package com.monev.superdupermarkt.simulation;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductState;
+
+import java.time.LocalDate;
+
+/**
+ * The state of a product on a single simulated day.
+ *
+ * @param productId  The ID of the product
+ * @param date       The simulated day
+ * @param quality    The quality of the product on that day
+ * @param dailyPrice The daily price of the product on that day
+ * @param expired    Whether the product is expired on that day
+ */
+public record SimulationRecord(String productId, LocalDate date, double quality, double dailyPrice,
+      boolean expired) {
+
+   /**
+    * Copies the values of the product in the given state into a record.
+    *
+    * @param product The simulated product.
+    * @param state   The state of the product on the simulated day.
+    * @return The record of the product's state.
+    */
+   public static SimulationRecord of(Product product, ProductState state) {
+      return new SimulationRecord(product.getId(), state.date(), state.quality(), product.calculateDailyPrice(state),
+            product.isExpired(state));
+   }
+}
@@ -0,0 +1,87 @@
+package com.monev.superdupermarkt.simulation;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductState;
+
+/**
+ * Receives the results of a quality simulation. For every simulated day of a
+ * product the sink is called with the product and its state on that day. Sinks
+ * decide how the results are written, for example as text, CSV, binary records
+ * or to a {@link java.util.concurrent.Flow.Subscriber}.
+ * <p>
+ * The product is not changed by the simulation and the states are immutable,
+ * so sinks can keep them. The values that depend on the state, such as the
+ * daily price, are read with the methods of the product that take the state,
+ * for example in {@link SimulationRecord#of(Product, ProductState)}.
+ * <p>
+ * The {@link SimulationEngine} simulates groups of products into forks of the
+ * sink in parallel and joins the forks back in the original order of the
+ * products. By default a fork keeps the calls it receives in memory and replays
+ * them into this sink when it is joined, so a sink only has to implement
+ * {@link #accept(Product, ProductState)}. Sinks that can buffer their results
+ * more compactly override {@link #fork()} and {@link #join(SimulationSink)}.
+ */
+public interface SimulationSink extends AutoCloseable {
+
+   /**
+    * Called before the first day of a product is simulated.
+    *
+    * @param product The product that is simulated next.
+    */
+   default void beginProduct(Product product) {
+   }
+
+   /**
+    * Receives the state of a product on a simulated day.
+    *
+    * @param product The simulated product.
+    * @param state   The state of the product on the simulated day.
+    */
+   void accept(Product product, ProductState state);
+
+   /**
+    * Receives diagnostic information of the quality rules of a product while it
+    * is simulated. Ignored by default.
+    *
+    * @param product The product the information belongs to.
+    * @param message The diagnostic message.
+    */
+   default void diagnostic(Product product, String message) {
+   }
+
+   /**
+    * Creates an empty sink that buffers its results in memory until they are
+    * joined back into this sink. By default the fork records the calls it
+    * receives.
+    *
+    * @return The new sink.
+    */
+   default SimulationSink fork() {
+      return new SimulationBuffer();
+   }
+
+   /**
+    * Writes the buffered results of a sink created by {@link #fork()} to this
+    * sink, after all results this sink already received. By default the
+    * recorded calls are replayed into this sink.
+    *
+    * @param fork The sink to join.
+    */
+   default void join(SimulationSink fork) {
+      ((SimulationBuffer) fork).replay(this);
+   }
+
+   /**
+    * Writes all buffered results to the target of the sink.
+    */
+   default void flush() {
+   }
+
+   /**
+    * Flushes the sink and releases its target.
+    */
+   @Override
+   default void close() {
+      flush();
+   }
+}
@@ -0,0 +1,117 @@
+package com.monev.superdupermarkt.simulation;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductState;
+
+import java.io.BufferedWriter;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes the simulation as human readable text, the same way it is shown on the
+ * console: the date of every simulated day followed by the product details. The
+ * text is written through a large buffer instead of line by line.
+ */
+public class TextSimulationSink implements SimulationSink {
+
+   private static final int BUFFER_SIZE = 1 << 16;
+   private static final String LINE_SEPARATOR = System.lineSeparator();
+
+   private final Writer writer;
+   private final boolean closeWriter;
+
+   /**
+    * Creates a sink that writes to the given writer. The writer is closed when
+    * the sink is closed.
+    *
+    * @param writer The writer to write the text to.
+    */
+   public TextSimulationSink(Writer writer) {
+      this(new BufferedWriter(writer, BUFFER_SIZE), true);
+   }
+
+   private TextSimulationSink(Writer writer, boolean closeWriter) {
+      this.writer = writer;
+      this.closeWriter = closeWriter;
+   }
+
+   /**
+    * Creates a sink that writes to the console. Closing the sink only flushes it,
+    * the console stays open.
+    *
+    * @return The console sink.
+    */
+   public static TextSimulationSink console() {
+      PrintStream out = System.out;
+      return new TextSimulationSink(new BufferedWriter(new OutputStreamWriter(out, out.charset()), BUFFER_SIZE),
+            false);
+   }
+
+   @Override
+   public void beginProduct(Product product) {
+      write("Simulating quality changes for Product ID: " + product.getId());
+      write(LINE_SEPARATOR);
+   }
+
+   @Override
+   public void accept(Product product, ProductState state) {
+      write("Date: " + state.date());
+      write(LINE_SEPARATOR);
+      write(product.toString(state));
+      write(LINE_SEPARATOR);
+   }
+
+   @Override
+   public void diagnostic(Product product, String message) {
+      write(message);
+      write(LINE_SEPARATOR);
+   }
+
+   @Override
+   public SimulationSink fork() {
+      return new TextSimulationSink(new CharArrayWriter(), false);
+   }
+
+   @Override
+   public void join(SimulationSink fork) {
+      try {
+         ((CharArrayWriter) ((TextSimulationSink) fork).writer).writeTo(writer);
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   @Override
+   public void flush() {
+      try {
+         writer.flush();
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   @Override
+   public void close() {
+      try {
+         if (closeWriter) {
+            writer.close();
+         } else {
+            writer.flush();
+         }
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   private void write(String text) {
+      try {
+         writer.write(text);
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+}
@@ -0,0 +1,184 @@
+package com.monev.superdupermarkt.simulation;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductState;
+import com.monev.superdupermarkt.QualityTrace;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.Wine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the simulated states of products. Many products share the
+ * same type, current state and days to their expiry date, and for meat the same
+ * daily quality loss, so their states on all simulated days are the same. The
+ * states of such products are calculated once and shared by all of them.
+ * <p>
+ * Products are matched by a canonical key of the values their quality rules
+ * depend on. Only the known product types {@link Cheese}, {@link Wine},
+ * {@link Meat} and {@link CommonProduct} are cached, other types and
+ * simulations while {@link QualityTrace} is enabled are simulated directly.
+ * When the cache is full, the least recently used states are evicted. The
+ * counters of hits, misses and evictions help to choose the size of the cache.
+ * <p>
+ * The cache can be used by several threads at once.
+ */
+public class TrajectoryCache {
+
+   // Longest simulation that is cached, longer ones would take too much memory
+   public static final int MAX_CACHED_DAYS = 1 << 12;
+
+   private final int maxEntries;
+   private final Map<Key, ProductState[]> trajectories;
+   private final LongAdder hits = new LongAdder();
+   private final LongAdder misses = new LongAdder();
+   private final LongAdder evictions = new LongAdder();
+
+   /**
+    * Values the simulated states of a product depend on. The meat type, vacuum
+    * packing and starting quality of meat only matter through the daily quality
+    * loss they result in.
+    */
+   private record Key(Class<? extends Product> type, ProductState state, long daysToExpiry, int qualityModifier) {
+   }
+
+   /**
+    * Creates an empty cache.
+    *
+    * @param maxEntries The maximum number of distinct products whose states are
+    *                   kept.
+    */
+   public TrajectoryCache(int maxEntries) {
+      if (maxEntries < 1) {
+         throw new IllegalArgumentException("The trajectory cache must hold at least 1 entry.");
+      }
+      this.maxEntries = maxEntries;
+      this.trajectories = new LinkedHashMap<>(16, 0.75f, true) {
+         private static final long serialVersionUID = 1L;
+
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<Key, ProductState[]> eldest) {
+            if (size() > TrajectoryCache.this.maxEntries) {
+               evictions.increment();
+               return true;
+            }
+            return false;
+         }
+      };
+   }
+
+   /**
+    * Simulates the product for the given days and passes its state on each day
+    * to the sink, like {@link Product#simulate(long, SimulationSink)}. The states
+    * are taken from the cache if a product with the same key has been simulated
+    * for at least as many days.
+    *
+    * @param product The product to simulate.
+    * @param days    For how many days the product should be simulated.
+    * @param sink    The sink that receives the state of each day.
+    */
+   public void simulate(Product product, long days, SimulationSink sink) {
+      Key key = days < MAX_CACHED_DAYS && !QualityTrace.ENABLED ? keyOf(product) : null;
+      if (key == null) {
+         product.simulate(days, sink);
+         return;
+      }
+
+      ProductState[] states;
+      synchronized (trajectories) {
+         states = trajectories.get(key);
+      }
+      if (states != null && states.length > days) {
+         hits.increment();
+      } else {
+         // Calculated outside the lock, so other threads are not blocked. If two
+         // threads miss the same key at once, both calculate the same states.
+         misses.increment();
+         states = calculate(product, (int) days);
+         synchronized (trajectories) {
+            trajectories.put(key, states);
+         }
+      }
+
+      for (int day = 0; day <= days; day++) {
+         sink.accept(product, states[day]);
+      }
+   }
+
+   /**
+    * @return The number of simulations that were served from the cache.
+    */
+   public long getHits() {
+      return hits.sum();
+   }
+
+   /**
+    * @return The number of simulations whose states had to be calculated.
+    */
+   public long getMisses() {
+      return misses.sum();
+   }
+
+   /**
+    * @return The number of entries that were evicted to make room for new ones.
+    */
+   public long getEvictions() {
+      return evictions.sum();
+   }
+
+   /**
+    * @return The number of entries in the cache.
+    */
+   public int size() {
+      synchronized (trajectories) {
+         return trajectories.size();
+      }
+   }
+
+   public int getMaxEntries() {
+      return maxEntries;
+   }
+
+   /**
+    * Removes all entries. The counters are kept.
+    */
+   public void clear() {
+      synchronized (trajectories) {
+         trajectories.clear();
+      }
+   }
+
+   private static ProductState[] calculate(Product product, int days) {
+      ProductState[] states = new ProductState[days + 1];
+      ProductState state = product.getState();
+      states[0] = state;
+      for (int day = 1; day <= days; day++) {
+         state = product.nextState(state);
+         states[day] = state;
+      }
+      return states;
+   }
+
+   /**
+    * Builds the canonical key of the product.
+    *
+    * @return The key or null if the product type is not cached.
+    */
+   private static Key keyOf(Product product) {
+      if (product.getExpiryDate() == null) {
+         return null;
+      }
+      Class<? extends Product> type = product.getClass();
+      if (type == Cheese.class || type == Wine.class || type == CommonProduct.class) {
+         return new Key(type, product.getState(), product.getDifferenceToExpiryDate(), 0);
+      } else if (type == Meat.class) {
+         return new Key(type, product.getState(), product.getDifferenceToExpiryDate(),
+               ((Meat) product).getQualityModifier());
+      }
+      return null;
+   }
+}
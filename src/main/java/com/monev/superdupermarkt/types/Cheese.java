@@ -3,6 +3,8 @@ package com.monev.superdupermarkt.types;
 import java.time.LocalDate;
 
 import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductState;
+import com.monev.superdupermarkt.report.ReportRow;
 
 /**
  * Represents a type of cheese product in the SuperDuperMarket system. The
@@ -22,7 +24,15 @@ public class Cheese extends Product {
     * @param defaultPrice The base price of the cheese
     */
    public Cheese(String id, String name, double quality, LocalDate expiryDate, double defaultPrice) {
+      this(id, name, quality, expiryDate, defaultPrice, true);
+   }
+
+   private Cheese(String id, String name, double quality, LocalDate expiryDate, double defaultPrice,
+         boolean validate) {
       super(id, name, quality, expiryDate, defaultPrice);
+      if (!validate) {
+         return;
+      }
       if (quality < 30) {
          throw new IllegalArgumentException("Cheese quality must be at least 30 to be put on stands.");
       }
@@ -31,19 +41,68 @@ public class Cheese extends Product {
       }
    }
 
+   /**
+    * Rebuilds a Cheese product from a previously stored state. Unlike the
+    * constructor, the constraints for putting the cheese on the stands are not
+    * checked, as the stored cheese may already have aged.
+    *
+    * @param id           The product ID
+    * @param name         The product name
+    * @param quality      The current quality of the cheese
+    * @param expiryDate   The expiry date of the cheese
+    * @param defaultPrice The base price of the cheese
+    * @return The restored Cheese product
+    */
+   public static Cheese restore(String id, String name, double quality, LocalDate expiryDate, double defaultPrice) {
+      return new Cheese(id, name, quality, expiryDate, defaultPrice, false);
+   }
+
    @Override
-   public void updateQuality() {
-      if (getQuality() > 0) {
-         setQuality(getQuality() - 1); // Cheese loses quality by 1 each day
+   protected double nextQuality(ProductState state) {
+      if (state.quality() > 0) {
+         return state.quality() - 1; // Cheese loses quality by 1 each day
       }
+      return state.quality();
+   }
+
+   @Override
+   protected double projectQuality(long days) {
+      return projectQuality(getQuality(), days);
+   }
+
+   /**
+    * Calculates the quality of a cheese after the given number of daily updates.
+    * The cheese loses 1 quality per day until it reaches 0, so the result is
+    * calculated directly instead of day by day.
+    *
+    * @param quality The current quality of the cheese
+    * @param days    The number of daily updates
+    * @return The quality after the updates
+    */
+   public static double projectQuality(double quality, long days) {
+      if (quality <= 0) {
+         return quality;
+      }
+      return quality - Math.min(days, (long) Math.ceil(quality));
+   }
+
+   @Override
+   public boolean shouldBeRemoved(double quality) {
+      return quality <= 30;
+   }
+
+   @Override
+   public void appendTo(ReportRow row) {
+      super.appendTo(row);
+      row.flag("Should be removed from shells", shouldBeRemoved(getQuality()));
    }
 
    @Override
-   public String toString() {
-      String desc = super.toString();
+   public String toString(ProductState state) {
+      String desc = super.toString(state);
       StringBuilder sb = new StringBuilder(desc);
       sb.append("Should be removed from shells: ");
-      sb.append((getQuality() <= 30) ? "Yes" : "No");
+      sb.append(shouldBeRemoved(state.quality()) ? "Yes" : "No");
       sb.append(System.getProperty("line.separator"));
       return sb.toString();
    }
@@ -3,6 +3,7 @@ package com.monev.superdupermarkt.types;
 import java.time.LocalDate;
 
 import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductState;
 
 /**
  * This class is the default extension of the product class. The quality change
@@ -18,15 +19,58 @@ public class CommonProduct extends Product {
       }
    }
 
+   /**
+    * Rebuilds a CommonProduct from a previously stored state.
+    *
+    * @param id           The product ID
+    * @param name         The product name
+    * @param quality      The current quality of the product
+    * @param expiryDate   The expiry date of the product
+    * @param defaultPrice The base price of the product
+    * @return The restored CommonProduct
+    */
+   public static CommonProduct restore(String id, String name, double quality, LocalDate expiryDate,
+         double defaultPrice) {
+      return new CommonProduct(id, name, quality, expiryDate, defaultPrice);
+   }
+
+   @Override
+   protected double nextQuality(ProductState state) {
+      if (state.quality() > 0) {
+         return Math.round((state.quality() - 0.24) * 100) / 100.0;
+      }
+      return state.quality();
+   }
+
    @Override
-   public void updateQuality() {
-      if (getQuality() > 0) {
-         setQuality((double) (Math.round((getQuality() - 0.24) * 100) / 100.0));
+   protected double projectQuality(long days) {
+      return projectQuality(getQuality(), days);
+   }
+
+   /**
+    * Calculates the quality of a common product after the given number of daily
+    * updates. After the first update the quality is rounded to whole cents, so
+    * every following day removes exactly 24 of them until the quality reaches 0.
+    *
+    * @param quality The current quality of the product
+    * @param days    The number of daily updates
+    * @return The quality after the updates
+    */
+   public static double projectQuality(double quality, long days) {
+      if (days == 0 || quality <= 0) {
+         return quality;
       }
+      long hundredths = Math.round((quality - 0.24) * 100);
+      long steps = hundredths <= 0 ? 0 : Math.min(days - 1, Math.ceilDiv(hundredths, 24));
+      return (hundredths - 24 * steps) / 100.0;
    }
 
+   /**
+    * Common products are checked against the real date, no matter which day the
+    * state belongs to.
+    */
    @Override
-   public boolean isExpired() {
+   public boolean isExpired(ProductState state) {
       return LocalDate.now().isAfter(getExpiryDate());
    }
 
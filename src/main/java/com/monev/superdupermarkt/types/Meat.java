@@ -3,6 +3,9 @@ package com.monev.superdupermarkt.types;
 import java.time.LocalDate;
 
 import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductState;
+import com.monev.superdupermarkt.QualityTrace;
+import com.monev.superdupermarkt.report.ReportRow;
 import com.monev.superdupermarkt.util.MeatTypeEnum;
 
 /**
@@ -15,6 +18,9 @@ public class Meat extends Product {
    private MeatTypeEnum meatType;
    private boolean isVacuumPacked;
    private final double startingQuality;
+   // Daily quality loss before the expiry date, resolved once from the values
+   // above
+   private final int qualityModifier;
 
    /**
     * Constructs a Meat product with the specified properties. Performs validation
@@ -36,6 +42,7 @@ public class Meat extends Product {
       this.meatType = meatType;
       this.isVacuumPacked = isVacuumPacked;
       this.startingQuality = quality;
+      this.qualityModifier = calculateQualityModifier(quality, meatType, isVacuumPacked);
 
       // Automatically calculate expiration date if not vacuum packed and no
       // expiration date is provided.
@@ -58,6 +65,36 @@ public class Meat extends Product {
       }
    }
 
+   private Meat(String id, String name, double quality, LocalDate expiryDate, double defaultPrice,
+         MeatTypeEnum meatType, boolean isVacuumPacked, double startingQuality) {
+      super(id, name, quality, expiryDate, defaultPrice);
+
+      this.meatType = meatType;
+      this.isVacuumPacked = isVacuumPacked;
+      this.startingQuality = startingQuality;
+      this.qualityModifier = calculateQualityModifier(startingQuality, meatType, isVacuumPacked);
+   }
+
+   /**
+    * Rebuilds a Meat product from a previously stored state. The expiry date and
+    * quality are taken as they are, without the validation done for new meat
+    * products.
+    *
+    * @param id              The product ID
+    * @param name            The product name
+    * @param quality         The current quality of the meat
+    * @param expiryDate      The expiry date of the meat
+    * @param defaultPrice    The base price of the meat
+    * @param meatType        The type of meat
+    * @param isVacuumPacked  Whether the meat is vacuum packed
+    * @param startingQuality The quality the meat had when it was put on the stands
+    * @return The restored Meat product
+    */
+   public static Meat restore(String id, String name, double quality, LocalDate expiryDate, double defaultPrice,
+         MeatTypeEnum meatType, boolean isVacuumPacked, double startingQuality) {
+      return new Meat(id, name, quality, expiryDate, defaultPrice, meatType, isVacuumPacked, startingQuality);
+   }
+
    public MeatTypeEnum getMeatType() {
       return meatType;
    }
@@ -66,35 +103,99 @@ public class Meat extends Product {
       return isVacuumPacked;
    }
 
+   public double getStartingQuality() {
+      return startingQuality;
+   }
+
+   public int getQualityModifier() {
+      return qualityModifier;
+   }
+
    /**
     * Updates the quality of the meat based on its expiry status. Meat loses
     * quality faster after its expiry date.
     */
    @Override
-   public void updateQuality() {
-      if (isExpired()) {
-         System.out.println("IsExpired QualityModifier: " + getQualityModifier() * 2);
-         setQuality(getQuality() - (getQualityModifier() * 2)); // Meat loses quality faster after expiration
-      } else {
-         System.out.println("QualityModifier: " + getQualityModifier());
-         setQuality(getQuality() - getQualityModifier());
+   protected double nextQuality(ProductState state) {
+      boolean isExpired = isExpired(state);
+      int modifier = isExpired ? qualityModifier * 2 : qualityModifier; // Meat loses quality faster after expiration
+      if (QualityTrace.ENABLED) {
+         int daysInFridge = isVacuumPacked ? meatType.getVacuumedDays() : meatType.getFreshDays();
+         QualityTrace.qualityModifier(this, daysInFridge, modifier, isExpired);
+      }
+      double quality = state.quality() - modifier;
+
+      if (quality < 0) {
+         quality = 0; // Ensure quality doesn't go below 0
       }
+      return quality;
+   }
 
-      if (getQuality() < 0) {
-         setQuality(0); // Ensure quality doesn't go below 0
+   @Override
+   protected double projectQuality(long days) {
+      return projectQuality(getQuality(), qualityModifier, isExpired(), getDifferenceToExpiryDate(), days);
+   }
+
+   /**
+    * Calculates the quality of a meat product after the given number of daily
+    * updates. The meat loses the quality modifier each day before its expiry date
+    * and twice as much after it, so the result is calculated from the number of
+    * days on each side of the expiry date.
+    *
+    * @param quality      The current quality of the meat
+    * @param modifier     The daily quality loss before the expiry date
+    * @param isExpired    Whether the meat is expired on the current date
+    * @param daysToExpiry The days from the current date to the expiry date
+    * @param days         The number of daily updates
+    * @return The quality after the updates
+    */
+   public static double projectQuality(double quality, int modifier, boolean isExpired, long daysToExpiry,
+         long days) {
+      if (days == 0) {
+         return quality;
+      }
+      if (modifier < 0) {
+         // Only possible for restored meat below the minimum quality, where the
+         // clamping to 0 depends on the order of the days
+         for (long d = 0; d < days; d++) {
+            quality = quality - (isExpired ? modifier * 2 : modifier);
+            if (quality < 0) {
+               quality = 0;
+            }
+            isExpired = d + 1 > daysToExpiry;
+         }
+         return quality;
       }
+
+      // The first update uses the current expiry flag, every later day d is expired
+      // once d is past the expiry date.
+      long expiredDays = (isExpired ? 1 : 0) + Math.max(0, days - Math.max(1, daysToExpiry + 1));
+      double projected = quality - (double) modifier * (days + expiredDays);
+      return projected < 0 ? 0 : projected; // Ensure quality doesn't go below 0
    }
 
    @Override
-   public String toString() {
-      String desc = super.toString();
+   public boolean shouldBeRemoved(double quality) {
+      return quality <= 50;
+   }
+
+   @Override
+   public void appendTo(ReportRow row) {
+      super.appendTo(row);
+      row.flag("Is vacuum packed", isVacuumPacked);
+      row.flag("Should be removed from shells", shouldBeRemoved(getQuality()));
+   }
+
+   @Override
+   public String toString(ProductState state) {
+      String desc = super.toString(state);
       StringBuilder sb = new StringBuilder(desc);
       sb.append("Is vacuum packed: ");
       sb.append(isVacuumPacked ? "Yes" : "No");
       sb.append(System.getProperty("line.separator"));
 
       sb.append("Should be removed from shells: ");
-      sb.append((getQuality() <= 50) ? "Yes" : "No");
+      sb.append(shouldBeRemoved(state.quality()) ? "Yes" : "No");
       sb.append(System.getProperty("line.separator"));
       return sb.toString();
    }
@@ -110,10 +211,18 @@ public class Meat extends Product {
       return LocalDate.now().plusDays(daysToAdd);
    }
 
-   private int getQualityModifier() {
-      int daysInFridge = this.isVacuumPacked ? this.meatType.getVacuumedDays() : this.meatType.getFreshDays();
-      System.out.println("Days in fridge: " + daysInFridge);
-      return (int) ((this.startingQuality - 50) / daysInFridge); // 50 is the quality that the meat should drop below
+   /**
+    * Calculates the daily quality loss of meat before its expiry date. The meat
+    * should drop to a quality of 50 within the days it can be kept in the fridge.
+    *
+    * @param startingQuality The quality the meat had when it was put on the stands
+    * @param meatType        The type of meat
+    * @param isVacuumPacked  Whether the meat is vacuum packed
+    * @return The daily quality loss
+    */
+   public static int calculateQualityModifier(double startingQuality, MeatTypeEnum meatType, boolean isVacuumPacked) {
+      int daysInFridge = isVacuumPacked ? meatType.getVacuumedDays() : meatType.getFreshDays();
+      return (int) ((startingQuality - 50) / daysInFridge); // 50 is the quality that the meat should drop below
    }
 
 }
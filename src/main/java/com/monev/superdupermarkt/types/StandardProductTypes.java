@@ -0,0 +1,79 @@
+package com.monev.superdupermarkt.types;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.util.ProductField;
+import com.monev.superdupermarkt.util.ProductFields;
+import com.monev.superdupermarkt.util.ProductType;
+import com.monev.superdupermarkt.util.ProductTypeProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Provides the product types of this package: Common Product, Cheese, Wine and
+ * Meat.
+ */
+public class StandardProductTypes implements ProductTypeProvider {
+
+   @Override
+   public List<ProductType> getProductTypes() {
+      List<ProductField> meatSchema = new ArrayList<>(ProductType.COMMON_SCHEMA);
+      meatSchema.add(ProductField.MEAT_TYPE);
+      meatSchema.add(ProductField.VACUUM_PACKED);
+
+      return List.of(
+            new ProductType("CommonProduct", "Common Product", CommonProduct.class, ProductType.COMMON_SCHEMA,
+                  StandardProductTypes::createCommonProduct),
+            new ProductType("Cheese", "Cheese", Cheese.class, ProductType.COMMON_SCHEMA,
+                  StandardProductTypes::createCheese),
+            new ProductType("Wine", "Wine", Wine.class, ProductType.COMMON_SCHEMA, StandardProductTypes::createWine),
+            new ProductType("Meat", "Meat", Meat.class, meatSchema, StandardProductTypes::createMeat));
+   }
+
+   /**
+    * Creates a CommonProduct (default product type).
+    *
+    * @param fields The product details.
+    * @return A new CommonProduct.
+    */
+   private static Product createCommonProduct(ProductFields fields) {
+      return new CommonProduct(fields.getId(), fields.getName(), fields.getQuality(), fields.getExpiryDate(),
+            fields.getDefaultPrice());
+   }
+
+   /**
+    * Creates a Cheese product.
+    *
+    * @param fields The product details.
+    * @return A new Cheese product.
+    */
+   private static Product createCheese(ProductFields fields) {
+      return new Cheese(fields.getId(), fields.getName(), fields.getQuality(), fields.getExpiryDate(),
+            fields.getDefaultPrice());
+   }
+
+   /**
+    * Creates a Wine product.
+    *
+    * @param fields The product details.
+    * @return A new Wine product.
+    */
+   private static Product createWine(ProductFields fields) {
+      return new Wine(fields.getId(), fields.getName(), fields.getQuality(), fields.getExpiryDate(),
+            fields.getDefaultPrice());
+   }
+
+   /**
+    * Creates a Meat product.
+    *
+    * @param fields The product details.
+    * @return A new Meat product.
+    */
+   private static Product createMeat(ProductFields fields) {
+      if (fields.getMeatType() == null) {
+         throw new IllegalArgumentException("Meat type is missing.");
+      }
+      return new Meat(fields.getId(), fields.getName(), fields.getQuality(), fields.getExpiryDate(),
+            fields.getDefaultPrice(), fields.getMeatType(), fields.isVacuumPacked());
+   }
+}
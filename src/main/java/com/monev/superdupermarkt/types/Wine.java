@@ -1,7 +1,9 @@
 package com.monev.superdupermarkt.types;
 
 import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductState;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 
 /**
  * Represents a type of wine product in the SuperDuperMarket system. This class
@@ -21,8 +23,12 @@ public class Wine extends Product {
     * @param defaultPrice The base price of the wine
     */
    public Wine(String id, String name, double quality, LocalDate expiryDate, double defaultPrice) {
+      this(id, name, quality, expiryDate, defaultPrice, true);
+   }
+
+   private Wine(String id, String name, double quality, LocalDate expiryDate, double defaultPrice, boolean validate) {
       super(id, name, quality, expiryDate, defaultPrice);
-      if (quality < 0) {
+      if (validate && quality < 0) {
          throw new IllegalArgumentException("Wine quality must be at least 0.");
       }
 
@@ -32,22 +38,88 @@ public class Wine extends Product {
       }
    }
 
+   /**
+    * Rebuilds a Wine product from a previously stored state without validating
+    * its quality.
+    *
+    * @param id           The product ID
+    * @param name         The product name
+    * @param quality      The current quality of the wine
+    * @param expiryDate   The expiry date of the wine
+    * @param defaultPrice The base price of the wine
+    * @return The restored Wine product
+    */
+   public static Wine restore(String id, String name, double quality, LocalDate expiryDate, double defaultPrice) {
+      return new Wine(id, name, quality, expiryDate, defaultPrice, false);
+   }
+
    /**
     * Updates the quality of the wine based on its age. Wine quality increases over
     * time after its nominal expiry date, but only if the quality is below 50. The
     * quality improves by 1 point every 10 days.
     */
    @Override
-   public void updateQuality() {
-      if (getDifferenceToExpiryDate() < 0) {
-         if (getQuality() < 50 && (Math.abs(getDifferenceToExpiryDate()) % 10 == 0)) {
-            setQuality(getQuality() + 1);
+   protected double nextQuality(ProductState state) {
+      long daysToExpiry = state.daysUntil(getExpiryDate());
+      if (daysToExpiry < 0) {
+         if (state.quality() < 50 && (Math.abs(daysToExpiry) % 10 == 0)) {
+            return state.quality() + 1;
          }
       }
+      return state.quality();
+   }
+
+   @Override
+   protected double projectQuality(long days) {
+      return projectQuality(getQuality(), getDifferenceToExpiryDate(), days);
+   }
+
+   /**
+    * Calculates the quality of a wine after the given number of daily updates.
+    * The wine gains 1 quality on every 10th day after its expiry date, so the
+    * number of gains is counted directly instead of checking every day.
+    *
+    * @param quality      The current quality of the wine
+    * @param daysToExpiry The days from the current date to the expiry date
+    * @param days         The number of daily updates
+    * @return The quality after the updates
+    */
+   public static double projectQuality(double quality, long daysToExpiry, long days) {
+      // Days after the expiry date on which an update happens
+      long first = Math.max(1, -daysToExpiry);
+      long last = days - 1 - daysToExpiry;
+      if (last < first) {
+         return quality;
+      }
+
+      long gains = Math.floorDiv(last, 10) - Math.floorDiv(first - 1, 10);
+      // Add the gains one by one, so the result is rounded the same way as by the
+      // daily update. The loop ends as soon as the quality reaches 50.
+      for (long i = 0; i < gains && quality < 50; i++) {
+         quality = quality + 1;
+      }
+      return quality;
+   }
+
+   /**
+    * Finds the next date that shows a quality gain of the wine. The wine gains
+    * quality on every 10th day after its expiry date, which is shown from the
+    * following day on, as long as its quality is below 50.
+    */
+   @Override
+   public LocalDate nextQualityStep(LocalDate after) {
+      long daysAfterExpiry = ChronoUnit.DAYS.between(getExpiryDate(), after);
+      // The gain shown after the given date happens on that date at the earliest
+      long nextGain = daysAfterExpiry <= 0 ? 10 : Math.ceilDiv(daysAfterExpiry, 10) * 10;
+      LocalDate gainDate = getExpiryDate().plusDays(nextGain);
+      if (qualityAt(gainDate) >= 50) {
+         return null;
+      }
+      return gainDate.plusDays(1);
    }
 
    @Override
-   public double calculateDailyPrice() {
+   protected double calculateDailyPrice(double quality) {
       return getDefaultPrice(); // Price does not change after being put on the stands
    }
 
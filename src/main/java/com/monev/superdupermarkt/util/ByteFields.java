@@ -0,0 +1,220 @@
+package com.monev.superdupermarkt.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Parses the values of product fields directly from UTF-8 bytes, without
+ * building a string first. Values that are not in the plain form the fast paths
+ * handle are decoded and parsed by the JDK, so the result, and the exception
+ * for invalid values, is always the same as when the value is parsed from a
+ * string.
+ */
+final class ByteFields {
+
+   // Doubles with at most this many digits are parsed exactly without a string
+   private static final int MAX_FAST_DOUBLE_DIGITS = 15;
+   // Ints with at most this many digits cannot overflow
+   private static final int MAX_FAST_INT_DIGITS = 9;
+
+   private static final double[] POWERS_OF_TEN = new double[MAX_FAST_DOUBLE_DIGITS + 1];
+   private static final byte[] NULL = ascii("null");
+   // Compared ignoring the case, which works on upper case names
+   private static final byte[] TRUE = ascii("TRUE");
+   private static final MeatTypeEnum[] MEAT_TYPES = MeatTypeEnum.values();
+   private static final byte[][] MEAT_TYPE_NAMES = new byte[MEAT_TYPES.length][];
+   private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+   static {
+      POWERS_OF_TEN[0] = 1;
+      for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+         POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+      }
+      for (int i = 0; i < MEAT_TYPES.length; i++) {
+         MEAT_TYPE_NAMES[i] = ascii(MEAT_TYPES[i].name());
+      }
+   }
+
+   private ByteFields() {
+   }
+
+   /**
+    * Decodes the bytes as UTF-8.
+    *
+    * @param buffer The buffer holding the value.
+    * @param start  The first byte of the value.
+    * @param end    The end of the value.
+    * @return The decoded string.
+    */
+   static String decode(ByteBuffer buffer, int start, int end) {
+      byte[] bytes = new byte[end - start];
+      buffer.get(start, bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+
+   /**
+    * Checks if the bytes are the given value.
+    *
+    * @param buffer     The buffer holding the value.
+    * @param start      The first byte of the value.
+    * @param end        The end of the value.
+    * @param value      The value to compare with. Must be upper case if the case
+    *                   is ignored.
+    * @param ignoreCase If lower case ASCII letters match their upper case letter.
+    * @return True if the bytes are the value.
+    */
+   static boolean equals(ByteBuffer buffer, int start, int end, byte[] value, boolean ignoreCase) {
+      if (end - start != value.length) {
+         return false;
+      }
+      for (int i = 0; i < value.length; i++) {
+         byte b = buffer.get(start + i);
+         if (ignoreCase && b >= 'a' && b <= 'z') {
+            b -= 'a' - 'A';
+         }
+         if (b != value[i]) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Finds the value the bytes are equal to.
+    *
+    * @return The index of the value or -1 if the bytes are none of the values.
+    */
+   static int indexOf(ByteBuffer buffer, int start, int end, byte[][] values) {
+      for (int i = 0; i < values.length; i++) {
+         if (equals(buffer, start, end, values[i], false)) {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * Parses the bytes as an int. Values that are not plain digits are parsed by
+    * {@link Integer#parseInt(String)}.
+    */
+   static int parseInt(ByteBuffer buffer, int start, int end) {
+      boolean negative = start < end && buffer.get(start) == '-';
+      int p = negative ? start + 1 : start;
+      if (p == end || end - p > MAX_FAST_INT_DIGITS) {
+         return Integer.parseInt(decode(buffer, start, end));
+      }
+
+      int value = 0;
+      for (; p < end; p++) {
+         int digit = buffer.get(p) - '0';
+         if (digit < 0 || digit > 9) {
+            return Integer.parseInt(decode(buffer, start, end));
+         }
+         value = value * 10 + digit;
+      }
+      return negative ? -value : value;
+   }
+
+   /**
+    * Parses the bytes as a double. Plain decimals with up to
+    * {@value #MAX_FAST_DOUBLE_DIGITS} digits are exact in a double before the
+    * single division by a power of ten, so they are parsed to the same value as
+    * {@link Double#parseDouble(String)}, which parses all other values.
+    */
+   static double parseDouble(ByteBuffer buffer, int start, int end) {
+      boolean negative = start < end && buffer.get(start) == '-';
+      int p = negative ? start + 1 : start;
+
+      long mantissa = 0;
+      int digits = 0;
+      int fractionDigits = 0;
+      boolean fraction = false;
+      for (; p < end; p++) {
+         byte b = buffer.get(p);
+         if (b >= '0' && b <= '9') {
+            mantissa = mantissa * 10 + (b - '0');
+            digits++;
+            if (fraction) {
+               fractionDigits++;
+            }
+         } else if (b == '.' && !fraction) {
+            fraction = true;
+         } else {
+            return Double.parseDouble(decode(buffer, start, end));
+         }
+      }
+      if (digits == 0 || digits > MAX_FAST_DOUBLE_DIGITS) {
+         return Double.parseDouble(decode(buffer, start, end));
+      }
+
+      double value = mantissa / POWERS_OF_TEN[fractionDigits];
+      return negative ? -value : value;
+   }
+
+   /**
+    * Parses the bytes as a date in the format yyyy-MM-dd.
+    *
+    * @return The date or null if the bytes are "null".
+    */
+   static LocalDate parseDate(ByteBuffer buffer, int start, int end) {
+      if (equals(buffer, start, end, NULL, false)) {
+         return null;
+      }
+      if (end - start != 10 || buffer.get(start + 4) != '-' || buffer.get(start + 7) != '-') {
+         return LocalDate.parse(decode(buffer, start, end), DATE_FORMATTER);
+      }
+
+      int year = parseDigits(buffer, start, 4);
+      int month = parseDigits(buffer, start + 5, 2);
+      int day = parseDigits(buffer, start + 8, 2);
+      // Invalid days are left to the formatter, which resolves some of them
+      if (year < 0 || month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))) {
+         return LocalDate.parse(decode(buffer, start, end), DATE_FORMATTER);
+      }
+      return LocalDate.of(year, month, day);
+   }
+
+   /**
+    * @return The value of the digits or -1 if not all bytes are digits.
+    */
+   private static int parseDigits(ByteBuffer buffer, int start, int count) {
+      int value = 0;
+      for (int p = start; p < start + count; p++) {
+         int digit = buffer.get(p) - '0';
+         if (digit < 0 || digit > 9) {
+            return -1;
+         }
+         value = value * 10 + digit;
+      }
+      return value;
+   }
+
+   /**
+    * Finds the meat type whose name matches the bytes, ignoring the case.
+    *
+    * @throws IllegalArgumentException If there is no such meat type.
+    */
+   static MeatTypeEnum parseMeatType(ByteBuffer buffer, int start, int end) {
+      for (int i = 0; i < MEAT_TYPES.length; i++) {
+         if (equals(buffer, start, end, MEAT_TYPE_NAMES[i], true)) {
+            return MEAT_TYPES[i];
+         }
+      }
+      throw new IllegalArgumentException("Unknown meat type: " + decode(buffer, start, end));
+   }
+
+   /**
+    * Parses the bytes like {@link Boolean#parseBoolean(String)}.
+    */
+   static boolean parseBoolean(ByteBuffer buffer, int start, int end) {
+      return equals(buffer, start, end, TRUE, true);
+   }
+
+   static byte[] ascii(String value) {
+      return value.getBytes(StandardCharsets.US_ASCII);
+   }
+}
@@ -0,0 +1,441 @@
+package com.monev.superdupermarkt.util;
+
+import com.monev.superdupermarkt.Product;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Parses products from a UTF-8 CSV file. The file is memory mapped in windows
+ * and the fields are read directly from the mapped bytes: numbers and dates are
+ * parsed without building a string first, and the product type and meat type
+ * are matched against their known names byte by byte. Only the ID and the name
+ * of a product are turned into strings, as the product keeps them.
+ * <p>
+ * Fields can be quoted with double quotes, in which case they can contain
+ * commas, line breaks and quotes written as two double quotes. Columns after
+ * the ones a product needs are ignored, as are empty lines. Records that cannot
+ * be turned into a product are reported with their line number and skipped.
+ * <p>
+ * A parser keeps its buffers between records and is not thread safe.
+ */
+class CsvProductParser {
+
+   // Size of the part of the file that is mapped at once
+   static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+
+   private static final int TYPE = 0;
+   private static final int ID = 1;
+   private static final int NAME = 2;
+   private static final int QUALITY = 3;
+   private static final int EXPIRY_DATE = 4;
+   private static final int DEFAULT_PRICE = 5;
+   private static final int MEAT_TYPE = 6;
+   private static final int VACUUM_PACKED = 7;
+
+   private final String[] typeNames;
+   private final byte[][] typeNameBytes;
+   private final Function<ProductFields, Product>[] creators;
+   private final Function<ProductFields, Product> defaultCreator;
+   private final int windowSize;
+
+   private final ProductFields fields = new ProductFields();
+   private int[] fieldStart = new int[16];
+   private int[] fieldEnd = new int[16];
+   private boolean[] fieldHasEscapedQuotes = new boolean[16];
+   private int fieldCount;
+   private byte[] scratch = new byte[256];
+
+   private Consumer<ImportFailure> failureHandler = ImportFailure::report;
+
+   // The opened range and the mapped window of it
+   private FileChannel channel;
+   private long size;
+   private long to;
+   private long windowStart;
+   private int window;
+   private ByteBuffer buffer;
+   private int length;
+   private boolean lastWindow;
+   private int pos;
+   private boolean header;
+   // Line the current record starts on, and line breaks inside its quoted fields
+   private long lineNumber;
+   private int quotedLineBreaks;
+
+   /**
+    * Creates a parser.
+    *
+    * @param creators       The product creators by the product type names.
+    * @param defaultCreator The creator for product types without an own creator.
+    * @param windowSize     The number of bytes mapped at once. Lines longer than
+    *                       the window are still parsed, with a larger window.
+    */
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   CsvProductParser(Map<String, Function<ProductFields, Product>> creators,
+         Function<ProductFields, Product> defaultCreator, int windowSize) {
+      this.typeNames = creators.keySet().toArray(new String[0]);
+      this.typeNameBytes = new byte[typeNames.length][];
+      this.creators = new Function[typeNames.length];
+      for (int i = 0; i < typeNames.length; i++) {
+         typeNameBytes[i] = typeNames[i].getBytes(StandardCharsets.UTF_8);
+         this.creators[i] = creators.get(typeNames[i]);
+      }
+      this.defaultCreator = defaultCreator;
+      this.windowSize = windowSize;
+   }
+
+   /**
+    * Sets where records that cannot be turned into a product are reported to.
+    * They are printed to {@link System#err} by default.
+    *
+    * @param failureHandler Receives the failures.
+    */
+   void setFailureHandler(Consumer<ImportFailure> failureHandler) {
+      this.failureHandler = failureHandler;
+   }
+
+   /**
+    * @return The line number after the last parsed record.
+    */
+   long getLineNumber() {
+      return lineNumber;
+   }
+
+   /**
+    * Parses all products of the file, skipping the header line.
+    *
+    * @param file     The CSV file.
+    * @param consumer Receives the products in the order of the file.
+    * @throws IOException If the file cannot be read.
+    */
+   void parse(Path file, Consumer<? super Product> consumer) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         parse(channel, 0, channel.size(), 1, true, consumer);
+      }
+   }
+
+   /**
+    * Parses the products of the records that start in a range of the file. The
+    * range has to start at the beginning of a record. The last record is parsed
+    * to its end, even if it ends after the range.
+    *
+    * @param channel    The channel of the CSV file.
+    * @param from       The first byte of the range.
+    * @param to         The end of the range.
+    * @param firstLine  The line number of the first line of the range.
+    * @param skipHeader If the first line of the range is the header.
+    * @param consumer   Receives the products in the order of the file.
+    * @return The end of the last parsed record.
+    * @throws IOException If the file cannot be read.
+    */
+   long parse(FileChannel channel, long from, long to, long firstLine, boolean skipHeader,
+         Consumer<? super Product> consumer) throws IOException {
+      open(channel, from, to, firstLine, skipHeader);
+      while (next(consumer)) {
+         // Every call parses records up to the next product
+      }
+      return getPosition();
+   }
+
+   /**
+    * Prepares parsing the records that start in a range of the file one product at
+    * a time with {@link #next(Consumer)}. The range has to start at the beginning
+    * of a record.
+    *
+    * @param channel    The channel of the CSV file.
+    * @param from       The first byte of the range.
+    * @param to         The end of the range.
+    * @param firstLine  The line number of the first line of the range.
+    * @param skipHeader If the first line of the range is the header.
+    * @throws IOException If the file cannot be read.
+    */
+   void open(FileChannel channel, long from, long to, long firstLine, boolean skipHeader) throws IOException {
+      this.channel = channel;
+      this.size = channel.size();
+      this.to = to;
+      this.windowStart = from;
+      this.window = windowSize;
+      this.buffer = null;
+      this.lineNumber = firstLine;
+      this.header = skipHeader;
+   }
+
+   /**
+    * Parses records of the opened range until one of them is turned into a
+    * product or the range ends.
+    *
+    * @param consumer Receives the product.
+    * @return True if a product was passed to the consumer, false if the range has
+    *         ended.
+    * @throws IOException If the file cannot be read.
+    */
+   boolean next(Consumer<? super Product> consumer) throws IOException {
+      while (true) {
+         if (buffer == null) {
+            if (windowStart >= to) {
+               return false;
+            }
+            mapWindow();
+         }
+         if (pos >= length || windowStart + pos >= to) {
+            // Records starting after the range belong to the next range
+            closeWindow();
+            continue;
+         }
+
+         int next = readRecord(pos, length, lastWindow);
+         if (next < 0) {
+            // The record continues in the next window
+            if (pos == 0) {
+               // A single record is longer than the window
+               window = (int) Math.min(Integer.MAX_VALUE, 2L * window);
+            }
+            closeWindow();
+            continue;
+         }
+
+         boolean created = false;
+         if (header) {
+            header = false;
+         } else if (fieldCount > 1 || fieldEnd[0] > fieldStart[0]) {
+            created = parseRecord(consumer);
+         }
+         lineNumber += 1 + quotedLineBreaks;
+         pos = next;
+         if (created) {
+            return true;
+         }
+      }
+   }
+
+   /**
+    * @return The end of the last parsed record.
+    */
+   long getPosition() {
+      return buffer == null ? windowStart : windowStart + pos;
+   }
+
+   private void mapWindow() throws IOException {
+      length = (int) Math.min(window, size - windowStart);
+      lastWindow = windowStart + length == size;
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, length);
+      pos = windowStart == 0 ? skipByteOrderMark() : 0;
+   }
+
+   private void closeWindow() {
+      windowStart += pos;
+      buffer = null;
+   }
+
+   private int skipByteOrderMark() {
+      if (buffer.limit() >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB
+            && buffer.get(2) == (byte) 0xBF) {
+         return 3;
+      }
+      return 0;
+   }
+
+   /**
+    * Finds the fields of the record starting at the given position.
+    *
+    * @param pos        The start of the record.
+    * @param end        The end of the mapped bytes.
+    * @param lastWindow If the end of the mapped bytes is also the end of the data.
+    * @return The start of the next record, or -1 if the record is not complete.
+    */
+   private int readRecord(int pos, int end, boolean lastWindow) {
+      fieldCount = 0;
+      quotedLineBreaks = 0;
+      int p = pos;
+
+      while (true) {
+         if (p < end && buffer.get(p) == '"') {
+            int start = ++p;
+            boolean escapedQuotes = false;
+            while (true) {
+               if (p >= end) {
+                  if (!lastWindow) {
+                     return -1;
+                  }
+                  break; // Unterminated quote, the field ends with the data
+               }
+               byte b = buffer.get(p);
+               if (b == '"') {
+                  if (p + 1 < end && buffer.get(p + 1) == '"') {
+                     escapedQuotes = true;
+                     p += 2;
+                     continue;
+                  }
+                  if (p + 1 == end && !lastWindow) {
+                     return -1; // The next byte could be an escaped quote
+                  }
+                  break;
+               }
+               if (b == '\n') {
+                  quotedLineBreaks++;
+               }
+               p++;
+            }
+            addField(start, p, escapedQuotes);
+            // Skip the closing quote and anything up to the end of the field
+            while (p < end && buffer.get(p) != ',' && buffer.get(p) != '\n') {
+               p++;
+            }
+         } else {
+            int start = p;
+            while (p < end && buffer.get(p) != ',' && buffer.get(p) != '\n') {
+               p++;
+            }
+            int fieldEndPos = p;
+            if (fieldEndPos > start && buffer.get(fieldEndPos - 1) == '\r') {
+               fieldEndPos--;
+            }
+            addField(start, fieldEndPos, false);
+         }
+
+         if (p >= end) {
+            return lastWindow ? end : -1;
+         }
+         if (buffer.get(p) == '\n') {
+            return p + 1;
+         }
+         p++; // Comma
+      }
+   }
+
+   private void addField(int start, int end, boolean escapedQuotes) {
+      if (fieldCount == fieldStart.length) {
+         fieldStart = Arrays.copyOf(fieldStart, fieldCount * 2);
+         fieldEnd = Arrays.copyOf(fieldEnd, fieldCount * 2);
+         fieldHasEscapedQuotes = Arrays.copyOf(fieldHasEscapedQuotes, fieldCount * 2);
+      }
+      fieldStart[fieldCount] = start;
+      fieldEnd[fieldCount] = end;
+      fieldHasEscapedQuotes[fieldCount] = escapedQuotes;
+      fieldCount++;
+   }
+
+   /**
+    * Creates the product of the current record and passes it to the consumer.
+    * Records that cannot be turned into a product are reported and skipped.
+    *
+    * @return True if the product was created.
+    */
+   private boolean parseRecord(Consumer<? super Product> consumer) {
+      fields.clear();
+      Function<ProductFields, Product> creator = defaultCreator;
+      String type = null;
+      Product product;
+      try {
+         int typeIndex = findType();
+         if (typeIndex >= 0) {
+            type = typeNames[typeIndex];
+            creator = creators[typeIndex];
+         } else {
+            type = parseString(TYPE);
+         }
+         fields.setType(type);
+         fields.setId(parseString(ID));
+         fields.setName(parseString(NAME));
+         fields.setQuality(parseInt(QUALITY));
+         fields.setExpiryDate(parseDate(EXPIRY_DATE));
+         fields.setDefaultPrice(parseDouble(DEFAULT_PRICE));
+         if (fieldCount > MEAT_TYPE && fieldEnd[MEAT_TYPE] > fieldStart[MEAT_TYPE]) {
+            fields.setMeatType(parseMeatType(MEAT_TYPE));
+         }
+         if (fieldCount > VACUUM_PACKED) {
+            fields.setIsVacuumPacked(!fieldHasEscapedQuotes[VACUUM_PACKED]
+                  && ByteFields.parseBoolean(buffer, fieldStart[VACUUM_PACKED], fieldEnd[VACUUM_PACKED]));
+         }
+         product = creator.apply(fields);
+      } catch (Exception e) {
+         failureHandler.accept(new ImportFailure(lineNumber, type, e.getMessage()));
+         return false;
+      }
+      consumer.accept(product);
+      return true;
+   }
+
+   private int findType() {
+      if (fieldHasEscapedQuotes[TYPE]) {
+         return -1;
+      }
+      return ByteFields.indexOf(buffer, fieldStart[TYPE], fieldEnd[TYPE], typeNameBytes);
+   }
+
+   private void checkField(int field) {
+      if (field >= fieldCount) {
+         throw new IllegalArgumentException("Missing column " + (field + 1));
+      }
+   }
+
+   /**
+    * Decodes the field as UTF-8, replacing escaped quotes by single quotes.
+    */
+   private String parseString(int field) {
+      checkField(field);
+      int start = fieldStart[field];
+      int length = fieldEnd[field] - start;
+      if (scratch.length < length) {
+         scratch = new byte[Math.max(length, scratch.length * 2)];
+      }
+      if (!fieldHasEscapedQuotes[field]) {
+         buffer.get(start, scratch, 0, length);
+         return new String(scratch, 0, length, StandardCharsets.UTF_8);
+      }
+
+      int n = 0;
+      for (int p = start; p < start + length; p++) {
+         byte b = buffer.get(p);
+         scratch[n++] = b;
+         if (b == '"') {
+            p++; // Skip the second quote
+         }
+      }
+      return new String(scratch, 0, n, StandardCharsets.UTF_8);
+   }
+
+   // Fields with escaped quotes are never valid numbers, dates or names, so they
+   // are decoded to get the same error as for any other invalid value
+
+   private int parseInt(int field) {
+      checkField(field);
+      if (fieldHasEscapedQuotes[field]) {
+         return Integer.parseInt(parseString(field));
+      }
+      return ByteFields.parseInt(buffer, fieldStart[field], fieldEnd[field]);
+   }
+
+   private double parseDouble(int field) {
+      checkField(field);
+      if (fieldHasEscapedQuotes[field]) {
+         return Double.parseDouble(parseString(field));
+      }
+      return ByteFields.parseDouble(buffer, fieldStart[field], fieldEnd[field]);
+   }
+
+   private LocalDate parseDate(int field) {
+      checkField(field);
+      if (fieldHasEscapedQuotes[field]) {
+         throw new IllegalArgumentException("Invalid date: " + parseString(field));
+      }
+      return ByteFields.parseDate(buffer, fieldStart[field], fieldEnd[field]);
+   }
+
+   private MeatTypeEnum parseMeatType(int field) {
+      if (fieldHasEscapedQuotes[field]) {
+         throw new IllegalArgumentException("Unknown meat type: " + parseString(field));
+      }
+      return ByteFields.parseMeatType(buffer, fieldStart[field], fieldEnd[field]);
+   }
+}
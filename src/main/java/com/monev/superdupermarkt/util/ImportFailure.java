@@ -0,0 +1,20 @@
+package com.monev.superdupermarkt.util;
+
+/**
+ * A record of an imported file or a row of an imported table that could not be
+ * turned into a product.
+ *
+ * @param lineNumber The line the record starts on, or the number of the row in
+ *                   the query result, starting at 1.
+ * @param type       The product type of the record.
+ * @param message    Why the product could not be created.
+ */
+record ImportFailure(long lineNumber, String type, String message) {
+
+   /**
+    * Prints the failure to {@link System#err}.
+    */
+   void report() {
+      System.err.println("Failed to create product of type " + type + " on line " + lineNumber + ": " + message);
+   }
+}
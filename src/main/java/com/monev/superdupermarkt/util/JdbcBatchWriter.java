@@ -0,0 +1,269 @@
+package com.monev.superdupermarkt.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Inserts rows into an SQL table in JDBC batches. The values of every row are
+ * bound to a {@link PreparedStatement} and added to its batch; a batch is
+ * executed and committed once it holds the batch size number of rows, so a
+ * failure only loses the rows of the current batch.
+ * <p>
+ * The writer can insert over several connections at once. Written rows are
+ * collected until every connection can be given a full batch, and the batches
+ * are then bound, executed and committed on one thread per connection while
+ * the next rows are collected. Each connection is only used by its own thread.
+ * Auto commit is turned off while the writer is open and restored when it is
+ * closed. If a batch fails, the rows that were written after it are dropped.
+ * A writer is not thread safe.
+ *
+ * @param <T> The type of the values that are written as rows.
+ */
+public class JdbcBatchWriter<T> implements AutoCloseable {
+
+   /**
+    * Binds the values of a row to the parameters of the insert statement.
+    *
+    * @param <T> The type of the values that are written as rows.
+    */
+   @FunctionalInterface
+   public interface RowBinder<T> {
+
+      /**
+       * Sets the parameters of the statement to the values of the row.
+       *
+       * @param statement The insert statement.
+       * @param row       The values of the row.
+       * @throws SQLException If a parameter cannot be set.
+       */
+      void bind(PreparedStatement statement, T row) throws SQLException;
+   }
+
+   // Rows per batch, large enough to make the round trips to the database cheap
+   public static final int DEFAULT_BATCH_SIZE = 1000;
+
+   private final List<Connection> connections;
+   private final List<PreparedStatement> statements = new ArrayList<>();
+   private final boolean[] autoCommits;
+   private final RowBinder<T> binder;
+   private final int batchSize;
+   private final ExecutorService executor;
+   private final List<Future<Integer>> running = new ArrayList<>();
+   private List<T> pending;
+   private long rowCount;
+
+   /**
+    * Creates a writer that inserts over a single connection.
+    *
+    * @param connection The SQL database connection.
+    * @param insertSQL  The insert statement with a parameter per column.
+    * @param batchSize  The number of rows executed and committed at once.
+    * @param binder     Binds the values of a row to the statement.
+    * @throws SQLException If the statement cannot be prepared.
+    */
+   public JdbcBatchWriter(Connection connection, String insertSQL, int batchSize, RowBinder<T> binder)
+         throws SQLException {
+      this(List.of(connection), insertSQL, batchSize, binder);
+   }
+
+   /**
+    * Creates a writer that inserts over the given connections in parallel.
+    *
+    * @param connections The SQL database connections, one for each thread.
+    * @param insertSQL   The insert statement with a parameter per column.
+    * @param batchSize   The number of rows executed and committed at once on
+    *                    each connection.
+    * @param binder      Binds the values of a row to the statement.
+    * @throws SQLException If the statement cannot be prepared.
+    */
+   public JdbcBatchWriter(List<Connection> connections, String insertSQL, int batchSize, RowBinder<T> binder)
+         throws SQLException {
+      if (connections.isEmpty()) {
+         throw new IllegalArgumentException("At least one connection is needed to write to the database.");
+      }
+      if (batchSize < 1) {
+         throw new IllegalArgumentException("The batch size must be at least 1.");
+      }
+      this.connections = List.copyOf(connections);
+      this.autoCommits = new boolean[connections.size()];
+      this.binder = binder;
+      this.batchSize = batchSize;
+      this.pending = new ArrayList<>(batchSize * connections.size());
+
+      try {
+         for (int i = 0; i < this.connections.size(); i++) {
+            Connection connection = this.connections.get(i);
+            autoCommits[i] = connection.getAutoCommit();
+            statements.add(connection.prepareStatement(insertSQL));
+            connection.setAutoCommit(false);
+         }
+      } catch (SQLException e) {
+         release();
+         throw e;
+      }
+      this.executor = Executors.newFixedThreadPool(connections.size());
+   }
+
+   /**
+    * Writes a row. The row is inserted with one of the next batches.
+    *
+    * @param row The values of the row.
+    * @throws SQLException If an earlier batch could not be inserted.
+    */
+   public void write(T row) throws SQLException {
+      pending.add(row);
+      if (pending.size() == batchSize * connections.size()) {
+         submitPending();
+      }
+   }
+
+   /**
+    * Writes all rows of the list.
+    *
+    * @param rows The values of the rows.
+    * @throws SQLException If a batch could not be inserted.
+    */
+   public void writeAll(List<? extends T> rows) throws SQLException {
+      for (T row : rows) {
+         write(row);
+      }
+   }
+
+   /**
+    * Inserts and commits all written rows.
+    *
+    * @throws SQLException If a batch could not be inserted.
+    */
+   public void flush() throws SQLException {
+      submitPending();
+      awaitRunning();
+   }
+
+   /**
+    * Returns the number of rows that were inserted and committed.
+    *
+    * @return The number of committed rows.
+    */
+   public long getRowCount() {
+      return rowCount;
+   }
+
+   /**
+    * Inserts and commits all written rows and releases the statements. The
+    * connections stay open.
+    *
+    * @throws SQLException If a batch could not be inserted.
+    */
+   @Override
+   public void close() throws SQLException {
+      try {
+         flush();
+      } finally {
+         executor.shutdown();
+         release();
+      }
+   }
+
+   /**
+    * Splits the collected rows into a batch for each connection and inserts
+    * them in the background, after the batches before them are done.
+    */
+   private void submitPending() throws SQLException {
+      awaitRunning();
+      if (pending.isEmpty()) {
+         return;
+      }
+
+      List<T> rows = pending;
+      pending = new ArrayList<>(batchSize * connections.size());
+      int perConnection = (rows.size() + connections.size() - 1) / connections.size();
+      for (int i = 0; i * perConnection < rows.size(); i++) {
+         List<T> batch = rows.subList(i * perConnection, Math.min(rows.size(), (i + 1) * perConnection));
+         int index = i;
+         running.add(executor.submit(() -> insert(index, batch)));
+      }
+   }
+
+   /**
+    * Inserts and commits a batch over the connection with the given index.
+    *
+    * @return The number of inserted rows.
+    */
+   private int insert(int index, List<T> batch) throws SQLException {
+      Connection connection = connections.get(index);
+      PreparedStatement statement = statements.get(index);
+      try {
+         for (T row : batch) {
+            binder.bind(statement, row);
+            statement.addBatch();
+         }
+         statement.executeBatch();
+         connection.commit();
+         return batch.size();
+      } catch (SQLException e) {
+         statement.clearBatch();
+         connection.rollback();
+         throw e;
+      }
+   }
+
+   private void awaitRunning() throws SQLException {
+      SQLException failure = null;
+      for (Future<Integer> task : running) {
+         try {
+            rowCount += task.get();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = addFailure(failure, new SQLException("Writing to the database was interrupted.", e));
+         } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+               failure = addFailure(failure, (SQLException) cause);
+            } else if (cause instanceof RuntimeException) {
+               throw (RuntimeException) cause;
+            } else {
+               throw (Error) cause;
+            }
+         }
+      }
+      running.clear();
+      if (failure != null) {
+         // The rows after a failed batch are not inserted
+         pending.clear();
+         throw failure;
+      }
+   }
+
+   private static SQLException addFailure(SQLException failure, SQLException e) {
+      if (failure == null) {
+         return e;
+      }
+      failure.setNextException(e);
+      return failure;
+   }
+
+   /**
+    * Closes the statements and restores the auto commit of the connections.
+    */
+   private void release() throws SQLException {
+      SQLException failure = null;
+      for (int i = 0; i < statements.size(); i++) {
+         try {
+            statements.get(i).close();
+            connections.get(i).setAutoCommit(autoCommits[i]);
+         } catch (SQLException e) {
+            failure = addFailure(failure, e);
+         }
+      }
+      if (failure != null) {
+         throw failure;
+      }
+   }
+}
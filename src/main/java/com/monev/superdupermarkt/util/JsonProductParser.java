@@ -0,0 +1,592 @@
+package com.monev.superdupermarkt.util;
+
+import com.monev.superdupermarkt.Product;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Parses products from UTF-8 JSON. The input is either an array of product
+ * objects or a sequence of product objects, one per line (newline delimited
+ * JSON). The input is read through a buffer that only has to hold the current
+ * token, so documents of any size are parsed in constant memory.
+ * <p>
+ * The parser pulls one token at a time and matches the keys of a product object
+ * against the known field names byte by byte. The values are read directly from
+ * the buffer like in {@link CsvProductParser}; only the ID and the name of a
+ * product are turned into strings. The field names are the camel case names of
+ * the CSV export, e.g. {@code {"type": "Meat", "id": "M001", "name": "Steak",
+ * "quality": 60, "expiryDate": "2024-10-23", "defaultPrice": 15.0, "meatType":
+ * "BEEF", "vacuumPacked": false}}. Unknown fields are skipped.
+ * <p>
+ * Objects that cannot be turned into a product are reported with the line they
+ * start on and skipped. Invalid JSON ends the parsing with an
+ * {@link IOException}. A parser keeps its buffers between objects and is not
+ * thread safe.
+ */
+class JsonProductParser {
+
+   static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+   private static final int TYPE = 0;
+   private static final int ID = 1;
+   private static final int NAME = 2;
+   private static final int QUALITY = 3;
+   private static final int EXPIRY_DATE = 4;
+   private static final int DEFAULT_PRICE = 5;
+   private static final int MEAT_TYPE = 6;
+   private static final int VACUUM_PACKED = 7;
+
+   private static final byte[][] FIELD_NAMES = { ByteFields.ascii("type"), ByteFields.ascii("id"),
+         ByteFields.ascii("name"), ByteFields.ascii("quality"), ByteFields.ascii("expiryDate"),
+         ByteFields.ascii("defaultPrice"), ByteFields.ascii("meatType"), ByteFields.ascii("vacuumPacked") };
+
+   private static final byte[] LITERAL_TRUE = ByteFields.ascii("true");
+   private static final byte[] LITERAL_FALSE = ByteFields.ascii("false");
+   private static final byte[] LITERAL_NULL = ByteFields.ascii("null");
+
+   // Kinds of value tokens
+   private static final int STRING = 0;
+   private static final int NUMBER = 1;
+   private static final int TRUE = 2;
+   private static final int FALSE = 3;
+   private static final int NULL = 4;
+   private static final int OBJECT = 5;
+   private static final int ARRAY = 6;
+
+   private final byte[][] typeNameBytes;
+   private final String[] typeNames;
+   private final Function<ProductFields, Product>[] creators;
+   private final Function<ProductFields, Product> defaultCreator;
+
+   private final ProductFields fields = new ProductFields();
+   private Consumer<ImportFailure> failureHandler = ImportFailure::report;
+
+   private InputStream in;
+   private byte[] bytes;
+   private ByteBuffer buffer;
+   private int pos;
+   private int limit;
+   private long lineNumber;
+   private boolean inArray;
+   private boolean firstElement;
+   private boolean atStart;
+
+   // The last read string or number token
+   private int tokenStart;
+   private int tokenEnd;
+   private boolean tokenEscaped;
+
+   /**
+    * Creates a parser.
+    *
+    * @param creators       The product creators by the product type names.
+    * @param defaultCreator The creator for product types without an own creator.
+    * @param bufferSize     The initial size of the read buffer. The buffer grows
+    *                       for longer tokens.
+    */
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   JsonProductParser(Map<String, Function<ProductFields, Product>> creators,
+         Function<ProductFields, Product> defaultCreator, int bufferSize) {
+      this.typeNames = creators.keySet().toArray(new String[0]);
+      this.typeNameBytes = new byte[typeNames.length][];
+      this.creators = new Function[typeNames.length];
+      for (int i = 0; i < typeNames.length; i++) {
+         typeNameBytes[i] = typeNames[i].getBytes(StandardCharsets.UTF_8);
+         this.creators[i] = creators.get(typeNames[i]);
+      }
+      this.defaultCreator = defaultCreator;
+      this.bytes = new byte[bufferSize];
+      this.buffer = ByteBuffer.wrap(bytes);
+   }
+
+   /**
+    * Sets where objects that cannot be turned into a product are reported to.
+    * They are printed to {@link System#err} by default.
+    *
+    * @param failureHandler Receives the failures.
+    */
+   void setFailureHandler(Consumer<ImportFailure> failureHandler) {
+      this.failureHandler = failureHandler;
+   }
+
+   /**
+    * Parses all products of the input.
+    *
+    * @param in       The JSON input. It is not closed.
+    * @param consumer Receives the products in the order of the input.
+    * @throws IOException If the input cannot be read or is not valid JSON.
+    */
+   void parse(InputStream in, Consumer<? super Product> consumer) throws IOException {
+      open(in);
+      while (next(consumer)) {
+         // Every call parses objects up to the next product
+      }
+   }
+
+   /**
+    * Prepares parsing the input one product at a time with
+    * {@link #next(Consumer)}.
+    *
+    * @param in The JSON input. It is not closed.
+    */
+   void open(InputStream in) {
+      this.in = in;
+      this.pos = 0;
+      this.limit = 0;
+      this.lineNumber = 1;
+      this.inArray = false;
+      this.atStart = true;
+   }
+
+   /**
+    * Parses objects until one of them is turned into a product or the input ends.
+    *
+    * @param consumer Receives the product.
+    * @return True if a product was passed to the consumer, false if the input has
+    *         ended.
+    * @throws IOException If the input cannot be read or is not valid JSON.
+    */
+   boolean next(Consumer<? super Product> consumer) throws IOException {
+      if (atStart) {
+         skipByteOrderMark();
+         atStart = false;
+      }
+      while (true) {
+         int c = skipWhitespace();
+         if (inArray) {
+            if (c == ']') {
+               pos++;
+               inArray = false;
+               continue;
+            }
+            if (!firstElement) {
+               expect(',');
+               c = skipWhitespace();
+            }
+            firstElement = false;
+         } else if (c < 0) {
+            return false;
+         } else if (c == '[') {
+            pos++;
+            inArray = true;
+            firstElement = true;
+            continue;
+         }
+
+         if (c != '{') {
+            throw syntaxError("Expected a product object");
+         }
+         if (parseObject(consumer)) {
+            return true;
+         }
+      }
+   }
+
+   /**
+    * Parses the product object at the current position and passes its product to
+    * the consumer. Objects that cannot be turned into a product are reported and
+    * skipped.
+    *
+    * @return True if the product was created.
+    */
+   private boolean parseObject(Consumer<? super Product> consumer) throws IOException {
+      long objectLine = lineNumber;
+      pos++; // Opening brace
+      fields.clear();
+      Function<ProductFields, Product> creator = defaultCreator;
+      boolean hasQuality = false;
+      boolean hasPrice = false;
+      // The first invalid value, reported once the whole object is read
+      Exception failure = null;
+
+      int c = skipWhitespace();
+      if (c == '}') {
+         pos++;
+      } else {
+         while (true) {
+            if (c != '"') {
+               throw syntaxError("Expected a field name");
+            }
+            readString();
+            int field = tokenEscaped ? -1 : ByteFields.indexOf(buffer, tokenStart, tokenEnd, FIELD_NAMES);
+            skipWhitespace();
+            expect(':');
+            int kind = readValue();
+            try {
+               switch (field) {
+               case TYPE:
+                  int typeIndex = kind != STRING || tokenEscaped ? -1
+                        : ByteFields.indexOf(buffer, tokenStart, tokenEnd, typeNameBytes);
+                  if (typeIndex >= 0) {
+                     fields.setType(typeNames[typeIndex]);
+                     creator = creators[typeIndex];
+                  } else {
+                     fields.setType(stringValue(kind));
+                     creator = defaultCreator;
+                  }
+                  break;
+               case ID:
+                  fields.setId(stringValue(kind));
+                  break;
+               case NAME:
+                  fields.setName(stringValue(kind));
+                  break;
+               case QUALITY:
+                  checkScalar(kind);
+                  fields.setQuality(tokenEscaped ? Integer.parseInt(decodeToken())
+                        : ByteFields.parseInt(buffer, tokenStart, tokenEnd));
+                  hasQuality = true;
+                  break;
+               case EXPIRY_DATE:
+                  if (kind != NULL) {
+                     checkScalar(kind);
+                     if (tokenEscaped) {
+                        throw new IllegalArgumentException("Invalid date: " + decodeToken());
+                     }
+                     fields.setExpiryDate(ByteFields.parseDate(buffer, tokenStart, tokenEnd));
+                  }
+                  break;
+               case DEFAULT_PRICE:
+                  checkScalar(kind);
+                  fields.setDefaultPrice(tokenEscaped ? Double.parseDouble(decodeToken())
+                        : ByteFields.parseDouble(buffer, tokenStart, tokenEnd));
+                  hasPrice = true;
+                  break;
+               case MEAT_TYPE:
+                  if (kind != NULL) {
+                     checkScalar(kind);
+                     fields.setMeatType(ByteFields.parseMeatType(buffer, tokenStart, tokenEnd));
+                  }
+                  break;
+               case VACUUM_PACKED:
+                  fields.setIsVacuumPacked(kind == TRUE
+                        || kind == STRING && ByteFields.parseBoolean(buffer, tokenStart, tokenEnd));
+                  break;
+               default:
+                  break;
+               }
+            } catch (Exception e) {
+               if (failure == null) {
+                  failure = e;
+               }
+            }
+            if (kind == OBJECT || kind == ARRAY) {
+               skipNested();
+            }
+
+            c = skipWhitespace();
+            if (c == '}') {
+               pos++;
+               break;
+            }
+            expect(',');
+            c = skipWhitespace();
+         }
+      }
+
+      Product product;
+      try {
+         if (failure != null) {
+            throw failure;
+         } else if (!hasQuality) {
+            throw new IllegalArgumentException("Missing field quality");
+         } else if (!hasPrice) {
+            throw new IllegalArgumentException("Missing field defaultPrice");
+         }
+         product = creator.apply(fields);
+      } catch (Exception e) {
+         failureHandler.accept(new ImportFailure(objectLine, fields.getType(), e.getMessage()));
+         return false;
+      }
+      consumer.accept(product);
+      return true;
+   }
+
+   private void checkScalar(int kind) {
+      if (kind != STRING && kind != NUMBER) {
+         throw new IllegalArgumentException("Expected a number or a string");
+      }
+   }
+
+   /**
+    * @return The string or number value of the last token, or null for null.
+    */
+   private String stringValue(int kind) {
+      if (kind == NULL) {
+         return null;
+      }
+      checkScalar(kind);
+      return decodeToken();
+   }
+
+   /**
+    * Reads the value at the current position. Strings and numbers are kept as the
+    * current token, objects and arrays are only opened.
+    *
+    * @return The kind of the value.
+    */
+   private int readValue() throws IOException {
+      int c = skipWhitespace();
+      switch (c) {
+      case '"':
+         readString();
+         return STRING;
+      case '{':
+         pos++;
+         return OBJECT;
+      case '[':
+         pos++;
+         return ARRAY;
+      case -1:
+         throw syntaxError("Unexpected end of input");
+      default:
+         readLiteral();
+         tokenEscaped = false;
+         if (ByteFields.equals(buffer, tokenStart, tokenEnd, LITERAL_TRUE, false)) {
+            return TRUE;
+         } else if (ByteFields.equals(buffer, tokenStart, tokenEnd, LITERAL_FALSE, false)) {
+            return FALSE;
+         } else if (ByteFields.equals(buffer, tokenStart, tokenEnd, LITERAL_NULL, false)) {
+            return NULL;
+         }
+         byte first = buffer.get(tokenStart);
+         if (first != '-' && (first < '0' || first > '9')) {
+            throw syntaxError("Unexpected value");
+         }
+         return NUMBER;
+      }
+   }
+
+   /**
+    * Skips the rest of an object or array that has already been opened.
+    */
+   private void skipNested() throws IOException {
+      int depth = 1;
+      while (depth > 0) {
+         int c = skipWhitespace();
+         switch (c) {
+         case -1:
+            throw syntaxError("Unexpected end of input");
+         case '"':
+            readString();
+            break;
+         case '{':
+         case '[':
+            depth++;
+            pos++;
+            break;
+         case '}':
+         case ']':
+            depth--;
+            pos++;
+            break;
+         case ',':
+         case ':':
+            pos++;
+            break;
+         default:
+            readLiteral();
+            break;
+         }
+      }
+   }
+
+   /**
+    * Reads the string at the current position into the current token, without
+    * its quotes.
+    */
+   private void readString() throws IOException {
+      int start = pos + 1;
+      int p = start;
+      boolean escaped = false;
+      while (true) {
+         if (p >= limit) {
+            // Keep the opening quote, so the start never moves before the buffer
+            int keepFrom = start - 1;
+            boolean more = fill(keepFrom);
+            start -= keepFrom;
+            p -= keepFrom;
+            if (!more) {
+               throw syntaxError("Unterminated string");
+            }
+            continue;
+         }
+         byte b = bytes[p];
+         if (b == '"') {
+            break;
+         }
+         if (b == '\\') {
+            escaped = true;
+            p += 2;
+            continue;
+         }
+         p++;
+      }
+      tokenStart = start;
+      tokenEnd = p;
+      tokenEscaped = escaped;
+      pos = p + 1;
+   }
+
+   /**
+    * Reads the number or literal at the current position into the current token.
+    */
+   private void readLiteral() throws IOException {
+      int start = pos;
+      int p = start;
+      while (true) {
+         if (p >= limit) {
+            int keepFrom = start;
+            boolean more = fill(keepFrom);
+            start -= keepFrom;
+            p -= keepFrom;
+            if (!more) {
+               break;
+            }
+            continue;
+         }
+         byte b = bytes[p];
+         if (b == ',' || b == '}' || b == ']' || b == ':' || b == '"' || isWhitespace(b)) {
+            break;
+         }
+         p++;
+      }
+      if (p == start) {
+         throw syntaxError("Unexpected character");
+      }
+      tokenStart = start;
+      tokenEnd = p;
+      pos = p;
+   }
+
+   /**
+    * Decodes the current token, resolving escape sequences.
+    */
+   private String decodeToken() {
+      if (!tokenEscaped) {
+         return new String(bytes, tokenStart, tokenEnd - tokenStart, StandardCharsets.UTF_8);
+      }
+
+      StringBuilder sb = new StringBuilder(tokenEnd - tokenStart);
+      int run = tokenStart;
+      int p = tokenStart;
+      while (p < tokenEnd) {
+         if (bytes[p] != '\\') {
+            p++;
+            continue;
+         }
+         sb.append(new String(bytes, run, p - run, StandardCharsets.UTF_8));
+         char escape = (char) bytes[p + 1];
+         p += 2;
+         switch (escape) {
+         case 'b':
+            sb.append('\b');
+            break;
+         case 'f':
+            sb.append('\f');
+            break;
+         case 'n':
+            sb.append('\n');
+            break;
+         case 'r':
+            sb.append('\r');
+            break;
+         case 't':
+            sb.append('\t');
+            break;
+         case 'u':
+            if (p + 4 > tokenEnd) {
+               throw new IllegalArgumentException("Invalid unicode escape");
+            }
+            sb.append((char) Integer.parseInt(new String(bytes, p, 4, StandardCharsets.US_ASCII), 16));
+            p += 4;
+            break;
+         default:
+            sb.append(escape); // Quote, backslash and slash
+            break;
+         }
+         run = p;
+      }
+      sb.append(new String(bytes, run, tokenEnd - run, StandardCharsets.UTF_8));
+      return sb.toString();
+   }
+
+   /**
+    * Skips whitespace and counts the lines.
+    *
+    * @return The next byte, which is not consumed, or -1 at the end of the input.
+    */
+   private int skipWhitespace() throws IOException {
+      while (true) {
+         if (pos >= limit && !fill(pos)) {
+            return -1;
+         }
+         byte b = bytes[pos];
+         if (!isWhitespace(b)) {
+            return b;
+         }
+         if (b == '\n') {
+            lineNumber++;
+         }
+         pos++;
+      }
+   }
+
+   private void skipByteOrderMark() throws IOException {
+      while (limit < 3 && fill(0)) {
+         // Read until the mark could be complete
+      }
+      if (limit >= 3 && bytes[0] == (byte) 0xEF && bytes[1] == (byte) 0xBB && bytes[2] == (byte) 0xBF) {
+         pos = 3;
+      }
+   }
+
+   private void expect(char expected) throws IOException {
+      if (skipWhitespace() != expected) {
+         throw syntaxError("Expected '" + expected + "'");
+      }
+      pos++;
+   }
+
+   /**
+    * Reads more input. The bytes from the given position on are moved to the
+    * start of the buffer first, and the buffer grows if they fill all of it.
+    *
+    * @param keepFrom The first byte that has to be kept. The kept bytes are moved
+    *                 by this many bytes.
+    * @return True if more bytes were read, false at the end of the input.
+    */
+   private boolean fill(int keepFrom) throws IOException {
+      int kept = limit - keepFrom;
+      if (keepFrom > 0) {
+         System.arraycopy(bytes, keepFrom, bytes, 0, kept);
+      } else if (kept == bytes.length) {
+         bytes = Arrays.copyOf(bytes, bytes.length * 2);
+         buffer = ByteBuffer.wrap(bytes);
+      }
+      pos -= keepFrom;
+      limit = kept;
+
+      int read = in.read(bytes, limit, bytes.length - limit);
+      if (read < 0) {
+         return false;
+      }
+      limit += read;
+      return true;
+   }
+
+   private IOException syntaxError(String message) {
+      return new IOException("Invalid JSON on line " + lineNumber + ": " + message);
+   }
+
+   private static boolean isWhitespace(byte b) {
+      return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+   }
+}
@@ -6,12 +6,15 @@ import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
  * Utility class to find and list all class names within a specified Java
  * package. This is useful for dynamically loading classes or for general
- * introspection purposes.
+ * introspection purposes. Only classes in a directory are found, not in a
+ * JAR; the product types of the application are listed by the
+ * {@link ProductTypeRegistry} instead.
  */
 public class PackageClassNameFinder {
 
@@ -58,8 +61,9 @@ public class PackageClassNameFinder {
          }
       }
 
-      // Ensure "Common Product" is first if present
-      classNames.sort((a, b) -> a.contains("Common Product") ? -1 : 1);
+      // Ensure "Common Product" is first if present. The sort is stable, so the
+      // other names keep their order.
+      classNames.sort(Comparator.comparing(name -> !name.contains("Common Product")));
 
       return classNames;
    }
@@ -0,0 +1,281 @@
+package com.monev.superdupermarkt.util;
+
+import com.monev.superdupermarkt.Product;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Imports a CSV file on several threads. The file is split into chunks of bytes
+ * that start after a line break, and every chunk is parsed by its own
+ * {@link CsvProductParser}. The products of each chunk are kept until the
+ * chunks before it are parsed, and are then passed on. Only a few chunks per
+ * thread are parsed ahead, and chunks have a maximum size, so files of any size
+ * can be passed on without holding them in memory.
+ * <p>
+ * A line break inside a quoted field can make a chunk start in the middle of a
+ * record. The chunk before it then parses past its end to finish the record,
+ * which shows that the next chunk was not split on a record. Such a chunk is
+ * parsed again from the real start of its first record, so the result is always
+ * the same as when the file is parsed by a single parser. Failures are reported
+ * in the order of the file, with the line numbers in the whole file.
+ */
+class ParallelCsvImporter {
+
+   // Smallest chunk a file is split into, so small files are not split at all
+   static final int DEFAULT_MIN_CHUNK_SIZE = 1 << 20;
+
+   // Largest chunk a file is split into, so only a few MB per thread are in memory
+   static final int DEFAULT_MAX_CHUNK_SIZE = 1 << 23;
+
+   // Chunks per thread, so threads that finish early can take over other chunks
+   private static final int CHUNKS_PER_THREAD = 4;
+
+   // Chunks per thread that are parsed or passed on at the same time
+   private static final int IN_FLIGHT_CHUNKS_PER_THREAD = 2;
+
+   private final Supplier<CsvProductParser> parsers;
+   private final int threads;
+   private final int minChunkSize;
+   private final int maxChunkSize;
+
+   /**
+    * Creates an importer.
+    *
+    * @param parsers      Creates a parser for each chunk.
+    * @param threads      The number of threads the file is parsed on.
+    * @param minChunkSize The smallest number of bytes a chunk can have.
+    */
+   ParallelCsvImporter(Supplier<CsvProductParser> parsers, int threads, int minChunkSize) {
+      this(parsers, threads, minChunkSize, DEFAULT_MAX_CHUNK_SIZE);
+   }
+
+   /**
+    * Creates an importer.
+    *
+    * @param parsers      Creates a parser for each chunk.
+    * @param threads      The number of threads the file is parsed on.
+    * @param minChunkSize The smallest number of bytes a chunk can have.
+    * @param maxChunkSize The largest number of bytes a chunk should have. Takes
+    *                     precedence over the number of chunks per thread, but not
+    *                     over the smallest size.
+    */
+   ParallelCsvImporter(Supplier<CsvProductParser> parsers, int threads, int minChunkSize, int maxChunkSize) {
+      if (threads < 1) {
+         throw new IllegalArgumentException("At least one thread is needed to import a CSV file.");
+      }
+      this.parsers = parsers;
+      this.threads = threads;
+      this.minChunkSize = minChunkSize;
+      this.maxChunkSize = maxChunkSize;
+   }
+
+   /**
+    * Imports all products of the file.
+    *
+    * @param file The CSV file.
+    * @return The products in the order of the file.
+    * @throws IOException If the file cannot be read.
+    */
+   List<Product> importFile(Path file) throws IOException {
+      List<Product> products = new ArrayList<>();
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+         parseChunks(file, pool, chunk -> {
+            products.addAll(chunk.products);
+            chunk.products = null;
+         });
+      } finally {
+         pool.shutdown();
+      }
+      return products;
+   }
+
+   /**
+    * Imports all products of the file and passes them to the consumer. The
+    * products of a chunk are passed on their own thread as soon as the chunk and
+    * all chunks before it are parsed, so the consumer has to be thread safe.
+    * Within a chunk the products are passed in the order of the file. If the
+    * consumer is slower than the parsers, the parsers wait for it, so only a few
+    * chunks are in memory at once.
+    *
+    * @param file     The CSV file.
+    * @param consumer Receives the products.
+    * @throws IOException If the file cannot be read.
+    */
+   void importFile(Path file, Consumer<Product> consumer) throws IOException {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+         Deque<Future<?>> deliveries = new ArrayDeque<>();
+         parseChunks(file, pool, chunk -> {
+            if (deliveries.size() >= threads) {
+               await(deliveries.poll());
+            }
+            deliveries.add(pool.submit(() -> {
+               chunk.products.forEach(consumer);
+               chunk.products = null;
+            }));
+         });
+         for (Future<?> delivery : deliveries) {
+            await(delivery);
+         }
+      } finally {
+         pool.shutdown();
+      }
+   }
+
+   /**
+    * Splits the file into chunks and parses them in parallel. The chunks are
+    * passed to the given consumer in the order of the file once they are parsed,
+    * after chunks that did not start on a record are parsed again and the
+    * failures of the chunk are reported. Only the next few chunks are parsed
+    * ahead of the chunk that is passed on.
+    */
+   private void parseChunks(Path file, ForkJoinPool pool, ChunkConsumer parsedChunks) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         List<Chunk> chunks = split(channel);
+         int window = threads * IN_FLIGHT_CHUNKS_PER_THREAD;
+         Deque<Future<?>> tasks = new ArrayDeque<>(window);
+         int submitted = 0;
+
+         long lineNumber = 1;
+         for (int i = 0; i < chunks.size(); i++) {
+            for (; submitted < chunks.size() && submitted < i + window; submitted++) {
+               Chunk next = chunks.get(submitted);
+               tasks.add(pool.submit(() -> next.parse(channel, parsers.get(), next.from)));
+            }
+            await(tasks.poll());
+            Chunk chunk = chunks.get(i);
+            if (i > 0 && chunks.get(i - 1).end != chunk.from) {
+               // The chunk before ended inside a record that reached into this chunk
+               chunk.parse(channel, parsers.get(), chunks.get(i - 1).end);
+            }
+            for (ImportFailure failure : chunk.failures) {
+               new ImportFailure(lineNumber + failure.lineNumber() - 1, failure.type(), failure.message())
+                     .report();
+            }
+            lineNumber += chunk.lines;
+            chunk.failures = null;
+            parsedChunks.accept(chunk);
+         }
+      }
+   }
+
+   /**
+    * Splits the file into chunks that start after a line break.
+    */
+   private List<Chunk> split(FileChannel channel) throws IOException {
+      long size = channel.size();
+      long wanted = Math.max((long) threads * CHUNKS_PER_THREAD, Math.ceilDiv(size, maxChunkSize));
+      int count = (int) Math.max(1, Math.min(wanted, size / minChunkSize));
+
+      List<Chunk> chunks = new ArrayList<>(count);
+      long from = 0;
+      for (int i = 1; i <= count && from < size; i++) {
+         long to = i == count ? size : nextLineStart(channel, size * i / count, size);
+         if (to > from) {
+            chunks.add(new Chunk(from, to));
+            from = to;
+         }
+      }
+      return chunks;
+   }
+
+   /**
+    * Finds the start of the first line that starts at or after the given
+    * position.
+    */
+   private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+      ByteBuffer buffer = ByteBuffer.allocate(8192);
+      // A line starts at the position if the byte before it is a line break
+      long pos = position - 1;
+      while (pos < size) {
+         buffer.clear();
+         int read = channel.read(buffer, pos);
+         if (read < 0) {
+            break;
+         }
+         for (int i = 0; i < read; i++) {
+            if (buffer.get(i) == '\n') {
+               return pos + i + 1;
+            }
+         }
+         pos += read;
+      }
+      return size;
+   }
+
+   /**
+    * Receives the parsed chunks.
+    */
+   private interface ChunkConsumer {
+      void accept(Chunk chunk) throws IOException;
+   }
+
+   private static void await(Future<?> task) throws IOException {
+      try {
+         task.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IOException("The import was interrupted.", e);
+      } catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+         if (cause instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) cause).getCause();
+         } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+         } else if (cause instanceof Error) {
+            throw (Error) cause;
+         }
+         throw new IOException(cause);
+      }
+   }
+
+   /**
+    * A range of the file and the result of parsing it. Line numbers of failures
+    * are counted from the start of the chunk.
+    */
+   private static class Chunk {
+
+      private final long from;
+      private final long to;
+      private long end;
+      private long lines;
+      private List<Product> products;
+      private List<ImportFailure> failures;
+
+      Chunk(long from, long to) {
+         this.from = from;
+         this.to = to;
+      }
+
+      /**
+       * Parses the records of the chunk that start at or after the given
+       * position, replacing any earlier result.
+       */
+      void parse(FileChannel channel, CsvProductParser parser, long start) {
+         products = new ArrayList<>();
+         failures = new ArrayList<>();
+         parser.setFailureHandler(failures::add);
+         try {
+            end = Math.max(start, parser.parse(channel, start, to, 1, start == 0, products::add));
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+         lines = parser.getLineNumber() - 1;
+      }
+   }
+}
@@ -0,0 +1,129 @@
+package com.monev.superdupermarkt.util;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.types.Meat;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Utility class for exporting products of the SuperDuperMarket system to SQL
+ * databases, in the table layout that {@link ProductImporter#importFromSQL}
+ * reads: the columns type, id, name, quality, expiry_date and base_price, and
+ * meat_type and is_vacuum_packed (or vacuum_packed) if the table has them. The products are inserted
+ * in batches with a {@link JdbcBatchWriter}.
+ * <p>
+ * Database errors are thrown as {@link IllegalStateException}s with the
+ * {@link SQLException} as the cause, like in
+ * {@link com.monev.superdupermarkt.simulation.JdbcSimulationSink}.
+ */
+public class ProductExporter {
+
+   private static final String COLUMNS = "type, id, name, quality, expiry_date, base_price";
+   private static final ProductTypeRegistry productTypes = ProductTypeRegistry.getDefault();
+
+   private ProductExporter() {
+   }
+
+   /**
+    * Exports products to an SQL database table.
+    *
+    * @param connection The SQL database connection.
+    * @param tableName  The name of the table to export the products to.
+    * @param products   The products to export.
+    * @return The number of exported products.
+    * @throws IllegalStateException If the products cannot be inserted.
+    */
+   public static long exportToSQL(Connection connection, String tableName, List<Product> products) {
+      return exportToSQL(List.of(connection), tableName, products, JdbcBatchWriter.DEFAULT_BATCH_SIZE);
+   }
+
+   /**
+    * Exports products to an SQL database table over the given connections in
+    * parallel. Every batch of products is committed on its own, so if the export
+    * fails, the batches before the failure stay in the table.
+    *
+    * @param connections The SQL database connections, one for each thread.
+    * @param tableName   The name of the table to export the products to.
+    * @param products    The products to export.
+    * @param batchSize   The number of products inserted and committed at once.
+    * @return The number of exported products.
+    * @throws IllegalStateException If the products cannot be inserted. The
+    *                               batches committed before stay in the table.
+    */
+   public static long exportToSQL(List<Connection> connections, String tableName, List<Product> products,
+         int batchSize) {
+      try {
+         Set<String> tableColumns = SqlProductReader.getColumnNames(connections.get(0), tableName);
+         boolean hasMeatType = tableColumns.contains(SqlProductReader.MEAT_TYPE_COLUMN);
+         String vacuumPacked = SqlProductReader.findVacuumPackedColumn(tableColumns);
+         StringBuilder columns = new StringBuilder(COLUMNS);
+         StringBuilder parameters = new StringBuilder("?, ?, ?, ?, ?, ?");
+         if (hasMeatType) {
+            columns.append(", ").append(SqlProductReader.MEAT_TYPE_COLUMN);
+            parameters.append(", ?");
+         }
+         if (vacuumPacked != null) {
+            columns.append(", ").append(vacuumPacked);
+            parameters.append(", ?");
+         }
+         String insertSQL = "INSERT INTO " + tableName + " (" + columns + ") VALUES (" + parameters + ")";
+
+         JdbcBatchWriter<Product> writer = new JdbcBatchWriter<>(connections, insertSQL, batchSize,
+               (statement, product) -> bind(statement, product, hasMeatType, vacuumPacked != null));
+         // Closing the writer inserts and commits the remaining products
+         try (writer) {
+            writer.writeAll(products);
+         }
+         return writer.getRowCount();
+      } catch (SQLException e) {
+         throw new IllegalStateException("Could not export the products to table " + tableName + ".", e);
+      }
+   }
+
+   private static void bind(PreparedStatement statement, Product product, boolean hasMeatType,
+         boolean hasVacuumPacked) throws SQLException {
+      statement.setString(1, getTypeName(product));
+      statement.setString(2, product.getId());
+      statement.setString(3, product.getName());
+      statement.setDouble(4, product.getQuality());
+      if (product.getExpiryDate() == null) {
+         statement.setNull(5, Types.DATE);
+      } else {
+         statement.setDate(5, Date.valueOf(product.getExpiryDate()));
+      }
+      statement.setDouble(6, product.getDefaultPrice());
+
+      Meat meat = product instanceof Meat ? (Meat) product : null;
+      int column = 7;
+      if (hasMeatType) {
+         if (meat != null) {
+            statement.setString(column, meat.getMeatType().name());
+         } else {
+            statement.setNull(column, Types.VARCHAR);
+         }
+         column++;
+      }
+      if (hasVacuumPacked) {
+         if (meat != null) {
+            statement.setBoolean(column, meat.isVacuumPacked());
+         } else {
+            statement.setNull(column, Types.BOOLEAN);
+         }
+      }
+   }
+
+   /**
+    * Returns the name the importer creates the product type by. Products of
+    * unregistered classes are exported with their class name.
+    */
+   private static String getTypeName(Product product) {
+      ProductType type = productTypes.getType(product.getClass());
+      return type != null ? type.name() : product.getClass().getSimpleName();
+   }
+}
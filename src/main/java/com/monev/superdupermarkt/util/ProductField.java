@@ -0,0 +1,11 @@
+package com.monev.superdupermarkt.util;
+
+/**
+ * The fields a product type is created from. The schema of a
+ * {@link ProductType} lists the fields its creator reads from the
+ * {@link ProductFields}, so a product can be entered or imported without
+ * knowing its type.
+ */
+public enum ProductField {
+   ID, NAME, QUALITY, EXPIRY_DATE, DEFAULT_PRICE, MEAT_TYPE, VACUUM_PACKED
+}
@@ -0,0 +1,102 @@
+package com.monev.superdupermarkt.util;
+
+import java.time.LocalDate;
+
+/**
+ * Holds the values of a single product record while it is imported. The
+ * importers fill one instance per record and reuse it for the next record, so
+ * the values are passed to the product creators already parsed, without an
+ * array of strings per record.
+ */
+public class ProductFields {
+
+   private String type;
+   private String id;
+   private String name;
+   private int quality;
+   private LocalDate expiryDate;
+   private double defaultPrice;
+   private MeatTypeEnum meatType;
+   private boolean isVacuumPacked;
+
+   /**
+    * Resets all values, so no value of the previous record is carried over.
+    */
+   public void clear() {
+      type = null;
+      id = null;
+      name = null;
+      quality = 0;
+      expiryDate = null;
+      defaultPrice = 0;
+      meatType = null;
+      isVacuumPacked = false;
+   }
+
+   public String getType() {
+      return type;
+   }
+
+   public void setType(String type) {
+      this.type = type;
+   }
+
+   public String getId() {
+      return id;
+   }
+
+   public void setId(String id) {
+      this.id = id;
+   }
+
+   public String getName() {
+      return name;
+   }
+
+   public void setName(String name) {
+      this.name = name;
+   }
+
+   public int getQuality() {
+      return quality;
+   }
+
+   public void setQuality(int quality) {
+      this.quality = quality;
+   }
+
+   public LocalDate getExpiryDate() {
+      return expiryDate;
+   }
+
+   public void setExpiryDate(LocalDate expiryDate) {
+      this.expiryDate = expiryDate;
+   }
+
+   public double getDefaultPrice() {
+      return defaultPrice;
+   }
+
+   public void setDefaultPrice(double defaultPrice) {
+      this.defaultPrice = defaultPrice;
+   }
+
+   /**
+    * @return The meat type or null if the record has no meat type.
+    */
+   public MeatTypeEnum getMeatType() {
+      return meatType;
+   }
+
+   public void setMeatType(MeatTypeEnum meatType) {
+      this.meatType = meatType;
+   }
+
+   public boolean isVacuumPacked() {
+      return isVacuumPacked;
+   }
+
+   public void setIsVacuumPacked(boolean isVacuumPacked) {
+      this.isVacuumPacked = isVacuumPacked;
+   }
+}
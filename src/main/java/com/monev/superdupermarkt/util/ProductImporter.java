@@ -1,23 +1,25 @@
 package com.monev.superdupermarkt.util;
 
 import com.monev.superdupermarkt.Product;
-import com.monev.superdupermarkt.types.Cheese;
-import com.monev.superdupermarkt.types.CommonProduct;
-import com.monev.superdupermarkt.types.Meat;
-import com.monev.superdupermarkt.types.Wine;
 
-import java.io.*;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.sql.Connection;
-import java.sql.ResultSet;
-import java.sql.Statement;
 import java.sql.SQLException;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.function.BiFunction;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Utility class for importing products into the SuperDuperMarket system.
@@ -25,19 +27,8 @@ import java.util.function.BiFunction;
  */
 public class ProductImporter {
 
-   // Delimiter used to split CSV file lines
-   private static final String CSV_SPLIT_BY = ",";
-
-   // Map to store product creation functions for different product types
-   private static final Map<String, BiFunction<String[], LocalDate, Product>> productCreators = new HashMap<>();
-
-   static {
-      // Register product creation functions for supported types
-      productCreators.put("Cheese", ProductImporter::createCheese);
-      productCreators.put("Wine", ProductImporter::createWine);
-      productCreators.put("Meat", ProductImporter::createMeat);
-      productCreators.put("CommonProduct", ProductImporter::createCommonProduct);
-   }
+   // Product types by their names, for the type column of the imported records
+   private static final ProductTypeRegistry productTypes = ProductTypeRegistry.getDefault();
 
    // Enum for different supported file formats
    public enum FileFormat {
@@ -56,72 +47,222 @@ public class ProductImporter {
       case CSV:
          return importFromCSV(fileName);
       case JSON:
-         return null; // Can be implemented in the future
+         return importFromJSON(fileName);
+      case XML:
+         return importFromXML(fileName);
+      default:
+         throw new IllegalArgumentException("Unsupported file format: " + format);
+      }
+   }
+
+   /**
+    * Factory method to stream products based on file format. The products are
+    * read while the stream is consumed, and the stream has to be closed to
+    * release the file.
+    *
+    * @param fileName The name of the file to stream products from.
+    * @param format   The format of the file (CSV, JSON, XML).
+    * @return A stream of the imported products.
+    */
+   public static Stream<Product> streamFromFile(String fileName, FileFormat format) {
+      switch (format) {
+      case CSV:
+         return streamFromCSV(fileName);
+      case JSON:
+         return streamFromJSON(fileName);
       case XML:
-         return null; // Can be implemented in the future
+         return streamFromXML(fileName);
       default:
          throw new IllegalArgumentException("Unsupported file format: " + format);
       }
    }
 
    /**
-    * Imports products from a CSV file.
+    * Imports products from a UTF-8 CSV file. The file is parsed directly from its
+    * bytes, see {@link CsvProductParser}. Records that cannot be turned into a
+    * product are reported with their line number and skipped.
     *
     * @param fileName The path to the CSV file.
     * @return A list of products created from the CSV file data.
     */
    public static List<Product> importFromCSV(String fileName) {
       List<Product> products = new ArrayList<>();
-      String line;
 
-      try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
-         br.readLine(); // Skip the header line
+      try {
+         newCsvParser(CsvProductParser.DEFAULT_WINDOW_SIZE).parse(Path.of(fileName), products::add);
+      } catch (IOException e) {
+         e.printStackTrace();
+      }
+
+      return products;
+   }
+
+   /**
+    * Streams products from a UTF-8 CSV file. The file is parsed while the stream
+    * is consumed, so only the products still referenced by the pipeline are kept
+    * in memory, and parsing stops when the stream stops early. The stream has to
+    * be closed to release the file. If the file cannot be opened, the error is
+    * printed and the stream is empty.
+    *
+    * @param fileName The path to the CSV file.
+    * @return A stream of the products created from the CSV file data.
+    * @throws UncheckedIOException If the file cannot be read while streaming.
+    */
+   public static Stream<Product> streamFromCSV(String fileName) {
+      FileChannel channel;
+      CsvProductParser parser = newCsvParser(CsvProductParser.DEFAULT_WINDOW_SIZE);
+      try {
+         channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ);
+         try {
+            parser.open(channel, 0, channel.size(), 1, true);
+         } catch (IOException e) {
+            channel.close();
+            throw e;
+         }
+      } catch (IOException e) {
+         e.printStackTrace();
+         return Stream.empty();
+      }
 
-         while ((line = br.readLine()) != null) {
-            String[] values = line.split(CSV_SPLIT_BY);
-            String type = values[0];
+      Spliterator<Product> products = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+            Spliterator.ORDERED | Spliterator.NONNULL) {
+         @Override
+         public boolean tryAdvance(Consumer<? super Product> action) {
             try {
-               LocalDate expiryDate = getDate(values[4]);
-               products.add(createProduct(type, values, expiryDate));
-            } catch (Exception e) {
-               System.err.println("Failed to create product of type " + type + ": " + e.getMessage());
-               continue;
+               return parser.next(action);
+            } catch (IOException e) {
+               throw new UncheckedIOException(e);
             }
          }
+      };
+      return StreamSupport.stream(products, false).onClose(() -> {
+         try {
+            channel.close();
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+      });
+   }
+
+   /**
+    * Imports products from a UTF-8 CSV file on several threads. The products are
+    * returned in the order of the file, the same as with
+    * {@link #importFromCSV(String)}.
+    *
+    * @param fileName The path to the CSV file.
+    * @param threads  The number of threads the file is parsed on.
+    * @return A list of products created from the CSV file data.
+    */
+   public static List<Product> importFromCSV(String fileName, int threads) {
+      try {
+         return newParallelCsvImporter(threads).importFile(Path.of(fileName));
       } catch (IOException e) {
          e.printStackTrace();
       }
 
-      return products;
+      return new ArrayList<>();
    }
 
    /**
-    * Imports products from an SQL database table.
+    * Imports products from a UTF-8 CSV file on several threads and passes them to
+    * the consumer, a part of the file at a time, without collecting all of them
+    * first. The consumer is called from several threads at once and has to be
+    * thread safe.
     *
-    * @param connection The SQL database connection.
-    * @param tableName  The name of the table to import products from.
-    * @return A list of products created from the SQL table data.
+    * @param fileName The path to the CSV file.
+    * @param threads  The number of threads the file is parsed on.
+    * @param consumer Receives the imported products.
     */
-   public static List<Product> importFromSQL(Connection connection, String tableName) {
+   public static void importFromCSV(String fileName, int threads, Consumer<Product> consumer) {
+      try {
+         newParallelCsvImporter(threads).importFile(Path.of(fileName), consumer);
+      } catch (IOException e) {
+         e.printStackTrace();
+      }
+   }
+
+   private static ParallelCsvImporter newParallelCsvImporter(int threads) {
+      return new ParallelCsvImporter(() -> newCsvParser(CsvProductParser.DEFAULT_WINDOW_SIZE), threads,
+            ParallelCsvImporter.DEFAULT_MIN_CHUNK_SIZE);
+   }
+
+   /**
+    * Imports products from a UTF-8 JSON file, holding either an array of product
+    * objects or one product object per line. See {@link JsonProductParser} for
+    * the field names. Objects that cannot be turned into a product are reported
+    * with their line number and skipped.
+    *
+    * @param fileName The path to the JSON file.
+    * @return A list of products created from the JSON file data.
+    */
+   public static List<Product> importFromJSON(String fileName) {
       List<Product> products = new ArrayList<>();
-      String query = "SELECT * FROM " + tableName;
 
-      try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(query)) {
+      try (InputStream in = Files.newInputStream(Path.of(fileName))) {
+         newJsonParser(JsonProductParser.DEFAULT_BUFFER_SIZE).parse(in, products::add);
+      } catch (IOException e) {
+         e.printStackTrace();
+      }
 
-         while (rs.next()) {
-            String type = rs.getString("type");
-            String[] values = { rs.getString("type"), rs.getString("id"), rs.getString("name"),
-                  String.valueOf(rs.getInt("quality")), rs.getString("expiry_date"),
-                  String.valueOf(rs.getDouble("base_price")) };
-            LocalDate expiryDate = rs.getDate("expiry_date").toLocalDate();
+      return products;
+   }
 
+   /**
+    * Streams products from a UTF-8 JSON file, like {@link #importFromJSON(String)}.
+    * The file is parsed while the stream is consumed and the stream has to be
+    * closed to release the file. If the file cannot be opened, the error is
+    * printed and the stream is empty.
+    *
+    * @param fileName The path to the JSON file.
+    * @return A stream of the products created from the JSON file data.
+    * @throws UncheckedIOException If the file cannot be read or is not valid JSON
+    *                              while streaming.
+    */
+   public static Stream<Product> streamFromJSON(String fileName) {
+      InputStream in;
+      try {
+         in = Files.newInputStream(Path.of(fileName));
+      } catch (IOException e) {
+         e.printStackTrace();
+         return Stream.empty();
+      }
+      JsonProductParser parser = newJsonParser(JsonProductParser.DEFAULT_BUFFER_SIZE);
+      parser.open(in);
+
+      Spliterator<Product> products = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+            Spliterator.ORDERED | Spliterator.NONNULL) {
+         @Override
+         public boolean tryAdvance(Consumer<? super Product> action) {
             try {
-               products.add(createProduct(type, values, expiryDate));
-            } catch (Exception e) {
-               System.err.println("Failed to create product of type " + type + ": " + e.getMessage());
+               return parser.next(action);
+            } catch (IOException e) {
+               throw new UncheckedIOException(e);
             }
          }
-      } catch (SQLException e) {
+      };
+      return StreamSupport.stream(products, false).onClose(() -> {
+         try {
+            in.close();
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+      });
+   }
+
+   /**
+    * Imports products from an XML file. Every {@code <product>} element is turned
+    * into a product, see {@link XmlProductParser} for its fields. Products that
+    * cannot be created are reported with their line number and skipped.
+    *
+    * @param fileName The path to the XML file.
+    * @return A list of products created from the XML file data.
+    */
+   public static List<Product> importFromXML(String fileName) {
+      List<Product> products = new ArrayList<>();
+
+      try (InputStream in = new BufferedInputStream(Files.newInputStream(Path.of(fileName)))) {
+         newXmlParser().parse(in, products::add);
+      } catch (IOException e) {
          e.printStackTrace();
       }
 
@@ -129,91 +270,181 @@ public class ProductImporter {
    }
 
    /**
-    * Creates a product instance based on the type of product. Supports Cheese,
-    * Wine, Meat, and CommonProduct types. New product types can be added by
-    * registering them in the `productCreators` map.
+    * Streams products from an XML file, like {@link #importFromXML(String)}. The
+    * file is parsed while the stream is consumed and the stream has to be closed
+    * to release the file. If the file cannot be opened, the error is printed and
+    * the stream is empty.
     *
-    * @param type       The type of product to create (e.g., "Cheese", "Wine",
-    *                   "Meat").
-    * @param values     The product details as a string array (e.g., [id, name,
-    *                   quality, expiryDate, defaultPrice]).
-    * @param expiryDate The expiry date of the product.
-    * @return The created product instance.
+    * @param fileName The path to the XML file.
+    * @return A stream of the products created from the XML file data.
+    * @throws UncheckedIOException If the file cannot be read or is not valid XML
+    *                              while streaming.
     */
-   private static Product createProduct(String type, String[] values, LocalDate expiryDate) {
-      BiFunction<String[], LocalDate, Product> creator = productCreators.get(type);
-      if (creator != null) {
-         return creator.apply(values, expiryDate);
-      } else {
-         creator = productCreators.get("CommonProduct");
-         return creator.apply(values, expiryDate);
+   public static Stream<Product> streamFromXML(String fileName) {
+      InputStream in;
+      XmlProductParser parser = newXmlParser();
+      try {
+         in = new BufferedInputStream(Files.newInputStream(Path.of(fileName)));
+         try {
+            parser.open(in);
+         } catch (IOException e) {
+            in.close();
+            throw e;
+         }
+      } catch (IOException e) {
+         e.printStackTrace();
+         return Stream.empty();
       }
+
+      Spliterator<Product> products = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+            Spliterator.ORDERED | Spliterator.NONNULL) {
+         @Override
+         public boolean tryAdvance(Consumer<? super Product> action) {
+            try {
+               return parser.next(action);
+            } catch (IOException e) {
+               throw new UncheckedIOException(e);
+            }
+         }
+      };
+      return StreamSupport.stream(products, false).onClose(() -> {
+         try (in) {
+            parser.close();
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+      });
+   }
+
+   private static XmlProductParser newXmlParser() {
+      return new XmlProductParser(productTypes.getCreators(), productTypes::createProduct);
    }
 
    /**
-    * Creates a Cheese product.
+    * Creates a JSON parser for the registered product types.
     *
-    * @param values     The product details as a string array.
-    * @param expiryDate The expiry date of the product.
-    * @return A new Cheese product.
+    * @param bufferSize The initial size of the read buffer of the parser.
+    * @return A new parser.
     */
-   private static Product createCheese(String[] values, LocalDate expiryDate) {
-      return new Cheese(values[1], values[2], Integer.parseInt(values[3]), expiryDate, Double.parseDouble(values[5]));
+   static JsonProductParser newJsonParser(int bufferSize) {
+      return new JsonProductParser(productTypes.getCreators(), productTypes::createProduct, bufferSize);
    }
 
    /**
-    * Creates a Wine product.
+    * Creates a CSV parser for the registered product types.
     *
-    * @param values     The product details as a string array.
-    * @param expiryDate The expiry date of the product.
-    * @return A new Wine product.
+    * @param windowSize The number of bytes the parser maps at once.
+    * @return A new parser.
     */
-   private static Product createWine(String[] values, LocalDate expiryDate) {
-      return new Wine(values[1], values[2], Integer.parseInt(values[3]), expiryDate, Double.parseDouble(values[5]));
+   static CsvProductParser newCsvParser(int windowSize) {
+      return new CsvProductParser(productTypes.getCreators(), productTypes::createProduct, windowSize);
    }
 
    /**
-    * Creates a Meat product.
+    * Imports products from an SQL database table.
     *
-    * @param values     The product details as a string array.
-    * @param expiryDate The expiry date of the product.
-    * @return A new Meat product.
+    * @param connection The SQL database connection.
+    * @param tableName  The name of the table to import products from.
+    * @return A list of products created from the SQL table data.
     */
-   private static Product createMeat(String[] values, LocalDate expiryDate) {
-      // Assuming meatType and isVacuumPacked values are present in the
-      // CSV/JSON/XML/SQL data
-      MeatTypeEnum meatType = MeatTypeEnum.valueOf(values[6].toUpperCase()); // Should always be upper case. Example:
-                                                                             // "BEEF"
-      boolean isVacuumPacked = Boolean.parseBoolean(values[7]); // Example: "true"
-      return new Meat(values[1], values[2], Integer.parseInt(values[3]), expiryDate, Double.parseDouble(values[5]),
-            meatType, isVacuumPacked);
+   public static List<Product> importFromSQL(Connection connection, String tableName) {
+      return importFromSQL(connection, tableName, SqlProductReader.DEFAULT_FETCH_SIZE);
    }
 
    /**
-    * Creates a CommonProduct (default product type).
+    * Imports products from an SQL database table, fetching the given number of
+    * rows from the database at once. See {@link SqlProductReader} for the
+    * columns that are read.
     *
-    * @param values     The product details as a string array.
-    * @param expiryDate The expiry date of the product.
-    * @return A new CommonProduct.
+    * @param connection The SQL database connection.
+    * @param tableName  The name of the table to import products from.
+    * @param fetchSize  The number of rows the driver should fetch at once.
+    * @return A list of products created from the SQL table data.
     */
-   private static Product createCommonProduct(String[] values, LocalDate expiryDate) {
-      return new CommonProduct(values[1], values[2], Integer.parseInt(values[3]), expiryDate,
-            Double.parseDouble(values[5]));
+   public static List<Product> importFromSQL(Connection connection, String tableName, int fetchSize) {
+      List<Product> products = new ArrayList<>();
+
+      try (SqlProductReader reader = newSqlReader(connection, tableName, fetchSize)) {
+         while (reader.next(products::add)) {
+            // Every call reads rows up to the next product
+         }
+      } catch (SQLException e) {
+         e.printStackTrace();
+      }
+
+      return products;
    }
 
    /**
-    * Parses a date string in the format "yyyy-MM-dd" into a LocalDate object. If
-    * the string is null it will return a null value.
+    * Streams products from an SQL database table. The rows are read while the
+    * stream is consumed, so only the products still referenced by the pipeline
+    * are kept in memory, and the query stops when the stream stops early. The
+    * stream has to be closed to release the statement; the connection stays open.
+    * If the rows cannot be read, an {@link IllegalStateException} with the
+    * {@link SQLException} as the cause is thrown, when the stream is created or
+    * while it is consumed.
     *
-    * @param dateStr The date string to parse.
-    * @return The parsed LocalDate object.
+    * @param connection The SQL database connection.
+    * @param tableName  The name of the table to import products from.
+    * @return A stream of the products created from the SQL table data.
     */
-   private static LocalDate getDate(String dateStr) {
+   public static Stream<Product> streamFromSQL(Connection connection, String tableName) {
+      return streamFromSQL(connection, tableName, SqlProductReader.DEFAULT_FETCH_SIZE);
+   }
 
-      if (dateStr.equals("null"))
-         return null;
+   /**
+    * Streams products from an SQL database table like
+    * {@link #streamFromSQL(Connection, String)}, fetching the given number of
+    * rows from the database at once.
+    *
+    * @param connection The SQL database connection.
+    * @param tableName  The name of the table to import products from.
+    * @param fetchSize  The number of rows the driver should fetch at once.
+    * @return A stream of the products created from the SQL table data.
+    */
+   public static Stream<Product> streamFromSQL(Connection connection, String tableName, int fetchSize) {
+      SqlProductReader reader;
+      try {
+         reader = newSqlReader(connection, tableName, fetchSize);
+      } catch (SQLException e) {
+         throw new IllegalStateException("Could not read the products of table " + tableName + ".", e);
+      }
 
-      DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-      return LocalDate.parse(dateStr, formatter);
+      Spliterator<Product> products = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+            Spliterator.ORDERED | Spliterator.NONNULL) {
+         @Override
+         public boolean tryAdvance(Consumer<? super Product> action) {
+            try {
+               return reader.next(action);
+            } catch (SQLException e) {
+               throw new IllegalStateException("Could not read the products of table " + tableName + ".", e);
+            }
+         }
+      };
+      return StreamSupport.stream(products, false).onClose(() -> {
+         try {
+            reader.close();
+         } catch (SQLException e) {
+            throw new IllegalStateException("Could not close the query of table " + tableName + ".", e);
+         }
+      });
+   }
+
+   private static SqlProductReader newSqlReader(Connection connection, String tableName, int fetchSize)
+         throws SQLException {
+      return new SqlProductReader(connection, tableName, fetchSize, ProductImporter::createProduct);
+   }
+
+   /**
+    * Creates a product instance based on the type of product, or a product of
+    * the default type if the type is unknown. New product types can be added by
+    * a {@link ProductTypeProvider}.
+    *
+    * @param fields The product details, including the type of product to create
+    *               (e.g., "Cheese", "Wine", "Meat").
+    * @return The created product instance.
+    */
+   static Product createProduct(ProductFields fields) {
+      return productTypes.createProduct(fields);
    }
 }
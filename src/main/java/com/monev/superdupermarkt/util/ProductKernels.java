@@ -0,0 +1,92 @@
+package com.monev.superdupermarkt.util;
+
+/**
+ * Batch versions of the price and quality rules that work on whole columns of
+ * primitive values, like those of a {@link com.monev.superdupermarkt.ProductTable}.
+ * The rows to work on are given by an array of row numbers, so a kernel can run
+ * over the rows of a single product type.
+ * <p>
+ * The default kernels use the Vector API of the module
+ * {@code jdk.incubator.vector} if the application was started with
+ * {@code --add-modules jdk.incubator.vector}, and fall back to scalar loops
+ * otherwise. Both give exactly the same results as the methods of the product
+ * types, down to the rounding of every value.
+ */
+public abstract class ProductKernels {
+
+   private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+   ProductKernels() {
+   }
+
+   /**
+    * Returns the kernels for this JVM: vectorized if the Vector API module is
+    * loaded, scalar otherwise. The scalar kernels can be forced with the property
+    * {@code superdupermarkt.kernels.scalar}.
+    *
+    * @return The default kernels.
+    */
+   public static ProductKernels getDefault() {
+      return DefaultKernels.INSTANCE;
+   }
+
+   // Loaded on first use, so the module is only looked up once
+   private static class DefaultKernels {
+      private static final ProductKernels INSTANCE = load();
+
+      private static ProductKernels load() {
+         if (!Boolean.getBoolean("superdupermarkt.kernels.scalar")
+               && ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+               // Loaded by name, so the Vector API classes are only linked when the module is present
+               return (ProductKernels) Class.forName(ProductKernels.class.getPackageName() + ".VectorProductKernels")
+                     .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+               // Fall back to the scalar kernels
+            }
+         }
+         return new ScalarProductKernels();
+      }
+   }
+
+   /**
+    * @return True if the kernels use the Vector API.
+    */
+   public abstract boolean isVectorized();
+
+   /**
+    * Calculates the daily prices from the default prices and the qualities, like
+    * {@link com.monev.superdupermarkt.Product#dailyPrice(double, double)}.
+    *
+    * @param defaultPrices The default prices by row.
+    * @param qualities     The qualities by row.
+    * @param rows          The row numbers to calculate the prices for.
+    * @param count         The number of row numbers to use.
+    * @param prices        Receives the daily prices by row.
+    */
+   public abstract void dailyPrices(double[] defaultPrices, double[] qualities, int[] rows, int count,
+         double[] prices);
+
+   /**
+    * Applies the given number of daily updates of cheese to the qualities, like
+    * {@link com.monev.superdupermarkt.types.Cheese#projectQuality(double, long)}.
+    *
+    * @param qualities The qualities by row, changed in place.
+    * @param rows      The row numbers of the cheese products.
+    * @param count     The number of row numbers to use.
+    * @param days      The number of daily updates.
+    */
+   public abstract void decayCheese(double[] qualities, int[] rows, int count, long days);
+
+   /**
+    * Applies the given number of daily updates of common products to the
+    * qualities, like
+    * {@link com.monev.superdupermarkt.types.CommonProduct#projectQuality(double, long)}.
+    *
+    * @param qualities The qualities by row, changed in place.
+    * @param rows      The row numbers of the common products.
+    * @param count     The number of row numbers to use.
+    * @param days      The number of daily updates.
+    */
+   public abstract void decayCommonProducts(double[] qualities, int[] rows, int count, long days);
+}
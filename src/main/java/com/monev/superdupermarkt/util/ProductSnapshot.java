@@ -0,0 +1,418 @@
+package com.monev.superdupermarkt.util;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.Wine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Writes and reads the whole inventory as a compact binary snapshot, so the
+ * inventory can be restored on startup without importing it again. The file
+ * starts with the magic number {@link #MAGIC}, the format {@link #VERSION}, the
+ * number of products and the number of strings, followed by
+ * <ul>
+ * <li>the string table: every distinct ID, name and meat type once, as the
+ * length and the UTF-8 bytes,</li>
+ * <li>one record per product: the type tag, the indexes of the ID and the name
+ * in the string table, the quality and the default price as doubles, the expiry
+ * date as int epoch day and the expired flag as a byte. Meat records also hold
+ * the index of the meat type, the vacuum packed flag and the starting
+ * quality.</li>
+ * </ul>
+ * Strings that are used by many products, such as names, are stored once and
+ * restored as a single shared instance. The file is written sequentially to a
+ * temporary file that replaces the snapshot once it is complete, and is read
+ * through memory mapped windows. The products are rebuilt with the restore
+ * methods of their types, so they are not validated again.
+ */
+public class ProductSnapshot {
+
+   public static final int MAGIC = 0x53444d53; // "SDMS"
+   public static final int VERSION = 1;
+
+   public static final byte COMMON_PRODUCT = 0;
+   public static final byte CHEESE = 1;
+   public static final byte WINE = 2;
+   public static final byte MEAT = 3;
+
+   // Returned for product classes without a record layout
+   private static final byte NO_TAG = -1;
+   // Stored instead of a string index for missing strings
+   private static final int NO_STRING = -1;
+   // Stored instead of the epoch day for products without an expiry date
+   private static final int NO_EXPIRY_DATE = Integer.MIN_VALUE;
+
+   // Magic number and version, followed by the encoded products
+   private static final int HEADER_SIZE = 8;
+   // Tag, ID, name, quality, price, expiry date and expired flag
+   private static final int RECORD_SIZE = 1 + 4 + 4 + 8 + 8 + 4 + 1;
+   // Meat type, vacuum packed flag and starting quality
+   private static final int MEAT_FIELDS_SIZE = 4 + 1 + 8;
+   private static final int BUFFER_SIZE = 1 << 20;
+   // Strings are written in parts of this size, so they fit in any buffer
+   private static final int STRING_CHUNK_SIZE = 4096;
+   // Bytes mapped at once when a snapshot is read
+   static final int DEFAULT_WINDOW_SIZE = 1 << 28;
+
+   private ProductSnapshot() {
+   }
+
+   /**
+    * Writes a snapshot of the products. An existing snapshot is only replaced
+    * once the new one is completely written.
+    *
+    * @param file     The snapshot file.
+    * @param products The products to write. They are iterated twice.
+    * @throws IOException If the file cannot be written.
+    */
+   public static void write(Path file, Iterable<? extends Product> products) throws IOException {
+      Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+      try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+         ChannelOutput out = new ChannelOutput(channel);
+         out.reserve(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+         writeProducts(out, products);
+         out.flush();
+         channel.force(false);
+      }
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+   }
+
+   /**
+    * Reads all products of a snapshot.
+    *
+    * @param file The snapshot file.
+    * @return The products in the order they were written.
+    * @throws IOException If the file cannot be read or is not a valid snapshot.
+    */
+   public static List<Product> read(Path file) throws IOException {
+      List<Product> products = new ArrayList<>();
+      read(file, products::add);
+      return products;
+   }
+
+   /**
+    * Reads all products of a snapshot and passes them to the consumer.
+    *
+    * @param file     The snapshot file.
+    * @param consumer Receives the products in the order they were written.
+    * @throws IOException If the file cannot be read or is not a valid snapshot.
+    */
+   public static void read(Path file, Consumer<? super Product> consumer) throws IOException {
+      read(file, consumer, DEFAULT_WINDOW_SIZE);
+   }
+
+   /**
+    * Reads all products of a snapshot, mapping the given number of bytes at once.
+    */
+   static void read(Path file, Consumer<? super Product> consumer, int windowSize) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         MappedInput in = new MappedInput(channel, windowSize);
+         ByteBuffer header = in.require(HEADER_SIZE);
+         if (header.getInt() != MAGIC) {
+            throw new IOException("The file is not an inventory snapshot: " + file);
+         }
+         int version = header.getInt();
+         if (version != VERSION) {
+            throw new IOException("Unsupported inventory snapshot version: " + version);
+         }
+         readProducts(in, consumer);
+      }
+   }
+
+   /**
+    * Encodes the products as the number of products and strings, the string
+    * table and the product records.
+    *
+    * @param out      Receives the encoded products.
+    * @param products The products to write. They are iterated twice.
+    * @throws IOException If the products cannot be written.
+    */
+   static void writeProducts(Output out, Iterable<? extends Product> products) throws IOException {
+      Map<String, Integer> stringIndexes = new HashMap<>();
+      List<String> strings = new ArrayList<>();
+      int productCount = 0;
+      for (Product product : products) {
+         addString(product.getId(), stringIndexes, strings);
+         addString(product.getName(), stringIndexes, strings);
+         if (getTag(product) == MEAT) {
+            addString(((Meat) product).getMeatType().name(), stringIndexes, strings);
+         }
+         productCount++;
+      }
+
+      out.reserve(8).putInt(productCount).putInt(strings.size());
+      for (String string : strings) {
+         byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+         out.reserve(4).putInt(bytes.length);
+         for (int offset = 0; offset < bytes.length; offset += STRING_CHUNK_SIZE) {
+            int length = Math.min(STRING_CHUNK_SIZE, bytes.length - offset);
+            out.reserve(length).put(bytes, offset, length);
+         }
+      }
+      for (Product product : products) {
+         writeRecord(out.reserve(RECORD_SIZE + MEAT_FIELDS_SIZE), product, stringIndexes);
+      }
+   }
+
+   /**
+    * Decodes products written by {@link #writeProducts(Output, Iterable)}.
+    *
+    * @param in       The encoded products.
+    * @param consumer Receives the products in the order they were written.
+    * @throws IOException If the input cannot be read or is corrupt.
+    */
+   static void readProducts(Input in, Consumer<? super Product> consumer) throws IOException {
+      ByteBuffer counts = in.require(8);
+      int productCount = counts.getInt();
+      int stringCount = counts.getInt();
+      if (productCount < 0 || stringCount < 0) {
+         throw new IOException("The inventory snapshot is corrupt.");
+      }
+
+      String[] strings = new String[stringCount];
+      byte[] bytes = new byte[256];
+      for (int i = 0; i < stringCount; i++) {
+         int length = in.require(4).getInt();
+         if (length < 0) {
+            throw new IOException("The inventory snapshot is corrupt.");
+         }
+         if (length > bytes.length) {
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+         }
+         in.require(length).get(bytes, 0, length);
+         strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+      }
+
+      for (int i = 0; i < productCount; i++) {
+         Product product;
+         try {
+            product = readRecord(in, strings);
+         } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("The inventory snapshot is corrupt.", e);
+         }
+         consumer.accept(product);
+      }
+   }
+
+   private static void writeRecord(ByteBuffer buffer, Product product, Map<String, Integer> stringIndexes) {
+      byte tag = getTag(product);
+      buffer.put(tag);
+      buffer.putInt(indexOf(product.getId(), stringIndexes));
+      buffer.putInt(indexOf(product.getName(), stringIndexes));
+      buffer.putDouble(product.getQuality());
+      buffer.putDouble(product.getDefaultPrice());
+      LocalDate expiryDate = product.getExpiryDate();
+      buffer.putInt(expiryDate == null ? NO_EXPIRY_DATE : (int) expiryDate.toEpochDay());
+      buffer.put((byte) (product.isExpired() ? 1 : 0));
+
+      if (tag == MEAT) {
+         Meat meat = (Meat) product;
+         buffer.putInt(indexOf(meat.getMeatType().name(), stringIndexes));
+         buffer.put((byte) (meat.isVacuumPacked() ? 1 : 0));
+         buffer.putDouble(meat.getStartingQuality());
+      }
+   }
+
+   private static Product readRecord(Input in, String[] strings) throws IOException {
+      ByteBuffer record = in.require(RECORD_SIZE);
+      byte tag = record.get();
+      String id = stringAt(strings, record.getInt());
+      String name = stringAt(strings, record.getInt());
+      double quality = record.getDouble();
+      double defaultPrice = record.getDouble();
+      int epochDay = record.getInt();
+      LocalDate expiryDate = epochDay == NO_EXPIRY_DATE ? null : LocalDate.ofEpochDay(epochDay);
+      boolean expired = record.get() != 0;
+
+      Product product;
+      switch (tag) {
+      case COMMON_PRODUCT:
+         product = CommonProduct.restore(id, name, quality, expiryDate, defaultPrice);
+         break;
+      case CHEESE:
+         product = Cheese.restore(id, name, quality, expiryDate, defaultPrice);
+         break;
+      case WINE:
+         product = Wine.restore(id, name, quality, expiryDate, defaultPrice);
+         break;
+      case MEAT:
+         ByteBuffer meatFields = in.require(MEAT_FIELDS_SIZE);
+         MeatTypeEnum meatType = MeatTypeEnum.valueOf(stringAt(strings, meatFields.getInt()));
+         boolean isVacuumPacked = meatFields.get() != 0;
+         double startingQuality = meatFields.getDouble();
+         product = Meat.restore(id, name, quality, expiryDate, defaultPrice, meatType, isVacuumPacked,
+               startingQuality);
+         break;
+      default:
+         throw new IOException("Unknown product type in the inventory snapshot: " + tag);
+      }
+      product.setIsExpired(expired);
+      return product;
+   }
+
+   /**
+    * Checks if products of a class can be written to a snapshot, and so to the
+    * write-ahead log. Only the product types of this application have a record
+    * layout; products of other types contributed by a
+    * {@link ProductTypeProvider} cannot be written.
+    *
+    * @param productClass The class of the products.
+    * @return True if the products can be written.
+    */
+   public static boolean canWrite(Class<? extends Product> productClass) {
+      return tagOf(productClass) != NO_TAG;
+   }
+
+   private static byte getTag(Product product) {
+      byte tag = tagOf(product.getClass());
+      if (tag == NO_TAG) {
+         throw new IllegalArgumentException(
+               "Products of type " + product.getClass().getSimpleName() + " cannot be written to a snapshot.");
+      }
+      return tag;
+   }
+
+   private static byte tagOf(Class<? extends Product> type) {
+      if (type == CommonProduct.class) {
+         return COMMON_PRODUCT;
+      } else if (type == Cheese.class) {
+         return CHEESE;
+      } else if (type == Wine.class) {
+         return WINE;
+      } else if (type == Meat.class) {
+         return MEAT;
+      }
+      return NO_TAG;
+   }
+
+   private static void addString(String string, Map<String, Integer> stringIndexes, List<String> strings) {
+      if (string != null && stringIndexes.putIfAbsent(string, strings.size()) == null) {
+         strings.add(string);
+      }
+   }
+
+   private static int indexOf(String string, Map<String, Integer> stringIndexes) {
+      return string == null ? NO_STRING : stringIndexes.get(string);
+   }
+
+   private static String stringAt(String[] strings, int index) {
+      return index == NO_STRING ? null : strings[index];
+   }
+
+   /**
+    * Target of encoded products.
+    */
+   interface Output {
+
+      /**
+       * Makes room for the given number of bytes.
+       *
+       * @return A buffer with at least the given number of bytes remaining.
+       */
+      ByteBuffer reserve(int bytes) throws IOException;
+   }
+
+   /**
+    * Source of encoded products.
+    */
+   interface Input {
+
+      /**
+       * Makes sure the given number of bytes can be read.
+       *
+       * @return A buffer with at least the given number of bytes remaining,
+       *         positioned at the next byte.
+       * @throws IOException If the input ends before.
+       */
+      ByteBuffer require(int bytes) throws IOException;
+   }
+
+   /**
+    * Writes to a file channel through a buffer that is written whenever it is
+    * full.
+    */
+   private static class ChannelOutput implements Output {
+
+      private final FileChannel channel;
+      private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+      ChannelOutput(FileChannel channel) {
+         this.channel = channel;
+      }
+
+      @Override
+      public ByteBuffer reserve(int bytes) throws IOException {
+         if (buffer.remaining() < bytes) {
+            flush();
+         }
+         return buffer;
+      }
+
+      void flush() throws IOException {
+         buffer.flip();
+         while (buffer.hasRemaining()) {
+            channel.write(buffer);
+         }
+         buffer.clear();
+      }
+   }
+
+   /**
+    * Reads a file through memory mapped windows that are moved along as the file
+    * is read.
+    */
+   private static class MappedInput implements Input {
+
+      private final FileChannel channel;
+      private final long size;
+      private final int windowSize;
+      private long windowStart;
+      private MappedByteBuffer window;
+
+      MappedInput(FileChannel channel, int windowSize) throws IOException {
+         this.channel = channel;
+         this.size = channel.size();
+         this.windowSize = windowSize;
+         map(0);
+      }
+
+      /**
+       * Makes sure the next bytes are in the current window.
+       *
+       * @return The window, positioned at the next byte.
+       */
+      @Override
+      public ByteBuffer require(int bytes) throws IOException {
+         if (window.remaining() < bytes) {
+            map(windowStart + window.position());
+            if (window.remaining() < bytes) {
+               throw new IOException("The inventory snapshot ends in the middle of a record.");
+            }
+         }
+         return window;
+      }
+
+      private void map(long position) throws IOException {
+         windowStart = position;
+         window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+      }
+   }
+}
@@ -0,0 +1,43 @@
+package com.monev.superdupermarkt.util;
+
+import com.monev.superdupermarkt.Product;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Describes a product type of the inventory.
+ *
+ * @param name         The name of the type in imported data, e.g.
+ *                     "CommonProduct".
+ * @param displayName  The name of the type shown to the user, e.g. "Common
+ *                     Product".
+ * @param productClass The class of the created products.
+ * @param schema       The fields the creator reads, in the order they are
+ *                     entered.
+ * @param creator      Creates a product from the fields of the schema.
+ */
+public record ProductType(String name, String displayName, Class<? extends Product> productClass,
+      List<ProductField> schema, Function<ProductFields, Product> creator) {
+
+   /**
+    * The fields of every product type.
+    */
+   public static final List<ProductField> COMMON_SCHEMA = List.of(ProductField.ID, ProductField.NAME,
+         ProductField.QUALITY, ProductField.EXPIRY_DATE, ProductField.DEFAULT_PRICE);
+
+   public ProductType {
+      schema = List.copyOf(schema);
+   }
+
+   /**
+    * Creates a product from the fields.
+    *
+    * @param fields The values of the fields of the schema.
+    * @return The created product.
+    * @throws IllegalArgumentException If the fields are not valid for the type.
+    */
+   public Product create(ProductFields fields) {
+      return creator.apply(fields);
+   }
+}
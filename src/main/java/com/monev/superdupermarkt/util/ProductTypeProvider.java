@@ -0,0 +1,17 @@
+package com.monev.superdupermarkt.util;
+
+import java.util.List;
+
+/**
+ * Service that contributes product types to the {@link ProductTypeRegistry}.
+ * Implementations are found with {@link java.util.ServiceLoader}, so they are
+ * listed in {@code META-INF/services/com.monev.superdupermarkt.util.ProductTypeProvider}
+ * of their JAR or classes directory.
+ */
+public interface ProductTypeProvider {
+
+   /**
+    * @return The product types in the order they are offered to the user.
+    */
+   List<ProductType> getProductTypes();
+}
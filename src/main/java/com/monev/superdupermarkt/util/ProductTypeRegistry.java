@@ -0,0 +1,129 @@
+package com.monev.superdupermarkt.util;
+
+import com.monev.superdupermarkt.Product;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.function.Function;
+
+/**
+ * Holds all product types of the inventory by their names. The default
+ * registry is built once from the {@link ProductTypeProvider} services on the
+ * class path, which works the same for classes directories and JARs, and is
+ * used for entering products as well as for importing them.
+ */
+public class ProductTypeRegistry {
+
+   /**
+    * The name of the type used for imported products with an unknown type.
+    */
+   public static final String DEFAULT_TYPE_NAME = "CommonProduct";
+
+   private final Map<String, ProductType> typesByName = new LinkedHashMap<>();
+   private final Map<Class<? extends Product>, ProductType> typesByClass = new HashMap<>();
+   private final List<ProductType> types;
+   private final Map<String, Function<ProductFields, Product>> creators = new LinkedHashMap<>();
+
+   /**
+    * Builds the registry from the given providers.
+    *
+    * @param providers The providers of the product types.
+    * @throws IllegalStateException If two types have the same name.
+    */
+   public ProductTypeRegistry(Iterable<? extends ProductTypeProvider> providers) {
+      for (ProductTypeProvider provider : providers) {
+         for (ProductType type : provider.getProductTypes()) {
+            if (typesByName.putIfAbsent(type.name(), type) != null) {
+               throw new IllegalStateException("The product type " + type.name() + " is registered twice.");
+            }
+            typesByClass.putIfAbsent(type.productClass(), type);
+            creators.put(type.name(), type.creator());
+         }
+      }
+      types = Collections.unmodifiableList(new ArrayList<>(typesByName.values()));
+   }
+
+   /**
+    * Returns the registry of all product types on the class path.
+    *
+    * @return The default registry.
+    */
+   public static ProductTypeRegistry getDefault() {
+      return DefaultRegistry.INSTANCE;
+   }
+
+   // Loaded on first use, so the services are only looked up once
+   private static class DefaultRegistry {
+      private static final ProductTypeRegistry INSTANCE = new ProductTypeRegistry(
+            ServiceLoader.load(ProductTypeProvider.class, ProductTypeRegistry.class.getClassLoader()));
+   }
+
+   /**
+    * Lists all product types in the order of their providers.
+    *
+    * @return An unmodifiable list of the types.
+    */
+   public List<ProductType> getTypes() {
+      return types;
+   }
+
+   /**
+    * Finds a product type by its name.
+    *
+    * @param name The name of the type, e.g. "Cheese".
+    * @return The type or null if there is no type with the name.
+    */
+   public ProductType get(String name) {
+      return typesByName.get(name);
+   }
+
+   /**
+    * Finds the product type that creates products of the given class.
+    *
+    * @param productClass The class of the products.
+    * @return The first registered type with the class or null if there is none.
+    */
+   public ProductType getType(Class<? extends Product> productClass) {
+      return typesByClass.get(productClass);
+   }
+
+   /**
+    * @return The type for imported products with an unknown type, or null if it
+    *         is not registered.
+    */
+   public ProductType getDefaultType() {
+      return typesByName.get(DEFAULT_TYPE_NAME);
+   }
+
+   /**
+    * @return The creators of the types by the type names, for the importers.
+    */
+   Map<String, Function<ProductFields, Product>> getCreators() {
+      return Collections.unmodifiableMap(creators);
+   }
+
+   /**
+    * Creates a product of the type named in the fields, or of the default type
+    * if there is no type with the name.
+    *
+    * @param fields The product details, including the name of the type.
+    * @return The created product.
+    * @throws IllegalArgumentException If the type is unknown and there is no
+    *                                  default type, or the fields are invalid.
+    */
+   public Product createProduct(ProductFields fields) {
+      ProductType type = fields.getType() != null ? typesByName.get(fields.getType()) : null;
+      if (type == null) {
+         type = getDefaultType();
+         if (type == null) {
+            throw new IllegalArgumentException("Unknown product type: " + fields.getType());
+         }
+      }
+      return type.create(fields);
+   }
+}
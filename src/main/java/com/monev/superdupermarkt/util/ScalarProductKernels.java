@@ -0,0 +1,40 @@
+package com.monev.superdupermarkt.util;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+
+/**
+ * Kernels that apply the rules of the product types row by row.
+ */
+class ScalarProductKernels extends ProductKernels {
+
+   @Override
+   public boolean isVectorized() {
+      return false;
+   }
+
+   @Override
+   public void dailyPrices(double[] defaultPrices, double[] qualities, int[] rows, int count, double[] prices) {
+      for (int i = 0; i < count; i++) {
+         int row = rows[i];
+         prices[row] = Product.dailyPrice(defaultPrices[row], qualities[row]);
+      }
+   }
+
+   @Override
+   public void decayCheese(double[] qualities, int[] rows, int count, long days) {
+      for (int i = 0; i < count; i++) {
+         int row = rows[i];
+         qualities[row] = Cheese.projectQuality(qualities[row], days);
+      }
+   }
+
+   @Override
+   public void decayCommonProducts(double[] qualities, int[] rows, int count, long days) {
+      for (int i = 0; i < count; i++) {
+         int row = rows[i];
+         qualities[row] = CommonProduct.projectQuality(qualities[row], days);
+      }
+   }
+}
@@ -0,0 +1,222 @@
+package com.monev.superdupermarkt.util;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductRepository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Keeps an inventory in sync with an SQL table by reading only the rows that
+ * changed since the last sync. The table needs a version column that is set to
+ * a larger value on every insert and update, e.g. an updated-at timestamp or a
+ * number from a sequence. The largest version that was read is kept as the
+ * watermark, and the next sync reads the rows from the watermark on, in the
+ * order of their version.
+ * <p>
+ * Changed rows are added to the inventory or replace the product with the same
+ * ID. Deleted products are expected to be kept in the table as tombstones,
+ * rows with the deleted column set to true, and are removed from the
+ * inventory. The rows with the watermark version itself are read again by the
+ * next sync, so rows that were changed with the same timestamp after a sync
+ * are not missed. The IDs of the rows with the watermark version that were
+ * already applied are kept, and these rows are skipped.
+ * <p>
+ * A row that cannot be turned into a product is reported, and the sync stops
+ * before it: the rows before it are applied, and the next sync starts with
+ * reading it again. So no change after an unreadable row is lost, but the
+ * inventory is not synced beyond it until the row is fixed.
+ * <p>
+ * The watermark and its IDs can be stored with {@link SqlDeltaSyncStore} and
+ * restored with {@link #setWatermark(Object, Collection)}, so a sync continues
+ * where it stopped after a restart.
+ */
+public class SqlDeltaSync {
+
+   /**
+    * The changes of a sync.
+    *
+    * @param upserted The number of products that were added or replaced.
+    * @param removed  The number of products that were removed.
+    */
+   public record Result(int upserted, int removed) {
+   }
+
+   private final String tableName;
+   private final String versionColumn;
+   private final String deletedColumn;
+   private final int fetchSize;
+   private Consumer<ImportFailure> failureHandler = ImportFailure::report;
+   private Object watermark;
+   // IDs of the applied rows with the watermark version
+   private Set<String> watermarkIds = new HashSet<>();
+
+   /**
+    * Creates a sync that starts with reading the whole table.
+    *
+    * @param tableName     The name of the table to sync products from.
+    * @param versionColumn The column that is increased on every change of a row.
+    * @param deletedColumn The boolean column that marks deleted products, or null
+    *                      if products are never deleted.
+    */
+   public SqlDeltaSync(String tableName, String versionColumn, String deletedColumn) {
+      this(tableName, versionColumn, deletedColumn, SqlProductReader.DEFAULT_FETCH_SIZE);
+   }
+
+   /**
+    * Creates a sync that starts with reading the whole table.
+    *
+    * @param tableName     The name of the table to sync products from.
+    * @param versionColumn The column that is increased on every change of a row.
+    * @param deletedColumn The boolean column that marks deleted products, or null
+    *                      if products are never deleted.
+    * @param fetchSize     The number of rows the driver should fetch at once.
+    */
+   public SqlDeltaSync(String tableName, String versionColumn, String deletedColumn, int fetchSize) {
+      this.tableName = tableName;
+      this.versionColumn = versionColumn;
+      this.deletedColumn = deletedColumn;
+      this.fetchSize = fetchSize;
+   }
+
+   public String getTableName() {
+      return tableName;
+   }
+
+   public String getVersionColumn() {
+      return versionColumn;
+   }
+
+   /**
+    * @return The column that marks deleted products, or null if products are
+    *         never deleted.
+    */
+   public String getDeletedColumn() {
+      return deletedColumn;
+   }
+
+   /**
+    * Returns the largest version that was read so far.
+    *
+    * @return The watermark or null if nothing was read yet.
+    */
+   public Object getWatermark() {
+      return watermark;
+   }
+
+   /**
+    * Sets the version to continue from, e.g. a watermark that was stored after an
+    * earlier run.
+    *
+    * @param watermark The watermark or null to read the whole table.
+    */
+   public void setWatermark(Object watermark) {
+      setWatermark(watermark, List.of());
+   }
+
+   /**
+    * Returns the IDs of the rows with the watermark version that were already
+    * applied. The next sync skips these rows.
+    *
+    * @return An unmodifiable view of the IDs.
+    */
+   public Set<String> getWatermarkIds() {
+      return Collections.unmodifiableSet(watermarkIds);
+   }
+
+   /**
+    * Sets the version to continue from and the IDs of the rows with this version
+    * that were already applied, e.g. as stored after an earlier run.
+    *
+    * @param watermark    The watermark or null to read the whole table.
+    * @param watermarkIds The IDs of the applied rows with the watermark version.
+    */
+   public void setWatermark(Object watermark, Collection<String> watermarkIds) {
+      this.watermark = watermark;
+      this.watermarkIds = new HashSet<>(watermarkIds);
+   }
+
+   /**
+    * Sets where rows that cannot be turned into a product are reported to. They
+    * are printed to {@link System#err} by default.
+    *
+    * @param failureHandler Receives the failures.
+    */
+   void setFailureHandler(Consumer<ImportFailure> failureHandler) {
+      this.failureHandler = failureHandler;
+   }
+
+   /**
+    * Reads the rows that changed since the last sync and applies them to the
+    * inventory as a single change, so readers of the inventory see either none
+    * or all of the changes. At a row that cannot be turned into a product, the
+    * failure is reported and the sync stops. If reading fails, no change is
+    * applied and the watermark stays the same.
+    *
+    * @param connection The SQL database connection.
+    * @param products   The inventory to apply the changes to.
+    * @return The number of changed products.
+    * @throws SQLException If the rows cannot be read.
+    */
+   public Result sync(Connection connection, ProductRepository products) throws SQLException {
+      List<String> extraColumns = deletedColumn == null ? List.of(versionColumn)
+            : List.of(versionColumn, deletedColumn);
+      String clause = (watermark == null ? "" : "WHERE " + versionColumn + " >= ? ") + "ORDER BY " + versionColumn;
+      List<Object> parameters = watermark == null ? List.of() : List.of(watermark);
+
+      List<Product> upserted = new ArrayList<>();
+      List<String> deleted = new ArrayList<>();
+      Object version = watermark;
+      Set<String> versionIds = new HashSet<>(watermarkIds);
+      try (SqlProductReader reader = new SqlProductReader(connection, tableName, extraColumns, clause, parameters,
+            fetchSize, ProductImporter::createProduct)) {
+         reader.setFailureHandler(failureHandler);
+         while (reader.nextRow()) {
+            Object rowVersion = reader.getColumn(0);
+            String id = reader.getId();
+            if (rowVersion != null && rowVersion.equals(watermark) && watermarkIds.contains(id)) {
+               // Already applied by the last sync
+               continue;
+            }
+            if (deletedColumn != null && isTrue(reader.getColumn(1))) {
+               deleted.add(id);
+            } else {
+               Product product = reader.readProduct();
+               if (product == null) {
+                  // Keep the watermark before the row, so the next sync reads it again
+                  break;
+               }
+               upserted.add(product);
+            }
+
+            // The rows are ordered by their version, so the last one is the largest
+            if (rowVersion != null) {
+               if (!rowVersion.equals(version)) {
+                  version = rowVersion;
+                  versionIds.clear();
+               }
+               versionIds.add(id);
+            }
+         }
+      }
+
+      int removed = products.applyChanges(upserted, deleted);
+      watermark = version;
+      watermarkIds = versionIds;
+      return new Result(upserted.size(), removed);
+   }
+
+   private static boolean isTrue(Object value) {
+      if (value instanceof Boolean) {
+         return (Boolean) value;
+      }
+      return value instanceof Number && ((Number) value).intValue() != 0;
+   }
+}
@@ -0,0 +1,221 @@
+package com.monev.superdupermarkt.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the state of {@link SqlDeltaSync}s in a file, so the syncs continue
+ * from their watermark after a restart instead of reading the whole table
+ * again. The file starts with the magic number {@link #MAGIC}, the format
+ * {@link #VERSION} and the number of syncs, followed by one entry per sync: its
+ * key, the table name, the version column, the deleted column, the watermark
+ * and the IDs of the applied rows with the watermark version.
+ * <p>
+ * The watermark is stored with its type, so it is restored as the same value
+ * the driver returns for the version column. Numbers, strings, dates and
+ * timestamps are supported. The file is written to a temporary file that
+ * replaces it once it is complete.
+ */
+public class SqlDeltaSyncStore {
+
+   public static final int MAGIC = 0x53444d44; // "SDMD"
+   public static final int VERSION = 1;
+
+   // Type tags of the watermark
+   private static final byte NONE = 0;
+   private static final byte INTEGER = 1;
+   private static final byte LONG = 2;
+   private static final byte DECIMAL = 3;
+   private static final byte STRING = 4;
+   private static final byte DATE = 5;
+   private static final byte TIMESTAMP = 6;
+   private static final byte LOCAL_DATE = 7;
+   private static final byte LOCAL_DATE_TIME = 8;
+   private static final byte OFFSET_DATE_TIME = 9;
+
+   private SqlDeltaSyncStore() {
+   }
+
+   /**
+    * Writes the state of the syncs.
+    *
+    * @param file  The file to write.
+    * @param syncs The syncs by their key.
+    * @throws IOException If the file cannot be written or a watermark has a type
+    *                     that cannot be stored.
+    */
+   public static void write(Path file, Map<String, SqlDeltaSync> syncs) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(bytes)) {
+         out.writeInt(MAGIC);
+         out.writeInt(VERSION);
+         out.writeInt(syncs.size());
+         for (Map.Entry<String, SqlDeltaSync> entry : syncs.entrySet()) {
+            SqlDeltaSync sync = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeUTF(sync.getTableName());
+            out.writeUTF(sync.getVersionColumn());
+            writeOptional(out, sync.getDeletedColumn());
+            writeWatermark(out, sync.getWatermark());
+            out.writeInt(sync.getWatermarkIds().size());
+            for (String id : sync.getWatermarkIds()) {
+               out.writeUTF(id);
+            }
+         }
+      }
+
+      Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+      try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+         ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+         while (buffer.hasRemaining()) {
+            channel.write(buffer);
+         }
+         channel.force(false);
+      }
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+   }
+
+   /**
+    * Reads the syncs of a file written by {@link #write(Path, Map)}, with their
+    * watermarks set.
+    *
+    * @param file The file to read.
+    * @return The syncs by their key, in the order they were written.
+    * @throws IOException If the file cannot be read or is not a valid file.
+    */
+   public static Map<String, SqlDeltaSync> read(Path file) throws IOException {
+      try (InputStream stream = Files.newInputStream(file); DataInputStream in = new DataInputStream(stream)) {
+         if (in.readInt() != MAGIC) {
+            throw new IOException("The file does not hold the state of SQL syncs: " + file);
+         }
+         int version = in.readInt();
+         if (version != VERSION) {
+            throw new IOException("Unsupported SQL sync state version: " + version);
+         }
+         int count = in.readInt();
+         if (count < 0) {
+            throw new IOException("The SQL sync state is corrupt.");
+         }
+
+         Map<String, SqlDeltaSync> syncs = new LinkedHashMap<>();
+         for (int i = 0; i < count; i++) {
+            String key = in.readUTF();
+            SqlDeltaSync sync = new SqlDeltaSync(in.readUTF(), in.readUTF(), readOptional(in));
+            Object watermark = readWatermark(in);
+            int idCount = in.readInt();
+            if (idCount < 0) {
+               throw new IOException("The SQL sync state is corrupt.");
+            }
+            List<String> ids = new ArrayList<>();
+            for (int j = 0; j < idCount; j++) {
+               ids.add(in.readUTF());
+            }
+            sync.setWatermark(watermark, ids);
+            syncs.put(key, sync);
+         }
+         return syncs;
+      } catch (EOFException e) {
+         throw new IOException("The SQL sync state ends unexpectedly.", e);
+      }
+   }
+
+   private static void writeOptional(DataOutputStream out, String value) throws IOException {
+      out.writeBoolean(value != null);
+      if (value != null) {
+         out.writeUTF(value);
+      }
+   }
+
+   private static String readOptional(DataInputStream in) throws IOException {
+      return in.readBoolean() ? in.readUTF() : null;
+   }
+
+   private static void writeWatermark(DataOutputStream out, Object watermark) throws IOException {
+      if (watermark == null) {
+         out.writeByte(NONE);
+      } else if (watermark instanceof Integer) {
+         out.writeByte(INTEGER);
+         out.writeInt((Integer) watermark);
+      } else if (watermark instanceof Long) {
+         out.writeByte(LONG);
+         out.writeLong((Long) watermark);
+      } else if (watermark instanceof BigDecimal) {
+         out.writeByte(DECIMAL);
+         out.writeUTF(watermark.toString());
+      } else if (watermark instanceof String) {
+         out.writeByte(STRING);
+         out.writeUTF((String) watermark);
+      } else if (watermark instanceof Date) {
+         out.writeByte(DATE);
+         out.writeUTF(watermark.toString());
+      } else if (watermark instanceof Timestamp) {
+         out.writeByte(TIMESTAMP);
+         out.writeUTF(watermark.toString());
+      } else if (watermark instanceof LocalDate) {
+         out.writeByte(LOCAL_DATE);
+         out.writeUTF(watermark.toString());
+      } else if (watermark instanceof LocalDateTime) {
+         out.writeByte(LOCAL_DATE_TIME);
+         out.writeUTF(watermark.toString());
+      } else if (watermark instanceof OffsetDateTime) {
+         out.writeByte(OFFSET_DATE_TIME);
+         out.writeUTF(watermark.toString());
+      } else {
+         throw new IOException("Watermarks of type " + watermark.getClass().getName() + " cannot be stored.");
+      }
+   }
+
+   private static Object readWatermark(DataInputStream in) throws IOException {
+      byte type = in.readByte();
+      try {
+         switch (type) {
+         case NONE:
+            return null;
+         case INTEGER:
+            return in.readInt();
+         case LONG:
+            return in.readLong();
+         case DECIMAL:
+            return new BigDecimal(in.readUTF());
+         case STRING:
+            return in.readUTF();
+         case DATE:
+            return Date.valueOf(in.readUTF());
+         case TIMESTAMP:
+            return Timestamp.valueOf(in.readUTF());
+         case LOCAL_DATE:
+            return LocalDate.parse(in.readUTF());
+         case LOCAL_DATE_TIME:
+            return LocalDateTime.parse(in.readUTF());
+         case OFFSET_DATE_TIME:
+            return OffsetDateTime.parse(in.readUTF());
+         default:
+            throw new IOException("Unknown watermark type in the SQL sync state: " + type);
+         }
+      } catch (IllegalArgumentException | DateTimeParseException e) {
+         throw new IOException("The SQL sync state is corrupt.", e);
+      }
+   }
+}
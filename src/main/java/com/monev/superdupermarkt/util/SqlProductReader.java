@@ -0,0 +1,277 @@
+package com.monev.superdupermarkt.util;
+
+import com.monev.superdupermarkt.Product;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Reads products from an SQL table one row at a time. Only the product columns
+ * are selected, through a forward only, read only {@link PreparedStatement}
+ * with the given fetch size, so the driver can stream the rows instead of
+ * loading the whole table. The columns are read by their position with typed
+ * getters. The meat columns are optional and each is only selected if the
+ * table has it. The vacuum packed flag is read from the column
+ * {@code is_vacuum_packed}, or from {@code vacuum_packed} for tables of earlier
+ * exports.
+ * <p>
+ * Rows that cannot be turned into a product are reported as an
+ * {@link ImportFailure} with their row number and skipped. Further
+ * columns and a condition can be added to the query, e.g. to read only the rows
+ * that changed since the last import. The reader has to be closed to release
+ * the statement; the connection stays open.
+ * Some drivers only stream rows inside a transaction, e.g. PostgreSQL needs
+ * auto commit to be turned off.
+ */
+class SqlProductReader implements AutoCloseable {
+
+   // Rows fetched at once, so large tables are read in round trips of this size
+   static final int DEFAULT_FETCH_SIZE = 1000;
+
+   // Columns of the product table, in the order they are selected
+   private static final String[] COLUMNS = { "type", "id", "name", "quality", "expiry_date", "base_price" };
+   static final String MEAT_TYPE_COLUMN = "meat_type";
+   // Names of the vacuum packed column, in the order they are looked for
+   static final List<String> VACUUM_PACKED_COLUMNS = List.of("is_vacuum_packed", "vacuum_packed");
+
+   private static final int TYPE = 1;
+   private static final int ID = 2;
+   private static final int NAME = 3;
+   private static final int QUALITY = 4;
+   private static final int EXPIRY_DATE = 5;
+   private static final int BASE_PRICE = 6;
+
+   private final Function<ProductFields, Product> creator;
+   private final PreparedStatement statement;
+   private final ResultSet rs;
+   // Positions of the optional columns, or 0 if the table does not have them
+   private final int meatTypeColumn;
+   private final int vacuumPackedColumn;
+   private final int firstExtraColumn;
+   private final ProductFields fields = new ProductFields();
+   private Consumer<ImportFailure> failureHandler = ImportFailure::report;
+   private long rowNumber;
+
+   /**
+    * Runs the query for all rows of the table.
+    *
+    * @param connection The SQL database connection.
+    * @param tableName  The name of the table to import products from.
+    * @param fetchSize  The number of rows the driver should fetch at once.
+    * @param creator    Creates the product of a row.
+    * @throws SQLException If the query fails.
+    */
+   SqlProductReader(Connection connection, String tableName, int fetchSize, Function<ProductFields, Product> creator)
+         throws SQLException {
+      this(connection, tableName, List.of(), "", List.of(), fetchSize, creator);
+   }
+
+   /**
+    * Runs the query for the rows of the table that match the clause.
+    *
+    * @param connection   The SQL database connection.
+    * @param tableName    The name of the table to import products from.
+    * @param extraColumns Further columns to select, read with
+    *                     {@link #getColumn(int)}.
+    * @param clause       The SQL appended to the query, e.g. a where clause, or
+    *                     an empty string.
+    * @param parameters   The values of the parameters of the clause.
+    * @param fetchSize    The number of rows the driver should fetch at once.
+    * @param creator      Creates the product of a row.
+    * @throws SQLException If the query fails.
+    */
+   SqlProductReader(Connection connection, String tableName, List<String> extraColumns, String clause,
+         List<?> parameters, int fetchSize, Function<ProductFields, Product> creator) throws SQLException {
+      this.creator = creator;
+      Set<String> tableColumns = getColumnNames(connection, tableName);
+      String vacuumPacked = findVacuumPackedColumn(tableColumns);
+
+      StringBuilder query = new StringBuilder("SELECT ").append(String.join(", ", COLUMNS));
+      int position = BASE_PRICE;
+      if (tableColumns.contains(MEAT_TYPE_COLUMN)) {
+         query.append(", ").append(MEAT_TYPE_COLUMN);
+         this.meatTypeColumn = ++position;
+      } else {
+         this.meatTypeColumn = 0;
+      }
+      if (vacuumPacked != null) {
+         query.append(", ").append(vacuumPacked);
+         this.vacuumPackedColumn = ++position;
+      } else {
+         this.vacuumPackedColumn = 0;
+      }
+      this.firstExtraColumn = position + 1;
+      for (String column : extraColumns) {
+         query.append(", ").append(column);
+      }
+      query.append(" FROM ").append(tableName);
+      if (!clause.isEmpty()) {
+         query.append(' ').append(clause);
+      }
+
+      this.statement = connection.prepareStatement(query.toString(), ResultSet.TYPE_FORWARD_ONLY,
+            ResultSet.CONCUR_READ_ONLY);
+      try {
+         for (int i = 0; i < parameters.size(); i++) {
+            statement.setObject(i + 1, parameters.get(i));
+         }
+         statement.setFetchSize(fetchSize);
+         this.rs = statement.executeQuery();
+      } catch (SQLException e) {
+         statement.close();
+         throw e;
+      }
+   }
+
+   /**
+    * Sets where rows that cannot be turned into a product are reported to. They
+    * are printed to {@link System#err} by default.
+    *
+    * @param failureHandler Receives the failures.
+    */
+   void setFailureHandler(Consumer<ImportFailure> failureHandler) {
+      this.failureHandler = failureHandler;
+   }
+
+   /**
+    * Finds the columns of the table from the metadata of a query without rows.
+    *
+    * @return The lower case column names.
+    */
+   static Set<String> getColumnNames(Connection connection, String tableName) throws SQLException {
+      Set<String> columns = new HashSet<>();
+      try (Statement statement = connection.createStatement();
+            ResultSet rs = statement.executeQuery("SELECT * FROM " + tableName + " WHERE 1 = 0")) {
+         ResultSetMetaData metaData = rs.getMetaData();
+         for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            columns.add(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT));
+         }
+      }
+      return columns;
+   }
+
+   /**
+    * Finds the vacuum packed column among the columns of a table.
+    *
+    * @param columns The lower case column names of the table.
+    * @return The name of the column or null if the table has none.
+    */
+   static String findVacuumPackedColumn(Set<String> columns) {
+      for (String column : VACUUM_PACKED_COLUMNS) {
+         if (columns.contains(column)) {
+            return column;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Reads rows until one of them is turned into a product or there are no more
+    * rows.
+    *
+    * @param consumer Receives the product.
+    * @return True if a product was passed to the consumer, false if there are no
+    *         more rows.
+    * @throws SQLException If a row cannot be read.
+    */
+   boolean next(Consumer<? super Product> consumer) throws SQLException {
+      while (nextRow()) {
+         Product product = readProduct();
+         if (product != null) {
+            consumer.accept(product);
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Moves to the next row.
+    *
+    * @return True if there is a next row, false if there are no more rows.
+    * @throws SQLException If the row cannot be read.
+    */
+   boolean nextRow() throws SQLException {
+      if (rs.next()) {
+         rowNumber++;
+         return true;
+      }
+      return false;
+   }
+
+   /**
+    * Creates the product of the current row. A row that cannot be turned into a
+    * product is reported.
+    *
+    * @return The product or null if it could not be created.
+    * @throws SQLException If the row cannot be read.
+    */
+   Product readProduct() throws SQLException {
+      String type = rs.getString(TYPE);
+      try {
+         fields.clear();
+         fields.setType(type);
+         fields.setId(rs.getString(ID));
+         fields.setName(rs.getString(NAME));
+         fields.setQuality(rs.getInt(QUALITY));
+         fields.setExpiryDate(rs.getObject(EXPIRY_DATE, LocalDate.class));
+         fields.setDefaultPrice(rs.getDouble(BASE_PRICE));
+         if (meatTypeColumn != 0) {
+            String meatType = rs.getString(meatTypeColumn);
+            if (meatType != null) {
+               fields.setMeatType(MeatTypeEnum.valueOf(meatType.toUpperCase(Locale.ROOT)));
+            }
+         }
+         if (vacuumPackedColumn != 0) {
+            fields.setIsVacuumPacked(rs.getBoolean(vacuumPackedColumn));
+         }
+         return creator.apply(fields);
+      } catch (SQLException e) {
+         throw e;
+      } catch (Exception e) {
+         failureHandler.accept(new ImportFailure(rowNumber, type, e.getMessage()));
+         return null;
+      }
+   }
+
+   /**
+    * Returns the product ID of the current row.
+    *
+    * @return The product ID.
+    * @throws SQLException If the row cannot be read.
+    */
+   String getId() throws SQLException {
+      return rs.getString(ID);
+   }
+
+   /**
+    * Returns the value of one of the extra columns of the current row.
+    *
+    * @param index The index of the column in the extra columns, starting at 0.
+    * @return The value of the column.
+    * @throws SQLException If the row cannot be read.
+    */
+   Object getColumn(int index) throws SQLException {
+      return rs.getObject(firstExtraColumn + index);
+   }
+
+   @Override
+   public void close() throws SQLException {
+      try {
+         rs.close();
+      } finally {
+         statement.close();
+      }
+   }
+}
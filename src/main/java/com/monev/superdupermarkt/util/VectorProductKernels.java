@@ -0,0 +1,145 @@
+package com.monev.superdupermarkt.util;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels that apply the rules of the product types to as many rows at once as
+ * the CPU's vector registers hold. Only loaded if the module
+ * {@code jdk.incubator.vector} is present, see
+ * {@link ProductKernels#getDefault()}.
+ * <p>
+ * The results must be the same as those of the scalar rules, so no fused
+ * multiply-add is used and {@link Math#round(double)} is rebuilt exactly. Lanes
+ * with values the vector code does not handle exactly, such as NaN or values
+ * beyond 2^52, and the rows after the last full vector are calculated by the
+ * scalar rules. The vector results of these lanes are not stored, so the scalar
+ * rules read the original values.
+ */
+class VectorProductKernels extends ProductKernels {
+
+   private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+   // Same number of lanes as DOUBLES, so the values can be converted lane by lane
+   private static final VectorSpecies<Long> LONGS = DOUBLES.withLanes(long.class);
+   // Up to this magnitude every half integer is a double, so rounding is exact
+   private static final double MAX_EXACT = 0x1p52;
+
+   @Override
+   public boolean isVectorized() {
+      return true;
+   }
+
+   @Override
+   public void dailyPrices(double[] defaultPrices, double[] qualities, int[] rows, int count, double[] prices) {
+      int i = 0;
+      for (int upper = DOUBLES.loopBound(count); i < upper; i += DOUBLES.length()) {
+         DoubleVector defaultPrice = DoubleVector.fromArray(DOUBLES, defaultPrices, 0, rows, i);
+         DoubleVector quality = DoubleVector.fromArray(DOUBLES, qualities, 0, rows, i);
+         // Same order of operations as Product#dailyPrice
+         DoubleVector cents = defaultPrice.add(quality.mul(0.10)).mul(100);
+         VectorMask<Double> exact = cents.abs().compare(VectorOperators.LT, MAX_EXACT);
+         toDouble(round(cents)).div(100).intoArray(prices, 0, rows, i);
+         if (!exact.allTrue()) {
+            for (int lane = 0; lane < DOUBLES.length(); lane++) {
+               if (!exact.laneIsSet(lane)) {
+                  int row = rows[i + lane];
+                  prices[row] = Product.dailyPrice(defaultPrices[row], qualities[row]);
+               }
+            }
+         }
+      }
+      for (; i < count; i++) {
+         int row = rows[i];
+         prices[row] = Product.dailyPrice(defaultPrices[row], qualities[row]);
+      }
+   }
+
+   @Override
+   public void decayCheese(double[] qualities, int[] rows, int count, long days) {
+      int i = 0;
+      for (int upper = DOUBLES.loopBound(count); i < upper; i += DOUBLES.length()) {
+         DoubleVector quality = DoubleVector.fromArray(DOUBLES, qualities, 0, rows, i);
+         VectorMask<Double> exact = quality.abs().compare(VectorOperators.LT, MAX_EXACT);
+         VectorMask<Double> positive = quality.compare(VectorOperators.GT, 0);
+         // Cheese loses 1 quality per day until its quality is used up, rounded up
+         LongVector truncated = toLong(quality);
+         LongVector ceil = truncated.add(1, toDouble(truncated).compare(VectorOperators.LT, quality).cast(LONGS));
+         DoubleVector decayed = quality.sub(toDouble(ceil.min(days)));
+         quality.blend(decayed, positive.and(exact)).intoArray(qualities, 0, rows, i);
+         if (!exact.allTrue()) {
+            for (int lane = 0; lane < DOUBLES.length(); lane++) {
+               if (!exact.laneIsSet(lane)) {
+                  int row = rows[i + lane];
+                  qualities[row] = Cheese.projectQuality(qualities[row], days);
+               }
+            }
+         }
+      }
+      for (; i < count; i++) {
+         int row = rows[i];
+         qualities[row] = Cheese.projectQuality(qualities[row], days);
+      }
+   }
+
+   @Override
+   public void decayCommonProducts(double[] qualities, int[] rows, int count, long days) {
+      if (days == 0) {
+         return;
+      }
+      int i = 0;
+      for (int upper = DOUBLES.loopBound(count); i < upper; i += DOUBLES.length()) {
+         DoubleVector quality = DoubleVector.fromArray(DOUBLES, qualities, 0, rows, i);
+         VectorMask<Double> positive = quality.compare(VectorOperators.GT, 0);
+         // Same steps as CommonProduct#projectQuality: the first update rounds to
+         // whole cents, every following day removes 24 of them
+         DoubleVector cents = quality.sub(0.24).mul(100);
+         VectorMask<Double> exact = cents.abs().compare(VectorOperators.LT, MAX_EXACT);
+         LongVector hundredths = round(cents);
+         VectorMask<Long> remaining = hundredths.compare(VectorOperators.GT, 0);
+         LongVector steps = hundredths.add(23).lanewise(VectorOperators.DIV, 24).min(days - 1)
+               .blend(0, remaining.not());
+         DoubleVector decayed = toDouble(hundredths.sub(steps.mul(24))).div(100.0);
+         quality.blend(decayed, positive.and(exact)).intoArray(qualities, 0, rows, i);
+         if (!exact.allTrue()) {
+            for (int lane = 0; lane < DOUBLES.length(); lane++) {
+               if (!exact.laneIsSet(lane)) {
+                  int row = rows[i + lane];
+                  qualities[row] = CommonProduct.projectQuality(qualities[row], days);
+               }
+            }
+         }
+      }
+      for (; i < count; i++) {
+         int row = rows[i];
+         qualities[row] = CommonProduct.projectQuality(qualities[row], days);
+      }
+   }
+
+   /**
+    * Rounds like {@link Math#round(double)}, which is floor(x + 0.5) calculated
+    * without rounding x + 0.5 first. Exact for values below 2^52.
+    */
+   private static LongVector round(DoubleVector x) {
+      DoubleVector half = x.add(0.5);
+      LongVector rounded = toLong(half);
+      // The conversion truncates, so negative values have to be rounded down
+      rounded = rounded.sub(1, half.compare(VectorOperators.LT, toDouble(rounded)).cast(LONGS));
+      // x + 0.5 may have been rounded up to the next integer
+      return rounded.sub(1, x.compare(VectorOperators.LT, toDouble(rounded).sub(0.5)).cast(LONGS));
+   }
+
+   private static LongVector toLong(DoubleVector vector) {
+      return (LongVector) vector.convert(VectorOperators.D2L, 0);
+   }
+
+   private static DoubleVector toDouble(LongVector vector) {
+      return (DoubleVector) vector.convert(VectorOperators.L2D, 0);
+   }
+}
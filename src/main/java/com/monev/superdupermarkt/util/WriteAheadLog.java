@@ -0,0 +1,505 @@
+package com.monev.superdupermarkt.util;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductRepository;
+import com.monev.superdupermarkt.ProductRepositoryListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the changes of a {@link ProductRepository}. Registered as
+ * the listener of the repository, it records every change before it is applied:
+ * {@link #ADD} for a single added or replaced product, {@link #IMPORT_BATCH} for
+ * all products of an import in one record, {@link #REMOVE} for a removed
+ * product, and {@link #CHANGE_BATCH} for the added, replaced and removed
+ * products of a sync in one record. Products are encoded like in a
+ * {@link ProductSnapshot}.
+ * <p>
+ * The file starts with the magic number {@link #MAGIC} and the format
+ * {@link #VERSION}. Every record consists of the length of its payload, the
+ * CRC32 checksum of the payload, and the payload: the record type followed by
+ * the products and the IDs of the removed products. When the log is opened, its
+ * records are applied to the repository. A record that was not completely
+ * written before a crash is detected by its length or checksum and cut off.
+ * <p>
+ * Every change writes its record to the file before it returns, so a record
+ * is not lost if the process is killed. Records of changes made from several
+ * threads while another record is written are collected in memory and written
+ * together (group commit). With {@link SyncPolicy#ALWAYS}, a change only
+ * returns once its record is also synced to the disk; changes made at the same
+ * time share a single sync. With {@link SyncPolicy#INTERVAL}, the log is synced
+ * in the background at a fixed interval, and with {@link SyncPolicy#NEVER},
+ * syncing is left to the operating system. The log is always synced when it is
+ * closed.
+ * <p>
+ * {@link #compact(Path, Iterable)} writes all products to a snapshot and starts
+ * an empty log, so on startup only the snapshot and the changes after it have
+ * to be read.
+ */
+public class WriteAheadLog implements ProductRepositoryListener, AutoCloseable {
+
+   /**
+    * When the log is synced to the disk.
+    */
+   public enum SyncPolicy {
+      ALWAYS, INTERVAL, NEVER
+   }
+
+   public static final int MAGIC = 0x53444d57; // "SDMW"
+   public static final int VERSION = 1;
+   public static final byte ADD = 1;
+   public static final byte IMPORT_BATCH = 2;
+   public static final byte REMOVE = 3;
+   public static final byte CHANGE_BATCH = 4;
+
+   private static final int HEADER_SIZE = 8;
+   // Payload length and checksum in front of every record
+   private static final int RECORD_HEADER_SIZE = 8;
+   private static final int INITIAL_BUFFER_SIZE = 1 << 12;
+   // Larger buffers, e.g. after a large import, are not kept once written
+   private static final int MAX_RETAINED_BUFFER_SIZE = 1 << 20;
+
+   private final Path file;
+   private final SyncPolicy syncPolicy;
+   private final ScheduledExecutorService syncScheduler;
+
+   // Guards the collected records. Records are encoded while holding this lock.
+   private final Object appendLock = new Object();
+   private RecordBuffer pending = new RecordBuffer();
+   private long appendedRecords;
+   private boolean closed;
+
+   // Guards the file. Records are written and synced while holding this lock.
+   private final ReentrantLock syncLock = new ReentrantLock();
+   private FileChannel channel;
+   private RecordBuffer writing = new RecordBuffer();
+   private long writtenRecords;
+   private long syncedRecords;
+   private IOException failure;
+
+   private WriteAheadLog(Path file, FileChannel channel, SyncPolicy syncPolicy, long syncIntervalMillis) {
+      this.file = file;
+      this.channel = channel;
+      this.syncPolicy = syncPolicy;
+      if (syncPolicy == SyncPolicy.INTERVAL) {
+         syncScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-ahead-log-sync");
+            thread.setDaemon(true);
+            return thread;
+         });
+         syncScheduler.scheduleWithFixedDelay(this::syncInBackground, syncIntervalMillis, syncIntervalMillis,
+               TimeUnit.MILLISECONDS);
+      } else {
+         syncScheduler = null;
+      }
+   }
+
+   /**
+    * Opens the log, creating it if it does not exist, and applies its records to
+    * the repository. New records are appended after the last complete record.
+    * The log is not registered as the listener of the repository.
+    *
+    * @param file               The log file.
+    * @param products           The repository the records are applied to.
+    * @param syncPolicy         When the log is synced to the disk.
+    * @param syncIntervalMillis The interval of {@link SyncPolicy#INTERVAL} in
+    *                           milliseconds.
+    * @return The opened log.
+    * @throws IOException If the log cannot be read or is not a valid log.
+    */
+   public static WriteAheadLog open(Path file, ProductRepository products, SyncPolicy syncPolicy,
+         long syncIntervalMillis) throws IOException {
+      FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+      try {
+         long end = replay(channel, products);
+         channel.truncate(end);
+         channel.position(end);
+         return new WriteAheadLog(file, channel, syncPolicy, syncIntervalMillis);
+      } catch (IOException | RuntimeException e) {
+         channel.close();
+         throw e;
+      }
+   }
+
+   /**
+    * Applies the records of the log to the repository.
+    *
+    * @return The end of the last complete record.
+    */
+   private static long replay(FileChannel channel, ProductRepository products) throws IOException {
+      long size = channel.size();
+      if (size < HEADER_SIZE) {
+         // A new log, or the header was not completely written
+         ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+         channel.truncate(0);
+         writeFully(channel, header, 0);
+         channel.force(false);
+         return HEADER_SIZE;
+      }
+
+      ByteBuffer header = readFully(channel, ByteBuffer.allocate(HEADER_SIZE), 0);
+      if (header.getInt() != MAGIC) {
+         throw new IOException("The file is not a write-ahead log.");
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+         throw new IOException("Unsupported write-ahead log version: " + version);
+      }
+
+      long position = HEADER_SIZE;
+      ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+      ByteBuffer payload = ByteBuffer.allocate(1 << 12);
+      CRC32 checksum = new CRC32();
+      while (position + RECORD_HEADER_SIZE <= size) {
+         readFully(channel, recordHeader.clear(), position);
+         int length = recordHeader.getInt();
+         int expectedChecksum = recordHeader.getInt();
+         if (length < 1 || length > size - position - RECORD_HEADER_SIZE) {
+            break;
+         }
+         if (payload.capacity() < length) {
+            payload = ByteBuffer.allocate(Math.max(length, payload.capacity() * 2));
+         }
+         readFully(channel, payload.clear().limit(length), position + RECORD_HEADER_SIZE);
+         checksum.reset();
+         checksum.update(payload.duplicate());
+         if ((int) checksum.getValue() != expectedChecksum) {
+            break;
+         }
+         apply(payload, products);
+         position += RECORD_HEADER_SIZE + length;
+      }
+      return position;
+   }
+
+   private static void apply(ByteBuffer payload, ProductRepository products) throws IOException {
+      ProductSnapshot.Input in = bytes -> {
+         if (payload.remaining() < bytes) {
+            throw new IOException("A record of the write-ahead log is corrupt.");
+         }
+         return payload;
+      };
+      byte type = payload.get();
+      switch (type) {
+      case ADD:
+         ProductSnapshot.readProducts(in, products::put);
+         break;
+      case IMPORT_BATCH:
+         // Applied as one change, so the repository publishes a single snapshot
+         List<Product> imported = new ArrayList<>();
+         ProductSnapshot.readProducts(in, imported::add);
+         products.putAll(imported);
+         break;
+      case REMOVE:
+         products.remove(readId(in));
+         break;
+      case CHANGE_BATCH:
+         List<Product> changed = new ArrayList<>();
+         ProductSnapshot.readProducts(in, changed::add);
+         int count = in.require(4).getInt();
+         if (count < 0) {
+            throw new IOException("A record of the write-ahead log is corrupt.");
+         }
+         List<String> removedIds = new ArrayList<>(Math.min(count, payload.remaining() / 4));
+         for (int i = 0; i < count; i++) {
+            removedIds.add(readId(in));
+         }
+         products.applyChanges(changed, removedIds);
+         break;
+      default:
+         throw new IOException("Unknown record type in the write-ahead log: " + type);
+      }
+   }
+
+   private static String readId(ProductSnapshot.Input in) throws IOException {
+      int length = in.require(4).getInt();
+      if (length < 0) {
+         throw new IOException("A record of the write-ahead log is corrupt.");
+      }
+      byte[] id = new byte[length];
+      in.require(length).get(id);
+      return new String(id, StandardCharsets.UTF_8);
+   }
+
+   private static void writeId(ProductSnapshot.Output out, String id) throws IOException {
+      byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+      out.reserve(4 + bytes.length).putInt(bytes.length).put(bytes);
+   }
+
+   @Override
+   public void beforeAdd(Product product) {
+      append(ADD, out -> ProductSnapshot.writeProducts(out, List.of(product)));
+   }
+
+   @Override
+   public void beforeImport(List<Product> products) {
+      append(IMPORT_BATCH, out -> ProductSnapshot.writeProducts(out, products));
+   }
+
+   @Override
+   public void beforeRemove(String id) {
+      append(REMOVE, out -> writeId(out, id));
+   }
+
+   @Override
+   public void beforeChanges(List<Product> products, List<String> removedIds) {
+      append(CHANGE_BATCH, out -> {
+         ProductSnapshot.writeProducts(out, products);
+         out.reserve(4).putInt(removedIds.size());
+         for (String id : removedIds) {
+            writeId(out, id);
+         }
+      });
+   }
+
+   /**
+    * Writes all records and syncs them to the disk.
+    *
+    * @throws IOException If the log cannot be written.
+    */
+   public void sync() throws IOException {
+      long records;
+      synchronized (appendLock) {
+         records = appendedRecords;
+      }
+      commit(records, true);
+   }
+
+   /**
+    * Returns the size of the log, including the records that are not written
+    * yet.
+    *
+    * @return The size in bytes.
+    * @throws IOException If the size of the file cannot be read.
+    */
+   public long size() throws IOException {
+      syncLock.lock();
+      try {
+         synchronized (appendLock) {
+            return channel.size() + pending.buffer.position();
+         }
+      } finally {
+         syncLock.unlock();
+      }
+   }
+
+   /**
+    * Writes the products to a snapshot and starts an empty log. The products
+    * must be the state of the repository after all changes of the log, and the
+    * repository must not be changed until the compaction is done, see
+    * {@link ProductRepository#lockWrites(ProductRepository.SnapshotAction)}.
+    *
+    * @param snapshotFile The snapshot file.
+    * @param products     All products of the repository.
+    * @throws IOException If the snapshot or the log cannot be written. If the
+    *                     snapshot cannot be written, the log stays usable.
+    */
+   public void compact(Path snapshotFile, Iterable<? extends Product> products) throws IOException {
+      syncLock.lock();
+      try {
+         sync();
+         ProductSnapshot.write(snapshotFile, products);
+
+         // Replace the log with an empty one only after the snapshot is complete.
+         // Until the log is replaced, a failure leaves the log as it was, and its
+         // records are applied again on top of the snapshot on the next start.
+         Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+         try (FileChannel emptyLog = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+               StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(emptyLog, ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip(), 0);
+            emptyLog.force(false);
+         }
+         Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+         try {
+            channel.close();
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(HEADER_SIZE);
+         } catch (IOException e) {
+            // The channel still points to the replaced log, so no record can be
+            // written anymore
+            failure = e;
+            throw e;
+         }
+      } finally {
+         syncLock.unlock();
+      }
+   }
+
+   /**
+    * Writes and syncs all records and closes the log.
+    *
+    * @throws IOException If the log cannot be written.
+    */
+   @Override
+   public void close() throws IOException {
+      if (syncScheduler != null) {
+         syncScheduler.shutdown();
+      }
+      synchronized (appendLock) {
+         if (closed) {
+            return;
+         }
+         closed = true;
+      }
+      try {
+         sync();
+      } finally {
+         syncLock.lock();
+         try {
+            channel.close();
+         } finally {
+            syncLock.unlock();
+         }
+      }
+   }
+
+   /**
+    * Encodes a record into the collected records, writes it and, depending on
+    * the sync policy, syncs it.
+    */
+   private void append(byte type, RecordEncoder encoder) {
+      long record;
+      synchronized (appendLock) {
+         if (closed) {
+            throw new IllegalStateException("The write-ahead log is closed.");
+         }
+         RecordBuffer buffer = pending;
+         int start = buffer.buffer.position();
+         try {
+            buffer.reserve(RECORD_HEADER_SIZE + 1).position(start + RECORD_HEADER_SIZE).put(type);
+            encoder.encode(buffer);
+         } catch (IOException | RuntimeException e) {
+            buffer.buffer.position(start);
+            throw e instanceof IOException ? new UncheckedIOException((IOException) e) : (RuntimeException) e;
+         }
+         buffer.finishRecord(start);
+         record = ++appendedRecords;
+      }
+
+      try {
+         commit(record, syncPolicy == SyncPolicy.ALWAYS);
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   /**
+    * Makes sure the records up to the given one are written, and synced if
+    * requested. All records collected until then are written together, so
+    * records appended while another thread writes share the next write.
+    */
+   private void commit(long record, boolean sync) throws IOException {
+      syncLock.lock();
+      try {
+         if (failure != null) {
+            throw new IOException("The write-ahead log could not be written before.", failure);
+         }
+         if (writtenRecords < record) {
+            long records;
+            synchronized (appendLock) {
+               RecordBuffer collected = pending;
+               pending = writing;
+               writing = collected;
+               records = appendedRecords;
+            }
+            ByteBuffer buffer = writing.buffer.flip();
+            while (buffer.hasRemaining()) {
+               channel.write(buffer);
+            }
+            if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+               writing.buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+            } else {
+               buffer.clear();
+            }
+            writtenRecords = records;
+         }
+         if (sync && syncedRecords < record) {
+            channel.force(false);
+            syncedRecords = writtenRecords;
+         }
+      } catch (IOException e) {
+         if (failure == null) {
+            failure = e;
+         }
+         throw e;
+      } finally {
+         syncLock.unlock();
+      }
+   }
+
+   private void syncInBackground() {
+      try {
+         sync();
+      } catch (IOException e) {
+         // Kept as the failure of the log and thrown by the next change
+      }
+   }
+
+   private static ByteBuffer readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+      while (buffer.hasRemaining()) {
+         if (channel.read(buffer, position + buffer.position()) < 0) {
+            throw new IOException("The write-ahead log ends unexpectedly.");
+         }
+      }
+      return buffer.flip();
+   }
+
+   private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+      while (buffer.hasRemaining()) {
+         channel.write(buffer, position + buffer.position());
+      }
+   }
+
+   /**
+    * Encodes the body of a record.
+    */
+   @FunctionalInterface
+   private interface RecordEncoder {
+      void encode(ProductSnapshot.Output out) throws IOException;
+   }
+
+   /**
+    * Growing buffer of encoded records.
+    */
+   private static class RecordBuffer implements ProductSnapshot.Output {
+
+      private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+      @Override
+      public ByteBuffer reserve(int bytes) {
+         if (buffer.remaining() < bytes) {
+            int capacity = Math.max(buffer.position() + bytes, buffer.capacity() * 2);
+            buffer = ByteBuffer.allocate(capacity).put(buffer.flip());
+         }
+         return buffer;
+      }
+
+      /**
+       * Fills in the length and the checksum of the record that starts at the
+       * given position and ends at the current position.
+       */
+      void finishRecord(int start) {
+         int payloadStart = start + RECORD_HEADER_SIZE;
+         int length = buffer.position() - payloadStart;
+         CRC32 checksum = new CRC32();
+         checksum.update(buffer.array(), payloadStart, length);
+         buffer.putInt(start, length).putInt(start + 4, (int) checksum.getValue());
+      }
+   }
+}
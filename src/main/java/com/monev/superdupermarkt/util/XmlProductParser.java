@@ -0,0 +1,354 @@
+package com.monev.superdupermarkt.util;
+
+import com.monev.superdupermarkt.Product;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Parses products from XML with a StAX stream reader. Every {@code <product>}
+ * element anywhere in the document is turned into a product as soon as it is
+ * closed, so documents of any size are parsed in constant memory. The values of
+ * a product are either attributes or child elements named like the fields of
+ * the JSON import, e.g. {@code <product type="Meat"><id>M001</id>
+ * <name>Steak</name><quality>60</quality><expiryDate>2024-10-23</expiryDate>
+ * <defaultPrice>15.0</defaultPrice><meatType>BEEF</meatType>
+ * <vacuumPacked>false</vacuumPacked></product>}. Unknown attributes and elements
+ * are skipped.
+ * <p>
+ * The text of the fields is collected in one buffer that is reused for all
+ * elements, and numbers, dates and types are parsed from that buffer. Products
+ * that cannot be created are reported with the line they start on and skipped.
+ * Invalid XML ends the parsing with an {@link IOException}. DTDs and external
+ * entities are not supported. A parser is not thread safe.
+ */
+class XmlProductParser {
+
+   private static final String PRODUCT = "product";
+   private static final String[] FIELD_NAMES = { "type", "id", "name", "quality", "expiryDate", "defaultPrice",
+         "meatType", "vacuumPacked" };
+
+   private static final int TYPE = 0;
+   private static final int ID = 1;
+   private static final int NAME = 2;
+   private static final int QUALITY = 3;
+   private static final int EXPIRY_DATE = 4;
+   private static final int DEFAULT_PRICE = 5;
+   private static final int MEAT_TYPE = 6;
+   private static final int VACUUM_PACKED = 7;
+
+   private static final MeatTypeEnum[] MEAT_TYPES = MeatTypeEnum.values();
+   private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+   private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+   private final Map<String, Function<ProductFields, Product>> creators;
+   private final Function<ProductFields, Product> defaultCreator;
+
+   // The parse context, reused for every product
+   private final ProductFields fields = new ProductFields();
+   private final StringBuilder text = new StringBuilder();
+   private Function<ProductFields, Product> creator;
+   private boolean hasQuality;
+   private boolean hasPrice;
+   private Exception failure;
+
+   private Consumer<ImportFailure> failureHandler = ImportFailure::report;
+   private XMLStreamReader reader;
+
+   /**
+    * Creates a parser.
+    *
+    * @param creators       The product creators by the product type names.
+    * @param defaultCreator The creator for product types without an own creator.
+    */
+   XmlProductParser(Map<String, Function<ProductFields, Product>> creators,
+         Function<ProductFields, Product> defaultCreator) {
+      this.creators = creators;
+      this.defaultCreator = defaultCreator;
+   }
+
+   private static XMLInputFactory createInputFactory() {
+      XMLInputFactory factory = XMLInputFactory.newFactory();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+      return factory;
+   }
+
+   /**
+    * Sets where products that cannot be created are reported to. They are printed
+    * to {@link System#err} by default.
+    *
+    * @param failureHandler Receives the failures.
+    */
+   void setFailureHandler(Consumer<ImportFailure> failureHandler) {
+      this.failureHandler = failureHandler;
+   }
+
+   /**
+    * Parses all products of the input.
+    *
+    * @param in       The XML input. It is not closed.
+    * @param consumer Receives the products in the order of the input.
+    * @throws IOException If the input cannot be read or is not valid XML.
+    */
+   void parse(InputStream in, Consumer<? super Product> consumer) throws IOException {
+      open(in);
+      try {
+         while (next(consumer)) {
+            // Every call parses elements up to the next product
+         }
+      } finally {
+         close();
+      }
+   }
+
+   /**
+    * Prepares parsing the input one product at a time with
+    * {@link #next(Consumer)}.
+    *
+    * @param in The XML input. It is not closed.
+    * @throws IOException If the input cannot be read.
+    */
+   void open(InputStream in) throws IOException {
+      try {
+         reader = INPUT_FACTORY.createXMLStreamReader(in);
+      } catch (XMLStreamException e) {
+         throw xmlError(e);
+      }
+   }
+
+   /**
+    * Parses elements until a product element is turned into a product or the
+    * document ends.
+    *
+    * @param consumer Receives the product.
+    * @return True if a product was passed to the consumer, false if the document
+    *         has ended.
+    * @throws IOException If the input cannot be read or is not valid XML.
+    */
+   boolean next(Consumer<? super Product> consumer) throws IOException {
+      try {
+         while (reader.hasNext()) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT && PRODUCT.equals(reader.getLocalName())
+                  && parseProduct(consumer)) {
+               return true;
+            }
+         }
+         return false;
+      } catch (XMLStreamException e) {
+         throw xmlError(e);
+      }
+   }
+
+   /**
+    * Releases the reader. The input is not closed.
+    *
+    * @throws IOException If the reader cannot be closed.
+    */
+   void close() throws IOException {
+      try {
+         reader.close();
+      } catch (XMLStreamException e) {
+         throw xmlError(e);
+      }
+   }
+
+   /**
+    * Parses the product element the reader is at, up to its end, and passes its
+    * product to the consumer. Products that cannot be created are reported and
+    * skipped.
+    *
+    * @return True if the product was created.
+    */
+   private boolean parseProduct(Consumer<? super Product> consumer) throws XMLStreamException {
+      long line = reader.getLocation().getLineNumber();
+      fields.clear();
+      creator = defaultCreator;
+      hasQuality = false;
+      hasPrice = false;
+      failure = null;
+
+      for (int i = 0; i < reader.getAttributeCount(); i++) {
+         int field = indexOfField(reader.getAttributeLocalName(i));
+         if (field >= 0) {
+            text.setLength(0);
+            text.append(reader.getAttributeValue(i));
+            setField(field);
+         }
+      }
+
+      while (true) {
+         int event = reader.next();
+         if (event == XMLStreamConstants.END_ELEMENT) {
+            break;
+         } else if (event == XMLStreamConstants.START_ELEMENT) {
+            int field = indexOfField(reader.getLocalName());
+            readText();
+            if (field >= 0) {
+               setField(field);
+            }
+         }
+      }
+
+      Product product;
+      try {
+         if (failure != null) {
+            throw failure;
+         } else if (!hasQuality) {
+            throw new IllegalArgumentException("Missing field quality");
+         } else if (!hasPrice) {
+            throw new IllegalArgumentException("Missing field defaultPrice");
+         }
+         product = creator.apply(fields);
+      } catch (Exception e) {
+         failureHandler.accept(new ImportFailure(line, fields.getType(), e.getMessage()));
+         return false;
+      }
+      consumer.accept(product);
+      return true;
+   }
+
+   /**
+    * Collects the text of the element the reader is at into the text buffer and
+    * moves to the end of the element. Text of nested elements is ignored.
+    */
+   private void readText() throws XMLStreamException {
+      text.setLength(0);
+      int depth = 1;
+      while (depth > 0) {
+         switch (reader.next()) {
+         case XMLStreamConstants.START_ELEMENT:
+            depth++;
+            break;
+         case XMLStreamConstants.END_ELEMENT:
+            depth--;
+            break;
+         case XMLStreamConstants.CHARACTERS:
+         case XMLStreamConstants.CDATA:
+         case XMLStreamConstants.SPACE:
+            if (depth == 1) {
+               text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            }
+            break;
+         default:
+            break;
+         }
+      }
+   }
+
+   /**
+    * Sets the field from the text buffer. The first value that cannot be parsed
+    * is kept as the failure of the product.
+    */
+   private void setField(int field) {
+      int start = 0;
+      int end = text.length();
+      while (start < end && Character.isWhitespace(text.charAt(start))) {
+         start++;
+      }
+      while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+         end--;
+      }
+
+      try {
+         switch (field) {
+         case TYPE:
+            setType(start, end);
+            break;
+         case ID:
+            fields.setId(text.substring(start, end));
+            break;
+         case NAME:
+            fields.setName(text.substring(start, end));
+            break;
+         case QUALITY:
+            fields.setQuality(Integer.parseInt(text, start, end, 10));
+            hasQuality = true;
+            break;
+         case EXPIRY_DATE:
+            fields.setExpiryDate(start == end || matches(start, end, "null", false) ? null
+                  : LocalDate.parse(text.subSequence(start, end), DATE_FORMATTER));
+            break;
+         case DEFAULT_PRICE:
+            fields.setDefaultPrice(Double.parseDouble(text.substring(start, end)));
+            hasPrice = true;
+            break;
+         case MEAT_TYPE:
+            fields.setMeatType(start == end ? null : parseMeatType(start, end));
+            break;
+         case VACUUM_PACKED:
+            fields.setIsVacuumPacked(matches(start, end, "true", true));
+            break;
+         default:
+            break;
+         }
+      } catch (Exception e) {
+         if (failure == null) {
+            failure = e;
+         }
+      }
+   }
+
+   private void setType(int start, int end) {
+      for (Map.Entry<String, Function<ProductFields, Product>> entry : creators.entrySet()) {
+         String type = entry.getKey();
+         if (matches(start, end, type, false)) {
+            fields.setType(type);
+            creator = entry.getValue();
+            return;
+         }
+      }
+      fields.setType(text.substring(start, end));
+      creator = defaultCreator;
+   }
+
+   private MeatTypeEnum parseMeatType(int start, int end) {
+      for (MeatTypeEnum meatType : MEAT_TYPES) {
+         if (matches(start, end, meatType.name(), true)) {
+            return meatType;
+         }
+      }
+      throw new IllegalArgumentException("Unknown meat type: " + text.substring(start, end));
+   }
+
+   /**
+    * Checks if the text between the indexes is the given value.
+    */
+   private boolean matches(int start, int end, String value, boolean ignoreCase) {
+      if (end - start != value.length()) {
+         return false;
+      }
+      for (int i = 0; i < value.length(); i++) {
+         char c = text.charAt(start + i);
+         char expected = value.charAt(i);
+         if (ignoreCase ? Character.toUpperCase(c) != Character.toUpperCase(expected) : c != expected) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static int indexOfField(String name) {
+      for (int i = 0; i < FIELD_NAMES.length; i++) {
+         if (FIELD_NAMES[i].equals(name)) {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+   private IOException xmlError(XMLStreamException e) {
+      return new IOException("Invalid XML: " + e.getMessage(), e);
+   }
+}
@@ -0,0 +1,300 @@
+package com.monev.superdupermarkt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+import com.monev.superdupermarkt.types.Wine;
+
+public class ProductRepositoryTest {
+
+   private ProductRepository repository;
+   private Cheese cheese;
+   private Wine wine;
+
+   @BeforeEach
+   public void setUp() {
+      repository = new ProductRepository();
+      cheese = new Cheese("C001", "Gouda", 35.0, LocalDate.now().plusDays(75), 15.0);
+      wine = new Wine("W001", "Chardonnay", 45.0, LocalDate.now(), 10.0);
+      repository.add(cheese);
+      repository.add(wine);
+   }
+
+   @Test
+   public void testAddRejectsDuplicateId() {
+      Cheese duplicate = new Cheese("C001", "Brie", 40.0, LocalDate.now().plusDays(75), 6.0);
+
+      assertFalse(repository.add(duplicate));
+      assertSame(cheese, repository.get("C001"));
+      assertEquals(2, repository.size());
+   }
+
+   @Test
+   public void testAddAllSkipsDuplicates() {
+      CommonProduct bread = new CommonProduct("P001", "Bread", 20.0, LocalDate.now(), 2.5);
+      CommonProduct sameBread = new CommonProduct("P001", "Bread", 20.0, LocalDate.now(), 2.5);
+      Wine sameWine = new Wine("W001", "Merlot", 30.0, LocalDate.now(), 12.0);
+
+      assertEquals(1, repository.addAll(List.of(bread, sameBread, sameWine)));
+      assertEquals(3, repository.size());
+      assertEquals(List.of(cheese, wine, bread), List.copyOf(repository.getAll()));
+   }
+
+   @Test
+   public void testPutReplacesProductInPlace() {
+      Wine newWine = new Wine("W001", "Merlot", 30.0, LocalDate.now(), 12.0);
+      CommonProduct replacement = new CommonProduct("C001", "Bread", 20.0, LocalDate.now(), 2.5);
+
+      assertSame(wine, repository.put(newWine));
+      assertSame(cheese, repository.put(replacement));
+      assertEquals(List.of(replacement, newWine), List.copyOf(repository.getAll()));
+      assertTrue(repository.getByType(Cheese.class).isEmpty());
+      assertEquals(List.of(replacement), List.copyOf(repository.getByType(CommonProduct.class)));
+      assertEquals(List.of(newWine), List.copyOf(repository.getByType(Wine.class)));
+   }
+
+   @Test
+   public void testRemove() {
+      assertSame(wine, repository.remove("W001"));
+      assertNull(repository.remove("W001"));
+      assertFalse(repository.contains("W001"));
+      assertTrue(repository.getByType(Wine.class).isEmpty());
+   }
+
+   @Test
+   public void testListenerCanRejectChanges() {
+      List<String> changes = new ArrayList<>();
+      repository.setListener(new ProductRepositoryListener() {
+         @Override
+         public void beforeAdd(Product product) {
+            changes.add("add " + product.getId());
+         }
+
+         @Override
+         public void beforeImport(List<Product> products) {
+            changes.add("import " + products.size());
+         }
+
+         @Override
+         public void beforeRemove(String id) {
+            throw new IllegalStateException("Removing is not allowed.");
+         }
+      });
+      CommonProduct bread = new CommonProduct("P001", "Bread", 20.0, LocalDate.now(), 2.5);
+      CommonProduct butter = new CommonProduct("P002", "Butter", 20.0, LocalDate.now(), 2.5);
+
+      assertFalse(repository.add(cheese));
+      assertEquals(2, repository.addAll(List.of(bread, wine, butter)));
+      assertEquals(0, repository.addAll(List.of(bread)));
+      assertThrows(IllegalStateException.class, () -> repository.remove("W001"));
+      assertNull(repository.remove("X001"));
+
+      assertEquals(List.of("import 2"), changes);
+      assertSame(wine, repository.get("W001"));
+   }
+
+   @Test
+   public void testApplyChangesAsSingleChange() {
+      List<String> changes = new ArrayList<>();
+      repository.setListener(new ProductRepositoryListener() {
+         @Override
+         public void beforeAdd(Product product) {
+            changes.add("add " + product.getId());
+         }
+
+         @Override
+         public void beforeImport(List<Product> products) {
+            changes.add("import " + products.size());
+         }
+
+         @Override
+         public void beforeRemove(String id) {
+            changes.add("remove " + id);
+         }
+
+         @Override
+         public void beforeChanges(List<Product> products, List<String> removedIds) {
+            changes.add("changes " + products.size() + " " + removedIds);
+         }
+      });
+      ProductRepository.Snapshot before = repository.snapshot();
+      Wine newWine = new Wine("W001", "Merlot", 30.0, LocalDate.now(), 12.0);
+      CommonProduct bread = new CommonProduct("P001", "Bread", 20.0, LocalDate.now(), 2.5);
+
+      assertEquals(1, repository.applyChanges(List.of(newWine, bread), List.of("C001", "X001")));
+      assertEquals(0, repository.applyChanges(List.of(), List.of("X001")));
+
+      assertEquals(List.of("changes 2 [C001]"), changes);
+      assertEquals(List.of(newWine, bread), List.copyOf(repository.getAll()));
+      assertEquals(List.of(cheese, wine), List.copyOf(before.getAll()));
+      assertTrue(repository.getByType(Cheese.class).isEmpty());
+   }
+
+   @Test
+   public void testRejectedChangesAreNotApplied() {
+      repository.setListener(new ProductRepositoryListener() {
+         @Override
+         public void beforeAdd(Product product) {
+         }
+
+         @Override
+         public void beforeImport(List<Product> products) {
+         }
+
+         @Override
+         public void beforeRemove(String id) {
+            throw new IllegalStateException("Removing is not allowed.");
+         }
+      });
+      CommonProduct bread = new CommonProduct("P001", "Bread", 20.0, LocalDate.now(), 2.5);
+
+      // The default callback passes the removal on, which rejects the whole change
+      assertThrows(IllegalStateException.class, () -> repository.applyChanges(List.of(bread), List.of("W001")));
+
+      assertFalse(repository.contains("P001"));
+      assertSame(wine, repository.get("W001"));
+   }
+
+   @Test
+   public void testGetByType() {
+      assertEquals(List.of(cheese), List.copyOf(repository.getByType(Cheese.class)));
+      assertTrue(repository.getByType(CommonProduct.class).isEmpty());
+   }
+
+   @Test
+   public void testSnapshotDoesNotSeeLaterChanges() {
+      ProductRepository.Snapshot snapshot = repository.snapshot();
+      Wine newWine = new Wine("W001", "Merlot", 30.0, LocalDate.now(), 12.0);
+      CommonProduct bread = new CommonProduct("P001", "Bread", 20.0, LocalDate.now(), 2.5);
+
+      repository.put(newWine);
+      repository.add(bread);
+      repository.remove("C001");
+
+      assertEquals(List.of(cheese, wine), List.copyOf(snapshot.getAll()));
+      assertSame(wine, snapshot.get("W001"));
+      assertFalse(snapshot.contains("P001"));
+      assertEquals(List.of(cheese), List.copyOf(snapshot.getByType(Cheese.class)));
+      assertEquals(List.of(newWine, bread), List.copyOf(repository.getAll()));
+   }
+
+   @Test
+   public void testReadersSeeWholeImports() throws Exception {
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      AtomicBoolean done = new AtomicBoolean();
+      try {
+         Future<?> writer = executor.submit(() -> {
+            for (int batch = 0; batch < 200; batch++) {
+               List<Product> imported = new ArrayList<>();
+               for (int i = 0; i < 50; i++) {
+                  imported.add(new CommonProduct("P" + (batch * 50 + i), "Bread", 20.0, LocalDate.now(), 2.5));
+               }
+               repository.addAll(imported);
+            }
+            done.set(true);
+         });
+         while (!done.get()) {
+            ProductRepository.Snapshot snapshot = repository.snapshot();
+            int count = 0;
+            for (Product product : snapshot) {
+               assertSame(product, snapshot.get(product.getId()));
+               count++;
+            }
+            assertEquals(snapshot.size(), count);
+            assertEquals(0, (count - 2) % 50);
+         }
+         writer.get();
+      } finally {
+         executor.shutdown();
+      }
+      assertEquals(10002, repository.size());
+      assertEquals(10000, repository.getByType(CommonProduct.class).size());
+   }
+
+   @Test
+   public void testKeepsOrderWhenRemovingMostProducts() {
+      List<Product> imported = new ArrayList<>();
+      for (int i = 0; i < 3000; i++) {
+         imported.add(new CommonProduct("P" + i, "Bread", 20.0, LocalDate.now(), 2.5));
+      }
+      repository.addAll(imported);
+      for (int i = 0; i < 3000; i++) {
+         if (i % 10 != 0) {
+            repository.remove("P" + i);
+         }
+      }
+      repository.add(new CommonProduct("P9999", "Butter", 20.0, LocalDate.now(), 2.5));
+
+      List<String> ids = new ArrayList<>(List.of("C001", "W001"));
+      for (int i = 0; i < 3000; i += 10) {
+         ids.add("P" + i);
+      }
+      ids.add("P9999");
+      assertEquals(ids, repository.getAll().stream().map(Product::getId).toList());
+      assertEquals(301, repository.getByType(CommonProduct.class).size());
+      assertSame(cheese, repository.get("C001"));
+      assertEquals("Butter", repository.get("P9999").getName());
+   }
+
+   @Test
+   public void testIdsWithEqualHashes() {
+      // "Aa" and "BB" have the same hash code
+      CommonProduct first = new CommonProduct("Aa", "Bread", 20.0, LocalDate.now(), 2.5);
+      CommonProduct second = new CommonProduct("BB", "Butter", 20.0, LocalDate.now(), 2.5);
+      repository.add(first);
+      repository.add(second);
+      ProductRepository.Snapshot snapshot = repository.snapshot();
+
+      assertSame(first, repository.remove("Aa"));
+      assertFalse(repository.contains("Aa"));
+      assertSame(second, repository.get("BB"));
+      assertSame(first, snapshot.get("Aa"));
+   }
+
+   @Test
+   public void testKeepsTypesWhenChangingTypesOfMostProducts() {
+      List<Product> imported = new ArrayList<>();
+      for (int i = 0; i < 3000; i++) {
+         imported.add(new CommonProduct("P" + i, "Bread", 20.0, LocalDate.now(), 2.5));
+      }
+      repository.addAll(imported);
+      // Every change of the type leaves an empty slot in the chunks of the old
+      // type, so these are compacted while all products stay in place
+      for (int round = 0; round < 3; round++) {
+         for (int i = 0; i < 3000; i++) {
+            if (i % 10 != 0) {
+               repository.put(new Wine("P" + i, "Merlot", 30.0, LocalDate.now(), 12.0));
+               repository.put(new CommonProduct("P" + i, "Bread", 20.0, LocalDate.now(), 2.5));
+            }
+         }
+      }
+      for (int i = 0; i < 3000; i += 10) {
+         assertSame(imported.get(i), repository.remove("P" + i));
+      }
+
+      assertEquals(2702, repository.size());
+      assertEquals(2700, repository.getByType(CommonProduct.class).size());
+      assertEquals(List.of(wine), List.copyOf(repository.getByType(Wine.class)));
+      for (Product product : repository.getByType(CommonProduct.class)) {
+         assertSame(product, repository.get(product.getId()));
+      }
+      assertEquals("P1", List.copyOf(repository.getAll()).get(2).getId());
+   }
+}
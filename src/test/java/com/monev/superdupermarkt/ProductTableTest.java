@@ -0,0 +1,105 @@
+package com.monev.superdupermarkt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.Wine;
+import com.monev.superdupermarkt.util.MeatTypeEnum;
+
+public class ProductTableTest {
+
+   private List<Product> products;
+   private ProductTable table;
+
+   @BeforeEach
+   public void setUp() {
+      LocalDate today = LocalDate.now();
+      products = new ArrayList<>();
+      products.add(new Cheese("C001", "Gouda", 35.0, today.plusDays(75), 15.0));
+      products.add(new Wine("W001", "Chardonnay", 45.0, today.minusDays(7), 10.0));
+      products.add(new Meat("M001", "Beef Steak", 60, today.plusDays(3), 15.00, MeatTypeEnum.BEEF, false));
+      products.add(new Meat("M002", "Lamb Chops", 62, today.plusDays(9), 20.00, MeatTypeEnum.LAMB, true));
+      products.add(new CommonProduct("P001", "Bread", 20.0, today.plusDays(2), 2.5));
+
+      table = new ProductTable(2);
+      for (Product product : products) {
+         table.add(product);
+      }
+   }
+
+   @Test
+   public void testAddCopiesProductValues() {
+      assertEquals(products.size(), table.size());
+      for (int row = 0; row < products.size(); row++) {
+         Product product = products.get(row);
+         assertEquals(product.getId(), table.getId(row));
+         assertEquals(product.getQuality(), table.getQuality(row));
+         assertEquals(product.getExpiryDate(), table.getExpiryDate(row));
+         assertEquals(product.calculateDailyPrice(), table.getDailyPrice(row));
+      }
+      assertEquals(ProductTable.CHEESE, table.getType(0));
+      assertEquals(ProductTable.MEAT, table.getType(3));
+   }
+
+   @Test
+   public void testAdvanceMatchesProductSimulation() {
+      int days = 40;
+      table.advance(days);
+
+      for (int row = 0; row < products.size(); row++) {
+         Product product = products.get(row).clone();
+         for (int d = 0; d < days; d++) {
+            product.advanceDay();
+         }
+         assertEquals(product.getQuality(), table.getQuality(row), "Quality differs for " + product.getId());
+         assertEquals(product.isExpired(), table.isExpired(row), "Expiry differs for " + product.getId());
+         assertEquals(product.calculateDailyPrice(), table.getDailyPrice(row), "Price differs for " + product.getId());
+      }
+      assertEquals(LocalDate.now().plusDays(days), table.getToday());
+   }
+
+   @Test
+   public void testShouldBeRemovedMatchesProducts() {
+      for (int days : new int[] { 0, 3, 10, 40 }) {
+         table.advance(days);
+         for (int row = 0; row < table.size(); row++) {
+            Product product = table.get(row);
+            assertEquals(product.shouldBeRemoved(product.getQuality()), table.shouldBeRemoved(row),
+                  "Removal differs for " + product.getId());
+         }
+      }
+      assertTrue(table.shouldBeRemoved(0));
+   }
+
+   @Test
+   public void testGetBuildsProductView() {
+      table.advance(30);
+      Product cheese = table.get(0);
+
+      assertTrue(cheese instanceof Cheese);
+      assertEquals("C001", cheese.getId());
+      assertEquals(5.0, cheese.getQuality());
+      assertEquals(45, cheese.getDifferenceToExpiryDate());
+
+      Meat meat = (Meat) table.get(3);
+      assertEquals(MeatTypeEnum.LAMB, meat.getMeatType());
+      assertTrue(meat.isVacuumPacked());
+      assertEquals(62, meat.getStartingQuality());
+   }
+
+   @Test
+   public void testInvalidRow() {
+      assertThrows(IndexOutOfBoundsException.class, () -> table.get(products.size()));
+   }
+}
@@ -1,15 +1,23 @@
 package com.monev.superdupermarkt;
 
-import static org.junit.Assert.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.monev.superdupermarkt.types.Cheese;
 import com.monev.superdupermarkt.types.CommonProduct;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.Wine;
+import com.monev.superdupermarkt.util.MeatTypeEnum;
 
 public class ProductTest {
 
@@ -51,4 +59,67 @@ public class ProductTest {
       product.simulateQualityChange(5);
       assertTrue(product.getQuality() < 40.0); // The quality should have decreased
    }
+
+   @Test
+   public void testQualityAtMatchesDailyUpdates() {
+      LocalDate today = LocalDate.now();
+      List<Product> products = new ArrayList<>();
+      for (int quality = 0; quality <= 100; quality += 7) {
+         products.add(Cheese.restore("C" + quality, "Cheese", quality + 0.5, today.plusDays(60), 5.0));
+         products.add(new CommonProduct("P" + quality, "Bread", quality + 0.37, today.plusDays(quality % 5), 2.5));
+         products.add(new Wine("W" + quality, "Wine", quality, today.minusDays(quality), 10.0));
+         for (MeatTypeEnum meatType : MeatTypeEnum.values()) {
+            products.add(Meat.restore("M" + quality, "Meat", 50 + quality, today.plusDays(quality % 12 - 4), 8.0,
+                  meatType, quality % 2 == 0, 50 + quality));
+         }
+      }
+
+      for (Product product : products) {
+         Product copy = product.clone();
+         for (int days = 0; days <= 400; days++) {
+            LocalDate date = today.plusDays(days);
+            assertEquals(copy.getQuality(), product.qualityAt(date), "Quality differs for " + product.getId() + " on "
+                  + date);
+            assertEquals(copy.calculateDailyPrice(), product.priceAt(date));
+            copy.advanceDay();
+         }
+      }
+   }
+
+   @Test
+   public void testSimulateDoesNotChangeProduct() {
+      ProductState state = product.getState();
+      List<ProductState> states = new ArrayList<>();
+
+      product.simulate(5, (p, s) -> states.add(s));
+
+      assertSame(state, product.getState());
+      assertEquals(6, states.size());
+      assertEquals(state, states.get(0));
+      assertEquals(LocalDate.now().plusDays(5), states.get(5).date());
+      assertTrue(states.get(5).quality() < 40.0);
+   }
+
+   @Test
+   public void testNextStateMatchesDailyUpdates() {
+      LocalDate today = LocalDate.now();
+      List<Product> products = List.of(new Cheese("C001", "Gouda", 35.0, today.plusDays(75), 15.0),
+            new Wine("W001", "Chardonnay", 45.0, today.minusDays(25), 10.0),
+            new Meat("M001", "Steak", 80.0, today.plusDays(3), 15.0, MeatTypeEnum.BEEF, false), product);
+
+      for (Product product : products) {
+         Product copy = product.clone();
+         ProductState state = product.getState();
+         for (int days = 0; days < 40; days++) {
+            state = product.nextState(state);
+            copy.advanceDay();
+            assertEquals(copy.getState(), state, "State differs for " + product.getId());
+         }
+      }
+   }
+
+   @Test
+   public void testQualityAtRejectsPastDates() {
+      assertThrows(IllegalArgumentException.class, () -> product.qualityAt(LocalDate.now().minusDays(1)));
+   }
 }
@@ -0,0 +1,125 @@
+package com.monev.superdupermarkt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.Wine;
+import com.monev.superdupermarkt.util.MeatTypeEnum;
+
+public class ShardedInventoryTest {
+
+   private static final int STORES = 50;
+
+   private ShardedInventory inventory;
+
+   @BeforeEach
+   public void setUp() {
+      inventory = new ShardedInventory();
+   }
+
+   @AfterEach
+   public void tearDown() {
+      inventory.close();
+   }
+
+   private static List<Product> createProducts(int store) {
+      LocalDate today = LocalDate.now();
+      List<Product> products = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+         String id = store + "-" + i;
+         products.add(new Cheese("C" + id, "Gouda", 31 + i, today.plusDays(60 + i), 5.0));
+         products.add(new Wine("W" + id, "Chardonnay", i, today.minusDays(i), 10.0));
+         products.add(new Meat("M" + id, "Steak", 50 + i, today.plusDays(3), 15.0, MeatTypeEnum.BEEF, false));
+         products.add(new CommonProduct("P" + id, "Bread", 20 + i, today.plusDays(i), 2.5));
+      }
+      return products;
+   }
+
+   @Test
+   public void testSummaryMergesAllStores() {
+      List<CompletableFuture<Void>> added = new ArrayList<>();
+      for (int store = 0; store < STORES; store++) {
+         added.add(inventory.addAll("store-" + store, createProducts(store)));
+      }
+      CompletableFuture.allOf(added.toArray(new CompletableFuture<?>[0])).join();
+
+      inventory.advance(5);
+
+      // The same products in a single table, advanced the same way
+      Map<String, InventorySummary> byStore = inventory.summarizeByStore();
+      InventorySummary expected = InventorySummary.EMPTY;
+      for (int store = 0; store < STORES; store++) {
+         ProductTable table = new ProductTable();
+         createProducts(store).forEach(table::add);
+         table.advance(5);
+         InventorySummary summary = InventorySummary.of(table);
+         assertEquals(summary, byStore.get("store-" + store));
+         expected = expected.merge(summary);
+      }
+
+      InventorySummary summary = inventory.summarize();
+      assertEquals(STORES * 80, summary.products());
+      assertEquals(expected, summary);
+      assertTrue(summary.toRemove() > 0);
+      assertEquals(STORES, inventory.getStores().size());
+   }
+
+   @Test
+   public void testEveryStoreHasItsOwnWorker() {
+      for (int store = 0; store < 8; store++) {
+         inventory.add("store-" + store, createProducts(store).get(0));
+      }
+
+      Set<String> threads = inventory.aggregate(table -> Set.of(Thread.currentThread().getName()), (a, b) -> {
+         Set<String> merged = new HashSet<>(a);
+         merged.addAll(b);
+         return merged;
+      }, Set.of());
+
+      assertEquals(8, threads.size());
+      assertTrue(threads.contains("inventory-store-3"));
+   }
+
+   @Test
+   public void testChangesOfAStoreAreAppliedInOrder() {
+      List<Product> products = createProducts(0);
+      for (Product product : products) {
+         inventory.add("store", product);
+      }
+
+      List<String> ids = inventory.query("store", table -> {
+         List<String> result = new ArrayList<>();
+         for (int row = 0; row < table.size(); row++) {
+            result.add(table.getId(row));
+         }
+         return result;
+      });
+
+      assertEquals(products.stream().map(Product::getId).toList(), ids);
+   }
+
+   @Test
+   public void testFailuresAreRethrown() {
+      inventory.add("store", createProducts(0).get(0));
+
+      assertThrows(IllegalArgumentException.class, () -> inventory.advance(-1));
+      assertThrows(IndexOutOfBoundsException.class, () -> inventory.query("store", table -> table.getId(5)));
+      assertThrows(IllegalArgumentException.class, () -> inventory.query("unknown", ProductTable::size));
+   }
+}
@@ -0,0 +1,114 @@
+package com.monev.superdupermarkt.report;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.Wine;
+import com.monev.superdupermarkt.util.MeatTypeEnum;
+
+class ProductReportTest {
+
+   private static final String NL = System.lineSeparator();
+
+   private final LocalDate today = LocalDate.now();
+   private List<Product> products;
+
+   @BeforeEach
+   void setUp() {
+      products = List.of(new Cheese("C001", "Gouda", 35, today.plusDays(70), 5.5),
+            new Wine("W001", "Chardonnay, dry", 10, today, 15.0),
+            Meat.restore("M001", "Steak", 40, today.plusDays(3), 15.0, MeatTypeEnum.BEEF, true, 60),
+            new CommonProduct("P001", "A bread with a very long name", 20, today.plusDays(5), 2.5),
+            new Cheese("C002", "Brie", 60, today.plusDays(80), 6.0));
+   }
+
+   @Test
+   void testDetailsMatchToString() throws Exception {
+      StringBuilder expected = new StringBuilder();
+      for (Product product : products) {
+         expected.append(product).append(NL);
+      }
+      StringBuilder out = new StringBuilder();
+
+      assertEquals(5, new ProductReport(ReportLayout.DETAILS).render(products, out));
+      assertEquals(expected.toString(), out.toString());
+   }
+
+   @Test
+   void testTable() throws Exception {
+      StringBuilder out = new StringBuilder();
+      new ProductReport(ReportLayout.TABLE).render(products, out);
+      String[] lines = out.toString().split(NL);
+
+      assertEquals(6, lines.length);
+      assertTrue(lines[0].startsWith("Type           ID           Name"));
+      assertEquals("Cheese         C001         Gouda                        35.0 " + today.plusDays(70)
+            + "       9.0 Should be removed from shells: No", lines[1]);
+      assertEquals("Meat           M001         Steak                        40.0 " + today.plusDays(3)
+            + "      19.0 Is vacuum packed: Yes; Should be removed from shells: Yes", lines[3]);
+      // Names longer than the column are cut
+      assertTrue(lines[4].contains(" A bread with a very lon~ "));
+      assertTrue(lines[2].endsWith("15.0"));
+   }
+
+   @Test
+   void testCsv() throws Exception {
+      ProductReport report = new ProductReport(ReportLayout.CSV);
+      report.setPageSize(2);
+      StringBuilder out = new StringBuilder();
+      report.render(products, out);
+      String[] lines = out.toString().split("\n");
+
+      // The header is only written before the first page
+      assertEquals(6, lines.length);
+      assertEquals(ProductReport.CSV_HEADER, lines[0]);
+      assertEquals("Cheese,C001,Gouda,35.0," + today.plusDays(70) + ",9.0,Should be removed from shells: No",
+            lines[1]);
+      assertEquals("Wine,W001,\"Chardonnay, dry\",10.0," + today + ",15.0,", lines[2]);
+      assertEquals("Meat,M001,Steak,40.0," + today.plusDays(3)
+            + ",19.0,Is vacuum packed: Yes; Should be removed from shells: Yes", lines[3]);
+   }
+
+   @Test
+   void testPages() throws Exception {
+      ProductReport report = new ProductReport(ReportLayout.CSV);
+      report.setPageSize(2);
+      ProductReport.Pages pages = report.pages(products);
+      List<Integer> pageSizes = new ArrayList<>();
+      while (pages.hasNext()) {
+         pageSizes.add(pages.renderNext(new StringBuilder()));
+      }
+
+      assertEquals(List.of(2, 2, 1), pageSizes);
+      assertEquals(3, pages.getPageNumber());
+
+      StringBuilder out = new StringBuilder();
+      assertEquals(2, report.renderPage(products, 1, out));
+      assertEquals(2, out.toString().split("\n").length);
+      assertTrue(out.toString().startsWith("Meat,M001,"));
+      assertEquals(0, report.renderPage(products, 3, new StringBuilder()));
+   }
+
+   @Test
+   void testFilter() throws Exception {
+      ProductReport report = new ProductReport(ReportLayout.CSV);
+      report.setFilter(ProductReport.toBeRemoved());
+      StringBuilder out = new StringBuilder();
+
+      assertEquals(1, report.render(products, out));
+      assertTrue(out.toString().contains("M001"));
+
+      report.setFilter(ProductReport.ofType(Cheese.class));
+      assertEquals(2, report.render(products, new StringBuilder()));
+   }
+}
@@ -0,0 +1,47 @@
+package com.monev.superdupermarkt.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+
+class BinarySimulationSinkTest {
+
+   @Test
+   void testRecordsCanBeReadBack() throws IOException {
+      LocalDate today = LocalDate.now();
+      Cheese cheese = new Cheese("C001", "Gouda", 35.0, today.plusDays(75), 15.0);
+      CommonProduct bread = new CommonProduct("P001", "Bread", 20.0, today, 2.5);
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (BinarySimulationSink sink = new BinarySimulationSink(out)) {
+         cheese.simulateQualityChange(2, sink);
+         bread.simulateQualityChange(1, sink);
+      }
+
+      List<SimulationRecord> records = new ArrayList<>();
+      BinarySimulationSink.read(new ByteArrayInputStream(out.toByteArray()), records::add);
+
+      assertEquals(5, records.size());
+      assertEquals(new SimulationRecord("C001", today, 35.0, 18.5, false), records.get(0));
+      assertEquals(new SimulationRecord("C001", today.plusDays(2), 33.0, 18.3, false), records.get(2));
+      assertEquals(new SimulationRecord("P001", today.plusDays(1), 19.76, 4.48, false), records.get(4));
+   }
+
+   @Test
+   void testInvalidStream() {
+      byte[] data = { 1, 2, 3, 4 };
+      assertThrows(IOException.class, () -> BinarySimulationSink.read(new ByteArrayInputStream(data), r -> {
+      }));
+   }
+}
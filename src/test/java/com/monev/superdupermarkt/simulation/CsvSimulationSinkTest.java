@@ -0,0 +1,28 @@
+package com.monev.superdupermarkt.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringWriter;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+import com.monev.superdupermarkt.types.Wine;
+
+class CsvSimulationSinkTest {
+
+   @Test
+   void testWritesOneLinePerDay() {
+      LocalDate today = LocalDate.now();
+      Wine wine = new Wine("W,001", "Chardonnay", 45.0, today.minusDays(9), 10.0);
+
+      StringWriter writer = new StringWriter();
+      try (CsvSimulationSink sink = new CsvSimulationSink(writer)) {
+         wine.simulateQualityChange(1, sink);
+      }
+
+      String expected = CsvSimulationSink.HEADER + "\n" + "\"W,001\"," + today + ",45.0,10.0,false\n" + "\"W,001\","
+            + today.plusDays(1) + ",45.0,10.0,true\n";
+      assertEquals(expected, writer.toString());
+   }
+}
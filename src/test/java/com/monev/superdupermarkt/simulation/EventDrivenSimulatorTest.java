@@ -0,0 +1,99 @@
+package com.monev.superdupermarkt.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.Wine;
+import com.monev.superdupermarkt.util.MeatTypeEnum;
+
+class EventDrivenSimulatorTest {
+
+   private LocalDate today;
+   private List<Product> products;
+
+   @BeforeEach
+   void setUp() {
+      today = LocalDate.now();
+      products = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+         products.add(new Cheese("C" + i, "Gouda", 35 + i, today.plusDays(60 + i), 15.0));
+         products.add(new Wine("W" + i, "Chardonnay", 2 * i, today.minusDays(3 * i).plusDays(5), 10.0));
+         products.add(new Meat("M" + i, "Beef Steak", 60 + i, today.plusDays(i % 2 == 0 ? 6 + i % 4 : 3 + i % 2), 15.00,
+               MeatTypeEnum.BEEF, i % 2 == 0));
+         products.add(new CommonProduct("P" + i, "Bread", 20 + i, today.plusDays(i % 5), 2.5));
+      }
+      // Far in the future, so its expiry waits outside of the wheel
+      products.add(new Wine("W-LATE", "Bordeaux", 20, today.plusDays(3 * EventDrivenSimulator.WHEEL_SIZE), 30.0));
+   }
+
+   @Test
+   void testEventsMatchDailySimulation() {
+      EventDrivenSimulator simulator = new EventDrivenSimulator(today);
+      for (Product product : products) {
+         simulator.add(product);
+      }
+      assertEquals(products.size(), simulator.size());
+
+      int days = 4 * EventDrivenSimulator.WHEEL_SIZE;
+      Set<String> expected = new HashSet<>();
+      for (Product product : products) {
+         for (int d = 1; d <= days; d++) {
+            LocalDate date = today.plusDays(d);
+            LocalDate previous = date.minusDays(1);
+            if (product.getExpiryDate().plusDays(1).equals(date)) {
+               expected.add(key(product, date, SimulationEvent.Type.EXPIRED));
+            }
+            if (product.shouldBeRemoved(product.qualityAt(date))
+                  && !product.shouldBeRemoved(product.qualityAt(previous))) {
+               expected.add(key(product, date, SimulationEvent.Type.REMOVE_FROM_SHELVES));
+            }
+            if (product instanceof Wine && product.qualityAt(date) != product.qualityAt(previous)) {
+               expected.add(key(product, date, SimulationEvent.Type.QUALITY_STEP));
+            }
+         }
+      }
+
+      Set<String> actual = new HashSet<>();
+      LocalDate[] lastDate = { today };
+      simulator.advance(days, event -> {
+         assertTrue(!event.date().isBefore(lastDate[0]), "Events must be passed in the order of the days");
+         lastDate[0] = event.date();
+         assertTrue(actual.add(key(event.product(), event.date(), event.type())), "Duplicate event " + event);
+      });
+
+      assertEquals(expected, actual);
+      assertEquals(today.plusDays(days), simulator.getToday());
+   }
+
+   @Test
+   void testAdvanceOneDay() {
+      EventDrivenSimulator simulator = new EventDrivenSimulator(today);
+      Cheese cheese = new Cheese("C001", "Gouda", 31.5, today.plusDays(75), 15.0);
+      simulator.add(cheese);
+
+      assertTrue(simulator.advance().isEmpty());
+      List<SimulationEvent> events = simulator.advance();
+
+      assertEquals(List.of(new SimulationEvent(cheese, today.plusDays(2), SimulationEvent.Type.REMOVE_FROM_SHELVES)),
+            events);
+      assertEquals(29.5, simulator.qualityOf(cheese));
+      assertEquals(31.5, cheese.getQuality());
+   }
+
+   private static String key(Product product, LocalDate date, SimulationEvent.Type type) {
+      return product.getId() + " " + date + " " + type;
+   }
+}
@@ -0,0 +1,99 @@
+package com.monev.superdupermarkt.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+import com.monev.superdupermarkt.types.Wine;
+
+class JdbcSimulationSinkTest {
+
+   private static final String URL = "jdbc:h2:mem:simulationsink;DB_CLOSE_DELAY=-1";
+
+   private List<Connection> connections;
+   private List<Product> products;
+
+   @BeforeEach
+   void setUp() throws Exception {
+      connections = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+         connections.add(DriverManager.getConnection(URL));
+      }
+      JdbcSimulationSink.createTable(connections.get(0), "simulation");
+
+      LocalDate today = LocalDate.now();
+      products = new ArrayList<>();
+      for (int i = 0; i < 300; i++) {
+         products.add(new Cheese("C" + i, "Gouda", 35 + i % 50, today.plusDays(60 + i % 30), 15.0));
+         products.add(new Wine("W" + i, "Chardonnay", i % 50, today.minusDays(i), 10.0));
+         products.add(new CommonProduct("P" + i, "Bread", 20 + i % 10, today.plusDays(i % 5), 2.5));
+      }
+   }
+
+   @AfterEach
+   void tearDown() throws Exception {
+      try (Statement stmt = connections.get(0).createStatement()) {
+         stmt.execute("DROP ALL OBJECTS");
+      }
+      for (Connection connection : connections) {
+         connection.close();
+      }
+   }
+
+   @Test
+   void testInsertsOneRowPerDayOverSeveralConnections() throws Exception {
+      int days = 30;
+      Set<SimulationRecord> expected = new HashSet<>();
+      for (Product product : products) {
+         product.clone().simulateQualityChange(days, (p, state) -> expected.add(SimulationRecord.of(p, state)));
+      }
+
+      ForkJoinPool pool = new ForkJoinPool(4);
+      try (JdbcSimulationSink sink = new JdbcSimulationSink(connections, "simulation", 250)) {
+         new SimulationEngine(pool).simulate(products, days, sink);
+         assertEquals(products.size() * (days + 1L), sink.getRowCount());
+      } finally {
+         pool.shutdown();
+      }
+
+      assertEquals(expected, readRecords());
+      assertEquals(true, connections.get(1).getAutoCommit());
+   }
+
+   @Test
+   void testInsertsRemainingRowsOnClose() throws Exception {
+      try (JdbcSimulationSink sink = new JdbcSimulationSink(connections.get(0), "simulation")) {
+         products.get(0).clone().simulateQualityChange(2, sink);
+      }
+
+      assertEquals(3, readRecords().size());
+   }
+
+   private Set<SimulationRecord> readRecords() throws Exception {
+      Set<SimulationRecord> records = new HashSet<>();
+      try (Statement stmt = connections.get(0).createStatement();
+            ResultSet rs = stmt.executeQuery("SELECT * FROM simulation")) {
+         while (rs.next()) {
+            records.add(new SimulationRecord(rs.getString("product_id"), rs.getDate("simulation_date").toLocalDate(),
+                  rs.getDouble("quality"), rs.getDouble("daily_price"), rs.getBoolean("expired")));
+         }
+      }
+      return records;
+   }
+}
@@ -0,0 +1,64 @@
+package com.monev.superdupermarkt.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.monev.superdupermarkt.types.Cheese;
+
+class PublisherSimulationSinkTest {
+
+   @Test
+   void testSubscriberReceivesAllRecordsInOrder() throws InterruptedException {
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      List<SimulationRecord> received = new CopyOnWriteArrayList<>();
+      CountDownLatch completed = new CountDownLatch(1);
+
+      // Buffer of one record, so the simulation has to wait for the subscriber
+      PublisherSimulationSink sink = new PublisherSimulationSink(executor, 1);
+      sink.subscribe(new Flow.Subscriber<SimulationRecord>() {
+         private Flow.Subscription subscription;
+
+         @Override
+         public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+         }
+
+         @Override
+         public void onNext(SimulationRecord item) {
+            received.add(item);
+            subscription.request(1);
+         }
+
+         @Override
+         public void onError(Throwable throwable) {
+         }
+
+         @Override
+         public void onComplete() {
+            completed.countDown();
+         }
+      });
+
+      Cheese cheese = new Cheese("C001", "Gouda", 35.0, LocalDate.now().plusDays(75), 15.0);
+      cheese.simulateQualityChange(20, sink);
+      sink.close();
+
+      assertTrue(completed.await(10, TimeUnit.SECONDS));
+      assertEquals(21, received.size());
+      assertEquals(35.0, received.get(0).quality());
+      assertEquals(15.0, received.get(20).quality());
+      executor.shutdown();
+   }
+}
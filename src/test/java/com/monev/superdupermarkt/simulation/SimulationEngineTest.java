@@ -0,0 +1,110 @@
+package com.monev.superdupermarkt.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.Wine;
+import com.monev.superdupermarkt.util.MeatTypeEnum;
+
+class SimulationEngineTest {
+
+   private List<Product> products;
+   private ForkJoinPool pool;
+
+   @BeforeEach
+   void setUp() {
+      LocalDate today = LocalDate.now();
+      products = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+         products.add(new Cheese("C" + i, "Gouda", 35 + i % 50, today.plusDays(60 + i % 30), 15.0));
+         products.add(new Wine("W" + i, "Chardonnay", i % 50, today.minusDays(i), 10.0));
+         products.add(new Meat("M" + i, "Beef Steak", 60 + i % 20, today.plusDays(3), 15.00, MeatTypeEnum.BEEF, false));
+         products.add(new CommonProduct("P" + i, "Bread", 20 + i % 10, today.plusDays(i % 5), 2.5));
+      }
+      pool = new ForkJoinPool(4);
+   }
+
+   @AfterEach
+   void tearDown() {
+      pool.shutdown();
+   }
+
+   @Test
+   void testOutputMatchesSerialSimulation() {
+      int days = 30;
+
+      StringWriter expected = new StringWriter();
+      try (TextSimulationSink serialSink = new TextSimulationSink(expected)) {
+         for (Product product : products) {
+            Product productClone = product.clone();
+            serialSink.beginProduct(productClone);
+            productClone.simulateQualityChange(days, serialSink);
+         }
+      }
+
+      StringWriter actual = new StringWriter();
+      try (TextSimulationSink sink = new TextSimulationSink(actual)) {
+         new SimulationEngine(pool).simulate(products, days, sink);
+      }
+
+      assertEquals(expected.toString(), actual.toString());
+   }
+
+   @Test
+   void testBinaryOutputMatchesSerialSimulation() {
+      int days = 5;
+
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      try (BinarySimulationSink serialSink = new BinarySimulationSink(expected)) {
+         for (Product product : products) {
+            product.clone().simulateQualityChange(days, serialSink);
+         }
+      }
+
+      ByteArrayOutputStream actual = new ByteArrayOutputStream();
+      try (BinarySimulationSink sink = new BinarySimulationSink(actual)) {
+         new SimulationEngine(pool).simulate(products, days, sink);
+      }
+
+      assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+   }
+
+   @Test
+   void testSinkWithoutOwnForksKeepsOrder() {
+      int days = 3;
+
+      List<SimulationRecord> expected = new ArrayList<>();
+      for (Product product : products) {
+         product.simulate(days, (p, state) -> expected.add(SimulationRecord.of(p, state)));
+      }
+
+      List<SimulationRecord> actual = new ArrayList<>();
+      new SimulationEngine(pool).simulate(products, days, (p, state) -> actual.add(SimulationRecord.of(p, state)));
+
+      assertEquals(expected, actual);
+   }
+
+   @Test
+   void testProductsAreNotChanged() {
+      double quality = products.get(0).getQuality();
+
+      new SimulationEngine(pool).simulate(products, 10, new CsvSimulationSink(new StringWriter()));
+
+      assertEquals(quality, products.get(0).getQuality());
+   }
+}
@@ -0,0 +1,33 @@
+package com.monev.superdupermarkt.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringWriter;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+import com.monev.superdupermarkt.types.Cheese;
+
+class TextSimulationSinkTest {
+
+   @Test
+   void testWritesConsoleFormat() {
+      LocalDate today = LocalDate.now();
+      Cheese cheese = new Cheese("C001", "Gouda", 35.0, today.plusDays(75), 15.0);
+
+      StringBuilder expected = new StringBuilder();
+      for (int i = 0; i <= 2; i++) {
+         Cheese day = new Cheese("C001", "Gouda", 35.0 - i, today.plusDays(75), 15.0);
+         expected.append("Date: " + today.plusDays(i) + System.lineSeparator());
+         expected.append(day + System.lineSeparator());
+      }
+
+      StringWriter writer = new StringWriter();
+      try (TextSimulationSink sink = new TextSimulationSink(writer)) {
+         cheese.simulateQualityChange(2, sink);
+      }
+
+      assertEquals(expected.toString(), writer.toString());
+   }
+}
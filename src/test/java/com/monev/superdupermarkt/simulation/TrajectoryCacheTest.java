@@ -0,0 +1,134 @@
+package com.monev.superdupermarkt.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductState;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.Wine;
+import com.monev.superdupermarkt.util.MeatTypeEnum;
+
+class TrajectoryCacheTest {
+
+   private final LocalDate today = LocalDate.now();
+
+   @Test
+   void testSharesStatesOfMatchingProducts() {
+      TrajectoryCache cache = new TrajectoryCache(16);
+      Cheese gouda = new Cheese("C001", "Gouda", 40, today.plusDays(70), 5.0);
+      Cheese brie = new Cheese("C002", "Brie", 40, today.plusDays(70), 9.0);
+      Cheese edam = new Cheese("C003", "Edam", 40, today.plusDays(80), 5.0);
+      List<ProductState> goudaStates = new ArrayList<>();
+      List<ProductState> brieStates = new ArrayList<>();
+
+      cache.simulate(gouda, 10, (product, state) -> goudaStates.add(state));
+      cache.simulate(brie, 10, (product, state) -> brieStates.add(state));
+      cache.simulate(edam, 10, (product, state) -> {
+      });
+
+      assertEquals(11, brieStates.size());
+      for (int day = 0; day <= 10; day++) {
+         assertSame(goudaStates.get(day), brieStates.get(day));
+      }
+      assertEquals(1, cache.getHits());
+      assertEquals(2, cache.getMisses());
+      assertEquals(2, cache.size());
+   }
+
+   @Test
+   void testMeatIsKeyedByQualityLoss() {
+      TrajectoryCache cache = new TrajectoryCache(16);
+      // Both lose 2 quality per day before the expiry date
+      Meat beef = new Meat("M001", "Steak", 60, today.plusDays(3), 15.0, MeatTypeEnum.BEEF, false);
+      Meat otherBeef = new Meat("M002", "Roast", 60, today.plusDays(3), 12.0, MeatTypeEnum.BEEF, false);
+      Meat richerBeef = new Meat("M003", "Steak", 80, today.plusDays(3), 15.0, MeatTypeEnum.BEEF, false);
+
+      for (Product product : List.of(beef, otherBeef, richerBeef)) {
+         cache.simulate(product, 5, (p, state) -> {
+         });
+      }
+
+      assertEquals(1, cache.getHits());
+      assertEquals(2, cache.getMisses());
+   }
+
+   @Test
+   void testLongerSimulationIsMissAndShorterIsHit() {
+      TrajectoryCache cache = new TrajectoryCache(16);
+      Wine wine = new Wine("W001", "Chardonnay", 20, today.minusDays(5), 10.0);
+
+      cache.simulate(wine, 10, (product, state) -> {
+      });
+      cache.simulate(wine, 30, (product, state) -> {
+      });
+      cache.simulate(wine, 20, (product, state) -> {
+      });
+
+      assertEquals(1, cache.getHits());
+      assertEquals(2, cache.getMisses());
+      assertEquals(1, cache.size());
+   }
+
+   @Test
+   void testEvictsLeastRecentlyUsed() {
+      TrajectoryCache cache = new TrajectoryCache(2);
+      CommonProduct bread = new CommonProduct("P001", "Bread", 20, today, 2.5);
+      CommonProduct butter = new CommonProduct("P002", "Butter", 30, today, 2.5);
+      CommonProduct milk = new CommonProduct("P003", "Milk", 40, today, 2.5);
+      SimulationSink ignore = (product, state) -> {
+      };
+
+      cache.simulate(bread, 5, ignore);
+      cache.simulate(butter, 5, ignore);
+      cache.simulate(bread, 5, ignore);
+      cache.simulate(milk, 5, ignore);
+      cache.simulate(bread, 5, ignore);
+      cache.simulate(butter, 5, ignore);
+
+      assertEquals(2, cache.getHits());
+      assertEquals(4, cache.getMisses());
+      assertEquals(2, cache.getEvictions());
+      assertEquals(2, cache.size());
+   }
+
+   @Test
+   void testEngineOutputMatchesUncachedSimulation() {
+      List<Product> products = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+         products.add(new Cheese("C" + i, "Gouda", 35 + i % 5, today.plusDays(60 + i % 3), 15.0));
+         products.add(new Wine("W" + i, "Chardonnay", i % 4, today.minusDays(i % 7), 10.0));
+         products.add(new Meat("M" + i, "Beef Steak", 60 + i % 3, today.plusDays(3), 15.00, MeatTypeEnum.BEEF,
+               false));
+         products.add(new CommonProduct("P" + i, "Bread", 20 + i % 2, today.plusDays(i % 5), 2.5));
+      }
+      ForkJoinPool pool = new ForkJoinPool(4);
+      TrajectoryCache cache = new TrajectoryCache(64);
+      try {
+         StringWriter expected = new StringWriter();
+         try (TextSimulationSink sink = new TextSimulationSink(expected)) {
+            new SimulationEngine(pool).simulate(products, 30, sink);
+         }
+
+         StringWriter actual = new StringWriter();
+         try (TextSimulationSink sink = new TextSimulationSink(actual)) {
+            new SimulationEngine(pool, cache).simulate(products, 30, sink);
+         }
+
+         assertEquals(expected.toString(), actual.toString());
+         assertEquals(products.size(), cache.getHits() + cache.getMisses());
+      } finally {
+         pool.shutdown();
+      }
+   }
+}
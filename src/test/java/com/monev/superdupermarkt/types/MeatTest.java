@@ -5,6 +5,8 @@ import org.junit.jupiter.api.Test;
 
 import com.monev.superdupermarkt.util.MeatTypeEnum;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.time.LocalDate;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -82,6 +84,25 @@ class MeatTest {
       assertEquals(53, expiredMeat.getQuality());
    }
 
+   @Test
+   void testQualityModifier() {
+      assertEquals(2, meat.getQualityModifier());
+      assertEquals(1, vacuumPackedMeat.getQualityModifier());
+   }
+
+   @Test
+   void testUpdateQualityPrintsNothingWithoutTracing() {
+      PrintStream originalOut = System.out;
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      System.setOut(new PrintStream(out));
+      try {
+         meat.updateQuality();
+      } finally {
+         System.setOut(originalOut);
+      }
+      assertEquals("", out.toString());
+   }
+
    @Test
    void testToString() {
       StringBuilder sb = new StringBuilder();
@@ -0,0 +1,151 @@
+package com.monev.superdupermarkt.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.Wine;
+
+class CsvProductParserTest {
+
+   private static final String HEADER = "Type,ID,Name,Quality,Expiry Date,Default Price,Meat Type,Vacuum Packed\n";
+
+   @TempDir
+   Path tempDir;
+
+   @Test
+   void testParseQuotedFieldsAndTrailingColumns() throws IOException {
+      LocalDate cheeseExpiry = LocalDate.now().plusDays(60);
+      LocalDate meatExpiry = LocalDate.now().plusDays(3);
+      Path file = write("\uFEFF" + HEADER
+            + "Cheese,C001,\"Gouda, \"\"aged\"\"\",35," + cheeseExpiry + ",5.50,,,\r\n"
+            + "\n"
+            + "Wine,\"W001\",\"Red\nWine\",45,2024-12-30,12.00,,,\n"
+            + "Meat,M001,Beef Steak,60," + meatExpiry + ",15.00,beef,FALSE");
+
+      List<Product> products = parse(file, CsvProductParser.DEFAULT_WINDOW_SIZE);
+
+      assertEquals(3, products.size());
+      Product cheese = products.get(0);
+      assertTrue(cheese instanceof Cheese);
+      assertEquals("Gouda, \"aged\"", cheese.getName());
+      assertEquals(35, cheese.getQuality());
+      assertEquals(cheeseExpiry, cheese.getExpiryDate());
+      assertEquals(5.50, cheese.getDefaultPrice());
+
+      Product wine = products.get(1);
+      assertTrue(wine instanceof Wine);
+      assertEquals("W001", wine.getId());
+      assertEquals("Red\nWine", wine.getName());
+      assertEquals(LocalDate.of(2024, 12, 30), wine.getExpiryDate());
+
+      Meat meat = (Meat) products.get(2);
+      assertEquals(MeatTypeEnum.BEEF, meat.getMeatType());
+      assertEquals(false, meat.isVacuumPacked());
+      assertEquals(meatExpiry, meat.getExpiryDate());
+   }
+
+   @Test
+   void testFailuresAreReportedWithLineNumber() throws IOException {
+      Path file = write(HEADER
+            + "Wine,W001,\"Multi\nLine\",45,2024-12-30,12.00\n"
+            + "Wine,W002,Red Wine,lots,2024-12-30,12.00\n"
+            + "Meat,M001,Beef Steak,60,2024-12-30,15.00,,\n"
+            + "Wine,W003,Red Wine,45,2024-12-30\n"
+            + "Wine,W004,Red Wine,45,2024-12-30,12.00\n");
+
+      PrintStream err = System.err;
+      ByteArrayOutputStream errors = new ByteArrayOutputStream();
+      List<Product> products;
+      try {
+         System.setErr(new PrintStream(errors, true, StandardCharsets.UTF_8));
+         products = parse(file, CsvProductParser.DEFAULT_WINDOW_SIZE);
+      } finally {
+         System.setErr(err);
+      }
+
+      assertEquals(List.of("W001", "W004"), products.stream().map(Product::getId).toList());
+      String report = errors.toString(StandardCharsets.UTF_8);
+      assertTrue(report.contains("type Wine on line 4: For input string: \"lots\""), report);
+      assertTrue(report.contains("type Meat on line 5: Meat type is missing."), report);
+      assertTrue(report.contains("type Wine on line 6: Missing column 6"), report);
+   }
+
+   @Test
+   void testSmallWindowsMatchSingleWindow() throws IOException {
+      Random random = new Random(42);
+      StringBuilder csv = new StringBuilder(HEADER);
+      for (int i = 0; i < 500; i++) {
+         String name = random.nextBoolean() ? "\"Wine, no. " + i + "\"" : "Wine " + i;
+         double price = random.nextInt(100000) / (random.nextBoolean() ? 100.0 : 1000.0);
+         csv.append("Wine,W").append(i).append(',').append(name).append(',').append(random.nextInt(50)).append(',')
+               .append(LocalDate.of(2020, 1, 1).plusDays(random.nextInt(2000))).append(',').append(price)
+               .append(",,,\n");
+      }
+      Path file = write(csv.toString());
+
+      List<Product> expected = parse(file, CsvProductParser.DEFAULT_WINDOW_SIZE);
+      List<Product> actual = parse(file, 7);
+
+      assertEquals(500, expected.size());
+      assertEquals(expected.size(), actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+         assertEquals(expected.get(i).getId(), actual.get(i).getId());
+         assertEquals(expected.get(i).getName(), actual.get(i).getName());
+         assertEquals(expected.get(i).getQuality(), actual.get(i).getQuality());
+         assertEquals(expected.get(i).getExpiryDate(), actual.get(i).getExpiryDate());
+         assertEquals(expected.get(i).getDefaultPrice(), actual.get(i).getDefaultPrice());
+      }
+   }
+
+   @Test
+   void testNumbersMatchJavaParsing() throws IOException {
+      Random random = new Random(7);
+      List<String> prices = new ArrayList<>(List.of("0.1", "5.", ".5", "-2.25", "1e3", "123456789012345678.9"));
+      for (int i = 0; i < 1000; i++) {
+         prices.add(Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(10))));
+         prices.add(random.nextInt(1000000) + "." + random.nextInt(1000));
+      }
+      StringBuilder csv = new StringBuilder(HEADER);
+      for (int i = 0; i < prices.size(); i++) {
+         csv.append("Wine,W").append(i).append(",Wine,").append(i % 50).append(",2024-02-30,").append(prices.get(i))
+               .append('\n');
+      }
+
+      List<Product> products = parse(write(csv.toString()), CsvProductParser.DEFAULT_WINDOW_SIZE);
+
+      assertEquals(prices.size(), products.size());
+      for (int i = 0; i < prices.size(); i++) {
+         assertEquals(Double.parseDouble(prices.get(i)), products.get(i).getDefaultPrice(), prices.get(i));
+         assertEquals(i % 50, products.get(i).getQuality());
+         // Resolved by the date formatter, like before
+         assertEquals(LocalDate.of(2024, 2, 29), products.get(i).getExpiryDate());
+      }
+   }
+
+   private Path write(String content) throws IOException {
+      return Files.writeString(tempDir.resolve("products.csv"), content, StandardCharsets.UTF_8);
+   }
+
+   private static List<Product> parse(Path file, int windowSize) throws IOException {
+      List<Product> products = new ArrayList<>();
+      ProductImporter.newCsvParser(windowSize).parse(file, products::add);
+      return products;
+   }
+}
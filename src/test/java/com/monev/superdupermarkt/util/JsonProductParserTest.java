@@ -0,0 +1,115 @@
+package com.monev.superdupermarkt.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.Wine;
+import com.monev.superdupermarkt.util.ProductImporter.FileFormat;
+
+class JsonProductParserTest {
+
+   @TempDir
+   Path tempDir;
+
+   @Test
+   void testParseArray() throws IOException {
+      LocalDate cheeseExpiry = LocalDate.now().plusDays(60);
+      LocalDate meatExpiry = LocalDate.now().plusDays(7);
+      String json = "\uFEFF[\n"
+            + "  {\"type\": \"Cheese\", \"id\": \"C001\", \"name\": \"Gouda \\\"aged\\\" \\u00e9\", \"quality\": 35,"
+            + " \"expiryDate\": \"" + cheeseExpiry + "\", \"defaultPrice\": 5.50,"
+            + " \"supplier\": {\"name\": \"Farm\", \"tags\": [1, \"two\", {\"x\": null}]}},\n"
+            + "  {\"id\": \"W001\", \"type\": \"Wine\", \"quality\": 45, \"expiryDate\": \"2024-12-30\","
+            + " \"defaultPrice\": 12, \"name\": \"Red Wine\", \"meatType\": null},\n"
+            + "  {\"type\": \"Meat\", \"id\": \"M001\", \"name\": \"Lamb\", \"quality\": 60, \"expiryDate\": \""
+            + meatExpiry + "\", \"defaultPrice\": 20.0, \"meatType\": \"lamb\", \"vacuumPacked\": true}\n"
+            + "]\n";
+
+      for (int bufferSize : new int[] { 1, 3, JsonProductParser.DEFAULT_BUFFER_SIZE }) {
+         List<Product> products = parse(json, bufferSize);
+
+         assertEquals(3, products.size(), "Buffer size " + bufferSize);
+         Product cheese = products.get(0);
+         assertTrue(cheese instanceof Cheese);
+         assertEquals("Gouda \"aged\" \u00e9", cheese.getName());
+         assertEquals(35, cheese.getQuality());
+         assertEquals(cheeseExpiry, cheese.getExpiryDate());
+         assertEquals(5.50, cheese.getDefaultPrice());
+
+         Product wine = products.get(1);
+         assertTrue(wine instanceof Wine);
+         assertEquals("Red Wine", wine.getName());
+         assertEquals(12.0, wine.getDefaultPrice());
+
+         Meat meat = (Meat) products.get(2);
+         assertEquals(MeatTypeEnum.LAMB, meat.getMeatType());
+         assertTrue(meat.isVacuumPacked());
+      }
+   }
+
+   @Test
+   void testParseNewlineDelimitedFile() throws IOException {
+      StringBuilder json = new StringBuilder();
+      for (int i = 0; i < 100; i++) {
+         json.append("{\"type\":\"Wine\",\"id\":\"W").append(i).append("\",\"name\":\"Wine\",\"quality\":")
+               .append(i % 50).append(",\"expiryDate\":\"2024-12-30\",\"defaultPrice\":10.0}\n");
+      }
+      String file = Files.writeString(tempDir.resolve("products.ndjson"), json, StandardCharsets.UTF_8).toString();
+
+      List<Product> products = ProductImporter.importFromFile(file, FileFormat.JSON);
+
+      assertEquals(100, products.size());
+      assertEquals("W99", products.get(99).getId());
+      assertEquals(49, products.get(99).getQuality());
+   }
+
+   @Test
+   void testFailuresAreReportedWithLineNumber() throws IOException {
+      String json = "{\"type\":\"Wine\",\"id\":\"W001\",\"name\":\"Wine\",\"quality\":10,\"defaultPrice\":1}\n"
+            + "{\"type\":\"Wine\",\"id\":\"W002\",\"name\":\"Wine\",\"quality\":\"lots\",\"defaultPrice\":1}\n"
+            + "{\"type\":\"Meat\",\"id\":\"M001\",\n\"name\":\"Beef\",\"quality\":60,\"defaultPrice\":1}\n"
+            + "{\"type\":\"Wine\",\"id\":\"W003\",\"name\":\"Wine\",\"defaultPrice\":1}\n"
+            + "{\"type\":\"Wine\",\"id\":\"W004\",\"name\":\"Wine\",\"quality\":10,\"defaultPrice\":1}\n";
+      List<ImportFailure> failures = new ArrayList<>();
+      List<Product> products = new ArrayList<>();
+      JsonProductParser parser = ProductImporter.newJsonParser(JsonProductParser.DEFAULT_BUFFER_SIZE);
+      parser.setFailureHandler(failures::add);
+
+      parser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), products::add);
+
+      assertEquals(List.of("W001", "W004"), products.stream().map(Product::getId).toList());
+      assertEquals(List.of(2L, 3L, 5L), failures.stream().map(ImportFailure::lineNumber).toList());
+      assertEquals("For input string: \"lots\"", failures.get(0).message());
+      assertEquals("Meat type is missing.", failures.get(1).message());
+      assertEquals("Missing field quality", failures.get(2).message());
+   }
+
+   @Test
+   void testInvalidJson() {
+      IOException e = assertThrows(IOException.class, () -> parse("[{\"type\":\"Wine\",\n\"id\" \"W001\"}]", 16));
+      assertEquals("Invalid JSON on line 2: Expected ':'", e.getMessage());
+   }
+
+   private static List<Product> parse(String json, int bufferSize) throws IOException {
+      List<Product> products = new ArrayList<>();
+      ProductImporter.newJsonParser(bufferSize).parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+            products::add);
+      return products;
+   }
+}
@@ -0,0 +1,112 @@
+package com.monev.superdupermarkt.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.monev.superdupermarkt.Product;
+
+class ParallelCsvImporterTest {
+
+   @TempDir
+   Path tempDir;
+
+   private Path file;
+
+   @BeforeEach
+   void setUp() throws IOException {
+      StringBuilder csv = new StringBuilder("Type,ID,Name,Quality,Expiry Date,Default Price,Meat Type,Vacuum Packed\n");
+      for (int i = 0; i < 2000; i++) {
+         if (i % 97 == 0) {
+            csv.append("Wine,W").append(i).append(",Broken Wine,lots,2024-12-30,12.00,,,\n");
+         } else if (i % 3 == 0) {
+            // Line breaks in quoted fields can end up right at a chunk boundary
+            csv.append("Wine,W").append(i).append(",\"Red\n\n\nWine\n").append(i).append("\",").append(i % 50)
+                  .append(",2024-12-30,12.00,,,\n");
+         } else {
+            csv.append("Wine,W").append(i).append(",White Wine,").append(i % 50).append(',')
+                  .append(LocalDate.of(2024, 1, 1).plusDays(i)).append(",15.00,,,\n");
+         }
+      }
+      file = Files.writeString(tempDir.resolve("products.csv"), csv.toString(), StandardCharsets.UTF_8);
+   }
+
+   @Test
+   void testImportMatchesSingleParser() throws IOException {
+      List<Product> expected = new ArrayList<>();
+      String expectedErrors = captureErrors(
+            () -> ProductImporter.newCsvParser(CsvProductParser.DEFAULT_WINDOW_SIZE).parse(file, expected::add));
+
+      for (int minChunkSize : new int[] { 1, 7, 64, 1000 }) {
+         List<Product> actual = new ArrayList<>();
+         String actualErrors = captureErrors(() -> actual.addAll(newImporter(minChunkSize).importFile(file)));
+
+         assertEquals(ids(expected), ids(actual), "Chunk size " + minChunkSize);
+         assertEquals(expectedErrors, actualErrors, "Chunk size " + minChunkSize);
+      }
+   }
+
+   @Test
+   void testImportToConsumer() throws IOException {
+      Set<String> ids = ConcurrentHashMap.newKeySet();
+
+      captureErrors(() -> newImporter(64).importFile(file, product -> ids.add(product.getId())));
+
+      assertEquals(2000 - 21, ids.size());
+   }
+
+   @Test
+   void testImportWithMoreChunksThanAreInFlight() throws IOException {
+      List<Product> expected = new ArrayList<>();
+      captureErrors(() -> expected.addAll(newImporter(1000).importFile(file)));
+      List<Product> actual = new ArrayList<>();
+      Set<String> delivered = ConcurrentHashMap.newKeySet();
+
+      // Chunks of at most 256 bytes, so there are hundreds of them
+      ParallelCsvImporter importer = new ParallelCsvImporter(() -> ProductImporter.newCsvParser(16), 4, 1, 256);
+      captureErrors(() -> actual.addAll(importer.importFile(file)));
+      captureErrors(() -> importer.importFile(file, product -> delivered.add(product.getId())));
+
+      assertEquals(ids(expected), ids(actual));
+      assertEquals(2000 - 21, delivered.size());
+   }
+
+   private ParallelCsvImporter newImporter(int minChunkSize) {
+      return new ParallelCsvImporter(() -> ProductImporter.newCsvParser(16), 4, minChunkSize);
+   }
+
+   private static List<String> ids(List<Product> products) {
+      return products.stream().map(product -> product.getId() + "/" + product.getName()).collect(Collectors.toList());
+   }
+
+   private static String captureErrors(Import importer) throws IOException {
+      PrintStream err = System.err;
+      ByteArrayOutputStream errors = new ByteArrayOutputStream();
+      try {
+         System.setErr(new PrintStream(errors, true, StandardCharsets.UTF_8));
+         importer.run();
+      } finally {
+         System.setErr(err);
+      }
+      return errors.toString(StandardCharsets.UTF_8);
+   }
+
+   private interface Import {
+      void run() throws IOException;
+   }
+}
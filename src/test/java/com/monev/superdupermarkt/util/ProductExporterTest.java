@@ -0,0 +1,107 @@
+package com.monev.superdupermarkt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.Wine;
+
+class ProductExporterTest {
+
+   private static final String URL = "jdbc:h2:mem:exportertest;DB_CLOSE_DELAY=-1";
+
+   private Connection connection;
+
+   @BeforeEach
+   void setUp() throws Exception {
+      connection = DriverManager.getConnection(URL);
+   }
+
+   @AfterEach
+   void tearDown() throws Exception {
+      try (Statement stmt = connection.createStatement()) {
+         stmt.execute("DROP ALL OBJECTS");
+      }
+      connection.close();
+   }
+
+   @Test
+   void testExportedProductsCanBeImported() throws Exception {
+      createTable("products", true);
+      LocalDate today = LocalDate.now();
+      List<Product> products = List.of(new Cheese("C001", "Gouda", 40, today.plusDays(70), 5.0),
+            new Wine("W001", "Chardonnay", 10, today, 15.0),
+            new Meat("M001", "Steak", 60, today.plusDays(7), 15.0, MeatTypeEnum.PORK, true),
+            new CommonProduct("P001", "Bread", 30, today.plusDays(3), 2.5));
+
+      assertEquals(4, ProductExporter.exportToSQL(connection, "products", products));
+
+      List<Product> imported = ProductImporter.importFromSQL(connection, "products");
+      assertEquals(4, imported.size());
+      for (int i = 0; i < products.size(); i++) {
+         assertEquals(products.get(i).getClass(), imported.get(i).getClass());
+         assertEquals(products.get(i).getId(), imported.get(i).getId());
+         assertEquals(products.get(i).getQuality(), imported.get(i).getQuality());
+         assertEquals(products.get(i).getExpiryDate(), imported.get(i).getExpiryDate());
+      }
+      Meat meat = (Meat) imported.get(2);
+      assertEquals(MeatTypeEnum.PORK, meat.getMeatType());
+      assertTrue(meat.isVacuumPacked());
+   }
+
+   @Test
+   void testExportInParallelBatches() throws Exception {
+      createTable("products", false);
+      LocalDate expiryDate = LocalDate.now().plusDays(10);
+      List<Product> products = new ArrayList<>();
+      for (int i = 0; i < 10_000; i++) {
+         products.add(new CommonProduct("P" + i, "Bread", i % 100, expiryDate, 2.5));
+      }
+
+      List<Connection> connections = List.of(connection, DriverManager.getConnection(URL),
+            DriverManager.getConnection(URL));
+      try {
+         assertEquals(products.size(), ProductExporter.exportToSQL(connections, "products", products, 128));
+      } finally {
+         connections.get(1).close();
+         connections.get(2).close();
+      }
+
+      List<Product> imported = ProductImporter.importFromSQL(connection, "products");
+      assertEquals(products.size(), imported.size());
+      assertEquals(products.stream().map(Product::getId).sorted().toList(),
+            imported.stream().map(Product::getId).sorted().toList());
+      assertTrue(connection.getAutoCommit());
+   }
+
+   @Test
+   void testExportToMissingTable() {
+      List<Product> products = List.of(new Wine("W001", "Chardonnay", 10, LocalDate.now(), 15.0));
+
+      IllegalStateException failure = assertThrows(IllegalStateException.class,
+            () -> ProductExporter.exportToSQL(connection, "missing", products));
+      assertInstanceOf(SQLException.class, failure.getCause());
+   }
+
+   private void createTable(String tableName, boolean withMeatColumns) throws Exception {
+      try (Statement stmt = connection.createStatement()) {
+         stmt.execute("CREATE TABLE " + tableName + " (type VARCHAR(50), id VARCHAR(50), name VARCHAR(50), "
+               + "quality INT, expiry_date DATE, base_price DOUBLE"
+               + (withMeatColumns ? ", meat_type VARCHAR(20), is_vacuum_packed BOOLEAN)" : ")"));
+      }
+   }
+}
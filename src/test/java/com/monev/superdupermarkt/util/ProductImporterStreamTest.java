@@ -0,0 +1,96 @@
+package com.monev.superdupermarkt.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.util.ProductImporter.FileFormat;
+
+class ProductImporterStreamTest {
+
+   @TempDir
+   Path tempDir;
+
+   @Test
+   void testStreamFromCSV() throws IOException {
+      StringBuilder csv = new StringBuilder("type,id,name,quality,expiryDate,defaultPrice\n");
+      for (int i = 0; i < 100; i++) {
+         csv.append(i % 2 == 0 ? "Wine" : "Cheese").append(",P").append(i).append(",Product,").append(30 + i % 20)
+               .append(',').append(LocalDate.now().plusDays(60)).append(",5.00\n");
+      }
+      String file = Files.writeString(tempDir.resolve("products.csv"), csv.toString(), StandardCharsets.UTF_8)
+            .toString();
+
+      try (Stream<Product> products = ProductImporter.streamFromCSV(file)) {
+         assertEquals(ProductImporter.importFromCSV(file).stream().map(Product::getId).collect(Collectors.toList()),
+               products.map(Product::getId).collect(Collectors.toList()));
+      }
+
+      // Stops parsing after the first matching product
+      try (Stream<Product> products = ProductImporter.streamFromFile(file, FileFormat.CSV)) {
+         Product cheese = products.filter(product -> product instanceof Cheese).findFirst().orElseThrow();
+         assertEquals("P1", cheese.getId());
+      }
+   }
+
+   @Test
+   void testStreamFromSQL() throws Exception {
+      try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:streamtest")) {
+         try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE products (type VARCHAR(50), id VARCHAR(50), name VARCHAR(50), quality INT, "
+                  + "expiry_date DATE, base_price DOUBLE)");
+            stmt.execute("INSERT INTO products VALUES ('Wine', 'W001', 'Red Wine', 10, '2024-12-30', 15.0), "
+                  + "('Wine', 'W002', 'Broken Wine', -1, '2024-12-30', 15.0), "
+                  + "('CommonProduct', 'P001', 'Bread', 30, '2024-12-30', 10.0)");
+         }
+
+         try (Stream<Product> products = ProductImporter.streamFromSQL(connection, "products")) {
+            assertEquals(List.of("W001", "P001"), products.map(Product::getId).collect(Collectors.toList()));
+         }
+         try (Stream<Product> products = ProductImporter.streamFromSQL(connection, "products")) {
+            assertEquals("W001", products.findFirst().orElseThrow().getId());
+         }
+      }
+   }
+
+   @Test
+   void testStreamFromSQLFailsInsteadOfEndingEarly() throws Exception {
+      Connection connection = DriverManager.getConnection("jdbc:h2:mem:streamfailuretest");
+      try (Statement stmt = connection.createStatement()) {
+         stmt.execute("CREATE TABLE products (type VARCHAR(50), id VARCHAR(50), name VARCHAR(50), quality INT, "
+               + "expiry_date DATE, base_price DOUBLE)");
+         stmt.execute("INSERT INTO products VALUES ('Wine', 'W001', 'Red Wine', 10, '2024-12-30', 15.0), "
+               + "('Wine', 'W002', 'White Wine', 10, '2024-12-30', 15.0)");
+      }
+
+      IllegalStateException missingTable = assertThrows(IllegalStateException.class,
+            () -> ProductImporter.streamFromSQL(connection, "missing"));
+      assertInstanceOf(SQLException.class, missingTable.getCause());
+
+      Stream<Product> products = ProductImporter.streamFromSQL(connection, "products", 1);
+      Iterator<Product> iterator = products.iterator();
+      assertEquals("W001", iterator.next().getId());
+      connection.close();
+      IllegalStateException closed = assertThrows(IllegalStateException.class, iterator::hasNext);
+      assertInstanceOf(SQLException.class, closed.getCause());
+   }
+}
@@ -0,0 +1,92 @@
+package com.monev.superdupermarkt.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+
+class ProductKernelsTest {
+
+   // Values around rounding edges, signs and the limits of the vector code
+   private static final double[] EDGE_VALUES = { 0, -0.0, 0.005, 0.015, 0.24, 0.2399999999999, 0.49999999999999994,
+         0.5, 1, 1.005, 2.675, 29.999999, 30, 30.000001, 49.995, 99.99, -0.24, -1.5, -3.7, 0x1p52, -0x1p52, 0x1p60,
+         Double.MAX_VALUE, Double.MIN_VALUE, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+
+   private final Random random = new Random(42);
+   private double[] qualities;
+   private double[] defaultPrices;
+   private int[] rows;
+
+   @BeforeEach
+   void setUp() {
+      int size = 1000 + EDGE_VALUES.length;
+      qualities = new double[size];
+      defaultPrices = new double[size];
+      for (int row = 0; row < size; row++) {
+         if (row < EDGE_VALUES.length) {
+            qualities[row] = EDGE_VALUES[row];
+            defaultPrices[row] = EDGE_VALUES[EDGE_VALUES.length - 1 - row];
+         } else {
+            qualities[row] = random.nextInt(10000) / 100.0 + (row % 3 == 0 ? random.nextDouble() * 1e-9 : 0);
+            defaultPrices[row] = random.nextInt(5000) / 100.0;
+         }
+      }
+      // Every other row in reverse order, with an odd count, so the rows are
+      // gathered and the last rows do not fill a vector
+      rows = new int[size / 2 + 1];
+      for (int i = 0; i < rows.length; i++) {
+         rows[i] = size - 1 - 2 * i;
+      }
+   }
+
+   @Test
+   void testDailyPricesMatchProducts() {
+      for (ProductKernels kernels : new ProductKernels[] { new ScalarProductKernels(), ProductKernels.getDefault() }) {
+         double[] prices = new double[qualities.length];
+         kernels.dailyPrices(defaultPrices, qualities, rows, rows.length, prices);
+
+         double[] expected = new double[qualities.length];
+         for (int row : rows) {
+            expected[row] = Product.dailyPrice(defaultPrices[row], qualities[row]);
+         }
+         assertArrayEquals(expected, prices);
+      }
+   }
+
+   @Test
+   void testDecayMatchesProductTypes() {
+      for (ProductKernels kernels : new ProductKernels[] { new ScalarProductKernels(), ProductKernels.getDefault() }) {
+         for (long days : new long[] { 0, 1, 2, 7, 365, Long.MAX_VALUE }) {
+            double[] cheese = qualities.clone();
+            double[] common = qualities.clone();
+            kernels.decayCheese(cheese, rows, rows.length, days);
+            kernels.decayCommonProducts(common, rows, rows.length, days);
+
+            double[] expectedCheese = qualities.clone();
+            double[] expectedCommon = qualities.clone();
+            for (int row : rows) {
+               expectedCheese[row] = Cheese.projectQuality(qualities[row], days);
+               expectedCommon[row] = CommonProduct.projectQuality(qualities[row], days);
+            }
+            assertArrayEquals(expectedCheese, cheese, "Cheese differs after " + days + " days");
+            assertArrayEquals(expectedCommon, common, "Common products differ after " + days + " days");
+         }
+      }
+   }
+
+   @Test
+   void testUsesVectorApiWhenModuleIsPresent() {
+      boolean present = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+      assertEquals(present && !Boolean.getBoolean("superdupermarkt.kernels.scalar"),
+            ProductKernels.getDefault().isVectorized());
+      assertTrue(!new ScalarProductKernels().isVectorized());
+   }
+}
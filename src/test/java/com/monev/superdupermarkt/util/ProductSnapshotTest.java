@@ -0,0 +1,119 @@
+package com.monev.superdupermarkt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductRepository;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.Wine;
+
+class ProductSnapshotTest {
+
+   @TempDir
+   Path tempDir;
+
+   @Test
+   void testRestoresAllProductTypes() throws Exception {
+      LocalDate today = LocalDate.now();
+      Meat meat = Meat.restore("M001", "Steak", 42.5, today.minusDays(2), 15.0, MeatTypeEnum.VENISON, true, 70.0);
+      meat.setIsExpired(true);
+      List<Product> products = List.of(new Cheese("C001", "Gouda", 40, today.plusDays(70), 5.0),
+            new Wine("W001", "Chardonnay", 10, today.minusDays(30), 15.0), meat,
+            new CommonProduct("P001", null, 30, today.plusDays(3), 2.5));
+      Path file = tempDir.resolve("inventory.snapshot");
+
+      ProductSnapshot.write(file, products);
+      List<Product> restored = ProductSnapshot.read(file);
+
+      assertEquals(products.size(), restored.size());
+      for (int i = 0; i < products.size(); i++) {
+         Product expected = products.get(i);
+         Product actual = restored.get(i);
+         assertEquals(expected.getClass(), actual.getClass());
+         assertEquals(expected.getId(), actual.getId());
+         assertEquals(expected.getName(), actual.getName());
+         assertEquals(expected.getQuality(), actual.getQuality());
+         assertEquals(expected.getExpiryDate(), actual.getExpiryDate());
+         assertEquals(expected.getDefaultPrice(), actual.getDefaultPrice());
+         assertEquals(expected.isExpired(), actual.isExpired());
+      }
+      Meat restoredMeat = (Meat) restored.get(2);
+      assertEquals(MeatTypeEnum.VENISON, restoredMeat.getMeatType());
+      assertTrue(restoredMeat.isVacuumPacked());
+      assertEquals(70.0, restoredMeat.getStartingQuality());
+      assertEquals(meat.getQualityModifier(), restoredMeat.getQualityModifier());
+   }
+
+   @Test
+   void testSharesRepeatedStringsAcrossWindows() throws Exception {
+      ProductRepository repository = new ProductRepository();
+      LocalDate expiryDate = LocalDate.now().plusDays(5);
+      for (int i = 0; i < 10_000; i++) {
+         repository.add(new CommonProduct("P" + i, i % 2 == 0 ? "Bread" : "Brötchen", i % 100, expiryDate, i));
+      }
+      Path file = tempDir.resolve("inventory.snapshot");
+
+      ProductSnapshot.write(file, repository);
+      List<Product> restored = new ArrayList<>();
+      ProductSnapshot.read(file, restored::add, 100);
+
+      assertEquals(10_000, restored.size());
+      assertEquals("P9999", restored.get(9999).getId());
+      assertEquals(9999.0, restored.get(9999).getDefaultPrice());
+      assertEquals("Brötchen", restored.get(1).getName());
+      assertSame(restored.get(0).getName(), restored.get(9998).getName());
+   }
+
+   @Test
+   void testReplacesExistingSnapshot() throws Exception {
+      Path file = tempDir.resolve("inventory.snapshot");
+      ProductSnapshot.write(file, List.of(new Wine("W001", "Chardonnay", 10, LocalDate.now(), 15.0)));
+
+      ProductSnapshot.write(file, List.of());
+
+      assertTrue(ProductSnapshot.read(file).isEmpty());
+      assertFalse(Files.exists(tempDir.resolve("inventory.snapshot.tmp")));
+   }
+
+   @Test
+   void testRejectsInvalidFiles() throws Exception {
+      Path file = tempDir.resolve("inventory.snapshot");
+      Files.writeString(file, "type,id,name\n");
+      assertThrows(IOException.class, () -> ProductSnapshot.read(file));
+
+      ProductSnapshot.write(file, List.of(new Wine("W001", "Chardonnay", 10, LocalDate.now(), 15.0)));
+      byte[] bytes = Files.readAllBytes(file);
+      Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+      assertThrows(IOException.class, () -> ProductSnapshot.read(file));
+
+      ByteBuffer.wrap(bytes).putInt(4, ProductSnapshot.VERSION + 1);
+      Files.write(file, bytes);
+      assertThrows(IOException.class, () -> ProductSnapshot.read(file));
+   }
+
+   @Test
+   void testRejectsUnknownProductTypes() throws Exception {
+      Product bread = new CommonProduct("B001", "Bread", 50, LocalDate.now(), 2.5) {
+      };
+      Path file = tempDir.resolve("inventory.snapshot");
+
+      assertTrue(ProductSnapshot.canWrite(Meat.class));
+      assertFalse(ProductSnapshot.canWrite(bread.getClass()));
+      assertThrows(IllegalArgumentException.class, () -> ProductSnapshot.write(file, List.of(bread)));
+      assertFalse(Files.exists(file));
+   }
+}
@@ -0,0 +1,91 @@
+package com.monev.superdupermarkt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.StandardProductTypes;
+import com.monev.superdupermarkt.types.Wine;
+
+class ProductTypeRegistryTest {
+
+   @Test
+   void testDefaultRegistryFindsStandardTypes() {
+      ProductTypeRegistry registry = ProductTypeRegistry.getDefault();
+
+      assertSame(registry, ProductTypeRegistry.getDefault());
+      assertEquals(List.of("Common Product", "Cheese", "Wine", "Meat"),
+            registry.getTypes().stream().map(ProductType::displayName).toList());
+      assertEquals(Cheese.class, registry.get("Cheese").productClass());
+      assertEquals("CommonProduct", registry.getDefaultType().name());
+      assertTrue(registry.get("Meat").schema().contains(ProductField.MEAT_TYPE));
+      assertFalse(registry.get("Wine").schema().contains(ProductField.MEAT_TYPE));
+   }
+
+   @Test
+   void testCreateProduct() {
+      ProductTypeRegistry registry = ProductTypeRegistry.getDefault();
+      ProductFields fields = new ProductFields();
+      fields.setId("W001");
+      fields.setName("Chardonnay");
+      fields.setQuality(10);
+      fields.setExpiryDate(LocalDate.now());
+      fields.setDefaultPrice(15.0);
+
+      fields.setType("Wine");
+      assertInstanceOf(Wine.class, registry.createProduct(fields));
+      fields.setType("Bread");
+      assertInstanceOf(CommonProduct.class, registry.createProduct(fields));
+      fields.setType(null);
+      assertInstanceOf(CommonProduct.class, registry.createProduct(fields));
+
+      fields.setType("Meat");
+      assertThrows(IllegalArgumentException.class, () -> registry.createProduct(fields));
+      fields.setQuality(60);
+      fields.setExpiryDate(LocalDate.now().plusDays(3));
+      fields.setMeatType(MeatTypeEnum.LAMB);
+      Product meat = registry.createProduct(fields);
+      assertEquals(MeatTypeEnum.LAMB, ((Meat) meat).getMeatType());
+   }
+
+   @Test
+   void testAdditionalProvider() {
+      ProductType bread = new ProductType("Bread", "Bread", CommonProduct.class, ProductType.COMMON_SCHEMA,
+            fields -> new CommonProduct(fields.getId(), "Bread", fields.getQuality(), null, 2.5));
+      ProductTypeRegistry registry = new ProductTypeRegistry(
+            List.<ProductTypeProvider>of(new StandardProductTypes(), () -> List.of(bread)));
+
+      assertEquals(5, registry.getTypes().size());
+      assertSame(bread, registry.getTypes().get(4));
+      ProductFields fields = new ProductFields();
+      fields.setType("Bread");
+      fields.setId("B001");
+      assertEquals("Bread", registry.createProduct(fields).getName());
+      // The first type with a class is found for it
+      assertEquals("CommonProduct", registry.getType(CommonProduct.class).name());
+      assertNull(registry.getType(Product.class));
+   }
+
+   @Test
+   void testRejectsDuplicateTypeNames() {
+      assertThrows(IllegalStateException.class,
+            () -> new ProductTypeRegistry(List.of(new StandardProductTypes(), new StandardProductTypes())));
+   }
+
+   @Test
+   void testWithoutDefaultType() {
+      ProductTypeRegistry registry = new ProductTypeRegistry(List.of());
+      ProductFields fields = new ProductFields();
+      fields.setType("Cheese");
+
+      assertNull(registry.getDefaultType());
+      assertThrows(IllegalArgumentException.class, () -> registry.createProduct(fields));
+   }
+}
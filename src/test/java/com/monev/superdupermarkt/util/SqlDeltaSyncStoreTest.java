@@ -0,0 +1,101 @@
+package com.monev.superdupermarkt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.monev.superdupermarkt.ProductRepository;
+
+class SqlDeltaSyncStoreTest {
+
+   @TempDir
+   Path tempDir;
+
+   @Test
+   void testRestoresSyncs() throws Exception {
+      Path file = tempDir.resolve("sql-syncs.state");
+      Map<String, SqlDeltaSync> syncs = new LinkedHashMap<>();
+      syncs.put("a", createSync("products", "deleted", 7L, List.of("W001", "W002")));
+      syncs.put("b", createSync("wines", null, Timestamp.valueOf("2026-10-18 09:30:15.123456789"), List.of()));
+      syncs.put("c", createSync("meat", null, new BigDecimal("12.50"), List.of("M001")));
+      syncs.put("d", createSync("cheese", null, LocalDateTime.of(2026, 10, 18, 9, 30), List.of()));
+      syncs.put("e", createSync("bread", null, null, List.of()));
+
+      SqlDeltaSyncStore.write(file, syncs);
+      Map<String, SqlDeltaSync> restored = SqlDeltaSyncStore.read(file);
+
+      assertEquals(List.copyOf(syncs.keySet()), List.copyOf(restored.keySet()));
+      for (String key : syncs.keySet()) {
+         SqlDeltaSync sync = syncs.get(key);
+         SqlDeltaSync restoredSync = restored.get(key);
+         assertEquals(sync.getTableName(), restoredSync.getTableName());
+         assertEquals(sync.getVersionColumn(), restoredSync.getVersionColumn());
+         assertEquals(sync.getDeletedColumn(), restoredSync.getDeletedColumn());
+         assertEquals(sync.getWatermark(), restoredSync.getWatermark());
+         assertEquals(sync.getWatermarkIds(), restoredSync.getWatermarkIds());
+      }
+   }
+
+   @Test
+   void testRestoredSyncContinuesFromWatermark() throws Exception {
+      Path file = tempDir.resolve("sql-syncs.state");
+      ProductRepository products = new ProductRepository();
+      try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:syncstore;DB_CLOSE_DELAY=-1");
+            Statement stmt = connection.createStatement()) {
+         stmt.execute("CREATE TABLE products (type VARCHAR(50), id VARCHAR(50), name VARCHAR(50), quality INT, "
+               + "expiry_date DATE, base_price DOUBLE, version BIGINT)");
+         stmt.execute("INSERT INTO products VALUES ('Wine', 'W001', 'Chardonnay', 10, NULL, 15.0, 1), "
+               + "('Wine', 'W002', 'Merlot', 20, NULL, 12.0, 2)");
+         try {
+            SqlDeltaSync sync = new SqlDeltaSync("products", "version", null);
+            assertEquals(new SqlDeltaSync.Result(2, 0), sync.sync(connection, products));
+            SqlDeltaSyncStore.write(file, Map.of("products", sync));
+
+            stmt.execute("UPDATE products SET quality = 25, version = 3 WHERE id = 'W001'");
+            SqlDeltaSync restored = SqlDeltaSyncStore.read(file).get("products");
+            assertEquals(new SqlDeltaSync.Result(1, 0), restored.sync(connection, products));
+            assertEquals(25, products.get("W001").getQuality());
+         } finally {
+            stmt.execute("DROP ALL OBJECTS");
+         }
+      }
+   }
+
+   @Test
+   void testRejectsInvalidFiles() throws Exception {
+      Path file = tempDir.resolve("sql-syncs.state");
+      Files.writeString(file, "products");
+      assertThrows(IOException.class, () -> SqlDeltaSyncStore.read(file));
+
+      SqlDeltaSyncStore.write(file, Map.of("a", createSync("products", null, 7L, List.of("W001"))));
+      byte[] bytes = Files.readAllBytes(file);
+      Files.write(file, Arrays.copyOf(bytes, bytes.length - 2));
+      assertThrows(IOException.class, () -> SqlDeltaSyncStore.read(file));
+
+      assertThrows(IOException.class, () -> SqlDeltaSyncStore.write(file,
+            Map.of("a", createSync("products", null, Set.of(), List.of()))));
+   }
+
+   private static SqlDeltaSync createSync(String tableName, String deletedColumn, Object watermark,
+         List<String> watermarkIds) {
+      SqlDeltaSync sync = new SqlDeltaSync(tableName, "version", deletedColumn);
+      sync.setWatermark(watermark, watermarkIds);
+      return sync;
+   }
+}
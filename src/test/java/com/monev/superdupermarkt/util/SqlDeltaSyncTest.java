@@ -0,0 +1,137 @@
+package com.monev.superdupermarkt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductRepository;
+import com.monev.superdupermarkt.types.Wine;
+
+class SqlDeltaSyncTest {
+
+   private Connection connection;
+   private ProductRepository products;
+   private SqlDeltaSync sync;
+
+   @BeforeEach
+   void setUp() throws Exception {
+      connection = DriverManager.getConnection("jdbc:h2:mem:deltasync;DB_CLOSE_DELAY=-1");
+      products = new ProductRepository();
+      sync = new SqlDeltaSync("products", "version", "deleted");
+
+      execute("CREATE TABLE products (type VARCHAR(50), id VARCHAR(50), name VARCHAR(50), quality INT, "
+            + "expiry_date DATE, base_price DOUBLE, version BIGINT, deleted BOOLEAN DEFAULT FALSE)");
+      execute("INSERT INTO products (type, id, name, quality, expiry_date, base_price, version) VALUES "
+            + "('Wine', 'W001', 'Chardonnay', 10, NULL, 15.0, 1), "
+            + "('Wine', 'W002', 'Merlot', 20, NULL, 12.0, 2), "
+            + "('CommonProduct', 'P001', 'Bread', 30, NULL, 2.5, 3)");
+   }
+
+   @AfterEach
+   void tearDown() throws Exception {
+      execute("DROP ALL OBJECTS");
+      connection.close();
+   }
+
+   @Test
+   void testFirstSyncReadsWholeTable() throws Exception {
+      SqlDeltaSync.Result result = sync.sync(connection, products);
+
+      assertEquals(new SqlDeltaSync.Result(3, 0), result);
+      assertEquals(3, products.size());
+      assertEquals(3L, sync.getWatermark());
+   }
+
+   @Test
+   void testSyncAppliesOnlyChanges() throws Exception {
+      sync.sync(connection, products);
+      Product unchanged = products.get("W002");
+
+      execute("UPDATE products SET quality = 25, version = 4 WHERE id = 'W001'");
+      execute("UPDATE products SET deleted = TRUE, version = 5 WHERE id = 'P001'");
+      execute("INSERT INTO products (type, id, name, quality, expiry_date, base_price, version) VALUES "
+            + "('Wine', 'W003', 'Riesling', 5, NULL, 9.0, 6)");
+
+      SqlDeltaSync.Result result = sync.sync(connection, products);
+
+      assertEquals(new SqlDeltaSync.Result(2, 1), result);
+      assertEquals(List.of("W001", "W002", "W003"), products.getAll().stream().map(Product::getId).toList());
+      assertEquals(25, products.get("W001").getQuality());
+      assertSame(unchanged, products.get("W002"));
+      assertEquals(3, products.getByType(Wine.class).size());
+      assertEquals(6L, sync.getWatermark());
+   }
+
+   @Test
+   void testSyncWithoutChanges() throws Exception {
+      sync.sync(connection, products);
+
+      SqlDeltaSync.Result result = sync.sync(connection, products);
+
+      // The row of the watermark itself is read again, but was already applied
+      assertEquals(new SqlDeltaSync.Result(0, 0), result);
+      assertEquals(3, products.size());
+   }
+
+   @Test
+   void testSyncReadsNewRowsWithWatermarkVersion() throws Exception {
+      sync.sync(connection, products);
+
+      execute("INSERT INTO products (type, id, name, quality, expiry_date, base_price, version) VALUES "
+            + "('Wine', 'W003', 'Riesling', 5, NULL, 9.0, 3)");
+
+      assertEquals(new SqlDeltaSync.Result(1, 0), sync.sync(connection, products));
+      assertEquals(new SqlDeltaSync.Result(0, 0), sync.sync(connection, products));
+      assertEquals(4, products.size());
+   }
+
+   @Test
+   void testSyncStopsBeforeUnreadableRow() throws Exception {
+      sync.sync(connection, products);
+      List<ImportFailure> failures = new ArrayList<>();
+      sync.setFailureHandler(failures::add);
+
+      execute("INSERT INTO products (type, id, name, quality, expiry_date, base_price, version) VALUES "
+            + "('Wine', 'W003', 'Riesling', 5, NULL, 9.0, 4), "
+            + "('Cheese', 'C001', 'Gouda', 40, NULL, 5.0, 5), "
+            + "('Wine', 'W004', 'Rioja', 5, NULL, 9.0, 6)");
+
+      assertEquals(new SqlDeltaSync.Result(1, 0), sync.sync(connection, products));
+      assertEquals(1, failures.size());
+      assertEquals("Cheese", failures.get(0).type());
+      assertEquals(4L, sync.getWatermark());
+      assertFalse(products.contains("W004"));
+
+      execute("UPDATE products SET expiry_date = DATEADD('DAY', 75, CURRENT_DATE) WHERE id = 'C001'");
+
+      assertEquals(new SqlDeltaSync.Result(2, 0), sync.sync(connection, products));
+      assertEquals(1, failures.size());
+      assertEquals(6L, sync.getWatermark());
+      assertEquals(6, products.size());
+   }
+
+   @Test
+   void testContinueFromStoredWatermark() throws Exception {
+      sync.setWatermark(3L);
+
+      SqlDeltaSync.Result result = sync.sync(connection, products);
+
+      assertEquals(new SqlDeltaSync.Result(1, 0), result);
+      assertEquals("P001", products.getAll().iterator().next().getId());
+   }
+
+   private void execute(String sql) throws Exception {
+      try (Statement stmt = connection.createStatement()) {
+         stmt.execute(sql);
+      }
+   }
+}
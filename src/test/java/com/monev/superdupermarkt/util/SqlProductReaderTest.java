@@ -0,0 +1,147 @@
+package com.monev.superdupermarkt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.Meat;
+
+class SqlProductReaderTest {
+
+   private static final int ROWS = 200_000;
+
+   private Connection connection;
+
+   @BeforeEach
+   void setUp() throws Exception {
+      connection = DriverManager.getConnection("jdbc:h2:mem:readertest;DB_CLOSE_DELAY=-1");
+   }
+
+   @AfterEach
+   void tearDown() throws Exception {
+      try (Statement stmt = connection.createStatement()) {
+         stmt.execute("DROP ALL OBJECTS");
+      }
+      connection.close();
+   }
+
+   @Test
+   void testImportLargeTableWithSmallFetchSize() throws Exception {
+      LocalDate expiryDate = TestUtil.getDateInRangeFromToday(1, 100);
+      try (Statement stmt = connection.createStatement()) {
+         stmt.execute("CREATE TABLE products (type VARCHAR(50), id VARCHAR(50), name VARCHAR(50), quality INT, "
+               + "expiry_date DATE, base_price DOUBLE, description VARCHAR(1000))");
+         stmt.execute("INSERT INTO products SELECT 'CommonProduct', 'P' || X, 'Bread ' || X, MOD(X, 50), DATE '"
+               + TestUtil.getDateToString(expiryDate) + "', X / 100.0, REPEAT('x', 1000) FROM SYSTEM_RANGE(1, "
+               + ROWS + ") ORDER BY X");
+      }
+
+      List<Product> products = ProductImporter.importFromSQL(connection, "products", 64);
+
+      assertEquals(ROWS, products.size());
+      Product last = products.get(ROWS - 1);
+      assertEquals("P" + ROWS, last.getId());
+      assertEquals("Bread " + ROWS, last.getName());
+      assertEquals(ROWS % 50, last.getQuality());
+      assertEquals(expiryDate, last.getExpiryDate());
+      assertEquals(ROWS / 100.0, last.getDefaultPrice(), 0.001);
+   }
+
+   @Test
+   void testImportMeatColumns() throws Exception {
+      LocalDate meatExpiryDate = LocalDate.now().plusDays(7);
+      try (Statement stmt = connection.createStatement()) {
+         stmt.execute("CREATE TABLE products (type VARCHAR(50), id VARCHAR(50), name VARCHAR(50), quality INT, "
+               + "expiry_date DATE, base_price DOUBLE, meat_type VARCHAR(20), vacuum_packed BOOLEAN)");
+         stmt.execute("INSERT INTO products VALUES ('Meat', 'M001', 'Steak', 60, '"
+               + TestUtil.getDateToString(meatExpiryDate) + "', 15.0, 'beef', TRUE), "
+               + "('Wine', 'W001', 'SuperDuperWine', 10, NULL, 20.0, NULL, NULL)");
+      }
+
+      List<Product> products = ProductImporter.importFromSQL(connection, "products");
+
+      assertEquals(2, products.size());
+      Meat meat = assertInstanceOf(Meat.class, products.get(0));
+      assertEquals(MeatTypeEnum.BEEF, meat.getMeatType());
+      assertTrue(meat.isVacuumPacked());
+      assertEquals(meatExpiryDate, meat.getExpiryDate());
+      assertEquals("W001", products.get(1).getId());
+      assertEquals(LocalDate.now(), products.get(1).getExpiryDate());
+   }
+
+   @Test
+   void testImportDocumentedMeatColumns() throws Exception {
+      LocalDate meatExpiryDate = LocalDate.now().plusDays(7);
+      try (Statement stmt = connection.createStatement()) {
+         // The layout of the README
+         stmt.execute("CREATE TABLE products (type VARCHAR(50), id VARCHAR(50), name VARCHAR(50), quality INT, "
+               + "expiry_date DATE, base_price DOUBLE, meat_type VARCHAR(20), is_vacuum_packed BOOLEAN)");
+         stmt.execute("INSERT INTO products VALUES ('Meat', 'M001', 'Steak', 60, '"
+               + TestUtil.getDateToString(meatExpiryDate) + "', 15.0, 'beef', TRUE)");
+         stmt.execute("CREATE TABLE fresh (type VARCHAR(50), id VARCHAR(50), name VARCHAR(50), quality INT, "
+               + "expiry_date DATE, base_price DOUBLE, meat_type VARCHAR(20))");
+         stmt.execute("INSERT INTO fresh VALUES ('Meat', 'M002', 'Chop', 60, NULL, 15.0, 'pork')");
+      }
+
+      Meat vacuumPacked = assertInstanceOf(Meat.class,
+            ProductImporter.importFromSQL(connection, "products").get(0));
+      assertEquals(MeatTypeEnum.BEEF, vacuumPacked.getMeatType());
+      assertTrue(vacuumPacked.isVacuumPacked());
+      Meat fresh = assertInstanceOf(Meat.class, ProductImporter.importFromSQL(connection, "fresh").get(0));
+      assertEquals(MeatTypeEnum.PORK, fresh.getMeatType());
+      assertFalse(fresh.isVacuumPacked());
+   }
+
+   @Test
+   void testSkipInvalidRows() throws Exception {
+      String cheeseExpiryDate = TestUtil.getDateToString(TestUtil.getDateInRangeFromToday(60, 90));
+      try (Statement stmt = connection.createStatement()) {
+         stmt.execute("CREATE TABLE products (type VARCHAR(50), id VARCHAR(50), name VARCHAR(50), quality INT, "
+               + "expiry_date DATE, base_price DOUBLE)");
+         stmt.execute("INSERT INTO products VALUES ('Cheese', 'C001', 'BadCheese', 10, '" + cheeseExpiryDate
+               + "', 5.0), ('Cheese', 'C002', 'OldCheese', 40, NULL, 5.0), ('Cheese', 'C003', 'GoodCheese', 40, '"
+               + cheeseExpiryDate + "', 5.0)");
+      }
+
+      List<Product> products = new ArrayList<>();
+      List<ImportFailure> failures = new ArrayList<>();
+      try (SqlProductReader reader = new SqlProductReader(connection, "products", 1, fields -> new Cheese(
+            fields.getId(), fields.getName(), fields.getQuality(), fields.getExpiryDate(), fields.getDefaultPrice()))) {
+         reader.setFailureHandler(failures::add);
+         while (reader.next(products::add)) {
+            // Every call reads rows up to the next product
+         }
+      }
+
+      assertEquals(1, products.size());
+      assertEquals("C003", products.get(0).getId());
+      assertEquals(List.of(1L, 2L), failures.stream().map(ImportFailure::lineNumber).toList());
+      assertEquals("Cheese", failures.get(0).type());
+   }
+
+   @Test
+   void testStreamStopsEarly() throws Exception {
+      try (Statement stmt = connection.createStatement()) {
+         stmt.execute("CREATE TABLE products (type VARCHAR(50), id VARCHAR(50), name VARCHAR(50), quality INT, "
+               + "expiry_date DATE, base_price DOUBLE)");
+         stmt.execute("INSERT INTO products SELECT 'Wine', 'W' || X, 'Wine', 10, NULL, 20.0 "
+               + "FROM SYSTEM_RANGE(1, 10000) ORDER BY X");
+      }
+
+      try (Stream<Product> products = ProductImporter.streamFromSQL(connection, "products", 100)) {
+         assertEquals(List.of("W1", "W2", "W3"), products.limit(3).map(Product::getId).toList());
+      }
+   }
+}
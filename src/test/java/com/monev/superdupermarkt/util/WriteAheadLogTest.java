@@ -0,0 +1,272 @@
+package com.monev.superdupermarkt.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.ProductRepository;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.CommonProduct;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.Wine;
+
+class WriteAheadLogTest {
+
+   @TempDir
+   Path tempDir;
+
+   private final LocalDate today = LocalDate.now();
+
+   private WriteAheadLog open(Path file, ProductRepository products) throws IOException {
+      WriteAheadLog log = WriteAheadLog.open(file, products, WriteAheadLog.SyncPolicy.ALWAYS, 0);
+      products.setListener(log);
+      return log;
+   }
+
+   private void replay(Path file, ProductRepository products) throws IOException {
+      WriteAheadLog.open(file, products, WriteAheadLog.SyncPolicy.ALWAYS, 0).close();
+   }
+
+   @Test
+   void testReplaysChangesAfterReopen() throws Exception {
+      Path file = tempDir.resolve("inventory.log");
+      ProductRepository products = new ProductRepository();
+      Meat meat = Meat.restore("M001", "Steak", 60, today.plusDays(3), 15.0, MeatTypeEnum.BEEF, false, 60);
+      WriteAheadLog log = open(file, products);
+      try {
+         products.add(new Cheese("C001", "Gouda", 40, today.plusDays(70), 5.0));
+         products.add(meat);
+         products.put(new Wine("W001", "Chardonnay", 10, today, 15.0));
+         products.put(new Wine("W001", "Merlot", 20, today, 12.0));
+         products.remove("C001");
+      } finally {
+         log.close();
+      }
+
+      ProductRepository restored = new ProductRepository();
+      replay(file, restored);
+      assertEquals(2, restored.size());
+      assertFalse(restored.contains("C001"));
+      assertEquals("Merlot", restored.get("W001").getName());
+      Meat restoredMeat = (Meat) restored.get("M001");
+      assertEquals(MeatTypeEnum.BEEF, restoredMeat.getMeatType());
+      assertEquals(meat.getExpiryDate(), restoredMeat.getExpiryDate());
+   }
+
+   @Test
+   void testRejectsProductsThatCannotBeWritten() throws Exception {
+      Path file = tempDir.resolve("inventory.log");
+      ProductRepository products = new ProductRepository();
+      Product bread = new CommonProduct("B001", "Bread", 50, today.plusDays(3), 2.5) {
+      };
+      WriteAheadLog log = open(file, products);
+      try {
+         assertThrows(IllegalArgumentException.class, () -> products.add(bread));
+         assertFalse(products.contains("B001"));
+         products.add(new Cheese("C001", "Gouda", 40, today.plusDays(70), 5.0));
+      } finally {
+         log.close();
+      }
+
+      ProductRepository restored = new ProductRepository();
+      replay(file, restored);
+      assertEquals(1, restored.size());
+      assertTrue(restored.contains("C001"));
+   }
+
+   @Test
+   void testImportIsWrittenAsSingleRecord() throws Exception {
+      Path file = tempDir.resolve("inventory.log");
+      ProductRepository products = new ProductRepository();
+      products.add(new Cheese("C000", "Brie", 40, today.plusDays(70), 5.0));
+      List<Product> imported = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+         imported.add(new Cheese("C" + String.format("%03d", i), "Gouda", 40, today.plusDays(70), 5.0));
+      }
+
+      WriteAheadLog log = open(file, products);
+      try {
+         assertEquals(999, products.addAll(imported));
+      } finally {
+         log.close();
+      }
+
+      // Cutting off the last byte drops the whole import, not just its last product
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+         channel.truncate(channel.size() - 1);
+      }
+      ProductRepository restored = new ProductRepository();
+      try (WriteAheadLog reopened = WriteAheadLog.open(file, restored, WriteAheadLog.SyncPolicy.ALWAYS, 0)) {
+         assertTrue(restored.isEmpty());
+         assertEquals(8, reopened.size());
+      }
+   }
+
+   @Test
+   void testChangesAreWrittenAsSingleRecord() throws Exception {
+      Path file = tempDir.resolve("inventory.log");
+      ProductRepository products = new ProductRepository();
+      List<Product> changed = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+         changed.add(new Cheese("C" + i, "Gouda", 40, today.plusDays(70), 5.0));
+      }
+      long sizeBeforeChanges;
+      try (WriteAheadLog log = open(file, products)) {
+         products.add(new Wine("W001", "Chardonnay", 10, today, 15.0));
+         products.add(new Wine("W002", "Merlot", 20, today, 12.0));
+         sizeBeforeChanges = log.size();
+         assertEquals(1, products.applyChanges(changed, List.of("W001", "W003")));
+      }
+
+      ProductRepository restored = new ProductRepository();
+      replay(file, restored);
+      assertEquals(101, restored.size());
+      assertFalse(restored.contains("W001"));
+      assertEquals("Merlot", restored.get("W002").getName());
+
+      // Cutting off the last byte drops all changes, not just the last of them
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+         channel.truncate(channel.size() - 1);
+      }
+      ProductRepository truncated = new ProductRepository();
+      try (WriteAheadLog log = WriteAheadLog.open(file, truncated, WriteAheadLog.SyncPolicy.ALWAYS, 0)) {
+         assertEquals(List.of("W001", "W002"), truncated.getAll().stream().map(Product::getId).toList());
+         assertEquals(sizeBeforeChanges, log.size());
+      }
+   }
+
+   @Test
+   void testCutsOffTornRecord() throws Exception {
+      Path file = tempDir.resolve("inventory.log");
+      ProductRepository products = new ProductRepository();
+      long sizeAfterFirstRecord;
+      try (WriteAheadLog log = open(file, products)) {
+         products.add(new Cheese("C001", "Gouda", 40, today.plusDays(70), 5.0));
+         sizeAfterFirstRecord = log.size();
+         products.add(new Cheese("C002", "Brie", 40, today.plusDays(70), 5.0));
+      }
+      // Corrupt the payload of the second record
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+         channel.write(ByteBuffer.wrap(new byte[] { 0x7f }), channel.size() - 2);
+      }
+
+      ProductRepository restored = new ProductRepository();
+      WriteAheadLog log = open(file, restored);
+      try {
+         assertEquals(List.of("C001"), restored.getAll().stream().map(Product::getId).toList());
+         assertEquals(sizeAfterFirstRecord, Files.size(file));
+         restored.add(new Cheese("C003", "Edam", 40, today.plusDays(70), 5.0));
+      } finally {
+         log.close();
+      }
+
+      ProductRepository reopened = new ProductRepository();
+      replay(file, reopened);
+      assertEquals(List.of("C001", "C003"), reopened.getAll().stream().map(Product::getId).toList());
+   }
+
+   @Test
+   void testCompactStartsEmptyLog() throws Exception {
+      Path file = tempDir.resolve("inventory.log");
+      Path snapshotFile = tempDir.resolve("inventory.snapshot");
+      ProductRepository products = new ProductRepository();
+      try (WriteAheadLog log = open(file, products)) {
+         products.add(new Cheese("C001", "Gouda", 40, today.plusDays(70), 5.0));
+         products.add(new Cheese("C002", "Brie", 40, today.plusDays(70), 5.0));
+         log.compact(snapshotFile, products);
+         assertEquals(8, log.size());
+         products.remove("C001");
+      }
+
+      ProductRepository restored = new ProductRepository();
+      restored.addAll(ProductSnapshot.read(snapshotFile));
+      replay(file, restored);
+      assertEquals(List.of("C002"), restored.getAll().stream().map(Product::getId).toList());
+   }
+
+   @Test
+   void testFailedCompactionKeepsLog() throws Exception {
+      Path file = tempDir.resolve("inventory.log");
+      ProductRepository products = new ProductRepository();
+      try (WriteAheadLog log = open(file, products)) {
+         products.add(new Cheese("C001", "Gouda", 40, today.plusDays(70), 5.0));
+         assertThrows(IOException.class, () -> log.compact(tempDir.resolve("missing/inventory.snapshot"), products));
+         products.add(new Cheese("C002", "Brie", 40, today.plusDays(70), 5.0));
+      }
+
+      ProductRepository restored = new ProductRepository();
+      replay(file, restored);
+      assertEquals(List.of("C001", "C002"), restored.getAll().stream().map(Product::getId).toList());
+   }
+
+   @Test
+   void testChangesAreWrittenWithoutSync() throws Exception {
+      Path file = tempDir.resolve("inventory.log");
+      Path copy = tempDir.resolve("copy.log");
+      ProductRepository products = new ProductRepository();
+      try (WriteAheadLog log = WriteAheadLog.open(file, products, WriteAheadLog.SyncPolicy.NEVER, 0)) {
+         products.setListener(log);
+         products.add(new Cheese("C001", "Gouda", 40, today.plusDays(70), 5.0));
+         products.remove("C001");
+         products.add(new Cheese("C002", "Brie", 40, today.plusDays(70), 5.0));
+         // The file as it is left if the process is killed now
+         Files.copy(file, copy);
+      }
+
+      ProductRepository restored = new ProductRepository();
+      replay(copy, restored);
+      assertEquals(List.of("C002"), restored.getAll().stream().map(Product::getId).toList());
+   }
+
+   @Test
+   void testConcurrentChangesAreAllRecorded() throws Exception {
+      Path file = tempDir.resolve("inventory.log");
+      ProductRepository products = new ProductRepository();
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try (WriteAheadLog log = WriteAheadLog.open(file, products, WriteAheadLog.SyncPolicy.ALWAYS, 0)) {
+         // The log is called directly, so the changes are not serialized by the repository
+         List<Future<?>> futures = new ArrayList<>();
+         for (int thread = 0; thread < 4; thread++) {
+            int offset = thread * 100;
+            futures.add(executor.submit(() -> {
+               for (int i = 0; i < 100; i++) {
+                  log.beforeAdd(new Cheese("C" + (offset + i), "Gouda", 40, today.plusDays(70), 5.0));
+               }
+            }));
+         }
+         for (Future<?> future : futures) {
+            future.get();
+         }
+      } finally {
+         executor.shutdown();
+      }
+
+      ProductRepository restored = new ProductRepository();
+      replay(file, restored);
+      assertEquals(400, restored.size());
+   }
+
+   @Test
+   void testRejectsOtherFiles() throws Exception {
+      Path file = tempDir.resolve("inventory.log");
+      Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+
+      assertThrows(IOException.class,
+            () -> WriteAheadLog.open(file, new ProductRepository(), WriteAheadLog.SyncPolicy.ALWAYS, 0));
+   }
+}
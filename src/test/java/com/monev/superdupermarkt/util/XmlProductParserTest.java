@@ -0,0 +1,99 @@
+package com.monev.superdupermarkt.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.monev.superdupermarkt.Product;
+import com.monev.superdupermarkt.types.Cheese;
+import com.monev.superdupermarkt.types.Meat;
+import com.monev.superdupermarkt.types.Wine;
+import com.monev.superdupermarkt.util.ProductImporter.FileFormat;
+
+class XmlProductParserTest {
+
+   @TempDir
+   Path tempDir;
+
+   @Test
+   void testImportAttributesAndElements() throws IOException {
+      LocalDate cheeseExpiry = LocalDate.now().plusDays(60);
+      LocalDate meatExpiry = LocalDate.now().plusDays(3);
+      String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<products>\n"
+            + "  <product type=\"Cheese\" id=\"C001\">\n"
+            + "    <name>Gouda &amp; <![CDATA[\"aged\"]]></name>\n"
+            + "    <quality> 35 </quality>\n"
+            + "    <expiryDate>" + cheeseExpiry + "</expiryDate>\n"
+            + "    <defaultPrice>5.50</defaultPrice>\n"
+            + "    <supplier><name>Farm</name></supplier>\n"
+            + "  </product>\n"
+            + "  <product><type>Meat</type><id>M001</id><name>Steak</name><quality>60</quality>"
+            + "<expiryDate>" + meatExpiry + "</expiryDate><defaultPrice>15</defaultPrice>"
+            + "<meatType>beef</meatType><vacuumPacked>false</vacuumPacked></product>\n"
+            + "</products>\n";
+      String file = Files.writeString(tempDir.resolve("products.xml"), xml, StandardCharsets.UTF_8).toString();
+
+      List<Product> products = ProductImporter.importFromFile(file, FileFormat.XML);
+
+      assertEquals(2, products.size());
+      Product cheese = products.get(0);
+      assertTrue(cheese instanceof Cheese);
+      assertEquals("C001", cheese.getId());
+      assertEquals("Gouda & \"aged\"", cheese.getName());
+      assertEquals(35, cheese.getQuality());
+      assertEquals(cheeseExpiry, cheese.getExpiryDate());
+      assertEquals(5.50, cheese.getDefaultPrice());
+
+      Meat meat = (Meat) products.get(1);
+      assertEquals(MeatTypeEnum.BEEF, meat.getMeatType());
+      assertEquals(meatExpiry, meat.getExpiryDate());
+
+      try (Stream<Product> stream = ProductImporter.streamFromFile(file, FileFormat.XML)) {
+         assertEquals(List.of("C001", "M001"), stream.map(Product::getId).collect(Collectors.toList()));
+      }
+   }
+
+   @Test
+   void testFailuresAreReportedWithLineNumber() throws IOException {
+      String xml = "<products>\n"
+            + "<product type=\"Wine\" id=\"W001\" name=\"Wine\" quality=\"10\" defaultPrice=\"1\"/>\n"
+            + "<product type=\"Wine\" id=\"W002\" name=\"Wine\" quality=\"lots\" defaultPrice=\"1\"/>\n"
+            + "<product type=\"Wine\" id=\"W003\" name=\"Wine\" defaultPrice=\"1\"/>\n"
+            + "<product type=\"Wine\" id=\"W004\" name=\"Wine\" quality=\"10\" defaultPrice=\"1\"/>\n"
+            + "</products>";
+      List<ImportFailure> failures = new ArrayList<>();
+      List<Product> products = new ArrayList<>();
+      XmlProductParser parser = new XmlProductParser(Map.of("Wine", fields -> new Wine(fields.getId(),
+            fields.getName(), fields.getQuality(), fields.getExpiryDate(), fields.getDefaultPrice())), null);
+      parser.setFailureHandler(failures::add);
+
+      parser.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), products::add);
+
+      assertEquals(List.of("W001", "W004"), products.stream().map(Product::getId).toList());
+      assertEquals(List.of(3L, 4L), failures.stream().map(ImportFailure::lineNumber).toList());
+      assertEquals("Missing field quality", failures.get(1).message());
+   }
+
+   @Test
+   void testInvalidXml() {
+      XmlProductParser parser = new XmlProductParser(Map.of(), null);
+      assertThrows(IOException.class, () -> parser
+            .parse(new ByteArrayInputStream("<products><product>".getBytes(StandardCharsets.UTF_8)), product -> {
+            }));
+   }
+}